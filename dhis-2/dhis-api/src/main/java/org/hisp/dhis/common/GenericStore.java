@@ -31,6 +31,7 @@ package org.hisp.dhis.common;
 import org.hisp.dhis.attribute.Attribute;
 import org.hisp.dhis.attribute.AttributeValue;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -97,6 +98,16 @@ public interface GenericStore<T>
 
     <T extends IdentifiableObject> List<T> getByAttributeAndValue(Attribute attribute, String value );
 
+    /**
+     * Retrieves the objects which have the given attribute set to one of the
+     * given values.
+     *
+     * @param attribute the attribute.
+     * @param values    the attribute values.
+     * @return a List of objects.
+     */
+    List<T> getByAttributeAndValues( Attribute attribute, Collection<String> values );
+
     List<AttributeValue> getAttributeValueByAttributeAndValue( Attribute attribute, String value );
 
     List<T> getByAttributeValue( AttributeValue attributeValue );
@@ -158,6 +158,8 @@ public interface IdentifiableObjectManager
 
     <T extends IdentifiableObject> List<T> getByAttributeAndValue( Class<T> klass, Attribute attribute, String value );
 
+    <T extends IdentifiableObject> List<T> getByAttributeAndValues( Class<T> klass, Attribute attribute, Collection<String> values );
+
     <T extends IdentifiableObject> boolean isAttributeValueUnique( Class<? extends IdentifiableObject> klass, T object, AttributeValue attributeValue );
 
     <T extends IdentifiableObject> boolean isAttributeValueUnique( Class<? extends IdentifiableObject> klass, T object, Attribute attribute, String value );
@@ -0,0 +1,74 @@
+package org.hisp.dhis.common;
+
+/*
+ * Copyright (c) 2004-2019, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+/**
+ * Shared index from the UIDs and codes of identifiable objects to their
+ * internal identifiers. Lets imports resolve large numbers of identifiers
+ * without holding the full objects of every candidate, such as the whole
+ * organisation unit hierarchy, in memory.
+ * <p>
+ * Objects are looked up by internal identifier through the index and checked
+ * against the requested identifier, so that objects created, updated or
+ * deleted after being indexed resolve correctly.
+ */
+public interface IdentifierIndex
+{
+    /**
+     * Indicates whether identifiers of the given scheme are resolved through
+     * the index. Other schemes are resolved directly.
+     *
+     * @param idScheme the {@link IdScheme}.
+     * @return true if the scheme is indexed.
+     */
+    boolean isIndexed( IdScheme idScheme );
+
+    /**
+     * Returns the object with the given identifier, or null if no such object
+     * exists or the current user cannot read it.
+     *
+     * @param clazz the object class.
+     * @param idScheme the {@link IdScheme} of the identifier.
+     * @param value the identifier.
+     * @return the object, or null.
+     */
+    <T extends IdentifiableObject> T getObject( Class<T> clazz, IdScheme idScheme, String value );
+
+    /**
+     * Removes the index of the given object class.
+     *
+     * @param clazz the object class.
+     */
+    void invalidate( Class<? extends IdentifiableObject> clazz );
+
+    /**
+     * Removes the indexes of all object classes.
+     */
+    void invalidateAll();
+}
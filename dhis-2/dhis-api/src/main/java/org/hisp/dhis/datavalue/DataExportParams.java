@@ -70,7 +70,7 @@ public class DataExportParams
 
     private Date endDate;
 
-    private Date includedDate;
+    private Set<Date> includedDates = new HashSet<>();
 
     private Set<OrganisationUnit> organisationUnits = new HashSet<>();
 
@@ -167,9 +167,9 @@ public class DataExportParams
         return startDate != null && endDate != null;
     }
 
-    public boolean hasIncludedDate()
+    public boolean hasIncludedDates()
     {
-        return includedDate != null;
+        return includedDates != null && !includedDates.isEmpty();
     }
 
     public boolean hasOrganisationUnits()
@@ -248,7 +248,7 @@ public class DataExportParams
             add( "period types", periodTypes ).
             add( "start date", startDate ).
             add( "end date", endDate ).
-            add( "included date", includedDate ).
+            add( "included dates", includedDates ).
             add( "org units", organisationUnits ).
             add( "children", includeChildren ).
             add( "return parent org unit", returnParentOrgUnit ).
@@ -344,14 +344,14 @@ public class DataExportParams
         return this;
     }
 
-    public Date getIncludedDate()
+    public Set<Date> getIncludedDates()
     {
-        return includedDate;
+        return includedDates;
     }
 
-    public DataExportParams setIncludedDate( Date includedDate )
+    public DataExportParams setIncludedDates( Set<Date> includedDates )
     {
-        this.includedDate = includedDate;
+        this.includedDates = includedDates;
         return this;
     }
 
@@ -353,6 +353,24 @@ public interface ExpressionService
         Map<String, Double> constantMap, Map<String, Integer> orgUnitCountMap, Integer days,
         ListMap<String, Double> aggregateMap );
 
+    /**
+     * Prepares an expression for repeated evaluation with the same semantics
+     * as {@link #getExpressionValueRegEx}. The expression string is processed
+     * and parsed once, after which each evaluation only binds values.
+     *
+     * @param expression the expression which holds the formula for the
+     *         calculation.
+     * @param constantMap the mapping between the constant uid and value to use
+     *         in the calculation.
+     * @param orgUnitCountMap the mapping between organisation unit group uid
+     *         and count of organisation units to use in the calculation.
+     * @param aggregates whether the arguments of aggregate functions are to be
+     *         replaced by the aggregated samples given at evaluation.
+     * @return the prepared expression.
+     */
+    PreparedExpression prepareExpressionRegEx( Expression expression, Map<String, Double> constantMap,
+        Map<String, Integer> orgUnitCountMap, boolean aggregates );
+
     /**
      * Returns all data elements included in the given expression string.
      * Returns an empty set if the given expression is null.
@@ -0,0 +1,59 @@
+package org.hisp.dhis.expression;
+
+/*
+ * Copyright (c) 2004-2019, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.Map;
+
+import org.hisp.dhis.common.DimensionalItemObject;
+import org.hisp.dhis.common.ListMap;
+
+/**
+ * An expression which has been parsed once, with its constants and
+ * organisation unit group counts bound, so that it can be evaluated
+ * repeatedly for different values without processing the expression
+ * string again.
+ *
+ * @see ExpressionService#prepareExpressionRegEx
+ */
+public interface PreparedExpression
+{
+    /**
+     * Evaluates the expression for the given values.
+     *
+     * @param valueMap the mapping between dimensional item objects and values
+     *        to use in the calculation.
+     * @param days the number of days to use in the calculation.
+     * @param aggregateMap a map of subexpression strings to lists of aggregated
+     *        samples for the expression, or null if there are none.
+     * @return the calculated value, or null if the missing value strategy
+     *         of the expression says to skip it or no value can be computed.
+     */
+    Double getValue( Map<? extends DimensionalItemObject, Double> valueMap, Integer days,
+        ListMap<String, Double> aggregateMap );
+}
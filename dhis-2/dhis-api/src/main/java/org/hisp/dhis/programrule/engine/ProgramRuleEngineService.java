@@ -30,6 +30,7 @@ package org.hisp.dhis.programrule.engine;
 
 import org.hisp.dhis.rules.models.RuleEffect;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -40,4 +41,24 @@ public interface ProgramRuleEngineService
     List<RuleEffect> evaluateEnrollment( long enrollment );
 
     List<RuleEffect> evaluateEvent( long event );
+
+    /**
+     * Evaluates the given enrollments in one read-only session, then
+     * implements the resulting rule effects of each enrollment in its own
+     * transaction. A failure for one enrollment is logged and rolled back,
+     * and does not prevent the evaluation of the others.
+     *
+     * @param enrollments the identifiers of the enrollments to evaluate.
+     */
+    void evaluateEnrollments( Collection<Long> enrollments );
+
+    /**
+     * Evaluates the given events in one read-only session, then implements
+     * the resulting rule effects of each event in its own transaction. A
+     * failure for one event is logged and rolled back, and does not prevent
+     * the evaluation of the others.
+     *
+     * @param events the identifiers of the events to evaluate.
+     */
+    void evaluateEvents( Collection<Long> events );
 }
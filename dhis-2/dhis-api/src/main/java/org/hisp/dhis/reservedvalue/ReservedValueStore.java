@@ -40,6 +40,17 @@ public interface ReservedValueStore
 {
     List<ReservedValue> reserveValues( ReservedValue reservedValue, List<String> values );
 
+    /**
+     * Reserves the given values which are neither reserved nor used, up to the
+     * given number of values. Values are checked for availability in batches.
+     *
+     * @param reservedValue the reserved value holding owner, key and expiry date.
+     * @param values the candidate values, in order of preference.
+     * @param numberOfValues the maximum number of values to reserve.
+     * @return the reserved values.
+     */
+    List<ReservedValue> reserveValues( ReservedValue reservedValue, List<String> values, int numberOfValues );
+
     List<ReservedValue> reserveValuesJpa( ReservedValue reservedValue, List<String> values );
 
     List<ReservedValue> getIfReservedValues( ReservedValue reservedValue, List<String> values );
@@ -32,6 +32,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.hisp.dhis.common.CodeGenerator;
 
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 
@@ -98,6 +99,19 @@ public abstract class ResourceTable<T>
         return "alter table " + getTempTableName() + " rename to " + getTableName() + ";";
     }
 
+    /**
+     * Provides content for the temporary resource table as an iterator of object
+     * arrays. Resource tables which can produce rows one by one override this
+     * to avoid holding all rows in memory. Defaults to iterating the content
+     * of {@link #getPopulateTempTableContent()}.
+     *
+     * @return content for the temporary resource table.
+     */
+    public Optional<Iterator<Object[]>> getPopulateTempTableRows()
+    {
+        return getPopulateTempTableContent().map( List::iterator );
+    }
+
     // -------------------------------------------------------------------------
     // Protected methods
     // -------------------------------------------------------------------------
@@ -59,6 +59,8 @@ public class AnalyticsJobParameters
 
     private boolean skipResourceTables = false;
 
+    private boolean incrementalUpdate = false;
+
     public AnalyticsJobParameters()
     {
     }
@@ -92,6 +94,13 @@ public class AnalyticsJobParameters
         return skipResourceTables;
     }
 
+    @JsonProperty
+    @JacksonXmlProperty( namespace = DxfNamespaces.DXF_2_0 )
+    public boolean isIncrementalUpdate()
+    {
+        return incrementalUpdate;
+    }
+
     public void setLastYears( Integer lastYears )
     {
         this.lastYears = lastYears;
@@ -107,6 +116,11 @@ public class AnalyticsJobParameters
         this.skipResourceTables = skipResourceTables;
     }
 
+    public void setIncrementalUpdate( boolean incrementalUpdate )
+    {
+        this.incrementalUpdate = incrementalUpdate;
+    }
+
     @Override
     public Optional<ErrorReport> validate()
     {
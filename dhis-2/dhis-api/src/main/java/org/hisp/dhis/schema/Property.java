@@ -43,6 +43,8 @@ import org.springframework.core.Ordered;
 import java.lang.reflect.Method;
 import java.util.List;
 import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 
 /**
  * @author Morten Olav Hansen <mortenoh@gmail.com>
@@ -80,6 +82,16 @@ public class Property implements Ordered, Klass
      */
     private Method setterMethod;
 
+    /**
+     * Accessor generated from the getter method, see {@link PropertyAccessors}.
+     */
+    private transient Function<Object, Object> getter;
+
+    /**
+     * Accessor generated from the setter method, see {@link PropertyAccessors}.
+     */
+    private transient BiConsumer<Object, Object> setter;
+
     /**
      * Name for this property, if this class is a collection, it is the name of the items -inside- the collection
      * and not the collection wrapper itself.
@@ -341,6 +353,7 @@ public class Property implements Ordered, Klass
     public void setGetterMethod( Method getterMethod )
     {
         this.getterMethod = getterMethod;
+        this.getter = null;
     }
 
     public Method getSetterMethod()
@@ -351,6 +364,69 @@ public class Property implements Ordered, Klass
     public void setSetterMethod( Method setterMethod )
     {
         this.setterMethod = setterMethod;
+        this.setter = null;
+    }
+
+    /**
+     * Generates the accessors for the getter and setter methods, unless
+     * already generated.
+     */
+    public void generateAccessors()
+    {
+        if ( getter == null )
+        {
+            getter = PropertyAccessors.createGetter( getterMethod );
+        }
+
+        if ( setter == null )
+        {
+            setter = PropertyAccessors.createSetter( setterMethod );
+        }
+    }
+
+    /**
+     * Gets the value of this property from an object, using the generated
+     * getter accessor.
+     *
+     * @param object the object to get the value from.
+     * @return the value, or null if the object is null.
+     */
+    @SuppressWarnings( "unchecked" )
+    public <T> T getValue( Object object )
+    {
+        if ( object == null )
+        {
+            return null;
+        }
+
+        if ( getter == null )
+        {
+            getter = PropertyAccessors.createGetter( getterMethod );
+        }
+
+        return (T) getter.apply( object );
+    }
+
+    /**
+     * Sets the value of this property on an object, using the generated
+     * setter accessor.
+     *
+     * @param object the object to set the value on.
+     * @param value  the value.
+     */
+    public void setValue( Object object, Object value )
+    {
+        if ( object == null )
+        {
+            return;
+        }
+
+        if ( setter == null )
+        {
+            setter = PropertyAccessors.createSetter( setterMethod );
+        }
+
+        setter.accept( object, value );
     }
 
     @JsonProperty
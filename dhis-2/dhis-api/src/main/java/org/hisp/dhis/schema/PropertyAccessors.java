@@ -0,0 +1,144 @@
+package org.hisp.dhis.schema;
+
+/*
+ * Copyright (c) 2004-2019, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Generates accessor functions for property getter and setter methods, so
+ * that property values can be read and written without reflection.
+ * <p>
+ * Accessors are generated with {@link LambdaMetafactory}, which makes them
+ * as fast as a direct method call once compiled. Methods which can not be
+ * bound this way fall back to reflective invocation. Protected and private
+ * methods are ignored, as with {@code ReflectionUtils.invokeMethod}.
+ */
+public final class PropertyAccessors
+{
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private static final Function<Object, Object> NO_GETTER = object -> null;
+
+    private static final BiConsumer<Object, Object> NO_SETTER = ( object, value ) -> {};
+
+    private PropertyAccessors()
+    {
+    }
+
+    /**
+     * Creates a function which invokes the given getter method.
+     *
+     * @param method the getter method.
+     * @return the getter function.
+     */
+    @SuppressWarnings( "unchecked" )
+    public static Function<Object, Object> createGetter( Method method )
+    {
+        if ( !isAccessible( method ) )
+        {
+            return NO_GETTER;
+        }
+
+        try
+        {
+            MethodHandle handle = LOOKUP.unreflect( method );
+
+            CallSite callSite = LambdaMetafactory.metafactory( LOOKUP, "apply",
+                MethodType.methodType( Function.class ), MethodType.methodType( Object.class, Object.class ),
+                handle, handle.type().wrap() );
+
+            return (Function<Object, Object>) callSite.getTarget().invokeExact();
+        }
+        catch ( Throwable ex )
+        {
+            return object -> invoke( method, object );
+        }
+    }
+
+    /**
+     * Creates a consumer which invokes the given setter method.
+     *
+     * @param method the setter method.
+     * @return the setter consumer.
+     */
+    @SuppressWarnings( "unchecked" )
+    public static BiConsumer<Object, Object> createSetter( Method method )
+    {
+        if ( !isAccessible( method ) )
+        {
+            return NO_SETTER;
+        }
+
+        try
+        {
+            MethodHandle handle = LOOKUP.unreflect( method );
+
+            CallSite callSite = LambdaMetafactory.metafactory( LOOKUP, "accept",
+                MethodType.methodType( BiConsumer.class ), MethodType.methodType( void.class, Object.class, Object.class ),
+                handle, handle.type().wrap().changeReturnType( void.class ) );
+
+            return (BiConsumer<Object, Object>) callSite.getTarget().invokeExact();
+        }
+        catch ( Throwable ex )
+        {
+            return ( object, value ) -> invoke( method, object, value );
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private static boolean isAccessible( Method method )
+    {
+        return method != null && !Modifier.isProtected( method.getModifiers() )
+            && !Modifier.isPrivate( method.getModifiers() );
+    }
+
+    private static Object invoke( Method method, Object target, Object... args )
+    {
+        try
+        {
+            return method.invoke( target, args );
+        }
+        catch ( InvocationTargetException | IllegalAccessException ex )
+        {
+            throw new RuntimeException( ex );
+        }
+    }
+}
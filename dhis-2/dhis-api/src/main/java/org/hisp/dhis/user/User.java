@@ -425,6 +425,32 @@ public class User
         return false;
     }
 
+    /**
+     * Indicates whether this user is a member of the given user group. Checks
+     * the groups of this user, which are few compared to the members of a
+     * group, so that the members of the group are not loaded.
+     *
+     * @param userGroup the user group to test.
+     * @return true if this user is a member of the given user group.
+     */
+    public boolean isMemberOf( UserGroup userGroup )
+    {
+        if ( userGroup == null || userGroup.getUid() == null || groups == null )
+        {
+            return false;
+        }
+
+        for ( UserGroup group : groups )
+        {
+            if ( group != null && userGroup.getUid().equals( group.getUid() ) )
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
     public static String getSafeUsername( String username )
     {
         return StringUtils.isEmpty( username ) ? "[Unknown]" : username;
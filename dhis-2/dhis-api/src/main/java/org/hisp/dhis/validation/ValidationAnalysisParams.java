@@ -71,6 +71,8 @@ public final class ValidationAnalysisParams
 
     private boolean persistResults = false;
 
+    private boolean returnResults = true;
+
     private int dayInPeriod = -1;
 
     /**
@@ -144,6 +146,17 @@ public final class ValidationAnalysisParams
         return persistResults;
     }
 
+    /**
+     * Gets whether or not the results of the analysis should be kept in memory and returned.
+     * When false, only the results needed for notifications are kept.
+     *
+     * @return true if results should be returned, false if not.
+     */
+    public boolean isReturnResults()
+    {
+        return returnResults;
+    }
+
     /**
      * Gets which day of a period the analysis should be run for. If a validation rule is utilizing sliding windows,
      * this property will decide the positioning of the window relative to the period checked. In cases where the
@@ -217,6 +230,19 @@ public final class ValidationAnalysisParams
             return this;
         }
 
+        /**
+         * If set to false, results will not be kept in memory and returned, except for those needed to
+         * send notifications. This keeps memory use flat for large analyses where results are persisted.
+         *
+         * @param returnResults true if results should be returned, false if not.
+         * @return the updated builder object
+         */
+        public Builder withReturnResults( boolean returnResults )
+        {
+            this.params.returnResults = returnResults;
+            return this;
+        }
+
         /**
          * If set to true, notifications will be sent after the analysis is completed if any results where found
          *
@@ -0,0 +1,165 @@
+package org.hisp.dhis.schema;
+
+/*
+ * Copyright (c) 2004-2019, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+import org.hisp.dhis.dataelement.DataElement;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the generated accessors of {@link Property}.
+ */
+public class PropertyTest
+{
+    @Test
+    public void testGetSetValue() throws Exception
+    {
+        Property property = new Property( String.class, DataElement.class.getMethod( "getName" ),
+            DataElement.class.getMethod( "setName", String.class ) );
+
+        DataElement dataElement = new DataElement( "DataElementA" );
+
+        assertEquals( "DataElementA", property.getValue( dataElement ) );
+
+        property.setValue( dataElement, "DataElementB" );
+
+        assertEquals( "DataElementB", dataElement.getName() );
+        assertEquals( "DataElementB", property.getValue( dataElement ) );
+    }
+
+    @Test
+    public void testGetSetPrimitiveValue() throws Exception
+    {
+        Property property = new Property( boolean.class, DataElement.class.getMethod( "isZeroIsSignificant" ),
+            DataElement.class.getMethod( "setZeroIsSignificant", boolean.class ) );
+        property.generateAccessors();
+
+        DataElement dataElement = new DataElement( "DataElementA" );
+
+        property.setValue( dataElement, true );
+
+        assertTrue( dataElement.isZeroIsSignificant() );
+        assertEquals( Boolean.TRUE, property.getValue( dataElement ) );
+
+        property.setValue( dataElement, false );
+
+        assertFalse( property.getValue( dataElement ) );
+    }
+
+    @Test
+    public void testNullObjectAndMethods()
+    {
+        Property property = new Property( String.class, null, null );
+
+        DataElement dataElement = new DataElement( "DataElementA" );
+
+        assertNull( property.getValue( null ) );
+        assertNull( property.getValue( dataElement ) );
+
+        property.setValue( dataElement, "DataElementB" );
+
+        assertEquals( "DataElementA", dataElement.getName() );
+    }
+
+    @Test
+    public void testChangeGetterMethod() throws Exception
+    {
+        Property property = new Property( String.class, DataElement.class.getMethod( "getName" ), null );
+
+        DataElement dataElement = new DataElement( "DataElementA" );
+        dataElement.setCode( "CodeA" );
+
+        assertEquals( "DataElementA", property.getValue( dataElement ) );
+
+        property.setGetterMethod( DataElement.class.getMethod( "getCode" ) );
+
+        assertEquals( "CodeA", property.getValue( dataElement ) );
+    }
+
+    @Test
+    public void testPackagePrivateMethods() throws Exception
+    {
+        Property property = new Property( String.class, Item.class.getDeclaredMethod( "getName" ),
+            Item.class.getDeclaredMethod( "setName", String.class ) );
+
+        Item item = new Item();
+
+        property.setValue( item, "ItemA" );
+
+        assertEquals( "ItemA", item.name );
+        assertEquals( "ItemA", property.getValue( item ) );
+    }
+
+    @Test
+    public void testPrivateMethodsIgnored() throws Exception
+    {
+        Property property = new Property( String.class, Item.class.getDeclaredMethod( "getCode" ),
+            Item.class.getDeclaredMethod( "setCode", String.class ) );
+
+        Item item = new Item();
+        item.code = "CodeA";
+
+        property.setValue( item, "CodeB" );
+
+        assertEquals( "CodeA", item.code );
+        assertNull( property.getValue( item ) );
+    }
+
+    static class Item
+    {
+        private String name;
+
+        private String code;
+
+        String getName()
+        {
+            return name;
+        }
+
+        void setName( String name )
+        {
+            this.name = name;
+        }
+
+        private String getCode()
+        {
+            return code;
+        }
+
+        private void setCode( String code )
+        {
+            this.code = code;
+        }
+    }
+}
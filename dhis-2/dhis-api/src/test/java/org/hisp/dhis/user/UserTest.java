@@ -0,0 +1,126 @@
+package org.hisp.dhis.user;
+
+/*
+ * Copyright (c) 2004-2019, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link User}.
+ */
+public class UserTest
+{
+    private UserGroup userGroupA;
+
+    private UserGroup userGroupB;
+
+    private UserGroup userGroupC;
+
+    @Before
+    public void setUp()
+    {
+        userGroupA = new UserGroup( "GroupA" );
+        userGroupA.setUid( "uidA" );
+
+        userGroupB = new UserGroup( "GroupB" );
+        userGroupB.setUid( "uidB" );
+
+        userGroupC = new UserGroup( "GroupC" );
+        userGroupC.setUid( "uidC" );
+    }
+
+    @Test
+    public void isMemberOf()
+    {
+        User user = new User();
+        user.setGroups( new HashSet<>( Arrays.asList( userGroupA, userGroupB ) ) );
+
+        assertTrue( user.isMemberOf( userGroupA ) );
+        assertTrue( user.isMemberOf( userGroupB ) );
+        assertFalse( user.isMemberOf( userGroupC ) );
+        assertFalse( user.isMemberOf( null ) );
+    }
+
+    @Test
+    public void isMemberOfGroupsChanged()
+    {
+        User user = new User();
+        user.setGroups( new HashSet<>( Arrays.asList( userGroupA, userGroupB ) ) );
+
+        assertTrue( user.isMemberOf( userGroupA ) );
+
+        user.setGroups( new HashSet<>( Arrays.asList( userGroupB, userGroupC ) ) );
+
+        assertFalse( user.isMemberOf( userGroupA ) );
+        assertTrue( user.isMemberOf( userGroupC ) );
+    }
+
+    @Test
+    public void isMemberOfUsersChanged()
+    {
+        User user = new User();
+        userGroupA.addUser( user );
+
+        assertTrue( user.isMemberOf( userGroupA ) );
+        assertFalse( user.isMemberOf( userGroupB ) );
+
+        userGroupA.removeUser( user );
+        userGroupB.addUser( user );
+
+        assertFalse( user.isMemberOf( userGroupA ) );
+        assertTrue( user.isMemberOf( userGroupB ) );
+
+        user.getGroups().add( userGroupC );
+
+        assertTrue( user.isMemberOf( userGroupC ) );
+    }
+
+    @Test
+    public void isMemberOfGroupSwappedInPlace()
+    {
+        User user = new User();
+        user.setGroups( new HashSet<>( Arrays.asList( userGroupA, userGroupB ) ) );
+
+        assertTrue( user.isMemberOf( userGroupA ) );
+        assertFalse( user.isMemberOf( userGroupC ) );
+
+        user.getGroups().remove( userGroupA );
+        user.getGroups().add( userGroupC );
+
+        assertFalse( user.isMemberOf( userGroupA ) );
+        assertTrue( user.isMemberOf( userGroupB ) );
+        assertTrue( user.isMemberOf( userGroupC ) );
+    }
+}
@@ -215,12 +215,15 @@ public class AccessStringHelper
             return false;
         }
 
-        byte[] bytes = access.getBytes();
-
-        return (bytes[0] == '-' || bytes[0] == 'r')
-            && (bytes[1] == '-' || bytes[1] == 'w')
-            && (bytes[2] == '-' || bytes[2] == 'r')
-            && (bytes[3] == '-' || bytes[3] == 'w');
+        char read = access.charAt( 0 );
+        char write = access.charAt( 1 );
+        char dataRead = access.charAt( 2 );
+        char dataWrite = access.charAt( 3 );
+
+        return (read == '-' || read == 'r')
+            && (write == '-' || write == 'w')
+            && (dataRead == '-' || dataRead == 'r')
+            && (dataWrite == '-' || dataWrite == 'w');
     }
 
     public static boolean hasDataSharing( String access )
@@ -28,6 +28,7 @@ package org.hisp.dhis.security.acl;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import org.hibernate.Hibernate;
 import org.hisp.dhis.category.CategoryOption;
 import org.hisp.dhis.category.CategoryOptionCombo;
 import org.hisp.dhis.common.BaseIdentifiableObject;
@@ -40,6 +41,7 @@ import org.hisp.dhis.security.AuthorityType;
 import org.hisp.dhis.security.acl.AccessStringHelper.Permission;
 import org.hisp.dhis.user.User;
 import org.hisp.dhis.user.UserAccess;
+import org.hisp.dhis.user.UserGroup;
 import org.hisp.dhis.user.UserGroupAccess;
 import org.springframework.stereotype.Service;
 
@@ -656,7 +658,7 @@ public class DefaultAclService implements AclService
              *
              */
             if ( AccessStringHelper.isEnabled( userGroupAccess.getAccess(), permission )
-                && userGroupAccess.getUserGroup().getMembers().contains( user ) )
+                && isMember( user, userGroupAccess.getUserGroup() ) )
             {
                 return true;
             }
@@ -678,6 +680,22 @@ public class DefaultAclService implements AclService
         return false;
     }
 
+    /**
+     * Is the given user a member of the given user group. Membership is looked
+     * up through the groups of the user, which are few, so that the potentially
+     * large member collection of the group is only consulted when it is already
+     * loaded (e.g. holds unsaved changes).
+     *
+     * @param user      User to check against
+     * @param userGroup User group to check against
+     * @return true if user is a member of the user group, false otherwise
+     */
+    private boolean isMember( User user, UserGroup userGroup )
+    {
+        return user.isMemberOf( userGroup )
+            || (Hibernate.isInitialized( userGroup.getMembers() ) && userGroup.getMembers().contains( user ));
+    }
+
     private boolean checkOptionComboSharingPermission( User user, IdentifiableObject object, Permission permission )
     {
         CategoryOptionCombo optionCombo = (CategoryOptionCombo) object;
@@ -28,6 +28,12 @@ package org.hisp.dhis.resourcetable.jdbc;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 
@@ -41,6 +47,10 @@ import org.hisp.dhis.jdbc.StatementBuilder;
 import org.hisp.dhis.resourcetable.ResourceTable;
 import org.hisp.dhis.resourcetable.ResourceTableStore;
 import org.hisp.dhis.system.util.Clock;
+import org.hisp.dhis.util.DateUtils;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
@@ -55,6 +65,16 @@ public class JdbcResourceTableStore
 {
     private static final Log log = LogFactory.getLog( JdbcResourceTableStore.class );
 
+    /**
+     * Number of rows per batch when rows are inserted through insert statements.
+     */
+    private static final int INSERT_BATCH_SIZE = 10000;
+
+    /**
+     * Number of characters buffered before they are sent to a copy operation.
+     */
+    private static final int COPY_BUFFER_SIZE = 65536;
+
     // -------------------------------------------------------------------------
     // Dependencies
     // -------------------------------------------------------------------------
@@ -93,7 +113,7 @@ public class JdbcResourceTableStore
         final Clock clock = new Clock().startClock();
         final String createTableSql = resourceTable.getCreateTempTableStatement();
         final Optional<String> populateTableSql = resourceTable.getPopulateTempTableStatement();
-        final Optional<List<Object[]>> populateTableContent = resourceTable.getPopulateTempTableContent();
+        final Optional<Iterator<Object[]>> populateTableRows = resourceTable.getPopulateTempTableRows();
         final List<String> createIndexSql = resourceTable.getCreateIndexStatements();
         final String analyzeTableSql = statementBuilder.getAnalyze( resourceTable.getTableName() );
 
@@ -115,7 +135,7 @@ public class JdbcResourceTableStore
         jdbcTemplate.execute( createTableSql );
 
         // ---------------------------------------------------------------------
-        // Populate temporary table through SQL or object batch update
+        // Populate temporary table through SQL or bulk load of object rows
         // ---------------------------------------------------------------------
 
         if ( populateTableSql.isPresent() )
@@ -124,18 +144,11 @@ public class JdbcResourceTableStore
 
             jdbcTemplate.execute( populateTableSql.get() );
         }
-        else if ( populateTableContent.isPresent() )
+        else if ( populateTableRows.isPresent() )
         {
-            List<Object[]> content = populateTableContent.get();
-
-            log.debug( String.format( "Populate table content rows: '%d'", content.size() ) );
-
-            if ( content.size() > 0 )
-            {
-                int columns = content.get( 0 ).length;
+            long rows = bulkLoad( resourceTable.getTempTableName(), populateTableRows.get() );
 
-                batchUpdate( columns, resourceTable.getTempTableName(), content );
-            }
+            log.debug( String.format( "Populate table content rows: '%d'", rows ) );
         }
 
         // ---------------------------------------------------------------------
@@ -211,4 +224,130 @@ public class JdbcResourceTableStore
 
         jdbcTemplate.batchUpdate( builder.toString(), batchArgs );
     }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Loads the given rows into the given table. Rows are consumed one by one
+     * and streamed through a copy operation on PostgreSQL, and inserted in
+     * batches on other databases.
+     *
+     * @param tableName the table name.
+     * @param rows the rows, each holding a value for every column of the table.
+     * @return the number of loaded rows.
+     */
+    private long bulkLoad( String tableName, Iterator<Object[]> rows )
+    {
+        return jdbcTemplate.execute( (ConnectionCallback<Long>) connection ->
+        {
+            if ( connection.isWrapperFor( PGConnection.class ) )
+            {
+                return copyIn( connection.unwrap( PGConnection.class ), tableName, rows );
+            }
+
+            return batchInsert( tableName, rows );
+        } );
+    }
+
+    private long copyIn( PGConnection connection, String tableName, Iterator<Object[]> rows )
+        throws SQLException
+    {
+        CopyIn copyIn = connection.getCopyAPI().copyIn( "copy " + tableName + " from stdin with (format csv)" );
+
+        try
+        {
+            StringBuilder buffer = new StringBuilder();
+
+            while ( rows.hasNext() )
+            {
+                appendCsvRow( buffer, rows.next() );
+
+                if ( buffer.length() >= COPY_BUFFER_SIZE )
+                {
+                    writeToCopy( copyIn, buffer );
+                }
+            }
+
+            writeToCopy( copyIn, buffer );
+
+            return copyIn.endCopy();
+        }
+        finally
+        {
+            if ( copyIn.isActive() )
+            {
+                copyIn.cancelCopy();
+            }
+        }
+    }
+
+    private void writeToCopy( CopyIn copyIn, StringBuilder buffer )
+        throws SQLException
+    {
+        byte[] bytes = buffer.toString().getBytes( StandardCharsets.UTF_8 );
+
+        copyIn.writeToCopy( bytes, 0, bytes.length );
+
+        buffer.setLength( 0 );
+    }
+
+    private long batchInsert( String tableName, Iterator<Object[]> rows )
+    {
+        List<Object[]> batch = new ArrayList<>();
+        long count = 0;
+
+        while ( rows.hasNext() )
+        {
+            batch.add( rows.next() );
+
+            if ( batch.size() == INSERT_BATCH_SIZE || !rows.hasNext() )
+            {
+                batchUpdate( batch.get( 0 ).length, tableName, batch );
+
+                count += batch.size();
+                batch.clear();
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Appends the given row to the given buffer as a line in CSV format as read
+     * by the PostgreSQL copy command. Null values are left empty and strings
+     * are always quoted, so that empty strings and nulls are kept apart. Dates
+     * are written as dates without time, as used by the resource tables.
+     *
+     * @param buffer the buffer.
+     * @param row the row values.
+     */
+    static void appendCsvRow( StringBuilder buffer, Object[] row )
+    {
+        for ( int i = 0; i < row.length; i++ )
+        {
+            if ( i > 0 )
+            {
+                buffer.append( ',' );
+            }
+
+            Object value = row[i];
+
+            if ( value instanceof Date )
+            {
+                buffer.append( DateUtils.getMediumDateString( (Date) value ) );
+            }
+            else if ( value instanceof Number || value instanceof Boolean )
+            {
+                buffer.append( value );
+            }
+            else if ( value != null )
+            {
+                buffer.append( '"' ).append( value.toString().replace( "\"", "\"\"" ) ).append( '"' );
+            }
+        }
+
+        buffer.append( '\n' );
+    }
 }
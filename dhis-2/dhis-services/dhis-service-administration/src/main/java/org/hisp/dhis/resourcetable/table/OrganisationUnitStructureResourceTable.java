@@ -29,17 +29,19 @@ package org.hisp.dhis.resourcetable.table;
  */
 
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.stream.IntStream;
 
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.organisationunit.OrganisationUnitService;
 import org.hisp.dhis.resourcetable.ResourceTable;
 import org.hisp.dhis.resourcetable.ResourceTableType;
 
+import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
 
 import static org.hisp.dhis.system.util.SqlUtils.quote;
@@ -95,47 +97,56 @@ public class OrganisationUnitStructureResourceTable
     @Override
     public Optional<List<Object[]>> getPopulateTempTableContent()
     {
-        List<Object[]> batchArgs = new ArrayList<>();
-
-        for ( int i = 0; i < organisationUnitLevels; i++ )
-        {
-            int level = i + 1;
+        return Optional.of( Lists.newArrayList( getRows() ) );
+    }
 
-            Collection<OrganisationUnit> units = organisationUnitService.getOrganisationUnitsAtLevel( level );
+    @Override
+    public Optional<Iterator<Object[]>> getPopulateTempTableRows()
+    {
+        return Optional.of( getRows() );
+    }
 
-            for ( OrganisationUnit unit : units )
-            {
-                List<Object> values = new ArrayList<>();
+    /**
+     * Returns an iterator which loads the organisation units level by level and
+     * creates the row of each organisation unit when it is reached.
+     */
+    private Iterator<Object[]> getRows()
+    {
+        return Iterators.concat( IntStream.rangeClosed( 1, organisationUnitLevels )
+            .mapToObj( level -> Iterators.transform( organisationUnitService.getOrganisationUnitsAtLevel( level ).iterator(),
+                unit -> getRow( unit, level ) ) )
+            .iterator() );
+    }
 
-                values.add( unit.getId() );
-                values.add( unit.getUid() );
-                values.add( level );
+    private Object[] getRow( OrganisationUnit unit, int level )
+    {
+        List<Object> values = new ArrayList<>();
 
-                Map<Integer, Long> identifiers = new HashMap<>();
-                Map<Integer, String> uids = new HashMap<>();
-                Map<Integer, String> names = new HashMap<>();
+        values.add( unit.getId() );
+        values.add( unit.getUid() );
+        values.add( level );
 
-                for ( int j = level; j > 0; j-- )
-                {
-                    identifiers.put( j, unit.getId() );
-                    uids.put( j, unit.getUid() );
-                    names.put( j, unit.getName() );
+        Map<Integer, Long> identifiers = new HashMap<>();
+        Map<Integer, String> uids = new HashMap<>();
+        Map<Integer, String> names = new HashMap<>();
 
-                    unit = unit.getParent();
-                }
+        for ( int j = level; j > 0; j-- )
+        {
+            identifiers.put( j, unit.getId() );
+            uids.put( j, unit.getUid() );
+            names.put( j, unit.getName() );
 
-                for ( int k = 1; k <= organisationUnitLevels; k++ )
-                {
-                    values.add( identifiers.get( k ) != null ? identifiers.get( k ) : null );
-                    values.add( uids.get( k ) );
-                    values.add( names.get( k ) );
-                }
+            unit = unit.getParent();
+        }
 
-                batchArgs.add( values.toArray() );
-            }
+        for ( int k = 1; k <= organisationUnitLevels; k++ )
+        {
+            values.add( identifiers.get( k ) != null ? identifiers.get( k ) : null );
+            values.add( uids.get( k ) );
+            values.add( names.get( k ) );
         }
 
-        return Optional.of( batchArgs );
+        return values.toArray();
     }
 
     @Override
@@ -0,0 +1,58 @@
+package org.hisp.dhis.resourcetable.jdbc;
+
+/*
+ * Copyright (c) 2004-2019, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import org.hisp.dhis.util.DateUtils;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class JdbcResourceTableStoreTest
+{
+    @Test
+    public void testAppendCsvRow()
+    {
+        StringBuilder buffer = new StringBuilder();
+
+        JdbcResourceTableStore.appendCsvRow( buffer, new Object[] { 1L, "abc", null, 3, true } );
+        JdbcResourceTableStore.appendCsvRow( buffer, new Object[] { "", "say \"hi\", then\nleave", 2.5 } );
+
+        assertEquals( "1,\"abc\",,3,true\n\"\",\"say \"\"hi\"\", then\nleave\",2.5\n", buffer.toString() );
+    }
+
+    @Test
+    public void testAppendCsvRowDate()
+    {
+        StringBuilder buffer = new StringBuilder();
+
+        JdbcResourceTableStore.appendCsvRow( buffer, new Object[] { DateUtils.parseDate( "2019-03-14" ), 2019 } );
+
+        assertEquals( "2019-03-14,2019\n", buffer.toString() );
+    }
+}
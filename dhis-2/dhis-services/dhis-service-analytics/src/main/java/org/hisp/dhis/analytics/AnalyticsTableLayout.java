@@ -0,0 +1,70 @@
+package org.hisp.dhis.analytics;
+
+/*
+ * Copyright (c) 2004-2019, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+/**
+ * Physical layout of analytics tables.
+ *
+ * <ul>
+ * <li>DEFAULT: heap tables with columns in declaration order and a B-tree index
+ * per dimension column.</li>
+ * <li>COMPACT: columns ordered by storage alignment to avoid padding, BRIN
+ * indexes for date and time columns and optional compression of text columns.
+ * Intended for large instances where disk usage and I/O dominate.</li>
+ * </ul>
+ */
+public enum AnalyticsTableLayout
+{
+    DEFAULT,
+    COMPACT;
+
+    public boolean isCompact()
+    {
+        return this == COMPACT;
+    }
+
+    /**
+     * Returns the layout matching the given name, ignoring case, or DEFAULT if
+     * the name is blank or not a valid layout.
+     *
+     * @param name the layout name.
+     */
+    public static AnalyticsTableLayout fromName( String name )
+    {
+        for ( AnalyticsTableLayout layout : values() )
+        {
+            if ( layout.name().equalsIgnoreCase( name != null ? name.trim() : null ) )
+            {
+                return layout;
+            }
+        }
+
+        return DEFAULT;
+    }
+}
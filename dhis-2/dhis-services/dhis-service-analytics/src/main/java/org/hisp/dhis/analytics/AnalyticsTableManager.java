@@ -29,6 +29,7 @@ package org.hisp.dhis.analytics;
  */
 
 import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedQueue;
@@ -88,11 +89,32 @@ public interface AnalyticsTableManager
     void removeUpdatedData( AnalyticsTableUpdateParams params, List<AnalyticsTable> tables );
 
     /**
-     * Attempts to drop and then create analytics table.
+     * Indicates whether this manager supports incremental update of the existing
+     * analytics table partitions.
      *
+     * @return true if incremental update is supported.
+     */
+    boolean supportsIncrementalUpdate();
+
+    /**
+     * Updates the existing analytics table partitions in place. Rows for data which
+     * was created, updated or deleted between the given start date and the start
+     * time of the update process are deleted and inserted again.
+     *
+     * @param params the {@link AnalyticsTableUpdateParams}.
+     * @param startDate the start date, typically the time of the last successful update.
+     * @return the number of changed data keys.
+     */
+    int updateChangedData( AnalyticsTableUpdateParams params, Date startDate );
+
+    /**
+     * Attempts to drop and then create analytics table. The physical layout of
+     * the table is determined by the given parameters.
+     *
+     * @param params the {@link AnalyticsTableUpdateParams}.
      * @param table the analytics table.
      */
-    void createTable( AnalyticsTable table );
+    void createTable( AnalyticsTableUpdateParams params, AnalyticsTable table );
 
     /**
      * Creates single indexes on the given columns of the analytics table with
@@ -61,6 +61,25 @@ public class AnalyticsTableUpdateParams
      */
     boolean skipResourceTables;
 
+    /**
+     * Indicates whether to update the existing analytics table partitions in
+     * place with data changed since the last successful update, instead of
+     * rebuilding the partitions.
+     */
+    boolean incrementalUpdate;
+
+    /**
+     * Physical layout of the analytics tables. A null value indicates that the
+     * layout configured in dhis.conf is used.
+     */
+    private AnalyticsTableLayout tableLayout;
+
+    /**
+     * Compression method for text columns, such as "lz4", used with the compact
+     * table layout. A null value indicates no explicit compression.
+     */
+    private String tableCompression;
+
     /**
      * Analytics table types to skip.
      */
@@ -100,6 +119,21 @@ public class AnalyticsTableUpdateParams
         return skipResourceTables;
     }
 
+    public boolean isIncrementalUpdate()
+    {
+        return incrementalUpdate;
+    }
+
+    public AnalyticsTableLayout getTableLayout()
+    {
+        return tableLayout;
+    }
+
+    public String getTableCompression()
+    {
+        return tableCompression;
+    }
+
     public Set<AnalyticsTableType> getSkipTableTypes()
     {
         return skipTableTypes;
@@ -127,7 +161,7 @@ public class AnalyticsTableUpdateParams
      */
     public boolean isPartialUpdate()
     {
-        return lastYears != null || isLatestUpdate();
+        return lastYears != null || isLatestUpdate() || incrementalUpdate;
     }
 
     /**
@@ -138,6 +172,23 @@ public class AnalyticsTableUpdateParams
         return Objects.equals( lastYears, AnalyticsTablePartition.LATEST_PARTITION );
     }
 
+    /**
+     * Indicates whether analytics tables are to be created with the compact
+     * physical layout.
+     */
+    public boolean isCompactTableLayout()
+    {
+        return tableLayout != null && tableLayout.isCompact();
+    }
+
+    /**
+     * Indicates whether a compression method is specified for text columns.
+     */
+    public boolean hasTableCompression()
+    {
+        return tableCompression != null && !tableCompression.trim().isEmpty();
+    }
+
     // -------------------------------------------------------------------------
     // toString
     // -------------------------------------------------------------------------
@@ -148,6 +199,9 @@ public class AnalyticsTableUpdateParams
         return MoreObjects.toStringHelper( this )
             .add( "last years", lastYears )
             .add( "skip resource tables", skipResourceTables )
+            .add( "incremental update", incrementalUpdate )
+            .add( "table layout", tableLayout )
+            .add( "table compression", tableCompression )
             .add( "skip table types", skipTableTypes )
             .add( "start time", DateUtils.getLongDateString( startTime ) )
             .toString();
@@ -190,6 +244,9 @@ public class AnalyticsTableUpdateParams
 
         params.lastYears = this.lastYears;
         params.skipResourceTables = this.skipResourceTables;
+        params.incrementalUpdate = this.incrementalUpdate;
+        params.tableLayout = this.tableLayout;
+        params.tableCompression = this.tableCompression;
         params.skipTableTypes = new HashSet<>( this.skipTableTypes );
         params.jobId = this.jobId;
         params.startTime = this.startTime;
@@ -243,6 +300,24 @@ public class AnalyticsTableUpdateParams
             return this;
         }
 
+        public Builder withIncrementalUpdate( boolean incrementalUpdate )
+        {
+            this.params.incrementalUpdate = incrementalUpdate;
+            return this;
+        }
+
+        public Builder withTableLayout( AnalyticsTableLayout tableLayout )
+        {
+            this.params.tableLayout = tableLayout;
+            return this;
+        }
+
+        public Builder withTableCompression( String tableCompression )
+        {
+            this.params.tableCompression = tableCompression;
+            return this;
+        }
+
         public Builder withSkipTableTypes( Set<AnalyticsTableType> skipTableTypes )
         {
             this.params.skipTableTypes = skipTableTypes;
@@ -33,27 +33,43 @@ package org.hisp.dhis.analytics;
 */
 public enum ColumnDataType
 {
-    CHARACTER_11( "character(11)" ),
-    CHARACTER_50( "character(50)" ),
-    TEXT( "text" ),
-    DATE( "date" ),
-    TIMESTAMP( "timestamp" ),
-    INTEGER( "integer" ),
-    BIGINT( "bigint" ),
-    DOUBLE( "double precision" ),
-    BOOLEAN( "boolean" ),
-    GEOMETRY( "geometry" ),
-    GEOMETRY_POINT( "geometry(Point, 4326)" );
+    CHARACTER_11( "character(11)", -1 ),
+    CHARACTER_50( "character(50)", -1 ),
+    TEXT( "text", -1 ),
+    DATE( "date", 4 ),
+    TIMESTAMP( "timestamp", 8 ),
+    INTEGER( "integer", 4 ),
+    BIGINT( "bigint", 8 ),
+    DOUBLE( "double precision", 8 ),
+    BOOLEAN( "boolean", 1 ),
+    GEOMETRY( "geometry", -1 ),
+    GEOMETRY_POINT( "geometry(Point, 4326)", -1 );
 
     String value;
 
-    ColumnDataType( String value )
+    /**
+     * Fixed storage width in bytes, or -1 for variable length types.
+     */
+    int width;
+
+    ColumnDataType( String value, int width )
     {
         this.value = value;
+        this.width = width;
     }
 
     public String getValue()
     {
         return value;
     }
+
+    public int getWidth()
+    {
+        return width;
+    }
+
+    public boolean isFixedWidth()
+    {
+        return width > 0;
+    }
 }
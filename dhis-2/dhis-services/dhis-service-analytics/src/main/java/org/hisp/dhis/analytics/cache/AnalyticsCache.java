@@ -0,0 +1,305 @@
+package org.hisp.dhis.analytics.cache;
+
+/*
+ * Copyright (c) 2004-2019, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hisp.dhis.cache.Cache;
+import org.hisp.dhis.cache.CacheProvider;
+import org.hisp.dhis.common.Grid;
+import org.hisp.dhis.commons.util.SystemUtils;
+import org.hisp.dhis.external.conf.ConfigurationKey;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import com.google.common.collect.ImmutableMap;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Server-side cache for analytics query responses.
+ * <p>
+ * Entries are fresh for the configured cache expiration. After that, they are
+ * served stale for the configured stale expiration while a single request
+ * reloads the response, so that concurrent requests for the same key do not
+ * block on the query. The reload runs on the request thread, with the security
+ * context and session of the requesting user, as analytics responses depend on
+ * the data read restrictions of the user. The cache is tied to the analytics table
+ * generation: {@link #invalidateAll()} is invoked when analytics tables are
+ * swapped or updated, and responses which were being loaded at that time are
+ * not cached.
+ * <p>
+ * Hits, stale hits and misses are counted per region in the
+ * {@value #METRIC_GETS} metric, and load times are recorded in the
+ * {@value #METRIC_LOAD} metric.
+ */
+@Component( "org.hisp.dhis.analytics.cache.AnalyticsCache" )
+public class AnalyticsCache
+{
+    private static final Log log = LogFactory.getLog( AnalyticsCache.class );
+
+    public static final String REGION_AGGREGATE = "analyticsQueryResponse";
+
+    public static final String REGION_EVENT = "eventAnalyticsQueryResponse";
+
+    static final String METRIC_GETS = "analytics.cache.gets";
+
+    static final String METRIC_LOAD = "analytics.cache.load";
+
+    private static final int MAX_CACHE_ENTRIES = 20000;
+
+    private final MeterRegistry meterRegistry;
+
+    private final boolean enabled;
+
+    private final long expirationMillis;
+
+    private final long staleExpirationMillis;
+
+    private final Map<String, Cache<CachedGrid>> regions;
+
+    private final Set<String> refreshingKeys = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong generation = new AtomicLong();
+
+    @Autowired
+    public AnalyticsCache( DhisConfigurationProvider config, CacheProvider cacheProvider,
+        MeterRegistry meterRegistry, Environment environment )
+    {
+        this( cacheProvider, meterRegistry, config.getAnalyticsCacheExpiration(),
+            Long.parseLong( config.getProperty( ConfigurationKey.ANALYTICS_CACHE_STALE_EXPIRATION ) ),
+            !SystemUtils.isTestRun( environment.getActiveProfiles() ) );
+    }
+
+    /**
+     * @param cacheProvider the {@link CacheProvider}.
+     * @param meterRegistry the {@link MeterRegistry}.
+     * @param expiration the expiration of fresh entries in seconds, zero
+     *        disables the cache.
+     * @param staleExpiration the time in seconds for which entries are served
+     *        stale after expiration.
+     * @param allowed whether the cache is allowed in the current environment.
+     */
+    public AnalyticsCache( CacheProvider cacheProvider, MeterRegistry meterRegistry,
+        long expiration, long staleExpiration, boolean allowed )
+    {
+        checkNotNull( cacheProvider );
+        checkNotNull( meterRegistry );
+
+        this.meterRegistry = meterRegistry;
+        this.enabled = expiration > 0 && allowed;
+        this.expirationMillis = TimeUnit.SECONDS.toMillis( Math.max( 0, expiration ) );
+        this.staleExpirationMillis = TimeUnit.SECONDS.toMillis( Math.max( 0, staleExpiration ) );
+
+        long maxSize = enabled ? MAX_CACHE_ENTRIES : 0;
+        long ttl = Math.max( 0, expiration ) + Math.max( 0, staleExpiration );
+
+        this.regions = ImmutableMap.of(
+            REGION_AGGREGATE, cacheProvider.newCacheBuilder( CachedGrid.class ).forRegion( REGION_AGGREGATE )
+                .expireAfterWrite( ttl, TimeUnit.SECONDS ).withMaximumSize( maxSize ).build(),
+            REGION_EVENT, cacheProvider.newCacheBuilder( CachedGrid.class ).forRegion( REGION_EVENT )
+                .expireAfterWrite( ttl, TimeUnit.SECONDS ).withMaximumSize( maxSize ).build() );
+
+        log.info( String.format( "Analytics server-side cache is enabled: %b with expiration: %d s, stale expiration: %d s",
+            enabled, expiration, staleExpiration ) );
+    }
+
+    // -------------------------------------------------------------------------
+    // Logic
+    // -------------------------------------------------------------------------
+
+    /**
+     * Indicates whether the cache is enabled.
+     */
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * Returns the cached response for the given key. Loads the response with the
+     * given loader if not cached. Reloads the response if stale, unless another
+     * request is already reloading it, in which case the stale response is
+     * returned.
+     *
+     * @param region the cache region, {@link #REGION_AGGREGATE} or
+     *        {@link #REGION_EVENT}.
+     * @param key the cache key.
+     * @param loader the function loading the response for the key.
+     * @return the response.
+     */
+    public Optional<Grid> get( String region, String key, Function<String, Grid> loader )
+    {
+        if ( !enabled )
+        {
+            return Optional.ofNullable( loader.apply( key ) );
+        }
+
+        final Cache<CachedGrid> cache = getRegion( region );
+        final long currentGeneration = generation.get();
+        final CachedGrid cached = cache.getIfPresent( key ).orElse( null );
+
+        if ( cached != null )
+        {
+            long age = System.currentTimeMillis() - cached.loaded;
+
+            if ( age < expirationMillis )
+            {
+                count( region, "hit" );
+                return Optional.of( cached.grid );
+            }
+            else if ( age < expirationMillis + staleExpirationMillis )
+            {
+                count( region, "stale" );
+                return Optional.ofNullable( reload( region, cache, key, loader, currentGeneration, cached.grid ) );
+            }
+        }
+
+        count( region, "miss" );
+
+        return Optional.ofNullable( load( region, cache, key, loader, currentGeneration ) );
+    }
+
+    /**
+     * Invalidates all cached responses. Responses being loaded at the time of
+     * invocation are not cached.
+     */
+    public void invalidateAll()
+    {
+        generation.incrementAndGet();
+
+        regions.values().forEach( Cache::invalidateAll );
+
+        log.info( "Analytics server-side cache invalidated" );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private Cache<CachedGrid> getRegion( String region )
+    {
+        Cache<CachedGrid> cache = regions.get( region );
+
+        if ( cache == null )
+        {
+            throw new IllegalArgumentException( "Unknown analytics cache region: " + region );
+        }
+
+        return cache;
+    }
+
+    /**
+     * Loads the response for the given key and caches it, unless the cache was
+     * invalidated since the given generation. The generation is checked again
+     * after the put, as the cache may be invalidated between check and put.
+     */
+    private Grid load( String region, Cache<CachedGrid> cache, String key, Function<String, Grid> loader, long loadGeneration )
+    {
+        Grid grid = meterRegistry.timer( METRIC_LOAD, "region", region ).record( () -> loader.apply( key ) );
+
+        if ( grid != null && generation.get() == loadGeneration )
+        {
+            cache.put( key, new CachedGrid( grid, System.currentTimeMillis() ) );
+
+            if ( generation.get() != loadGeneration )
+            {
+                cache.invalidate( key );
+            }
+        }
+
+        return grid;
+    }
+
+    /**
+     * Reloads the response for the given key on the calling thread. Returns the
+     * given stale response if a reload of the key is already in progress.
+     * Invalidates the key if the reload fails.
+     */
+    private Grid reload( String region, Cache<CachedGrid> cache, String key, Function<String, Grid> loader,
+        long loadGeneration, Grid staleGrid )
+    {
+        final String refreshKey = region + ":" + key;
+
+        if ( !refreshingKeys.add( refreshKey ) )
+        {
+            return staleGrid;
+        }
+
+        try
+        {
+            return load( region, cache, key, loader, loadGeneration );
+        }
+        catch ( RuntimeException ex )
+        {
+            cache.invalidate( key );
+
+            throw ex;
+        }
+        finally
+        {
+            refreshingKeys.remove( refreshKey );
+        }
+    }
+
+    private void count( String region, String result )
+    {
+        meterRegistry.counter( METRIC_GETS, "region", region, "result", result ).increment();
+    }
+
+    /**
+     * Cached response with the time it was loaded.
+     */
+    static class CachedGrid
+        implements Serializable
+    {
+        private final Grid grid;
+
+        private final long loaded;
+
+        CachedGrid( Grid grid, long loaded )
+        {
+            this.grid = grid;
+            this.loaded = loaded;
+        }
+    }
+}
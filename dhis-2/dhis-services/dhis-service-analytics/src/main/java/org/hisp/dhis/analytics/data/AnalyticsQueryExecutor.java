@@ -0,0 +1,181 @@
+package org.hisp.dhis.analytics.data;
+
+/*
+ * Copyright (c) 2004-2019, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import javax.annotation.PreDestroy;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hisp.dhis.common.QueryTimeoutException;
+import org.hisp.dhis.external.conf.ConfigurationKey;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Executor for analytics database queries. Uses a dedicated, bounded thread
+ * pool so that analytics queries neither depend on nor starve the shared
+ * asynchronous executor. Queries are rejected when the queue is full, and
+ * cancelling the future of a query cancels its JDBC statement.
+ */
+@Component( "org.hisp.dhis.analytics.data.AnalyticsQueryExecutor" )
+public class AnalyticsQueryExecutor
+{
+    private static final Log log = LogFactory.getLog( AnalyticsQueryExecutor.class );
+
+    private static final long KEEP_ALIVE_SECONDS = 60L;
+
+    private final ThreadPoolExecutor executor;
+
+    private final int threads;
+
+    @Autowired
+    public AnalyticsQueryExecutor( DhisConfigurationProvider config )
+    {
+        this( config.getAnalyticsQueryThreads(),
+            Integer.parseInt( config.getProperty( ConfigurationKey.ANALYTICS_QUERY_QUEUE_SIZE ) ) );
+    }
+
+    public AnalyticsQueryExecutor( int threads, int queueSize )
+    {
+        checkArgument( threads > 0, "Analytics query threads must be greater than zero" );
+        checkArgument( queueSize > 0, "Analytics query queue size must be greater than zero" );
+
+        this.threads = threads;
+        this.executor = new ThreadPoolExecutor( threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>( queueSize ),
+            new ThreadFactoryBuilder().setNameFormat( "analytics-query-%d" ).setDaemon( true ).build() );
+        this.executor.allowCoreThreadTimeOut( true );
+
+        log.info( String.format( "Analytics query executor started with threads: %d and queue size: %d", threads, queueSize ) );
+    }
+
+    /**
+     * Submits the given query for execution. The query is given a consumer on
+     * which it should register the JDBC statement it executes, so that the
+     * statement can be cancelled through the returned future.
+     *
+     * @param query the query, as a function of the statement consumer.
+     * @return a future for the result of the query.
+     * @throws QueryTimeoutException if the query queue is full.
+     */
+    public <T> Future<T> submit( Function<Consumer<Statement>, T> query )
+    {
+        AtomicReference<Statement> statement = new AtomicReference<>();
+
+        QueryFuture<T> future = new QueryFuture<>( () -> query.apply( statement::set ), statement );
+
+        try
+        {
+            executor.execute( future );
+        }
+        catch ( RejectedExecutionException ex )
+        {
+            throw new QueryTimeoutException( "Analytics server is busy, too many queries are queued, please try again later", ex );
+        }
+
+        return future;
+    }
+
+    /**
+     * Returns the max number of queries which are executed concurrently.
+     */
+    public int getThreads()
+    {
+        return threads;
+    }
+
+    /**
+     * Returns the number of queries waiting for a thread.
+     */
+    public int getQueueSize()
+    {
+        return executor.getQueue().size();
+    }
+
+    @PreDestroy
+    public void shutdown()
+    {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Future which cancels the registered JDBC statement when cancelled.
+     */
+    private static class QueryFuture<T>
+        extends FutureTask<T>
+    {
+        private final AtomicReference<Statement> statement;
+
+        QueryFuture( Callable<T> callable, AtomicReference<Statement> statement )
+        {
+            super( callable );
+            this.statement = statement;
+        }
+
+        @Override
+        public boolean cancel( boolean mayInterruptIfRunning )
+        {
+            boolean cancelled = super.cancel( mayInterruptIfRunning );
+
+            Statement runningStatement = statement.get();
+
+            if ( cancelled && runningStatement != null )
+            {
+                try
+                {
+                    runningStatement.cancel();
+                }
+                catch ( SQLException ex )
+                {
+                    log.warn( "Failed to cancel analytics query statement", ex );
+                }
+            }
+
+            return cancelled;
+        }
+    }
+}
@@ -55,11 +55,10 @@ import static org.hisp.dhis.reporttable.ReportTable.addListIfEmpty;
 import java.util.*;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
-import javax.annotation.PostConstruct;
-
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.hisp.dhis.analytics.AnalyticsAggregationType;
@@ -79,11 +78,10 @@ import org.hisp.dhis.analytics.QueryPlannerParams;
 import org.hisp.dhis.analytics.QueryValidator;
 import org.hisp.dhis.analytics.RawAnalyticsManager;
 import org.hisp.dhis.analytics.SortOrder;
+import org.hisp.dhis.analytics.cache.AnalyticsCache;
 import org.hisp.dhis.analytics.event.EventAnalyticsService;
 import org.hisp.dhis.analytics.event.EventQueryParams;
 import org.hisp.dhis.analytics.util.AnalyticsUtils;
-import org.hisp.dhis.cache.Cache;
-import org.hisp.dhis.cache.CacheProvider;
 import org.hisp.dhis.calendar.Calendar;
 import org.hisp.dhis.common.AnalyticalObject;
 import org.hisp.dhis.common.BaseDimensionalObject;
@@ -96,6 +94,7 @@ import org.hisp.dhis.common.DimensionalObjectUtils;
 import org.hisp.dhis.common.Grid;
 import org.hisp.dhis.common.GridHeader;
 import org.hisp.dhis.common.IdentifiableObjectUtils;
+import org.hisp.dhis.common.QueryTimeoutException;
 import org.hisp.dhis.common.ReportingRateMetric;
 import org.hisp.dhis.common.ValueType;
 import org.hisp.dhis.commons.collection.ListUtils;
@@ -123,7 +122,6 @@ import org.hisp.dhis.user.User;
 import org.hisp.dhis.util.ObjectUtils;
 import org.hisp.dhis.util.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.env.Environment;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
@@ -141,9 +139,6 @@ public class DefaultAnalyticsService
     private static final Log log = LogFactory.getLog( DefaultAnalyticsService.class );
 
     private static final int PERCENT = 100;
-    private static final int MAX_QUERIES = 8;
-    private static final int MAX_CACHE_ENTRIES = 20000;
-    private static final String CACHE_REGION = "analyticsQueryResponse";
 
     private final AnalyticsManager analyticsManager;
 
@@ -169,27 +164,7 @@ public class DefaultAnalyticsService
 
     private final DhisConfigurationProvider dhisConfig;
 
-    private final CacheProvider cacheProvider;
-
-    private final Environment environment;
-
-    // -------------------------------------------------------------------------
-    // AnalyticsService implementation
-    // -------------------------------------------------------------------------
-
-    private Cache<Grid> queryCache;
-
-    @PostConstruct
-    public void init()
-    {
-        long expiration = dhisConfig.getAnalyticsCacheExpiration();
-        boolean enabled = expiration > 0 && !SystemUtils.isTestRun( this.environment.getActiveProfiles() );
-
-        queryCache = cacheProvider.newCacheBuilder( Grid.class ).forRegion( CACHE_REGION )
-            .expireAfterWrite( expiration, TimeUnit.SECONDS ).withMaximumSize( enabled ? MAX_CACHE_ENTRIES : 0 ).build();
-
-        log.info( String.format( "Analytics server-side cache is enabled: %b with expiration: %d s", enabled, expiration ) );
-    }
+    private final AnalyticsCache analyticsCache;
 
     @Autowired
     public DefaultAnalyticsService( AnalyticsManager analyticsManager, RawAnalyticsManager rawAnalyticsManager,
@@ -197,7 +172,7 @@ public class DefaultAnalyticsService
         ConstantService constantService, ExpressionService expressionService,
         OrganisationUnitService organisationUnitService, SystemSettingManager systemSettingManager,
         EventAnalyticsService eventAnalyticsService, DataQueryService dataQueryService,
-        DhisConfigurationProvider dhisConfig, CacheProvider cacheProvider, Environment environment)
+        DhisConfigurationProvider dhisConfig, AnalyticsCache analyticsCache )
     {
         checkNotNull( analyticsManager );
         checkNotNull( rawAnalyticsManager );
@@ -211,8 +186,7 @@ public class DefaultAnalyticsService
         checkNotNull( eventAnalyticsService );
         checkNotNull( dataQueryService );
         checkNotNull( dhisConfig );
-        checkNotNull( cacheProvider );
-        checkNotNull( environment );
+        checkNotNull( analyticsCache );
 
         this.analyticsManager = analyticsManager;
         this.rawAnalyticsManager = rawAnalyticsManager;
@@ -226,10 +200,13 @@ public class DefaultAnalyticsService
         this.eventAnalyticsService = eventAnalyticsService;
         this.dataQueryService = dataQueryService;
         this.dhisConfig = dhisConfig;
-        this.cacheProvider = cacheProvider;
-        this.environment = environment;
+        this.analyticsCache = analyticsCache;
     }
 
+    // -------------------------------------------------------------------------
+    // AnalyticsService implementation
+    // -------------------------------------------------------------------------
+
     @Override
     public Grid getAggregatedDataValues( DataQueryParams params )
     {
@@ -244,10 +221,10 @@ public class DefaultAnalyticsService
 
         queryValidator.validate( params );
 
-        if ( dhisConfig.isAnalyticsCacheEnabled() )
+        if ( analyticsCache.isEnabled() )
         {
             final DataQueryParams query = DataQueryParams.newBuilder( params ).build();
-            return queryCache.get( params.getKey(), key -> getAggregatedDataValueGridInternal( query ) ).orElseGet( () -> new ListGrid() );
+            return analyticsCache.get( AnalyticsCache.REGION_AGGREGATE, params.getKey(), key -> getAggregatedDataValueGridInternal( query ) ).orElseGet( () -> new ListGrid() );
         }
 
         return getAggregatedDataValueGridInternal( params );
@@ -1188,7 +1165,7 @@ public class DefaultAnalyticsService
     {
         queryValidator.validateMaintenanceMode();
 
-        int optimalQueries = MathUtils.getWithin( getProcessNo(), 1, MAX_QUERIES );
+        int optimalQueries = MathUtils.getWithin( getProcessNo(), 1, Math.max( dhisConfig.getAnalyticsQueryThreads(), 1 ) );
 
         int maxLimit = params.isIgnoreLimit() ? 0 : (Integer) systemSettingManager.getSystemSetting( SettingKey.ANALYTICS_MAX_LIMIT );
 
@@ -1205,39 +1182,58 @@ public class DefaultAnalyticsService
 
         Map<String, Object> map = new HashMap<>();
 
+        long timeout = dhisConfig.getAnalyticsQueryTimeout();
+        long deadline = timeout > 0 ? System.currentTimeMillis() + TimeUnit.SECONDS.toMillis( timeout ) : 0L;
+
         for ( List<DataQueryParams> queries : queryGroups.getSequentialQueries() )
         {
             List<Future<Map<String, Object>>> futures = new ArrayList<>();
 
-            for ( DataQueryParams query : queries )
+            try
             {
-                futures.add( analyticsManager.getAggregatedDataValues( query, tableType, maxLimit ) );
-            }
+                for ( DataQueryParams query : queries )
+                {
+                    futures.add( analyticsManager.getAggregatedDataValues( query, tableType, maxLimit ) );
+                }
 
-            for ( Future<Map<String, Object>> future : futures )
-            {
-                try
+                for ( Future<Map<String, Object>> future : futures )
                 {
-                    Map<String, Object> taskValues = future.get();
+                    Map<String, Object> taskValues = deadline > 0 ?
+                        future.get( Math.max( deadline - System.currentTimeMillis(), 0L ), TimeUnit.MILLISECONDS ) :
+                        future.get();
 
                     if ( taskValues != null )
                     {
                         map.putAll( taskValues );
                     }
                 }
-                catch ( Exception ex )
-                {
-                    log.error( DebugUtils.getStackTrace( ex ) );
-                    log.error( DebugUtils.getStackTrace( ex.getCause() ) );
+            }
+            catch ( TimeoutException ex )
+            {
+                cancelQueries( futures );
 
-                    if ( ex.getCause() != null && ex.getCause() instanceof RuntimeException )
-                    {
-                        throw (RuntimeException) ex.getCause(); // Throw the real exception instead of execution exception
-                    }
-                    else
-                    {
-                        throw new RuntimeException( "Error during execution of aggregation query task", ex );
-                    }
+                log.warn( String.format( "Analytics query exceeded timeout of %d s", timeout ) );
+
+                throw new QueryTimeoutException( AnalyticsUtils.ERR_MSG_QUERY_TIMEOUT, ex );
+            }
+            catch ( Exception ex )
+            {
+                cancelQueries( futures );
+
+                log.error( DebugUtils.getStackTrace( ex ) );
+                log.error( DebugUtils.getStackTrace( ex.getCause() ) );
+
+                if ( ex instanceof RuntimeException )
+                {
+                    throw (RuntimeException) ex;
+                }
+                else if ( ex.getCause() != null && ex.getCause() instanceof RuntimeException )
+                {
+                    throw (RuntimeException) ex.getCause(); // Throw the real exception instead of execution exception
+                }
+                else
+                {
+                    throw new RuntimeException( "Error during execution of aggregation query task", ex );
                 }
             }
         }
@@ -1247,6 +1243,18 @@ public class DefaultAnalyticsService
         return map;
     }
 
+    /**
+     * Cancels the given query futures which are not yet done. Cancelling a
+     * running query cancels its statement on the database, so that sibling
+     * queries of a failed query do not keep occupying query threads.
+     *
+     * @param futures the query futures.
+     */
+    private void cancelQueries( List<Future<Map<String, Object>>> futures )
+    {
+        futures.stream().filter( future -> !future.isDone() ).forEach( future -> future.cancel( true ) );
+    }
+
     /**
      * Returns headers, raw data and meta data as a grid.
      *
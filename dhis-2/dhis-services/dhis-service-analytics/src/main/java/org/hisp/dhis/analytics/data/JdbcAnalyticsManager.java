@@ -50,6 +50,8 @@ import static org.hisp.dhis.commons.util.TextUtils.getQuotedCommaDelimitedString
 import static org.hisp.dhis.commons.util.TextUtils.removeLastOr;
 import static org.hisp.dhis.util.DateUtils.getMediumDateString;
 
+import java.sql.PreparedStatement;
+import java.sql.Statement;
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
@@ -58,6 +60,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Future;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import org.apache.commons.logging.Log;
@@ -90,9 +93,8 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.dao.DataAccessResourceFailureException;
 import org.springframework.jdbc.BadSqlGrammarException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.SqlRowSetResultSetExtractor;
 import org.springframework.jdbc.support.rowset.SqlRowSet;
-import org.springframework.scheduling.annotation.Async;
-import org.springframework.scheduling.annotation.AsyncResult;
 import org.springframework.stereotype.Component;
 import org.springframework.util.Assert;
 
@@ -127,13 +129,18 @@ public class JdbcAnalyticsManager
 
     private final JdbcTemplate jdbcTemplate;
 
-    public JdbcAnalyticsManager( QueryPlanner queryPlanner, @Qualifier( "readOnlyJdbcTemplate" ) JdbcTemplate jdbcTemplate )
+    private final AnalyticsQueryExecutor queryExecutor;
+
+    public JdbcAnalyticsManager( QueryPlanner queryPlanner, @Qualifier( "readOnlyJdbcTemplate" ) JdbcTemplate jdbcTemplate,
+        AnalyticsQueryExecutor queryExecutor )
     {
         checkNotNull( queryPlanner );
         checkNotNull( jdbcTemplate );
+        checkNotNull( queryExecutor );
 
         this.queryPlanner = queryPlanner;
         this.jdbcTemplate = jdbcTemplate;
+        this.queryExecutor = queryExecutor;
     }
 
     // -------------------------------------------------------------------------
@@ -141,11 +148,16 @@ public class JdbcAnalyticsManager
     // -------------------------------------------------------------------------
 
     @Override
-    @Async
     public Future<Map<String, Object>> getAggregatedDataValues( DataQueryParams params, AnalyticsTableType tableType, int maxLimit )
     {
         assertQuery( params );
 
+        return queryExecutor.submit( statementConsumer -> getAggregatedDataValueMap( params, tableType, maxLimit, statementConsumer ) );
+    }
+
+    private Map<String, Object> getAggregatedDataValueMap( DataQueryParams params, AnalyticsTableType tableType, int maxLimit,
+        Consumer<Statement> statementConsumer )
+    {
         try
         {
             ListMap<DimensionalItemObject, DimensionalItemObject> dataPeriodAggregationPeriodMap =
@@ -179,17 +191,17 @@ public class JdbcAnalyticsManager
 
             try
             {
-                map = getKeyValueMap( params, sql, maxLimit );
+                map = getKeyValueMap( params, sql, maxLimit, statementConsumer );
             }
             catch ( BadSqlGrammarException ex )
             {
                 log.info( AnalyticsUtils.ERR_MSG_TABLE_NOT_EXISTING, ex );
-                return new AsyncResult<>( Maps.newHashMap() );
+                return Maps.newHashMap();
             }
 
             replaceDataPeriodsWithAggregationPeriods( map, params, dataPeriodAggregationPeriodMap );
 
-            return new AsyncResult<>( map );
+            return map;
         }
         catch ( DataAccessResourceFailureException ex )
         {
@@ -653,13 +665,18 @@ public class JdbcAnalyticsManager
      * Retrieves data from the database based on the given query and SQL and puts
      * into a value key and value mapping.
      */
-    private Map<String, Object> getKeyValueMap( DataQueryParams params, String sql, int maxLimit )
+    private Map<String, Object> getKeyValueMap( DataQueryParams params, String sql, int maxLimit,
+        Consumer<Statement> statementConsumer )
     {
         Map<String, Object> map = new HashMap<>();
 
         log.debug( String.format( "Analytics SQL: %s", sql ) );
 
-        SqlRowSet rowSet = jdbcTemplate.queryForRowSet( sql );
+        SqlRowSet rowSet = jdbcTemplate.query( connection -> {
+            PreparedStatement statement = connection.prepareStatement( sql );
+            statementConsumer.accept( statement );
+            return statement;
+        }, new SqlRowSetResultSetExtractor() );
 
         int counter = 0;
 
@@ -56,9 +56,6 @@ import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
-
-import javax.annotation.PostConstruct;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.logging.Log;
@@ -67,10 +64,9 @@ import org.hisp.dhis.analytics.AnalyticsSecurityManager;
 import org.hisp.dhis.analytics.DataQueryParams;
 import org.hisp.dhis.analytics.EventAnalyticsDimensionalItem;
 import org.hisp.dhis.analytics.Rectangle;
+import org.hisp.dhis.analytics.cache.AnalyticsCache;
 import org.hisp.dhis.analytics.event.*;
 import org.hisp.dhis.analytics.util.AnalyticsUtils;
-import org.hisp.dhis.cache.Cache;
-import org.hisp.dhis.cache.CacheProvider;
 import org.hisp.dhis.common.AnalyticalObject;
 import org.hisp.dhis.common.DimensionalObject;
 import org.hisp.dhis.common.EventAnalyticalObject;
@@ -83,9 +79,7 @@ import org.hisp.dhis.common.QueryItem;
 import org.hisp.dhis.common.ValueType;
 import org.hisp.dhis.common.ValueTypedDimensionalItemObject;
 import org.hisp.dhis.commons.collection.ListUtils;
-import org.hisp.dhis.commons.util.SystemUtils;
 import org.hisp.dhis.dataelement.DataElementService;
-import org.hisp.dhis.external.conf.DhisConfigurationProvider;
 import org.hisp.dhis.legend.Legend;
 import org.hisp.dhis.option.Option;
 import org.hisp.dhis.system.database.DatabaseInfo;
@@ -93,7 +87,6 @@ import org.hisp.dhis.system.grid.ListGrid;
 import org.hisp.dhis.trackedentity.TrackedEntityAttributeService;
 import org.hisp.dhis.util.Timer;
 
-import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Service;
 
 /**
@@ -128,8 +121,6 @@ public class DefaultEventAnalyticsService
     private static final Option OPT_TRUE = new Option( "Yes", "1" );
     private static final Option OPT_FALSE = new Option( "No", "0" );
 
-    private static final int MAX_CACHE_ENTRIES = 20000;
-    private static final String CACHE_REGION = "eventAnalyticsQueryResponse";
 
     private final DataElementService dataElementService;
 
@@ -143,17 +134,13 @@ public class DefaultEventAnalyticsService
 
     private final DatabaseInfo databaseInfo;
 
-    private final DhisConfigurationProvider dhisConfig;
-
-    private final CacheProvider cacheProvider;
-
-    private final Environment environment;
+    private final AnalyticsCache analyticsCache;
 
     public DefaultEventAnalyticsService( DataElementService dataElementService,
         TrackedEntityAttributeService trackedEntityAttributeService, EventAnalyticsManager eventAnalyticsManager,
         EventDataQueryService eventDataQueryService, AnalyticsSecurityManager securityManager,
         EventQueryPlanner queryPlanner, EventQueryValidator queryValidator, DatabaseInfo databaseInfo,
-        DhisConfigurationProvider dhisConfig, CacheProvider cacheProvider, Environment environment )
+        AnalyticsCache analyticsCache )
     {
         super( securityManager, queryValidator );
 
@@ -163,9 +150,7 @@ public class DefaultEventAnalyticsService
         checkNotNull( eventDataQueryService );
         checkNotNull( queryPlanner );
         checkNotNull( databaseInfo );
-        checkNotNull( dhisConfig );
-        checkNotNull( cacheProvider );
-        checkNotNull( environment );
+        checkNotNull( analyticsCache );
 
         this.dataElementService = dataElementService;
         this.trackedEntityAttributeService = trackedEntityAttributeService;
@@ -173,9 +158,7 @@ public class DefaultEventAnalyticsService
         this.eventDataQueryService = eventDataQueryService;
         this.queryPlanner = queryPlanner;
         this.databaseInfo = databaseInfo;
-        this.dhisConfig = dhisConfig;
-        this.cacheProvider = cacheProvider;
-        this.environment = environment;
+        this.analyticsCache = analyticsCache;
     }
 
     // -------------------------------------------------------------------------
@@ -186,20 +169,6 @@ public class DefaultEventAnalyticsService
     // TODO order event analytics tables on execution date to avoid default sort
     // TODO sorting in queries
 
-    private Cache<Grid> queryCache;
-
-    @PostConstruct
-    public void init()
-    {
-        long expiration = dhisConfig.getAnalyticsCacheExpiration();
-        boolean enabled = expiration > 0 && !SystemUtils.isTestRun(this.environment.getActiveProfiles());
-
-        queryCache = cacheProvider.newCacheBuilder( Grid.class ).forRegion( CACHE_REGION )
-            .expireAfterWrite( expiration, TimeUnit.SECONDS ).withMaximumSize( enabled ? MAX_CACHE_ENTRIES : 0 ).build();
-
-        log.info( String.format( "Event analytics server-side cache is enabled: %b with expiration: %d s", enabled, expiration ) );
-    }
-
     @Override
     public Grid getAggregatedEventData( EventQueryParams params, List<String> columns, List<String> rows )
     {
@@ -447,10 +416,10 @@ public class DefaultEventAnalyticsService
 
         queryValidator.validate( params );
 
-        if ( dhisConfig.isAnalyticsCacheEnabled() )
+        if ( analyticsCache.isEnabled() )
         {
             final EventQueryParams query = new EventQueryParams.Builder( params ).build();
-            return queryCache.get( query.getKey(), key -> getAggregatedEventDataGrid( query ) ).orElseGet(ListGrid::new);
+            return analyticsCache.get( AnalyticsCache.REGION_EVENT, query.getKey(), key -> getAggregatedEventDataGrid( query ) ).orElseGet(ListGrid::new);
         }
 
         return getAggregatedEventDataGrid( params );
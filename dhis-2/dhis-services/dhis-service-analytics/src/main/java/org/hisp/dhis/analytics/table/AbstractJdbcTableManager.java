@@ -181,10 +181,31 @@ public abstract class AbstractJdbcTableManager
     {
     }
 
+    /**
+     * Override in order to support incremental update of existing partitions.
+     */
+    @Override
+    public boolean supportsIncrementalUpdate()
+    {
+        return false;
+    }
+
+    /**
+     * Override together with {@link #supportsIncrementalUpdate()}. Updates nothing
+     * and reports no changed data keys.
+     */
+    @Override
+    public int updateChangedData( AnalyticsTableUpdateParams params, Date startDate )
+    {
+        log.debug( "Incremental update is not supported for table type: " + getAnalyticsTableType() );
+
+        return 0;
+    }
+
     @Override
-    public void createTable( AnalyticsTable table )
+    public void createTable( AnalyticsTableUpdateParams params, AnalyticsTable table )
     {
-        createTempTable( table );
+        createTempTable( params, table );
         createTempTablePartitions( table );
     }
 
@@ -372,34 +393,80 @@ public abstract class AbstractJdbcTableManager
     }
 
     /**
-     * Drops and creates the given analytics table.
+     * Drops and creates the given analytics table. With the compact table layout,
+     * columns are ordered by descending storage width so that fixed width columns
+     * are stored without alignment padding, and text columns are compressed with
+     * the specified compression method, if any.
      *
+     * @param params the {@link AnalyticsTableUpdateParams}.
      * @param table the {@link AnalyticsTable}.
      */
-    protected void createTempTable( AnalyticsTable table )
+    protected void createTempTable( AnalyticsTableUpdateParams params, AnalyticsTable table )
     {
         validateDimensionColumns( table.getDimensionColumns() );
 
         final String tableName = table.getTempTableName();
+        final String compression = getColumnCompression( params );
+
+        List<AnalyticsTableColumn> columns = ListUtils.union( table.getDimensionColumns(), table.getValueColumns() );
+
+        if ( params.isCompactTableLayout() )
+        {
+            columns = getCompactColumnOrder( columns );
+        }
 
         String sqlCreate = "create table " + tableName + " (";
 
-        for ( AnalyticsTableColumn col : ListUtils.union( table.getDimensionColumns(), table.getValueColumns() ) )
+        for ( AnalyticsTableColumn col : columns )
         {
+            String compress = TEXT == col.getDataType() ? compression : "";
             String notNull = col.getNotNull().isNotNull() ? " not null" : "";
 
-            sqlCreate += col.getName() + " " + col.getDataType().getValue() + notNull + ",";
+            sqlCreate += col.getName() + " " + col.getDataType().getValue() + compress + notNull + ",";
         }
 
         sqlCreate = TextUtils.removeLastComma( sqlCreate ) + ") " + getTableOptions();
 
-        log.info( String.format( "Creating table: %s, columns: %d", tableName, table.getDimensionColumns().size() ) );
+        log.info( String.format( "Creating table: %s, columns: %d, layout: %s", tableName, table.getDimensionColumns().size(), params.getTableLayout() ) );
 
         log.debug( "Create SQL: " + sqlCreate );
 
         jdbcTemplate.execute( sqlCreate );
     }
 
+    /**
+     * Returns the given columns ordered by descending fixed storage width, with
+     * variable length columns last. The order is otherwise preserved.
+     *
+     * @param columns the list of {@link AnalyticsTableColumn}.
+     */
+    protected List<AnalyticsTableColumn> getCompactColumnOrder( List<AnalyticsTableColumn> columns )
+    {
+        return columns.stream()
+            .sorted( Comparator.comparingInt( ( AnalyticsTableColumn col ) -> col.getDataType().getWidth() ).reversed() )
+            .collect( Collectors.toList() );
+    }
+
+    /**
+     * Returns the column compression clause for text columns, or an empty string
+     * if the compact table layout is not used or no compression method is specified.
+     *
+     * @param params the {@link AnalyticsTableUpdateParams}.
+     */
+    private String getColumnCompression( AnalyticsTableUpdateParams params )
+    {
+        if ( !params.isCompactTableLayout() || !params.hasTableCompression() )
+        {
+            return "";
+        }
+
+        final String method = params.getTableCompression().trim();
+
+        Assert.isTrue( method.matches( "^[a-zA-Z0-9_]+$" ), "Invalid table compression method: " + method );
+
+        return " compression " + method;
+    }
+
     /**
      * Drops and creates the table partitions for the given analytics table.
      *
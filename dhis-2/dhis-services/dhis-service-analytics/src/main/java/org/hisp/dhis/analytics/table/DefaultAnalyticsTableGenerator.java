@@ -38,14 +38,18 @@ import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
 
+import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.hisp.dhis.analytics.AnalyticsTableGenerator;
+import org.hisp.dhis.analytics.AnalyticsTableLayout;
 import org.hisp.dhis.analytics.AnalyticsTableService;
 import org.hisp.dhis.analytics.AnalyticsTableType;
 import org.hisp.dhis.analytics.AnalyticsTableUpdateParams;
 import org.hisp.dhis.commons.collection.CollectionUtils;
 import org.hisp.dhis.commons.util.DebugUtils;
+import org.hisp.dhis.external.conf.ConfigurationKey;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
 import org.hisp.dhis.message.MessageService;
 import org.hisp.dhis.resourcetable.ResourceTableService;
 import org.hisp.dhis.scheduling.JobConfiguration;
@@ -75,21 +79,25 @@ public class DefaultAnalyticsTableGenerator
 
     private Notifier notifier;
 
+    private DhisConfigurationProvider config;
+
     public DefaultAnalyticsTableGenerator( List<AnalyticsTableService> analyticsTableServices,
         ResourceTableService resourceTableService, MessageService messageService,
-        SystemSettingManager systemSettingManager, Notifier notifier )
+        SystemSettingManager systemSettingManager, Notifier notifier, DhisConfigurationProvider config )
     {
         checkNotNull( analyticsTableServices );
         checkNotNull( resourceTableService );
         checkNotNull( messageService );
         checkNotNull( systemSettingManager );
         checkNotNull( notifier );
+        checkNotNull( config );
 
         this.analyticsTableServices = analyticsTableServices;
         this.resourceTableService = resourceTableService;
         this.messageService = messageService;
         this.systemSettingManager = systemSettingManager;
         this.notifier = notifier;
+        this.config = config;
     }
 
     // -------------------------------------------------------------------------
@@ -111,6 +119,8 @@ public class DefaultAnalyticsTableGenerator
 
         params = AnalyticsTableUpdateParams.newBuilder( params )
             .withLastSuccessfulUpdate( lastSuccessfulUpdate )
+            .withTableLayout( getTableLayout( params ) )
+            .withTableCompression( getTableCompression( params ) )
             .build();
 
         log.info( String.format( "Found %d analytics table types: %s", availableTypes.size(), availableTypes ) );
@@ -121,7 +131,7 @@ public class DefaultAnalyticsTableGenerator
         {
             notifier.clear( jobId ).notify( jobId, "Analytics table update process started" );
 
-            if ( !params.isSkipResourceTables() && !params.isLatestUpdate() )
+            if ( !params.isSkipResourceTables() && !params.isLatestUpdate() && !params.isIncrementalUpdate() )
             {
                 notifier.notify( jobId, "Updating resource tables" );
                 generateResourceTables();
@@ -154,7 +164,11 @@ public class DefaultAnalyticsTableGenerator
             throw ex;
         }
 
-        if ( params.isLatestUpdate() )
+        if ( params.isIncrementalUpdate() )
+        {
+            systemSettingManager.saveSystemSetting( SettingKey.LAST_SUCCESSFUL_INCREMENTAL_ANALYTICS_TABLES_UPDATE, params.getStartTime() );
+        }
+        else if ( params.isLatestUpdate() )
         {
             systemSettingManager.saveSystemSetting( SettingKey.LAST_SUCCESSFUL_LATEST_ANALYTICS_PARTITION_UPDATE, params.getStartTime() );
             systemSettingManager.saveSystemSetting( SettingKey.LAST_SUCCESSFUL_LATEST_ANALYTICS_PARTITION_RUNTIME, DateUtils.getPrettyInterval( clock.getSplitTime() ) );
@@ -222,4 +236,28 @@ public class DefaultAnalyticsTableGenerator
 
         systemSettingManager.saveSystemSetting( SettingKey.LAST_SUCCESSFUL_RESOURCE_TABLES_UPDATE, startTime );
     }
+
+    /**
+     * Returns the table layout of the given parameters, or the table layout
+     * configured in dhis.conf if not specified.
+     *
+     * @param params the {@link AnalyticsTableUpdateParams}.
+     */
+    private AnalyticsTableLayout getTableLayout( AnalyticsTableUpdateParams params )
+    {
+        return params.getTableLayout() != null ? params.getTableLayout() :
+            AnalyticsTableLayout.fromName( config.getProperty( ConfigurationKey.ANALYTICS_TABLE_LAYOUT ) );
+    }
+
+    /**
+     * Returns the text column compression method of the given parameters, or
+     * the method configured in dhis.conf if not specified.
+     *
+     * @param params the {@link AnalyticsTableUpdateParams}.
+     */
+    private String getTableCompression( AnalyticsTableUpdateParams params )
+    {
+        return params.hasTableCompression() ? params.getTableCompression() :
+            StringUtils.trimToNull( config.getProperty( ConfigurationKey.ANALYTICS_TABLE_COMPRESSION ) );
+    }
 }
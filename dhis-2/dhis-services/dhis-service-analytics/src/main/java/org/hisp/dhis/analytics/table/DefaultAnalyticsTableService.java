@@ -38,6 +38,8 @@ import org.hisp.dhis.analytics.AnalyticsTablePartition;
 import org.hisp.dhis.analytics.AnalyticsTableService;
 import org.hisp.dhis.analytics.AnalyticsTableType;
 import org.hisp.dhis.analytics.AnalyticsTableUpdateParams;
+import org.hisp.dhis.analytics.ColumnDataType;
+import org.hisp.dhis.analytics.cache.AnalyticsCache;
 import org.hisp.dhis.common.IdentifiableObjectUtils;
 import org.hisp.dhis.commons.util.ConcurrentUtils;
 import org.hisp.dhis.commons.util.SystemUtils;
@@ -49,11 +51,14 @@ import org.hisp.dhis.setting.SettingKey;
 import org.hisp.dhis.setting.SystemSettingManager;
 import org.hisp.dhis.system.notification.Notifier;
 import org.hisp.dhis.system.util.Clock;
+import org.hisp.dhis.util.DateUtils;
+import org.springframework.util.Assert;
 
 import com.google.common.collect.Lists;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedQueue;
@@ -70,6 +75,8 @@ public class DefaultAnalyticsTableService
 {
     private static final Log log = LogFactory.getLog( DefaultAnalyticsTableService.class );
 
+    private static final String INDEX_TYPE_BRIN = "brin";
+
     private AnalyticsTableManager tableManager;
 
     private OrganisationUnitService organisationUnitService;
@@ -82,9 +89,12 @@ public class DefaultAnalyticsTableService
 
     private SystemSettingManager systemSettingManager;
 
+    private AnalyticsCache analyticsCache;
+
     public DefaultAnalyticsTableService( AnalyticsTableManager tableManager,
         OrganisationUnitService organisationUnitService, DataElementService dataElementService,
-        ResourceTableService resourceTableService, Notifier notifier, SystemSettingManager systemSettingManager )
+        ResourceTableService resourceTableService, Notifier notifier, SystemSettingManager systemSettingManager,
+        AnalyticsCache analyticsCache )
     {
         checkNotNull( tableManager );
         checkNotNull( organisationUnitService );
@@ -92,6 +102,7 @@ public class DefaultAnalyticsTableService
         checkNotNull( resourceTableService );
         checkNotNull( notifier );
         checkNotNull( systemSettingManager );
+        checkNotNull( analyticsCache );
 
         this.tableManager = tableManager;
         this.organisationUnitService = organisationUnitService;
@@ -99,6 +110,7 @@ public class DefaultAnalyticsTableService
         this.resourceTableService = resourceTableService;
         this.notifier = notifier;
         this.systemSettingManager = systemSettingManager;
+        this.analyticsCache = analyticsCache;
     }
 
     // -------------------------------------------------------------------------
@@ -137,6 +149,12 @@ public class DefaultAnalyticsTableService
             return;
         }
 
+        if ( params.isIncrementalUpdate() )
+        {
+            updateIncrementally( params, clock );
+            return;
+        }
+
         final List<AnalyticsTable> tables = tableManager.getAnalyticsTables( params );
 
         if ( tables.isEmpty() )
@@ -160,7 +178,7 @@ public class DefaultAnalyticsTableService
         clock.logTime( "Dropped temp tables" );
         notifier.notify( jobId, "Creating analytics tables" );
 
-        createTables( tables );
+        createTables( params, tables );
 
         clock.logTime( "Created analytics tables" );
         notifier.notify( jobId, "Populating analytics tables" );
@@ -188,7 +206,7 @@ public class DefaultAnalyticsTableService
 
         notifier.notify( jobId, "Creating indexes" );
 
-        createIndexes( tables );
+        createIndexes( params, tables );
 
         clock.logTime( "Created indexes" );
         notifier.notify( jobId, "Analyzing analytics tables" );
@@ -216,6 +234,8 @@ public class DefaultAnalyticsTableService
 
         tables.forEach( table -> tableManager.dropTableCascade( table ) );
 
+        analyticsCache.invalidateAll();
+
         log.info( "Analytics tables dropped" );
     }
 
@@ -233,6 +253,46 @@ public class DefaultAnalyticsTableService
     // Supportive methods
     // -------------------------------------------------------------------------
 
+    /**
+     * Updates the existing analytics table partitions in place with the data
+     * changed since the last successful full or incremental update.
+     *
+     * @param params the {@link AnalyticsTableUpdateParams}.
+     * @param clock the {@link Clock} of the update process.
+     */
+    private void updateIncrementally( AnalyticsTableUpdateParams params, Clock clock )
+    {
+        JobConfiguration jobId = params.getJobId();
+
+        AnalyticsTableType tableType = tableManager.getAnalyticsTableType();
+
+        if ( !tableManager.supportsIncrementalUpdate() )
+        {
+            clock.logTime( String.format( "Incremental update not supported, skipping table: '%s'", tableType.getTableName() ) );
+            notifier.notify( jobId, "Incremental update not supported, skipping table" );
+            return;
+        }
+
+        Date lastFullTableUpdate = (Date) systemSettingManager.getSystemSetting( SettingKey.LAST_SUCCESSFUL_ANALYTICS_TABLES_UPDATE );
+        Date lastIncrementalUpdate = (Date) systemSettingManager.getSystemSetting( SettingKey.LAST_SUCCESSFUL_INCREMENTAL_ANALYTICS_TABLES_UPDATE );
+
+        Assert.notNull( lastFullTableUpdate, "A full analytics table update process must be run prior to an incremental update process" );
+
+        Date startDate = DateUtils.getLatest( lastIncrementalUpdate, lastFullTableUpdate );
+
+        notifier.notify( jobId, "Updating data changed since: " + getLongDateString( startDate ) );
+
+        int changedKeys = tableManager.updateChangedData( params, startDate );
+
+        if ( changedKeys > 0 )
+        {
+            analyticsCache.invalidateAll();
+        }
+
+        clock.logTime( String.format( "Incremental table update done: %s, changed data keys: %d", tableType.getTableName(), changedKeys ) );
+        notifier.notify( jobId, "Table update done" );
+    }
+
     /**
      * Drops the given temporary analytics tables.
      *
@@ -246,11 +306,12 @@ public class DefaultAnalyticsTableService
     /**
      * Creates the given analytics tables.
      *
+     * @param params the {@link AnalyticsTableUpdateParams}.
      * @param tables the list of {@link AnalyticsTable}.
      */
-    private void createTables( List<AnalyticsTable> tables )
+    private void createTables( AnalyticsTableUpdateParams params, List<AnalyticsTable> tables )
     {
-        tables.forEach( table -> tableManager.createTable( table ) );
+        tables.forEach( table -> tableManager.createTable( params, table ) );
     }
 
     /**
@@ -343,11 +404,14 @@ public class DefaultAnalyticsTableService
     }
 
     /**
-     * Creates indexes on the given analytics tables.
+     * Creates indexes on the given analytics tables. With the compact table
+     * layout, date and time columns are indexed with BRIN indexes, which are
+     * a fraction of the size of B-tree indexes.
      *
+     * @param params the {@link AnalyticsTableUpdateParams}.
      * @param tables the list of {@link AnalyticsTable}.
      */
-    private void createIndexes( List<AnalyticsTable> tables )
+    private void createIndexes( AnalyticsTableUpdateParams params, List<AnalyticsTable> tables )
     {
         List<AnalyticsTablePartition> partitions = PartitionUtils.getTablePartitions( tables );
 
@@ -363,7 +427,7 @@ public class DefaultAnalyticsTableService
                 {
                     List<String> indexColumns = col.hasIndexColumns() ? col.getIndexColumns() : Lists.newArrayList( col.getName() );
 
-                    indexes.add( new AnalyticsIndex( partition.getTempTableName(), indexColumns, col.getIndexType() ) );
+                    indexes.add( new AnalyticsIndex( partition.getTempTableName(), indexColumns, getIndexType( params, col ) ) );
                 }
             }
         }
@@ -380,6 +444,26 @@ public class DefaultAnalyticsTableService
         ConcurrentUtils.waitForCompletion( futures );
     }
 
+    /**
+     * Returns the index type for the given column. Uses the explicit index type
+     * of the column if any. Uses BRIN for single date and time columns with the
+     * compact table layout, and the database default otherwise.
+     *
+     * @param params the {@link AnalyticsTableUpdateParams}.
+     * @param col the {@link AnalyticsTableColumn}.
+     */
+    private String getIndexType( AnalyticsTableUpdateParams params, AnalyticsTableColumn col )
+    {
+        if ( col.getIndexType() != null )
+        {
+            return col.getIndexType();
+        }
+
+        boolean timeColumn = ColumnDataType.DATE == col.getDataType() || ColumnDataType.TIMESTAMP == col.getDataType();
+
+        return params.isCompactTableLayout() && timeColumn && !col.hasIndexColumns() ? INDEX_TYPE_BRIN : null;
+    }
+
     /**
      * Analyzes the given analytics tables.
      *
@@ -393,7 +477,8 @@ public class DefaultAnalyticsTableService
     }
 
     /**
-     * Swaps the given analytics tables.
+     * Swaps the given analytics tables and invalidates the analytics cache, as
+     * cached responses refer to the previous generation of tables.
      *
      * @param params the {@link AnalyticsTableUpdateParams}.
      * @param tables the list of {@link AnalyticsTable}.
@@ -404,6 +489,8 @@ public class DefaultAnalyticsTableService
 
         tables.forEach( table -> tableManager.swapTable( params, table ) );
 
+        analyticsCache.invalidateAll();
+
         resourceTableService.createAllSqlViews();
     }
 
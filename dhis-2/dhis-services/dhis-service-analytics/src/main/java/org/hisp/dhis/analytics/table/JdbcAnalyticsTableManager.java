@@ -39,7 +39,9 @@ import static org.hisp.dhis.util.DateUtils.getLongDateString;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Future;
@@ -105,6 +107,12 @@ import com.google.common.collect.Sets;
 public class JdbcAnalyticsTableManager
     extends AbstractJdbcTableManager
 {
+    /**
+     * Working table holding the data keys changed since the last update, used
+     * for incremental update of existing partitions.
+     */
+    private static final String CHANGED_KEYS_TABLE = "_analyticschangedkeys";
+
     public JdbcAnalyticsTableManager( IdentifiableObjectManager idObjectManager,
         OrganisationUnitService organisationUnitService, CategoryService categoryService,
         SystemSettingManager systemSettingManager, DataApprovalLevelService dataApprovalLevelService,
@@ -232,6 +240,132 @@ public class JdbcAnalyticsTableManager
 
     @Override
     protected void populateTable( AnalyticsTableUpdateParams params, AnalyticsTablePartition partition )
+    {
+        getPopulateTableSql( params, partition, partition.getTempTableName(), StringUtils.EMPTY )
+            .forEach( ( sql, valueTypes ) -> invokeTimeAndLog( sql, String.format( "Populate %s %s", partition.getTempTableName(), valueTypes ) ) );
+    }
+
+    @Override
+    public boolean supportsIncrementalUpdate()
+    {
+        return true;
+    }
+
+    @Override
+    public int updateChangedData( AnalyticsTableUpdateParams params, Date startDate )
+    {
+        dropTable( CHANGED_KEYS_TABLE );
+
+        try
+        {
+            final String keySql =
+                "create table " + CHANGED_KEYS_TABLE + " as " +
+                "select distinct dv.dataelementid, dv.periodid, dv.sourceid, dv.attributeoptioncomboid, " +
+                "de.uid as dx, ps.iso as pe, ou.uid as ou, ao.uid as ao, ps.year as year " +
+                "from datavalue dv " +
+                "inner join dataelement de on dv.dataelementid=de.dataelementid " +
+                "inner join _periodstructure ps on dv.periodid=ps.periodid " +
+                "inner join organisationunit ou on dv.sourceid=ou.organisationunitid " +
+                "inner join categoryoptioncombo ao on dv.attributeoptioncomboid=ao.categoryoptioncomboid " +
+                "where dv.lastupdated >= '" + getLongDateString( startDate ) + "' " +
+                "and dv.lastupdated < '" + getLongDateString( params.getStartTime() ) + "'";
+
+            invokeTimeAndLog( keySql, "Find changed data keys" );
+
+            int changedKeys = jdbcTemplate.queryForObject( "select count(*) from " + CHANGED_KEYS_TABLE, Integer.class );
+
+            if ( changedKeys == 0 )
+            {
+                return 0;
+            }
+
+            analyzeTable( CHANGED_KEYS_TABLE );
+
+            List<Integer> years = jdbcTemplate.queryForList( "select distinct year from " + CHANGED_KEYS_TABLE, Integer.class );
+            List<Integer> aggregationLevels = jdbcTemplate.queryForList(
+                "select distinct aggregationlevel from dataelementaggregationlevels " +
+                "where aggregationlevel <= " + organisationUnitService.getNumberOfOrganisationalLevels(), Integer.class );
+
+            AnalyticsTable table = getRegularAnalyticsTable( params, years, getDimensionColumns(), getValueColumns() );
+
+            for ( AnalyticsTablePartition partition : table.getTablePartitions() )
+            {
+                updateChangedData( params, partition, aggregationLevels );
+            }
+
+            return changedKeys;
+        }
+        finally
+        {
+            dropTable( CHANGED_KEYS_TABLE );
+        }
+    }
+
+    /**
+     * Deletes and inserts again the rows of the given existing partition which belong
+     * to the changed data keys. All statements are executed as a single batch so that
+     * queries never observe the partition with the rows deleted but not yet inserted.
+     *
+     * @param params the {@link AnalyticsTableUpdateParams}.
+     * @param partition the {@link AnalyticsTablePartition}.
+     * @param aggregationLevels the data element aggregation levels in use.
+     */
+    private void updateChangedData( AnalyticsTableUpdateParams params, AnalyticsTablePartition partition, List<Integer> aggregationLevels )
+    {
+        final String tableName = partition.getTableName();
+
+        if ( !partitionManager.tableExists( tableName ) )
+        {
+            log.warn( String.format( "Analytics table partition does not exist, a full update is required: '%s'", tableName ) );
+            return;
+        }
+
+        final String keyJoinClause =
+            "inner join " + CHANGED_KEYS_TABLE + " ck on dv.dataelementid=ck.dataelementid and dv.periodid=ck.periodid " +
+            "and dv.sourceid=ck.sourceid and dv.attributeoptioncomboid=ck.attributeoptioncomboid ";
+
+        final String keyMatchClause =
+            "ax.dx=ck.dx and ax.pe=ck.pe and ax.ou=ck.ou and ax.ao=ck.ao and ck.year = " + partition.getYear() + " ";
+
+        StringBuilder sql = new StringBuilder( "delete from " + tableName + " ax using " + CHANGED_KEYS_TABLE + " ck where " + keyMatchClause + ";" );
+
+        getPopulateTableSql( params, partition, tableName, keyJoinClause ).keySet()
+            .forEach( insertSql -> sql.append( insertSql ).append( ";" ) );
+
+        for ( Integer aggregationLevel : aggregationLevels )
+        {
+            sql.append( "update " + tableName + " ax set " );
+
+            for ( int i = 0; i < aggregationLevel; i++ )
+            {
+                sql.append( quote( DataQueryParams.LEVEL_PREFIX + ( i + 1 ) ) + " = null," );
+            }
+
+            sql.deleteCharAt( sql.length() - ",".length() );
+
+            sql.append( " from " + CHANGED_KEYS_TABLE + " ck where " + keyMatchClause +
+                "and ax.level > " + aggregationLevel + " " +
+                "and ax.dx in (select de.uid from dataelement de " +
+                "inner join dataelementaggregationlevels dal on de.dataelementid=dal.dataelementid " +
+                "where dal.aggregationlevel = " + aggregationLevel + ");" );
+        }
+
+        invokeTimeAndLog( sql.toString(), String.format( "Update changed data in %s", tableName ) );
+
+        executeSilently( statementBuilder.getVacuum( tableName ) );
+    }
+
+    /**
+     * Returns the SQL statements which populate the given analytics table partition,
+     * mapped to the value types each statement includes.
+     *
+     * @param params the {@link AnalyticsTableUpdateParams}.
+     * @param partition the {@link AnalyticsTablePartition}.
+     * @param tableName the name of the table to insert into.
+     * @param joinClause additional join clause to constrain the data query.
+     */
+    private Map<String, Set<ValueType>> getPopulateTableSql( AnalyticsTableUpdateParams params,
+        AnalyticsTablePartition partition, String tableName, String joinClause )
     {
         final String dbl = statementBuilder.getDoubleColumnType();
         final boolean skipDataTypeValidation = (Boolean) systemSettingManager.getSystemSetting( SettingKey.SKIP_DATA_TYPE_VALIDATION_IN_ANALYTICS_TABLE_EXPORT );
@@ -242,24 +376,34 @@ public class JdbcAnalyticsTableManager
         final String zeroValueClause = "(dv.value != '0' or de.aggregationtype in ('" + AggregationType.AVERAGE + ',' + AggregationType.AVERAGE_SUM_ORG_UNIT + "')" + zeroValueCondition + ") ";
         final String intClause = zeroValueClause + numericClause;
 
-        populateTable( params, partition, "cast(dv.value as " + dbl + ")", "null", ValueType.NUMERIC_TYPES, intClause );
-        populateTable( params, partition, "1", "null", Sets.newHashSet( ValueType.BOOLEAN, ValueType.TRUE_ONLY ), "dv.value = 'true'" );
-        populateTable( params, partition, "0", "null", Sets.newHashSet( ValueType.BOOLEAN ), "dv.value = 'false'" );
-        populateTable( params, partition, "null", "dv.value", Sets.union( ValueType.TEXT_TYPES, ValueType.DATE_TYPES ), null );
+        final Set<ValueType> booleanTypes = Sets.newHashSet( ValueType.BOOLEAN, ValueType.TRUE_ONLY );
+        final Set<ValueType> falseTypes = Sets.newHashSet( ValueType.BOOLEAN );
+        final Set<ValueType> textTypes = Sets.union( ValueType.TEXT_TYPES, ValueType.DATE_TYPES );
+
+        Map<String, Set<ValueType>> statements = new LinkedHashMap<>();
+
+        statements.put( getPopulateTableSql( params, partition, tableName, joinClause, "cast(dv.value as " + dbl + ")", "null", ValueType.NUMERIC_TYPES, intClause ), ValueType.NUMERIC_TYPES );
+        statements.put( getPopulateTableSql( params, partition, tableName, joinClause, "1", "null", booleanTypes, "dv.value = 'true'" ), booleanTypes );
+        statements.put( getPopulateTableSql( params, partition, tableName, joinClause, "0", "null", falseTypes, "dv.value = 'false'" ), falseTypes );
+        statements.put( getPopulateTableSql( params, partition, tableName, joinClause, "null", "dv.value", textTypes, null ), textTypes );
+
+        return statements;
     }
 
     /**
-     * Populates the given analytics table.
+     * Returns the SQL statement which populates the given analytics table.
      *
+     * @param tableName the name of the table to insert into.
+     * @param joinClause additional join clause to constrain data query.
      * @param valueExpression numeric value expression.
      * @param textValueExpression textual value expression.
      * @param valueTypes data element value types to include data for.
      * @param whereClause where clause to constrain data query.
      */
-    private void populateTable( AnalyticsTableUpdateParams params, AnalyticsTablePartition partition,
-        String valueExpression, String textValueExpression, Set<ValueType> valueTypes, String whereClause )
+    private String getPopulateTableSql( AnalyticsTableUpdateParams params, AnalyticsTablePartition partition,
+        String tableName, String joinClause, String valueExpression, String textValueExpression,
+        Set<ValueType> valueTypes, String whereClause )
     {
-        final String tableName = partition.getTempTableName();
         final String valTypes = TextUtils.getQuotedCommaDelimitedString( ObjectUtils.asStringList( valueTypes ) );
         final boolean respectStartEndDates = (Boolean) systemSettingManager.getSystemSetting( SettingKey.RESPECT_META_DATA_START_END_DATES_IN_ANALYTICS_TABLE_EXPORT );
         final String approvalClause = getApprovalJoinClause( partition.getYear() );
@@ -267,7 +411,7 @@ public class JdbcAnalyticsTableManager
             "and dv.lastupdated >= '" + getLongDateString( partition.getStartDate() ) + "' " :
             "and ps.year = " + partition.getYear() + " ";
 
-        String sql = "insert into " + partition.getTempTableName() + " (";
+        String sql = "insert into " + tableName + " (";
 
         List<AnalyticsTableColumn> columns = getDimensionColumns( partition.getYear() );
         List<AnalyticsTableColumn> values = partition.getMasterTable().getValueColumns();
@@ -309,6 +453,7 @@ public class JdbcAnalyticsTableManager
             "inner join _categoryoptioncomboname con on dv.categoryoptioncomboid=con.categoryoptioncomboid " +
 
             approvalClause +
+            joinClause +
             "where de.valuetype in (" + valTypes + ") " +
             "and de.domaintype = 'AGGREGATE' " +
             partitionClause +
@@ -330,7 +475,7 @@ public class JdbcAnalyticsTableManager
             sql += "and " + whereClause;
         }
 
-        invokeTimeAndLog( sql, String.format( "Populate %s %s", tableName, valueTypes ) );
+        return sql;
     }
 
     /**
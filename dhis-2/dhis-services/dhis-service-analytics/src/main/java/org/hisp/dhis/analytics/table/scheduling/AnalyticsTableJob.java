@@ -78,6 +78,7 @@ public class AnalyticsTableJob
             .withJobId( jobConfiguration )
             .withSkipTableTypes( parameters.getSkipTableTypes() )
             .withSkipResourceTables( parameters.isSkipResourceTables() )
+            .withIncrementalUpdate( parameters.isIncrementalUpdate() )
             .withStartTime( new Date() )
             .build();
 
@@ -0,0 +1,195 @@
+package org.hisp.dhis.analytics.cache;
+
+/*
+ * Copyright (c) 2004-2019, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.hisp.dhis.cache.CacheProvider;
+import org.hisp.dhis.cache.SimpleCacheBuilder;
+import org.hisp.dhis.common.Grid;
+import org.hisp.dhis.system.grid.ListGrid;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class AnalyticsCacheTest
+{
+    private CacheProvider cacheProvider;
+
+    private MeterRegistry meterRegistry;
+
+    private AtomicInteger loads;
+
+    private Function<String, Grid> loader;
+
+    @Before
+    public void setUp()
+    {
+        cacheProvider = mock( CacheProvider.class );
+        meterRegistry = new SimpleMeterRegistry();
+        loads = new AtomicInteger();
+        loader = key -> {
+            loads.incrementAndGet();
+            return new ListGrid();
+        };
+
+        when( cacheProvider.newCacheBuilder( any() ) ).thenAnswer( invocation -> new SimpleCacheBuilder<>() );
+    }
+
+    @Test
+    public void testGetHitAndMiss()
+    {
+        AnalyticsCache cache = new AnalyticsCache( cacheProvider, meterRegistry, 3600, 600, true );
+
+        assertTrue( cache.isEnabled() );
+
+        Grid gridA = cache.get( AnalyticsCache.REGION_AGGREGATE, "keyA", loader ).get();
+        Grid gridB = cache.get( AnalyticsCache.REGION_AGGREGATE, "keyA", loader ).get();
+        cache.get( AnalyticsCache.REGION_EVENT, "keyA", loader );
+
+        assertSame( gridA, gridB );
+        assertEquals( 2, loads.get() );
+        assertEquals( 1.0, getCount( AnalyticsCache.REGION_AGGREGATE, "hit" ), 0.0 );
+        assertEquals( 1.0, getCount( AnalyticsCache.REGION_AGGREGATE, "miss" ), 0.0 );
+        assertEquals( 1.0, getCount( AnalyticsCache.REGION_EVENT, "miss" ), 0.0 );
+        assertEquals( 1L, meterRegistry.get( AnalyticsCache.METRIC_LOAD ).tag( "region", AnalyticsCache.REGION_AGGREGATE ).timer().count() );
+    }
+
+    @Test
+    public void testInvalidateAll()
+    {
+        AnalyticsCache cache = new AnalyticsCache( cacheProvider, meterRegistry, 3600, 600, true );
+
+        cache.get( AnalyticsCache.REGION_AGGREGATE, "keyA", loader );
+        cache.get( AnalyticsCache.REGION_EVENT, "keyB", loader );
+
+        cache.invalidateAll();
+
+        cache.get( AnalyticsCache.REGION_AGGREGATE, "keyA", loader );
+        cache.get( AnalyticsCache.REGION_EVENT, "keyB", loader );
+
+        assertEquals( 4, loads.get() );
+        assertNull( meterRegistry.find( AnalyticsCache.METRIC_GETS ).tag( "result", "hit" ).counter() );
+    }
+
+    @Test
+    public void testInvalidateAllDuringLoad()
+    {
+        AnalyticsCache cache = new AnalyticsCache( cacheProvider, meterRegistry, 3600, 600, true );
+
+        cache.get( AnalyticsCache.REGION_AGGREGATE, "keyA", key -> {
+            cache.invalidateAll();
+            return loader.apply( key );
+        } );
+
+        cache.get( AnalyticsCache.REGION_AGGREGATE, "keyA", loader );
+
+        assertEquals( 2, loads.get() );
+    }
+
+    @Test
+    public void testGetStaleReloadsOnRequestThread()
+        throws InterruptedException
+    {
+        AnalyticsCache cache = new AnalyticsCache( cacheProvider, meterRegistry, 1, 600, true );
+
+        Grid staleGrid = cache.get( AnalyticsCache.REGION_AGGREGATE, "keyA", loader ).get();
+
+        Thread.sleep( 1100 );
+
+        Thread requestThread = Thread.currentThread();
+
+        Grid grid = cache.get( AnalyticsCache.REGION_AGGREGATE, "keyA", key -> {
+            assertSame( requestThread, Thread.currentThread() );
+            return loader.apply( key );
+        } ).get();
+
+        assertNotSame( staleGrid, grid );
+        assertSame( grid, cache.get( AnalyticsCache.REGION_AGGREGATE, "keyA", loader ).get() );
+        assertEquals( 2, loads.get() );
+        assertEquals( 1.0, getCount( AnalyticsCache.REGION_AGGREGATE, "stale" ), 0.0 );
+    }
+
+    @Test
+    public void testGetStaleDuringReload()
+        throws InterruptedException
+    {
+        AnalyticsCache cache = new AnalyticsCache( cacheProvider, meterRegistry, 1, 600, true );
+
+        Grid staleGrid = cache.get( AnalyticsCache.REGION_AGGREGATE, "keyA", loader ).get();
+
+        Thread.sleep( 1100 );
+
+        cache.get( AnalyticsCache.REGION_AGGREGATE, "keyA", key -> {
+            assertSame( staleGrid, cache.get( AnalyticsCache.REGION_AGGREGATE, key, loader ).get() );
+            return loader.apply( key );
+        } );
+
+        assertEquals( 2, loads.get() );
+        assertEquals( 2.0, getCount( AnalyticsCache.REGION_AGGREGATE, "stale" ), 0.0 );
+    }
+
+    @Test
+    public void testDisabled()
+    {
+        AnalyticsCache cache = new AnalyticsCache( cacheProvider, meterRegistry, 0, 600, true );
+
+        assertFalse( cache.isEnabled() );
+
+        cache.get( AnalyticsCache.REGION_AGGREGATE, "keyA", loader );
+        cache.get( AnalyticsCache.REGION_AGGREGATE, "keyA", loader );
+
+        assertEquals( 2, loads.get() );
+        assertFalse( new AnalyticsCache( cacheProvider, meterRegistry, 3600, 600, false ).isEnabled() );
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void testUnknownRegion()
+    {
+        new AnalyticsCache( cacheProvider, meterRegistry, 3600, 600, true ).get( "unknown", "keyA", loader );
+    }
+
+    private double getCount( String region, String result )
+    {
+        return meterRegistry.get( AnalyticsCache.METRIC_GETS ).tag( "region", region ).tag( "result", result ).counter().count();
+    }
+}
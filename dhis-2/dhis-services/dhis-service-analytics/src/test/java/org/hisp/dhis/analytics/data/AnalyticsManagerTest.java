@@ -91,7 +91,7 @@ public class AnalyticsManagerTest
         @Before
         public void setUp()
         {
-            analyticsManager = new JdbcAnalyticsManager( queryPlanner, jdbcTemplate );
+            analyticsManager = new JdbcAnalyticsManager( queryPlanner, jdbcTemplate, new AnalyticsQueryExecutor( 1, 10 ) );
         }
 
         @Test
@@ -141,7 +141,7 @@ public class AnalyticsManagerTest
         @Test
         public void testReplaceDataPeriodsWithAggregationPeriods()
         {
-            AnalyticsManager analyticsManager = new JdbcAnalyticsManager( queryPlanner, jdbcTemplate );
+            AnalyticsManager analyticsManager = new JdbcAnalyticsManager( queryPlanner, jdbcTemplate, new AnalyticsQueryExecutor( 1, 10 ) );
             Period y2012 = createPeriod( "2012" );
 
             AnalyticsAggregationType aggregationType = new AnalyticsAggregationType(
@@ -0,0 +1,163 @@
+package org.hisp.dhis.analytics.data;
+
+/*
+ * Copyright (c) 2004-2019, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.sql.Statement;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.hisp.dhis.common.QueryTimeoutException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AnalyticsQueryExecutorTest
+{
+    private AnalyticsQueryExecutor executor;
+
+    private CountDownLatch started;
+
+    private CountDownLatch release;
+
+    @Before
+    public void setUp()
+    {
+        executor = new AnalyticsQueryExecutor( 1, 1 );
+        started = new CountDownLatch( 1 );
+        release = new CountDownLatch( 1 );
+    }
+
+    @After
+    public void tearDown()
+    {
+        release.countDown();
+        executor.shutdown();
+    }
+
+    @Test
+    public void testSubmit()
+        throws Exception
+    {
+        Future<String> future = executor.submit( statementConsumer -> "result" );
+
+        assertEquals( "result", future.get( 10, TimeUnit.SECONDS ) );
+    }
+
+    @Test
+    public void testSubmitRejectedWhenQueueFull()
+        throws Exception
+    {
+        executor.submit( statementConsumer -> await() );
+
+        assertTrue( started.await( 10, TimeUnit.SECONDS ) );
+
+        executor.submit( statementConsumer -> "queued" );
+
+        assertEquals( 1, executor.getQueueSize() );
+
+        try
+        {
+            executor.submit( statementConsumer -> "rejected" );
+
+            fail( "Expected a QueryTimeoutException" );
+        }
+        catch ( QueryTimeoutException ex )
+        {
+            assertTrue( ex.getMessage().contains( "too many queries are queued" ) );
+        }
+    }
+
+    @Test
+    public void testCancelRunningQueryCancelsStatement()
+        throws Exception
+    {
+        Statement statement = mock( Statement.class );
+
+        Future<String> future = executor.submit( statementConsumer -> {
+            statementConsumer.accept( statement );
+            return await();
+        } );
+
+        assertTrue( started.await( 10, TimeUnit.SECONDS ) );
+        assertTrue( future.cancel( true ) );
+        assertTrue( future.isCancelled() );
+
+        verify( statement ).cancel();
+    }
+
+    @Test
+    public void testCancelQueuedQueryWithoutStatement()
+        throws Exception
+    {
+        Statement statement = mock( Statement.class );
+
+        executor.submit( statementConsumer -> await() );
+
+        assertTrue( started.await( 10, TimeUnit.SECONDS ) );
+
+        Future<String> queued = executor.submit( statementConsumer -> {
+            statementConsumer.accept( statement );
+            return "queued";
+        } );
+
+        assertTrue( queued.cancel( true ) );
+
+        release.countDown();
+
+        verify( statement, never() ).cancel();
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private String await()
+    {
+        started.countDown();
+
+        try
+        {
+            release.await( 10, TimeUnit.SECONDS );
+        }
+        catch ( InterruptedException ex )
+        {
+            Thread.currentThread().interrupt();
+        }
+
+        return "released";
+    }
+}
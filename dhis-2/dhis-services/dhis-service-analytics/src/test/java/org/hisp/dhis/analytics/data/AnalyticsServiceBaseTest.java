@@ -29,8 +29,8 @@ package org.hisp.dhis.analytics.data;
  */
 
 import org.hisp.dhis.analytics.*;
+import org.hisp.dhis.analytics.cache.AnalyticsCache;
 import org.hisp.dhis.analytics.event.EventAnalyticsService;
-import org.hisp.dhis.cache.CacheProvider;
 import org.hisp.dhis.constant.ConstantService;
 import org.hisp.dhis.expression.ExpressionService;
 import org.hisp.dhis.external.conf.DhisConfigurationProvider;
@@ -42,7 +42,6 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.MockitoJUnitRunner;
-import org.springframework.core.env.Environment;
 
 import static com.google.common.collect.Lists.newArrayList;
 import static org.mockito.ArgumentMatchers.any;
@@ -64,7 +63,7 @@ public abstract class AnalyticsServiceBaseTest {
     private AnalyticsSecurityManager securityManager;
 
     @Mock
-    private QueryPlanner queryPlanner;
+    protected QueryPlanner queryPlanner;
 
     @Mock
     private ExpressionService expressionService;
@@ -85,13 +84,10 @@ public abstract class AnalyticsServiceBaseTest {
     private DataQueryService dataQueryService;
 
     @Mock
-    private DhisConfigurationProvider dhisConfig;
+    protected DhisConfigurationProvider dhisConfig;
 
     @Mock
-    private CacheProvider cacheProvider;
-
-    @Mock
-    private Environment environment;
+    private AnalyticsCache analyticsCache;
 
     AnalyticsService target;
 
@@ -102,7 +98,7 @@ public abstract class AnalyticsServiceBaseTest {
 
         target = new DefaultAnalyticsService( analyticsManager, rawAnalyticsManager, securityManager, queryPlanner,
             queryValidator, constantService, expressionService, organisationUnitService, systemSettingManager,
-            eventAnalyticsService, dataQueryService, dhisConfig, cacheProvider, environment );
+            eventAnalyticsService, dataQueryService, dhisConfig, analyticsCache );
 
         when( systemSettingManager.getSystemSetting( SettingKey.ANALYTICS_MAINTENANCE_MODE ) ).thenReturn( false );
         when( dhisConfig.getAnalyticsCacheExpiration() ).thenReturn( 0L );
@@ -0,0 +1,175 @@
+package org.hisp.dhis.analytics.data;
+
+/*
+ * Copyright (c) 2004-2019, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static com.google.common.collect.Lists.newArrayList;
+import static org.hisp.dhis.DhisConvenienceTest.createDataElement;
+import static org.hisp.dhis.analytics.DataQueryParams.DISPLAY_NAME_ORGUNIT;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import org.hisp.dhis.analytics.AnalyticsTableType;
+import org.hisp.dhis.analytics.DataQueryGroups;
+import org.hisp.dhis.analytics.DataQueryParams;
+import org.hisp.dhis.analytics.QueryPlannerParams;
+import org.hisp.dhis.analytics.util.AnalyticsUtils;
+import org.hisp.dhis.common.BaseDimensionalObject;
+import org.hisp.dhis.common.DimensionType;
+import org.hisp.dhis.common.QueryTimeoutException;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.period.Period;
+import org.hisp.dhis.period.YearlyPeriodType;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Tests the deadline, failure and rejection handling of the partitioned
+ * analytics queries.
+ */
+public class AnalyticsServiceQueryExecutionTest
+    extends AnalyticsServiceBaseTest
+{
+    private DataQueryParams params;
+
+    private CompletableFuture<Map<String, Object>> completedQuery;
+
+    private CompletableFuture<Map<String, Object>> pendingQuery;
+
+    @Before
+    public void setUp()
+    {
+        params = DataQueryParams.newBuilder()
+            .withPeriod( new Period( YearlyPeriodType.getPeriodFromIsoString( "2017" ) ) )
+            .withDataElements( newArrayList( createDataElement( 'A' ) ) ).withIgnoreLimit( true )
+            .withFilters( Collections.singletonList(
+                new BaseDimensionalObject( "ou", DimensionType.ORGANISATION_UNIT, null, DISPLAY_NAME_ORGUNIT,
+                    ImmutableList.of( new OrganisationUnit( "bbb", "bbb", "OU_2", null, null, "c2" ) ) ) ) )
+            .build();
+
+        initMock( params );
+
+        when( queryPlanner.planQuery( any( DataQueryParams.class ), any( QueryPlannerParams.class ) ) ).thenReturn(
+            DataQueryGroups.newBuilder().withQueries( newArrayList(
+                DataQueryParams.newBuilder().build(), DataQueryParams.newBuilder().build() ) ).build() );
+
+        Map<String, Object> values = new HashMap<>();
+        values.put( "deabcdefghA-2017", 10d );
+
+        completedQuery = CompletableFuture.completedFuture( values );
+        pendingQuery = new CompletableFuture<>();
+    }
+
+    @Test
+    public void testQueriesWithinDeadline()
+    {
+        when( dhisConfig.getAnalyticsQueryTimeout() ).thenReturn( 10L );
+        when( analyticsManager.getAggregatedDataValues( any( DataQueryParams.class ), eq( AnalyticsTableType.DATA_VALUE ), eq( 0 ) ) )
+            .thenReturn( completedQuery, CompletableFuture.completedFuture( new HashMap<>() ) );
+
+        target.getAggregatedDataValues( params );
+
+        assertTrue( completedQuery.isDone() );
+    }
+
+    @Test
+    public void testQueryDeadlineCancelsPendingQueries()
+    {
+        when( dhisConfig.getAnalyticsQueryTimeout() ).thenReturn( 1L );
+        when( analyticsManager.getAggregatedDataValues( any( DataQueryParams.class ), eq( AnalyticsTableType.DATA_VALUE ), eq( 0 ) ) )
+            .thenReturn( completedQuery, pendingQuery );
+
+        try
+        {
+            target.getAggregatedDataValues( params );
+
+            fail( "Expected a QueryTimeoutException" );
+        }
+        catch ( QueryTimeoutException ex )
+        {
+            assertEquals( AnalyticsUtils.ERR_MSG_QUERY_TIMEOUT, ex.getMessage() );
+        }
+
+        assertTrue( pendingQuery.isCancelled() );
+    }
+
+    @Test
+    public void testQueryFailureCancelsSiblingQueries()
+    {
+        CompletableFuture<Map<String, Object>> failedQuery = new CompletableFuture<>();
+        failedQuery.completeExceptionally( new IllegalStateException( "Query failed" ) );
+
+        when( analyticsManager.getAggregatedDataValues( any( DataQueryParams.class ), eq( AnalyticsTableType.DATA_VALUE ), eq( 0 ) ) )
+            .thenReturn( failedQuery, pendingQuery );
+
+        try
+        {
+            target.getAggregatedDataValues( params );
+
+            fail( "Expected an IllegalStateException" );
+        }
+        catch ( IllegalStateException ex )
+        {
+            assertEquals( "Query failed", ex.getMessage() );
+        }
+
+        assertTrue( pendingQuery.isCancelled() );
+    }
+
+    @Test
+    public void testQueryRejectionCancelsSubmittedQueries()
+    {
+        when( analyticsManager.getAggregatedDataValues( any( DataQueryParams.class ), eq( AnalyticsTableType.DATA_VALUE ), eq( 0 ) ) )
+            .thenReturn( pendingQuery )
+            .thenThrow( new QueryTimeoutException( "Analytics server is busy" ) );
+
+        try
+        {
+            target.getAggregatedDataValues( params );
+
+            fail( "Expected a QueryTimeoutException" );
+        }
+        catch ( QueryTimeoutException ex )
+        {
+            assertEquals( "Analytics server is busy", ex.getMessage() );
+        }
+
+        assertTrue( pendingQuery.isCancelled() );
+    }
+}
@@ -33,8 +33,13 @@ import static org.hisp.dhis.DhisConvenienceTest.*;
 import static org.hisp.dhis.common.DimensionalObject.*;
 import static org.hisp.dhis.common.DimensionalObjectUtils.getList;
 import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+
 import org.hisp.dhis.analytics.*;
 import org.hisp.dhis.analytics.partition.PartitionManager;
 import org.hisp.dhis.common.BaseDimensionalObject;
@@ -54,6 +59,8 @@ import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.SqlRowSetResultSetExtractor;
 import org.springframework.jdbc.support.rowset.SqlRowSet;
 
 /**
@@ -76,6 +83,9 @@ public class JdbcAnalyticsManagerTest
     @Mock
     private SqlRowSet rowSet;
 
+    @Mock
+    private Connection connection;
+
     @Captor
     private ArgumentCaptor<String> sql;
 
@@ -83,33 +93,43 @@ public class JdbcAnalyticsManagerTest
 
     @Before
     public void setUp()
+        throws Exception
     {
         QueryPlanner queryPlanner = new DefaultQueryPlanner( new DefaultQueryValidator( this.systemSettingManager ),
             partitionManager );
 
         mockRowSet();
 
-        when( jdbcTemplate.queryForRowSet( sql.capture() ) ).thenReturn( rowSet );
+        when( connection.prepareStatement( sql.capture() ) ).thenReturn( mock( PreparedStatement.class ) );
+
+        when( jdbcTemplate.query( any( PreparedStatementCreator.class ), any( SqlRowSetResultSetExtractor.class ) ) )
+            .thenAnswer( invocation -> {
+                PreparedStatementCreator creator = invocation.getArgument( 0 );
+                creator.createPreparedStatement( connection );
+                return rowSet;
+            } );
 
-        subject = new JdbcAnalyticsManager( queryPlanner, jdbcTemplate );
+        subject = new JdbcAnalyticsManager( queryPlanner, jdbcTemplate, new AnalyticsQueryExecutor( 1, 10 ) );
     }
 
     @Test
     public void verifyQueryGeneratedWhenDataElementHasLastAggregationType()
+        throws Exception
     {
         DataQueryParams params = createParams( AggregationType.LAST );
 
-        subject.getAggregatedDataValues( params, AnalyticsTableType.DATA_VALUE, 20000 );
+        subject.getAggregatedDataValues( params, AnalyticsTableType.DATA_VALUE, 20000 ).get();
 
         assertExpectedSql("desc");
     }
 
     @Test
     public void verifyQueryGeneratedWhenDataElementHasLastAvgOrgUnitAggregationType()
+        throws Exception
     {
         DataQueryParams params = createParams( AggregationType.LAST_AVERAGE_ORG_UNIT );
 
-        subject.getAggregatedDataValues( params, AnalyticsTableType.DATA_VALUE, 20000 );
+        subject.getAggregatedDataValues( params, AnalyticsTableType.DATA_VALUE, 20000 ).get();
 
         assertExpectedSql("desc");
     }
@@ -31,6 +31,7 @@ package org.hisp.dhis.analytics.table;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.ArgumentMatchers;
 import org.mockito.Mock;
 import org.mockito.Mockito;
@@ -47,6 +48,7 @@ import java.util.Map;
 
 import org.hisp.dhis.analytics.AnalyticsTable;
 import org.hisp.dhis.analytics.AnalyticsTableHookService;
+import org.hisp.dhis.analytics.AnalyticsTableLayout;
 import org.hisp.dhis.analytics.AnalyticsTableManager;
 import org.hisp.dhis.analytics.AnalyticsTablePartition;
 import org.hisp.dhis.analytics.AnalyticsTableUpdateParams;
@@ -62,11 +64,15 @@ import org.hisp.dhis.setting.SystemSettingManager;
 import org.hisp.dhis.system.database.DatabaseInfo;
 import org.joda.time.DateTime;
 
+import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -80,6 +86,9 @@ public class JdbcAnalyticsTableManagerTest
     @Mock
     private JdbcTemplate jdbcTemplate;
 
+    @Mock
+    private PartitionManager partitionManager;
+
     @Rule
     public MockitoRule mockitoRule = MockitoJUnit.rule();
 
@@ -91,7 +100,7 @@ public class JdbcAnalyticsTableManagerTest
         subject = new JdbcAnalyticsTableManager( mock( IdentifiableObjectManager.class ), mock( OrganisationUnitService.class ),
             mock( CategoryService.class ), systemSettingManager, mock( DataApprovalLevelService.class ),
             mock( ResourceTableService.class ), mock( AnalyticsTableHookService.class ), mock( StatementBuilder.class ),
-            mock( PartitionManager.class ), mock( DatabaseInfo.class ), jdbcTemplate );
+            partitionManager, mock( DatabaseInfo.class ), jdbcTemplate );
     }
 
     @Test
@@ -183,4 +192,102 @@ public class JdbcAnalyticsTableManagerTest
 
         subject.getAnalyticsTables( params );
     }
+
+    @Test
+    public void testUpdateChangedDataNoChanges()
+    {
+        Date lastUpdate = new DateTime( 2019, 3, 1, 9, 0 ).toDate();
+        Date startTime = new DateTime( 2019, 3, 1, 10, 0 ).toDate();
+
+        AnalyticsTableUpdateParams params = AnalyticsTableUpdateParams.newBuilder()
+            .withStartTime( startTime )
+            .withIncrementalUpdate( true )
+            .build();
+
+        when( jdbcTemplate.queryForObject( Mockito.anyString(), ArgumentMatchers.<Class<Integer>>any() ) ).thenReturn( 0 );
+
+        assertEquals( 0, subject.updateChangedData( params, lastUpdate ) );
+
+        verify( partitionManager, never() ).tableExists( Mockito.anyString() );
+    }
+
+    @Test
+    public void testUpdateChangedData()
+    {
+        Date lastUpdate = new DateTime( 2019, 3, 1, 9, 0 ).toDate();
+        Date startTime = new DateTime( 2019, 3, 1, 10, 0 ).toDate();
+
+        AnalyticsTableUpdateParams params = AnalyticsTableUpdateParams.newBuilder()
+            .withStartTime( startTime )
+            .withIncrementalUpdate( true )
+            .build();
+
+        when( systemSettingManager.getSystemSetting( SettingKey.SKIP_DATA_TYPE_VALIDATION_IN_ANALYTICS_TABLE_EXPORT ) ).thenReturn( false );
+        when( systemSettingManager.getSystemSetting( SettingKey.SKIP_ZERO_VALUES_IN_ANALYTICS_TABLE_EXPORT ) ).thenReturn( true );
+        when( systemSettingManager.getSystemSetting( SettingKey.RESPECT_META_DATA_START_END_DATES_IN_ANALYTICS_TABLE_EXPORT ) ).thenReturn( false );
+        when( systemSettingManager.getSystemSetting( SettingKey.IGNORE_ANALYTICS_APPROVAL_YEAR_THRESHOLD ) ).thenReturn( -1 );
+        when( jdbcTemplate.queryForObject( Mockito.anyString(), ArgumentMatchers.<Class<Integer>>any() ) ).thenReturn( 3 );
+        when( jdbcTemplate.queryForList( Mockito.contains( "distinct year" ), ArgumentMatchers.<Class<Integer>>any() ) ).thenReturn( Lists.newArrayList( 2018, 2019 ) );
+        when( jdbcTemplate.queryForList( Mockito.contains( "aggregationlevel" ), ArgumentMatchers.<Class<Integer>>any() ) ).thenReturn( Lists.newArrayList() );
+        when( partitionManager.tableExists( "analytics_2018" ) ).thenReturn( false );
+        when( partitionManager.tableExists( "analytics_2019" ) ).thenReturn( true );
+
+        assertEquals( 3, subject.updateChangedData( params, lastUpdate ) );
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass( String.class );
+        verify( jdbcTemplate, atLeastOnce() ).execute( sql.capture() );
+
+        assertTrue( sql.getAllValues().stream().anyMatch( s -> s != null && s.startsWith( "delete from analytics_2019 ax using _analyticschangedkeys ck" ) ) );
+        assertTrue( sql.getAllValues().stream().anyMatch( s -> s != null && s.contains( "insert into analytics_2019 " ) ) );
+        assertFalse( sql.getAllValues().stream().anyMatch( s -> s != null && s.contains( "analytics_2018" ) ) );
+        assertTrue( sql.getAllValues().contains( "drop table if exists _analyticschangedkeys" ) );
+    }
+
+    @Test
+    public void testCreateTableCompactLayout()
+    {
+        AnalyticsTableUpdateParams params = AnalyticsTableUpdateParams.newBuilder()
+            .withTableLayout( AnalyticsTableLayout.COMPACT )
+            .withTableCompression( "lz4" )
+            .build();
+
+        when( jdbcTemplate.queryForList( Mockito.anyString(), ArgumentMatchers.<Class<Integer>>any() ) ).thenReturn( Lists.newArrayList( 2019 ) );
+
+        AnalyticsTable table = subject.getAnalyticsTables( params ).get( 0 );
+
+        subject.createTable( params, table );
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass( String.class );
+        verify( jdbcTemplate, atLeastOnce() ).execute( sql.capture() );
+
+        String sqlCreate = sql.getAllValues().get( 0 );
+
+        assertTrue( sqlCreate.startsWith( "create table analytics_temp (" ) );
+        assertTrue( sqlCreate.indexOf( "\"pestartdate\" timestamp" ) < sqlCreate.indexOf( "\"year\" integer" ) );
+        assertTrue( sqlCreate.indexOf( "\"year\" integer" ) < sqlCreate.indexOf( "\"dx\" character(11)" ) );
+        assertTrue( sqlCreate.contains( "\"pe\" text compression lz4 not null" ) );
+        assertFalse( sqlCreate.contains( "character(11) compression" ) );
+    }
+
+    @Test
+    public void testCreateTableDefaultLayout()
+    {
+        AnalyticsTableUpdateParams params = AnalyticsTableUpdateParams.newBuilder()
+            .withTableCompression( "lz4" )
+            .build();
+
+        when( jdbcTemplate.queryForList( Mockito.anyString(), ArgumentMatchers.<Class<Integer>>any() ) ).thenReturn( Lists.newArrayList( 2019 ) );
+
+        AnalyticsTable table = subject.getAnalyticsTables( params ).get( 0 );
+
+        subject.createTable( params, table );
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass( String.class );
+        verify( jdbcTemplate, atLeastOnce() ).execute( sql.capture() );
+
+        String sqlCreate = sql.getAllValues().get( 0 );
+
+        assertTrue( sqlCreate.indexOf( "\"dx\" character(11)" ) < sqlCreate.indexOf( "\"pestartdate\" timestamp" ) );
+        assertFalse( sqlCreate.contains( "compression" ) );
+    }
 }
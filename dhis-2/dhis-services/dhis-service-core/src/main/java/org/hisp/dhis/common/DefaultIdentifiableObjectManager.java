@@ -1067,6 +1067,28 @@ public class DefaultIdentifiableObjectManager
         return store.getByAttributeAndValue( attribute, value );
     }
 
+    @Override
+    @Transactional( readOnly = true )
+    @SuppressWarnings( "unchecked" )
+    public <T extends IdentifiableObject> List<T> getByAttributeAndValues( Class<T> klass, Attribute attribute, Collection<String> values )
+    {
+        Schema schema = schemaService.getDynamicSchema( klass );
+
+        if ( schema == null || !schema.havePersistedProperty( "attributeValues" ) || values.isEmpty() )
+        {
+            return new ArrayList<>();
+        }
+
+        IdentifiableObjectStore<IdentifiableObject> store = getIdentifiableObjectStore( klass );
+
+        if ( store == null )
+        {
+            return new ArrayList<>();
+        }
+
+        return (List<T>) store.getByAttributeAndValues( attribute, values );
+    }
+
     @Override
     @Transactional( readOnly = true )
     public <T extends IdentifiableObject> boolean isAttributeValueUnique( Class<? extends IdentifiableObject> klass, T object, AttributeValue attributeValue )
@@ -0,0 +1,341 @@
+package org.hisp.dhis.common;
+
+/*
+ * Copyright (c) 2004-2019, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.hisp.dhis.system.util.ReflectionUtils.getRealClass;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.SessionFactory;
+import org.hisp.dhis.commons.collection.LongLongMap;
+import org.hisp.dhis.schema.Schema;
+import org.hisp.dhis.schema.SchemaService;
+import org.hisp.dhis.security.acl.AclService;
+import org.hisp.dhis.user.CurrentUserService;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+/**
+ * Index which keeps, per object class, primitive maps from 64 bit hashes of
+ * UIDs and codes to internal identifiers. The index of a class is loaded with
+ * a single projection query on first use and takes around 20 bytes per
+ * identifier, compared to the full object graph of every object.
+ * <p>
+ * Lookups load the object by internal identifier, which is served from the
+ * second-level cache where the class is cached, and check the identifier of
+ * the loaded object. Entries which do not match because of hash collisions or
+ * updated codes are removed and resolved by query, and objects created after
+ * the index was loaded are added on first lookup.
+ */
+@Service( "org.hisp.dhis.common.IdentifierIndex" )
+public class DefaultIdentifierIndex
+    implements IdentifierIndex
+{
+    private static final Log log = LogFactory.getLog( DefaultIdentifierIndex.class );
+
+    private static final long NOT_FOUND = -1L;
+
+    private static final int FETCH_SIZE = 1000;
+
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    private final Map<Class<?>, ClassIndex> indexes = new ConcurrentHashMap<>();
+
+    private final SessionFactory sessionFactory;
+
+    private final IdentifiableObjectManager idObjectManager;
+
+    private final SchemaService schemaService;
+
+    private final AclService aclService;
+
+    private final CurrentUserService currentUserService;
+
+    public DefaultIdentifierIndex( SessionFactory sessionFactory, IdentifiableObjectManager idObjectManager,
+        SchemaService schemaService, AclService aclService, CurrentUserService currentUserService )
+    {
+        checkNotNull( sessionFactory );
+        checkNotNull( idObjectManager );
+        checkNotNull( schemaService );
+        checkNotNull( aclService );
+        checkNotNull( currentUserService );
+
+        this.sessionFactory = sessionFactory;
+        this.idObjectManager = idObjectManager;
+        this.schemaService = schemaService;
+        this.aclService = aclService;
+        this.currentUserService = currentUserService;
+    }
+
+    // -------------------------------------------------------------------------
+    // IdentifierIndex implementation
+    // -------------------------------------------------------------------------
+
+    @Override
+    public boolean isIndexed( IdScheme idScheme )
+    {
+        return idScheme != null && (idScheme.is( IdentifiableProperty.UID ) || idScheme.is( IdentifiableProperty.CODE ));
+    }
+
+    @Override
+    @Transactional( readOnly = true )
+    public <T extends IdentifiableObject> T getObject( Class<T> clazz, IdScheme idScheme, String value )
+    {
+        if ( StringUtils.isEmpty( value ) || !isIndexed( idScheme ) )
+        {
+            return idObjectManager.getObject( clazz, idScheme, value );
+        }
+
+        ClassIndex index = indexes.computeIfAbsent( clazz, this::loadIndex );
+
+        if ( !index.isSupported() )
+        {
+            return idObjectManager.getObject( clazz, idScheme, value );
+        }
+
+        boolean code = idScheme.is( IdentifiableProperty.CODE );
+
+        long id = index.get( code, value );
+
+        if ( id != NOT_FOUND )
+        {
+            T object = idObjectManager.get( clazz, id );
+
+            if ( object != null && value.equals( object.getPropertyValue( idScheme ) ) )
+            {
+                return aclService.canRead( currentUserService.getCurrentUser(), object ) ? object : null;
+            }
+
+            index.remove( code, value );
+        }
+
+        T object = idObjectManager.getObject( clazz, idScheme, value );
+
+        if ( object != null )
+        {
+            index.put( object );
+        }
+
+        return object;
+    }
+
+    @Override
+    public void invalidate( Class<? extends IdentifiableObject> clazz )
+    {
+        indexes.remove( clazz );
+    }
+
+    @Override
+    public void invalidateAll()
+    {
+        indexes.clear();
+    }
+
+    @EventListener
+    public void handleObjectDeletion( ObjectDeletionRequestedEvent event )
+    {
+        if ( event.getSource() instanceof IdentifiableObject )
+        {
+            IdentifiableObject object = (IdentifiableObject) event.getSource();
+
+            ClassIndex index = indexes.get( getRealClass( object.getClass() ) );
+
+            if ( index != null )
+            {
+                index.remove( false, object.getUid() );
+                index.remove( true, object.getCode() );
+            }
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Loads the index of the given class with a single projection query. Returns
+     * an unsupported index if the class has no persisted UID property.
+     */
+    private ClassIndex loadIndex( Class<?> clazz )
+    {
+        Schema schema = schemaService.getDynamicSchema( clazz );
+
+        if ( schema == null || !schema.isPersisted() || !schema.havePersistedProperty( "uid" ) )
+        {
+            return ClassIndex.UNSUPPORTED;
+        }
+
+        boolean withCode = schema.havePersistedProperty( "code" );
+
+        String hql = "select id, uid" + (withCode ? ", code" : "") + " from " + clazz.getName();
+
+        ClassIndex index = new ClassIndex();
+
+        ScrollableResults results = sessionFactory.getCurrentSession().createQuery( hql )
+            .setReadOnly( true )
+            .setFetchSize( FETCH_SIZE )
+            .scroll( ScrollMode.FORWARD_ONLY );
+
+        try
+        {
+            while ( results.next() )
+            {
+                long id = ((Number) results.get( 0 )).longValue();
+
+                index.put( false, (String) results.get( 1 ), id );
+
+                if ( withCode )
+                {
+                    index.put( true, (String) results.get( 2 ), id );
+                }
+            }
+        }
+        finally
+        {
+            results.close();
+        }
+
+        log.info( String.format( "Loaded identifier index for %s with %d UIDs", clazz.getSimpleName(), index.size() ) );
+
+        return index;
+    }
+
+    private static long hash( String value )
+    {
+        return HASH_FUNCTION.hashString( value, StandardCharsets.UTF_8 ).asLong();
+    }
+
+    /**
+     * UID and code index of a single object class.
+     */
+    private static class ClassIndex
+    {
+        private static final ClassIndex UNSUPPORTED = new ClassIndex( false );
+
+        private final boolean supported;
+
+        private final LongLongMap uids = new LongLongMap();
+
+        private final LongLongMap codes = new LongLongMap();
+
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+        ClassIndex()
+        {
+            this( true );
+        }
+
+        private ClassIndex( boolean supported )
+        {
+            this.supported = supported;
+        }
+
+        boolean isSupported()
+        {
+            return supported;
+        }
+
+        int size()
+        {
+            return uids.size();
+        }
+
+        long get( boolean code, String value )
+        {
+            lock.readLock().lock();
+
+            try
+            {
+                return (code ? codes : uids).getOrDefault( hash( value ), NOT_FOUND );
+            }
+            finally
+            {
+                lock.readLock().unlock();
+            }
+        }
+
+        void put( IdentifiableObject object )
+        {
+            put( false, object.getUid(), object.getId() );
+            put( true, object.getCode(), object.getId() );
+        }
+
+        void put( boolean code, String value, long id )
+        {
+            if ( value == null )
+            {
+                return;
+            }
+
+            lock.writeLock().lock();
+
+            try
+            {
+                (code ? codes : uids).put( hash( value ), id );
+            }
+            finally
+            {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void remove( boolean code, String value )
+        {
+            if ( value == null )
+            {
+                return;
+            }
+
+            lock.writeLock().lock();
+
+            try
+            {
+                (code ? codes : uids).remove( hash( value ) );
+            }
+            finally
+            {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+}
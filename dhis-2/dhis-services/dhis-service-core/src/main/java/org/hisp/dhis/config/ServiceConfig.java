@@ -29,6 +29,7 @@ package org.hisp.dhis.config;
  */
 
 import org.hisp.dhis.common.DeliveryChannel;
+import org.hisp.dhis.commons.util.SystemUtils;
 import org.hisp.dhis.i18n.I18nManager;
 import org.hisp.dhis.i18n.ui.resourcebundle.DefaultResourceBundleManager;
 import org.hisp.dhis.i18n.ui.resourcebundle.ResourceBundleManager;
@@ -42,6 +43,7 @@ import org.hisp.dhis.sms.config.SmsMessageSender;
 import org.hisp.dhis.user.UserSettingService;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 
 import java.util.*;
@@ -60,6 +62,22 @@ public class ServiceConfig
         return threadPoolTaskScheduler;
     }
 
+    /**
+     * Thread pool shared by all metadata imports for scanning payloads for
+     * references.
+     */
+    @Bean( "preheatTaskExecutor" )
+    public ThreadPoolTaskExecutor preheatTaskExecutor()
+    {
+        int poolSize = SystemUtils.getCpuCores();
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize( poolSize );
+        executor.setMaxPoolSize( poolSize );
+        executor.setThreadNamePrefix( "preheat-" );
+        return executor;
+    }
+
     @Bean( "org.hisp.dhis.setting.StyleManager" )
     public StyleManager styleManager( SystemSettingManager systemSettingManager, UserSettingService userSettingService,
         I18nManager i18nManager )
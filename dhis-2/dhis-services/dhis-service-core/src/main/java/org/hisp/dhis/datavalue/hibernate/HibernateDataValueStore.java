@@ -371,7 +371,7 @@ public class HibernateDataValueStore extends HibernateGenericStore<DataValue>
 
             where += sqlHelper.whereAnd() + "dv.periodid in (" + periodIdList + ")";
         }
-        else if ( params.hasPeriodTypes() || params.hasStartEndDate() || params.hasIncludedDate() )
+        else if ( params.hasPeriodTypes() || params.hasStartEndDate() || params.hasIncludedDates() )
         {
             sql += " join period p on p.periodid = dv.periodid";
 
@@ -389,10 +389,17 @@ public class HibernateDataValueStore extends HibernateGenericStore<DataValue>
                 where += sqlHelper.whereAnd() + "p.startdate >= '" + DateUtils.getMediumDateString( params.getStartDate() ) + "'"
                     + " and p.enddate <= '" + DateUtils.getMediumDateString( params.getStartDate() ) + "'";
             }
-            else if ( params.hasIncludedDate() )
+            else if ( params.hasIncludedDates() )
             {
-                where += sqlHelper.whereAnd() + "p.startdate <= '" + DateUtils.getMediumDateString( params.getIncludedDate() ) + "'"
-                    + " and p.enddate >= '" + DateUtils.getMediumDateString( params.getIncludedDate() ) + "'";
+                String includedDatesCondition = "";
+
+                for ( Date includedDate : params.getIncludedDates() )
+                {
+                    includedDatesCondition += "(p.startdate <= '" + DateUtils.getMediumDateString( includedDate ) + "'"
+                        + " and p.enddate >= '" + DateUtils.getMediumDateString( includedDate ) + "') or ";
+                }
+
+                where += sqlHelper.whereAnd() + "(" + removeLastOr( includedDatesCondition ) + ")";
             }
         }
 
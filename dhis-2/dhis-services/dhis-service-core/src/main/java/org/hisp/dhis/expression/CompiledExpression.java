@@ -0,0 +1,706 @@
+package org.hisp.dhis.expression;
+
+/*
+ * Copyright (c) 2004-2019, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+import static org.hisp.dhis.parser.expression.ParserUtils.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.IntPredicate;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.hisp.dhis.common.DimensionalItemObject;
+import org.hisp.dhis.parser.expression.InternalParserException;
+import org.hisp.dhis.parser.expression.ParserExceptionWithoutContext;
+
+/**
+ * An expression translated once from its parse tree into a tree of
+ * evaluation nodes, so that it can be evaluated many times without visiting
+ * the ANTLR4 parse tree again.
+ * <p/>
+ * Dimensional items are resolved to slots in a value array, constant
+ * sub-expressions are folded and operators are called directly. Evaluation
+ * follows the semantics of {@link org.hisp.dhis.parser.expression.CommonExpressionVisitor}
+ * with the evaluate methods, including the counting of items found and item
+ * values found for the {@link MissingValueStrategy}.
+ * <p/>
+ * Instances are immutable and may be shared between threads. The state of a
+ * single evaluation is held by an {@link Evaluation}.
+ */
+final class CompiledExpression
+{
+    /**
+     * Marker for expressions which can't be compiled, and must be
+     * evaluated by visiting the parse tree.
+     */
+    static final CompiledExpression NOT_COMPILED = new CompiledExpression( null, ImmutableMap.of() );
+
+    private static final Double VALUE_IF_NULL = DOUBLE_VALUE_IF_NULL;
+
+    private final Node root;
+
+    /**
+     * Maps dimensional item ids (as returned by
+     * {@link DimensionalItemObject#getDimensionItem()}) to value slots.
+     */
+    private final ImmutableMap<String, Integer> slotIndex;
+
+    CompiledExpression( Node root, ImmutableMap<String, Integer> slotIndex )
+    {
+        this.root = root;
+        this.slotIndex = slotIndex;
+    }
+
+    // -------------------------------------------------------------------------
+    // Logic
+    // -------------------------------------------------------------------------
+
+    /**
+     * Indicates whether the expression was compiled.
+     *
+     * @return true if the expression can be evaluated by this object.
+     */
+    boolean isCompiled()
+    {
+        return root != null;
+    }
+
+    /**
+     * Creates the state for one evaluation of this expression.
+     *
+     * @param valueMap the dimensional item values.
+     * @param constantMap the constant values.
+     * @param orgUnitCountMap the organisation unit group member counts.
+     * @param days the number of days in the period, or null.
+     * @return the evaluation.
+     */
+    Evaluation newEvaluation( Map<DimensionalItemObject, Double> valueMap, Map<String, Double> constantMap,
+        Map<String, Integer> orgUnitCountMap, Integer days )
+    {
+        Double[] slots = new Double[slotIndex.size()];
+
+        if ( slots.length != 0 )
+        {
+            for ( Map.Entry<DimensionalItemObject, Double> entry : valueMap.entrySet() )
+            {
+                Integer slot = slotIndex.get( entry.getKey().getDimensionItem() );
+
+                if ( slot != null )
+                {
+                    slots[slot] = entry.getValue();
+                }
+            }
+        }
+
+        return new Evaluation( root, slots, constantMap, orgUnitCountMap,
+            days != null ? Double.valueOf( days ) : null );
+    }
+
+    // -------------------------------------------------------------------------
+    // Evaluation
+    // -------------------------------------------------------------------------
+
+    /**
+     * The state of a single evaluation of a compiled expression.
+     */
+    static final class Evaluation
+    {
+        private final Node root;
+
+        private final Double[] slots;
+
+        private final Map<String, Double> constantMap;
+
+        private final Map<String, Integer> orgUnitCountMap;
+
+        private final Double days;
+
+        private int itemsFound;
+
+        private int itemValuesFound;
+
+        private Evaluation( Node root, Double[] slots, Map<String, Double> constantMap,
+            Map<String, Integer> orgUnitCountMap, Double days )
+        {
+            this.root = root;
+            this.slots = slots;
+            this.constantMap = constantMap;
+            this.orgUnitCountMap = orgUnitCountMap;
+            this.days = days;
+        }
+
+        /**
+         * Evaluates the expression.
+         *
+         * @return the expression value.
+         */
+        Double evaluate()
+        {
+            return castDouble( root.evaluate( this ) );
+        }
+
+        int getItemsFound()
+        {
+            return itemsFound;
+        }
+
+        int getItemValuesFound()
+        {
+            return itemValuesFound;
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Nodes
+    // -------------------------------------------------------------------------
+
+    /**
+     * A node of a compiled expression.
+     * <p/>
+     * Nodes which are known to produce numbers or booleans override the
+     * corresponding typed method so that their parents can use the
+     * primitive value without boxing. As with the visitor, a null value
+     * where a primitive is needed throws a {@link NullPointerException}.
+     */
+    abstract static class Node
+    {
+        abstract Object evaluate( Evaluation evaluation );
+
+        double evaluateDouble( Evaluation evaluation )
+        {
+            return castDouble( evaluate( evaluation ) );
+        }
+
+        boolean evaluateBoolean( Evaluation evaluation )
+        {
+            return castBoolean( evaluate( evaluation ) );
+        }
+
+        /**
+         * Indicates whether this node has the same value in any evaluation,
+         * and without side effects on the evaluation.
+         */
+        boolean isConstant()
+        {
+            return false;
+        }
+    }
+
+    abstract static class DoubleNode
+        extends Node
+    {
+        @Override
+        final Object evaluate( Evaluation evaluation )
+        {
+            return evaluateDouble( evaluation );
+        }
+
+        @Override
+        abstract double evaluateDouble( Evaluation evaluation );
+    }
+
+    abstract static class BooleanNode
+        extends Node
+    {
+        @Override
+        final Object evaluate( Evaluation evaluation )
+        {
+            return evaluateBoolean( evaluation );
+        }
+
+        @Override
+        abstract boolean evaluateBoolean( Evaluation evaluation );
+    }
+
+    // -------------------------------------------------------------------------
+    // Literals and items
+    // -------------------------------------------------------------------------
+
+    /**
+     * A literal, or a folded constant sub-expression.
+     */
+    static final class Literal
+        extends Node
+    {
+        private final Object value;
+
+        Literal( Object value )
+        {
+            this.value = value;
+        }
+
+        @Override
+        Object evaluate( Evaluation evaluation )
+        {
+            return value;
+        }
+
+        @Override
+        boolean isConstant()
+        {
+            return true;
+        }
+    }
+
+    /**
+     * A dimensional item value. Missing values are replaced by the default
+     * value and counted, unless the item is tested for null.
+     */
+    static final class ItemValue
+        extends Node
+    {
+        private final int slot;
+
+        private final boolean replaceNulls;
+
+        ItemValue( int slot, boolean replaceNulls )
+        {
+            this.slot = slot;
+            this.replaceNulls = replaceNulls;
+        }
+
+        @Override
+        Object evaluate( Evaluation evaluation )
+        {
+            return getValue( evaluation );
+        }
+
+        @Override
+        double evaluateDouble( Evaluation evaluation )
+        {
+            return getValue( evaluation );
+        }
+
+        private Double getValue( Evaluation evaluation )
+        {
+            Double value = evaluation.slots[slot];
+
+            if ( replaceNulls )
+            {
+                evaluation.itemsFound++;
+
+                if ( value == null )
+                {
+                    value = VALUE_IF_NULL;
+                }
+                else
+                {
+                    evaluation.itemValuesFound++;
+                }
+            }
+
+            return value;
+        }
+    }
+
+    static final class ConstantValue
+        extends Node
+    {
+        private final String uid;
+
+        ConstantValue( String uid )
+        {
+            this.uid = uid;
+        }
+
+        @Override
+        Object evaluate( Evaluation evaluation )
+        {
+            return getValue( evaluation );
+        }
+
+        @Override
+        double evaluateDouble( Evaluation evaluation )
+        {
+            return getValue( evaluation );
+        }
+
+        private Double getValue( Evaluation evaluation )
+        {
+            Double value = evaluation.constantMap.get( uid );
+
+            if ( value == null ) // Shouldn't happen for a valid expression.
+            {
+                throw new ParserExceptionWithoutContext( "Can't find constant to evaluate " + uid );
+            }
+
+            return value;
+        }
+    }
+
+    static final class OrgUnitCount
+        extends DoubleNode
+    {
+        private final String uid;
+
+        OrgUnitCount( String uid )
+        {
+            this.uid = uid;
+        }
+
+        @Override
+        double evaluateDouble( Evaluation evaluation )
+        {
+            Integer count = evaluation.orgUnitCountMap.get( uid );
+
+            if ( count == null ) // Shouldn't happen for a valid expression.
+            {
+                throw new ParserExceptionWithoutContext( "Can't find count for organisation unit " + uid );
+            }
+
+            return count.doubleValue();
+        }
+    }
+
+    static final class Days
+        extends Node
+    {
+        @Override
+        Object evaluate( Evaluation evaluation )
+        {
+            return evaluation.days;
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Operators
+    // -------------------------------------------------------------------------
+
+    /**
+     * Unary plus, which passes a null value through.
+     */
+    static final class UnaryPlus
+        extends Node
+    {
+        private final Node arg;
+
+        UnaryPlus( Node arg )
+        {
+            this.arg = arg;
+        }
+
+        @Override
+        Object evaluate( Evaluation evaluation )
+        {
+            return castDouble( arg.evaluate( evaluation ) );
+        }
+
+        @Override
+        double evaluateDouble( Evaluation evaluation )
+        {
+            return arg.evaluateDouble( evaluation );
+        }
+    }
+
+    static final class UnaryMinus
+        extends DoubleNode
+    {
+        private final Node arg;
+
+        UnaryMinus( Node arg )
+        {
+            this.arg = arg;
+        }
+
+        @Override
+        double evaluateDouble( Evaluation evaluation )
+        {
+            return - arg.evaluateDouble( evaluation );
+        }
+    }
+
+    /**
+     * Binary math operators: +, -, *, /, % and ^.
+     */
+    static final class MathOperator
+        extends DoubleNode
+    {
+        private final Node left;
+
+        private final Node right;
+
+        private final DoubleBinaryOperator operator;
+
+        MathOperator( Node left, Node right, DoubleBinaryOperator operator )
+        {
+            this.left = left;
+            this.right = right;
+            this.operator = operator;
+        }
+
+        @Override
+        double evaluateDouble( Evaluation evaluation )
+        {
+            double leftValue = left.evaluateDouble( evaluation );
+
+            return operator.applyAsDouble( leftValue, right.evaluateDouble( evaluation ) );
+        }
+    }
+
+    static final class Not
+        extends BooleanNode
+    {
+        private final Node arg;
+
+        Not( Node arg )
+        {
+            this.arg = arg;
+        }
+
+        @Override
+        boolean evaluateBoolean( Evaluation evaluation )
+        {
+            return ! arg.evaluateBoolean( evaluation );
+        }
+    }
+
+    static final class And
+        extends BooleanNode
+    {
+        private final Node left;
+
+        private final Node right;
+
+        And( Node left, Node right )
+        {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        boolean evaluateBoolean( Evaluation evaluation )
+        {
+            return left.evaluateBoolean( evaluation ) && right.evaluateBoolean( evaluation );
+        }
+    }
+
+    static final class Or
+        extends BooleanNode
+    {
+        private final Node left;
+
+        private final Node right;
+
+        Or( Node left, Node right )
+        {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        boolean evaluateBoolean( Evaluation evaluation )
+        {
+            return left.evaluateBoolean( evaluation ) || right.evaluateBoolean( evaluation );
+        }
+    }
+
+    /**
+     * Comparison operators, comparing two Doubles, Strings or Booleans
+     * according to the type of the left value.
+     */
+    static final class Compare
+        extends BooleanNode
+    {
+        private final Node left;
+
+        private final Node right;
+
+        private final IntPredicate test;
+
+        Compare( Node left, Node right, IntPredicate test )
+        {
+            this.left = left;
+            this.right = right;
+            this.test = test;
+        }
+
+        @Override
+        boolean evaluateBoolean( Evaluation evaluation )
+        {
+            Object o1 = left.evaluate( evaluation );
+            Object o2 = right.evaluate( evaluation );
+
+            return test.test( compare( o1, o2 ) );
+        }
+
+        private int compare( Object o1, Object o2 )
+        {
+            if ( o1 == null || o2 == null )
+            {
+                throw new InternalParserException( "found null when comparing '" + o1 + "' with '" + o2 + "'" );
+            }
+            else if ( o1 instanceof Double )
+            {
+                return ( (Double) o1 ).compareTo( castDouble( o2 ) );
+            }
+            else if ( o1 instanceof String )
+            {
+                return ( (String) o1 ).compareTo( castString( o2 ) );
+            }
+            else if ( o1 instanceof Boolean )
+            {
+                return ( (Boolean) o1 ).compareTo( castBoolean( o2 ) );
+            }
+            else
+            {
+                throw new InternalParserException( "trying to compare class " + o1.getClass().getName() );
+            }
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Functions
+    // -------------------------------------------------------------------------
+
+    static final class If
+        extends Node
+    {
+        private final Node condition;
+
+        private final Node ifTrue;
+
+        private final Node ifFalse;
+
+        If( Node condition, Node ifTrue, Node ifFalse )
+        {
+            this.condition = condition;
+            this.ifTrue = ifTrue;
+            this.ifFalse = ifFalse;
+        }
+
+        @Override
+        Object evaluate( Evaluation evaluation )
+        {
+            return condition.evaluateBoolean( evaluation )
+                ? ifTrue.evaluate( evaluation )
+                : ifFalse.evaluate( evaluation );
+        }
+
+        @Override
+        double evaluateDouble( Evaluation evaluation )
+        {
+            return condition.evaluateBoolean( evaluation )
+                ? ifTrue.evaluateDouble( evaluation )
+                : ifFalse.evaluateDouble( evaluation );
+        }
+    }
+
+    /**
+     * The greatest or least functions. All arguments are evaluated, so
+     * that all items are counted.
+     */
+    static final class GreatestOrLeast
+        extends Node
+    {
+        private final List<Node> args;
+
+        private final double greatestLeast;
+
+        /**
+         * @param args the function arguments.
+         * @param greatestLeast 1.0 for greatest, -1.0 for least.
+         */
+        GreatestOrLeast( List<Node> args, double greatestLeast )
+        {
+            this.args = ImmutableList.copyOf( args );
+            this.greatestLeast = greatestLeast;
+        }
+
+        @Override
+        Object evaluate( Evaluation evaluation )
+        {
+            Double returnVal = null;
+
+            for ( Node arg : args )
+            {
+                Double val = castDouble( arg.evaluate( evaluation ) );
+
+                if ( returnVal == null || val != null && ( val - returnVal ) * greatestLeast > 0 )
+                {
+                    returnVal = val;
+                }
+            }
+
+            return returnVal;
+        }
+    }
+
+    /**
+     * The isNull and isNotNull functions.
+     */
+    static final class IsNull
+        extends BooleanNode
+    {
+        private final Node item;
+
+        private final boolean isNull;
+
+        IsNull( Node item, boolean isNull )
+        {
+            this.item = item;
+            this.isNull = isNull;
+        }
+
+        @Override
+        boolean evaluateBoolean( Evaluation evaluation )
+        {
+            return ( item.evaluate( evaluation ) == null ) == isNull;
+        }
+    }
+
+    static final class FirstNonNull
+        extends Node
+    {
+        private final List<Node> args;
+
+        FirstNonNull( List<Node> args )
+        {
+            this.args = ImmutableList.copyOf( args );
+        }
+
+        @Override
+        Object evaluate( Evaluation evaluation )
+        {
+            for ( Node arg : args )
+            {
+                Object value = arg.evaluate( evaluation );
+
+                if ( value != null )
+                {
+                    return value;
+                }
+            }
+
+            return null;
+        }
+    }
+}
@@ -35,6 +35,7 @@ import static org.hisp.dhis.parser.expression.antlr.ExpressionParser.*;
 import static org.hisp.dhis.system.util.MathUtils.calculateExpression;
 
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -47,6 +48,8 @@ import org.apache.commons.lang3.ObjectUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.hisp.dhis.cache.Cache;
+import org.hisp.dhis.cache.SimpleCacheBuilder;
 import org.hisp.dhis.category.CategoryOptionCombo;
 import org.hisp.dhis.category.CategoryService;
 import org.hisp.dhis.common.*;
@@ -125,6 +128,17 @@ public class DefaultExpressionService
         .put( N_BRACE, new DimItemIndicator() )
         .build();
 
+    /**
+     * Expressions compiled for evaluation with the indicator expression
+     * items, by expression.
+     */
+    private final Cache<CompiledExpression> compiledExpressions = new SimpleCacheBuilder<CompiledExpression>()
+        .forRegion( "compiledExpressions" )
+        .expireAfterAccess( 10, TimeUnit.MINUTES )
+        .withInitialCapacity( 10000 )
+        .withMaximumSize( 50000 )
+        .build();
+
     public DefaultExpressionService(
         @Qualifier( "org.hisp.dhis.expression.ExpressionStore" ) HibernateGenericStore<Expression> expressionStore,
         DataElementService dataElementService, ConstantService constantService, CategoryService categoryService,
@@ -353,25 +367,45 @@ public class DefaultExpressionService
             return null;
         }
 
-        CommonExpressionVisitor expressionExprVisitor = newVisitor( INDICATOR_EXPRESSION_ITEMS,
-            FUNCTION_EVALUATE, ITEM_EVALUATE );
+        CompiledExpression compiledExpression = compiledExpressions.get( expression,
+            e -> ExpressionCompiler.compile( e, INDICATOR_EXPRESSION_ITEMS ) ).orElse( CompiledExpression.NOT_COMPILED );
 
-        Map<String, Double> keyValueMap = valueMap.entrySet().stream().collect(
-            Collectors.toMap( e -> e.getKey().getDimensionItem(), Map.Entry::getValue) );
+        Double value;
+        int itemsFound;
+        int itemValuesFound;
 
-        expressionExprVisitor.setKeyValueMap( keyValueMap );
-        expressionExprVisitor.setConstantMap( constantMap );
-        expressionExprVisitor.setOrgUnitCountMap( orgUnitCountMap );
-
-        if ( days != null )
+        if ( compiledExpression.isCompiled() )
         {
-            expressionExprVisitor.setDays( Double.valueOf( days ) );
+            CompiledExpression.Evaluation evaluation = compiledExpression.newEvaluation(
+                valueMap, constantMap, orgUnitCountMap, days );
+
+            value = evaluate( expression, evaluation );
+
+            itemsFound = evaluation.getItemsFound();
+            itemValuesFound = evaluation.getItemValuesFound();
         }
+        else
+        {
+            CommonExpressionVisitor expressionExprVisitor = newVisitor( INDICATOR_EXPRESSION_ITEMS,
+                FUNCTION_EVALUATE, ITEM_EVALUATE );
 
-        Double value = visit ( expression, expressionExprVisitor, true );
+            Map<String, Double> keyValueMap = valueMap.entrySet().stream().collect(
+                Collectors.toMap( e -> e.getKey().getDimensionItem(), Map.Entry::getValue) );
 
-        int itemsFound = expressionExprVisitor.getItemsFound();
-        int itemValuesFound = expressionExprVisitor.getItemValuesFound();
+            expressionExprVisitor.setKeyValueMap( keyValueMap );
+            expressionExprVisitor.setConstantMap( constantMap );
+            expressionExprVisitor.setOrgUnitCountMap( orgUnitCountMap );
+
+            if ( days != null )
+            {
+                expressionExprVisitor.setDays( Double.valueOf( days ) );
+            }
+
+            value = visit ( expression, expressionExprVisitor, true );
+
+            itemsFound = expressionExprVisitor.getItemsFound();
+            itemValuesFound = expressionExprVisitor.getItemValuesFound();
+        }
 
         switch ( missingValueStrategy )
         {
@@ -494,6 +528,24 @@ public class DefaultExpressionService
         return DOUBLE_VALUE_IF_NULL;
     }
 
+    /**
+     * Evaluates a compiled expression, with the same handling of parser
+     * exceptions as when visiting the expression while logging warnings.
+     */
+    private Double evaluate( String expression, CompiledExpression.Evaluation evaluation )
+    {
+        try
+        {
+            return evaluation.evaluate();
+        }
+        catch ( ParserException ex )
+        {
+            log.warn( ex.getMessage() + " parsing expression '" + expression + "'" );
+        }
+
+        return DOUBLE_VALUE_IF_NULL;
+    }
+
     // -------------------------------------------------------------------------
     // Expression logic based on regular expressions (to be refactored)
     // -------------------------------------------------------------------------
@@ -530,6 +582,13 @@ public class DefaultExpressionService
         }
     }
 
+    @Override
+    public PreparedExpression prepareExpressionRegEx( Expression expression, Map<String, Double> constantMap,
+        Map<String, Integer> orgUnitCountMap, boolean aggregates )
+    {
+        return new PreparedRegExExpression( expression, constantMap, orgUnitCountMap, aggregates );
+    }
+
     @Override
     public Set<DataElement> getDataElementsInExpression( String expression )
     {
@@ -0,0 +1,359 @@
+package org.hisp.dhis.expression;
+
+/*
+ * Copyright (c) 2004-2019, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+import static org.hisp.dhis.parser.expression.antlr.ExpressionParser.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BinaryOperator;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.hisp.dhis.expression.CompiledExpression.*;
+import org.hisp.dhis.expression.item.DimensionalItem;
+import org.hisp.dhis.expression.item.ItemDays;
+import org.hisp.dhis.expression.item.ItemOrgUnitGroup;
+import org.hisp.dhis.parser.expression.ExprItem;
+import org.hisp.dhis.parser.expression.ExprLiteral;
+import org.hisp.dhis.parser.expression.Parser;
+import org.hisp.dhis.parser.expression.ParserException;
+import org.hisp.dhis.parser.expression.ParserExceptionWithoutContext;
+import org.hisp.dhis.parser.expression.item.ItemConstant;
+import org.hisp.dhis.parser.expression.literal.DefaultLiteral;
+
+/**
+ * Compiles expressions into {@link CompiledExpression} objects for
+ * evaluation.
+ * <p/>
+ * Only the operators, functions and items of the common expression syntax
+ * are compiled. If the expression contains anything else, or can't be
+ * parsed, {@link CompiledExpression#NOT_COMPILED} is returned and the
+ * expression must be evaluated by visiting its parse tree, which also
+ * reports any errors.
+ */
+final class ExpressionCompiler
+{
+    private static final ExprLiteral LITERAL = new DefaultLiteral();
+
+    private final Map<Integer, ExprItem> itemMap;
+
+    private final Map<String, Integer> slotIndex = new HashMap<>();
+
+    private ExpressionCompiler( Map<Integer, ExprItem> itemMap )
+    {
+        this.itemMap = itemMap;
+    }
+
+    /**
+     * Compiles an expression.
+     *
+     * @param expression the expression to compile.
+     * @param itemMap the items allowed in the expression.
+     * @return the compiled expression, or {@link CompiledExpression#NOT_COMPILED}.
+     */
+    static CompiledExpression compile( String expression, Map<Integer, ExprItem> itemMap )
+    {
+        try
+        {
+            ParseTree parseTree = Parser.getParseTree( expression );
+
+            ExpressionCompiler compiler = new ExpressionCompiler( itemMap );
+
+            Node root = compiler.compileExpr( ( (ExpressionContext) parseTree ).expr() );
+
+            return new CompiledExpression( root, ImmutableMap.copyOf( compiler.slotIndex ) );
+        }
+        catch ( ParserException ex )
+        {
+            return CompiledExpression.NOT_COMPILED;
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private Node compileExpr( ExprContext ctx )
+    {
+        if ( ctx.fun == null )
+        {
+            if ( ctx.expr().size() > 0 ) // Whitespace around an expr
+            {
+                return compileExpr( ctx.expr( 0 ) );
+            }
+
+            return compileOperand( ctx.getChild( 0 ) );
+        }
+
+        switch ( ctx.fun.getType() )
+        {
+            case PAREN:
+                return compileExpr( ctx.expr( 0 ) );
+
+            case PLUS:
+                return ctx.expr().size() == 1
+                    ? unary( ctx, UnaryPlus::new )
+                    : math( ctx, ( a, b ) -> a + b );
+
+            case MINUS:
+                return ctx.expr().size() == 1
+                    ? unary( ctx, UnaryMinus::new )
+                    : math( ctx, ( a, b ) -> a - b );
+
+            case MUL:
+                return math( ctx, ( a, b ) -> a * b );
+
+            case DIV:
+                return math( ctx, ( a, b ) -> a / b );
+
+            case MOD:
+                return math( ctx, ( a, b ) -> a % b );
+
+            case POWER:
+                return math( ctx, Math::pow );
+
+            case NOT:
+            case EXCLAMATION_POINT:
+                return unary( ctx, Not::new );
+
+            case AND:
+            case AMPERSAND_2:
+                return binary( ctx, And::new );
+
+            case OR:
+            case VERTICAL_BAR_2:
+                return binary( ctx, Or::new );
+
+            case EQ:
+                return compare( ctx, c -> c == 0 );
+
+            case NE:
+                return compare( ctx, c -> c != 0 );
+
+            case GT:
+                return compare( ctx, c -> c > 0 );
+
+            case LT:
+                return compare( ctx, c -> c < 0 );
+
+            case GEQ:
+                return compare( ctx, c -> c >= 0 );
+
+            case LEQ:
+                return compare( ctx, c -> c <= 0 );
+
+            case IF:
+            {
+                List<Node> args = compileExprs( ctx.expr() );
+
+                return fold( new If( args.get( 0 ), args.get( 1 ), args.get( 2 ) ), args );
+            }
+
+            case GREATEST:
+            {
+                List<Node> args = compileExprs( ctx.expr() );
+
+                return fold( new GreatestOrLeast( args, 1.0 ), args );
+            }
+
+            case LEAST:
+            {
+                List<Node> args = compileExprs( ctx.expr() );
+
+                return fold( new GreatestOrLeast( args, -1.0 ), args );
+            }
+
+            case IS_NULL:
+                return new IsNull( compileItem( ctx.item( 0 ), false ), true );
+
+            case IS_NOT_NULL:
+                return new IsNull( compileItem( ctx.item( 0 ), false ), false );
+
+            case FIRST_NON_NULL:
+                return compileFirstNonNull( ctx );
+
+            default:
+                throw new ParserExceptionWithoutContext( "Function " + ctx.fun.getText() + " not supported for compilation" );
+        }
+    }
+
+    private List<Node> compileExprs( List<ExprContext> contexts )
+    {
+        List<Node> nodes = new ArrayList<>( contexts.size() );
+
+        for ( ExprContext c : contexts )
+        {
+            nodes.add( compileExpr( c ) );
+        }
+
+        return nodes;
+    }
+
+    private Node compileOperand( ParseTree child )
+    {
+        if ( child instanceof ItemContext )
+        {
+            return compileItem( (ItemContext) child, true );
+        }
+        else if ( child instanceof NumericLiteralContext )
+        {
+            return new Literal( LITERAL.getNumericLiteral( (NumericLiteralContext) child ) );
+        }
+        else if ( child instanceof StringLiteralContext )
+        {
+            return new Literal( LITERAL.getStringLiteral( (StringLiteralContext) child ) );
+        }
+        else if ( child instanceof BooleanLiteralContext )
+        {
+            return new Literal( LITERAL.getBooleanLiteral( (BooleanLiteralContext) child ) );
+        }
+
+        throw new ParserExceptionWithoutContext( "Expression element " + child.getText() + " not supported for compilation" );
+    }
+
+    /**
+     * Compiles an item. Items which are tested for null don't replace
+     * missing values, and don't count towards the missing value strategy.
+     */
+    private Node compileItem( ItemContext ctx, boolean replaceNulls )
+    {
+        ExprItem item = itemMap.get( ctx.it.getType() );
+
+        if ( item instanceof DimensionalItem )
+        {
+            String id = ( (DimensionalItem) item ).getId( ctx );
+
+            Integer slot = slotIndex.get( id );
+
+            if ( slot == null )
+            {
+                slot = slotIndex.size();
+
+                slotIndex.put( id, slot );
+            }
+
+            return new ItemValue( slot, replaceNulls );
+        }
+        else if ( item instanceof ItemConstant )
+        {
+            return new ConstantValue( ctx.uid0.getText() );
+        }
+        else if ( item instanceof ItemOrgUnitGroup )
+        {
+            return new OrgUnitCount( ctx.uid0.getText() );
+        }
+        else if ( item instanceof ItemDays )
+        {
+            return new Days();
+        }
+
+        throw new ParserExceptionWithoutContext( "Item " + ctx.it.getText() + " not supported for compilation" );
+    }
+
+    private Node compileFirstNonNull( ExprContext ctx )
+    {
+        List<Node> args = new ArrayList<>();
+
+        for ( ItemNumStringLiteralContext c : ctx.itemNumStringLiteral() )
+        {
+            if ( c.item() != null )
+            {
+                args.add( compileItem( c.item(), false ) );
+            }
+            else if ( c.numStringLiteral().stringLiteral() != null )
+            {
+                args.add( new Literal( LITERAL.getStringLiteral( c.numStringLiteral().stringLiteral() ) ) );
+            }
+            else
+            {
+                args.add( new Literal( c.getText() ) );
+            }
+        }
+
+        return fold( new FirstNonNull( args ), args );
+    }
+
+    private Node unary( ExprContext ctx, Function<Node, Node> constructor )
+    {
+        Node arg = compileExpr( ctx.expr( 0 ) );
+
+        return fold( constructor.apply( arg ), ImmutableList.of( arg ) );
+    }
+
+    private Node binary( ExprContext ctx, BinaryOperator<Node> constructor )
+    {
+        Node left = compileExpr( ctx.expr( 0 ) );
+        Node right = compileExpr( ctx.expr( 1 ) );
+
+        return fold( constructor.apply( left, right ), ImmutableList.of( left, right ) );
+    }
+
+    private Node math( ExprContext ctx, DoubleBinaryOperator operator )
+    {
+        return binary( ctx, ( left, right ) -> new MathOperator( left, right, operator ) );
+    }
+
+    private Node compare( ExprContext ctx, IntPredicate test )
+    {
+        return binary( ctx, ( left, right ) -> new Compare( left, right, test ) );
+    }
+
+    /**
+     * Replaces a node by its value if all of its arguments are constant.
+     * If the evaluation fails, the node is kept so that the error is
+     * reported when the expression is evaluated.
+     */
+    private Node fold( Node node, List<Node> args )
+    {
+        for ( Node arg : args )
+        {
+            if ( !arg.isConstant() )
+            {
+                return node;
+            }
+        }
+
+        try
+        {
+            return new Literal( node.evaluate( null ) );
+        }
+        catch ( RuntimeException ex )
+        {
+            return node;
+        }
+    }
+}
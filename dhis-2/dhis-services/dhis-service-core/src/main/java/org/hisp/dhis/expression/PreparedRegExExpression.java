@@ -0,0 +1,465 @@
+package org.hisp.dhis.expression;
+
+/*
+ * Copyright (c) 2004-2019, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+import static org.hisp.dhis.expression.ExpressionService.*;
+import static org.hisp.dhis.expression.MissingValueStrategy.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang3.ObjectUtils;
+import org.hisp.dhis.common.DimensionalItemObject;
+import org.hisp.dhis.common.ListMap;
+import org.hisp.dhis.commons.util.TextUtils;
+import org.hisp.dhis.system.jep.CustomFunctions;
+import org.hisp.dhis.system.jep.NoValueException;
+import org.hisp.dhis.system.util.ExpressionUtils;
+import org.hisp.dhis.system.util.MathUtils;
+import org.nfunk.jep.JEP;
+
+/**
+ * An expression in the regular expression based syntax, processed once in
+ * the same steps as {@link DefaultExpressionService#generateExpression} but
+ * with JEP variables in place of the values which change between
+ * evaluations: aggregated samples, isNull results, dimensional item values
+ * and days. Constants and organisation unit group counts are replaced once.
+ * <p/>
+ * Each evaluation binds the values to the variables and evaluates the
+ * parsed JEP expression, applying the {@link MissingValueStrategy} of the
+ * expression as the string based evaluation does.
+ * <p/>
+ * JEP parsers hold the values of their variables, so each thread evaluates
+ * with its own parser, parsed on first use.
+ */
+final class PreparedRegExExpression
+    implements PreparedExpression
+{
+    private static final Double NULL_VALUE = Double.valueOf( NULL_REPLACEMENT );
+
+    private static final Double TRUE = Double.valueOf( TRUE_VALUE );
+
+    private static final Double FALSE = Double.valueOf( FALSE_VALUE );
+
+    private static final String VAR_AGGREGATE = "_aggregate";
+
+    private static final String VAR_ISNULL = "_isnull";
+
+    private static final String VAR_ITEM = "_item";
+
+    private static final String VAR_DAYS = "_days";
+
+    /**
+     * The JEP expression, or null if the expression is empty.
+     */
+    private final String jepExpression;
+
+    private final MissingValueStrategy missingValueStrategy;
+
+    /**
+     * Aggregate sub-expressions, by aggregate variable index.
+     */
+    private final List<String> aggregates = new ArrayList<>();
+
+    /**
+     * Dimensional item ids tested by isNull, by isNull variable index.
+     */
+    private final List<String> isNullItems = new ArrayList<>();
+
+    /**
+     * Dimensional item ids, by item variable index.
+     */
+    private final List<String> items = new ArrayList<>();
+
+    /**
+     * For each item variable, the dimensional item id of an enclosing isNull
+     * argument, or null. Where that item has no value the variable counts
+     * neither as a match nor as a missing value.
+     */
+    private final List<String> itemGuards = new ArrayList<>();
+
+    private final ThreadLocal<JEP> parsers = ThreadLocal.withInitial( this::parse );
+
+    PreparedRegExExpression( Expression expression, Map<String, Double> constantMap,
+        Map<String, Integer> orgUnitCountMap, boolean withAggregates )
+    {
+        this.missingValueStrategy = ObjectUtils.firstNonNull( expression.getMissingValueStrategy(), NEVER_SKIP );
+        this.jepExpression = prepare( expression.getExpression(), constantMap, orgUnitCountMap, withAggregates );
+    }
+
+    // -------------------------------------------------------------------------
+    // PreparedExpression implementation
+    // -------------------------------------------------------------------------
+
+    @Override
+    public Double getValue( Map<? extends DimensionalItemObject, Double> valueMap, Integer days,
+        ListMap<String, Double> aggregateMap )
+    {
+        if ( jepExpression == null )
+        {
+            return null;
+        }
+
+        JEP parser = parsers.get();
+
+        for ( int i = 0; i < aggregates.size(); i++ )
+        {
+            List<Double> samples = aggregateMap != null ? aggregateMap.get( aggregates.get( i ) ) : null;
+
+            if ( samples == null && SKIP_IF_ANY_VALUE_MISSING.equals( missingValueStrategy ) )
+            {
+                return null;
+            }
+
+            // Aggregate functions may sort their argument, so pass a copy
+
+            parser.addVariable( VAR_AGGREGATE + i, samples != null ? new ArrayList<Double>( samples ) : NULL_VALUE );
+        }
+
+        Map<String, Double> itemValueMap = getItemValueMap( valueMap );
+
+        for ( int i = 0; i < isNullItems.size(); i++ )
+        {
+            parser.addVariable( VAR_ISNULL + i, itemValueMap.get( isNullItems.get( i ) ) == null ? TRUE : FALSE );
+        }
+
+        int matchCount = 0;
+        int valueCount = 0;
+
+        for ( int i = 0; i < items.size(); i++ )
+        {
+            String guard = itemGuards.get( i );
+
+            if ( guard != null && itemValueMap.get( guard ) == null )
+            {
+                parser.addVariable( VAR_ITEM + i, NULL_VALUE );
+
+                continue;
+            }
+
+            Double value = itemValueMap.get( items.get( i ) );
+
+            matchCount++;
+
+            if ( value == null && SKIP_IF_ANY_VALUE_MISSING.equals( missingValueStrategy ) )
+            {
+                return null;
+            }
+
+            if ( value != null )
+            {
+                valueCount++;
+            }
+
+            parser.addVariable( VAR_ITEM + i, value != null ? value : NULL_VALUE );
+        }
+
+        if ( SKIP_IF_ALL_VALUES_MISSING.equals( missingValueStrategy ) && matchCount > 0 && valueCount == 0 )
+        {
+            return null;
+        }
+
+        parser.addVariable( VAR_DAYS, days != null ? Double.valueOf( days ) : NULL_VALUE );
+
+        boolean parseError = parser.hasError();
+
+        try
+        {
+            return parser.getValue();
+        }
+        catch ( NoValueException ex )
+        {
+            return null;
+        }
+        finally
+        {
+            if ( !parseError && parser.hasError() )
+            {
+                // Evaluation errors stay with the parser, so start afresh
+
+                parsers.remove();
+            }
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Creates a JEP parser for the prepared expression, with all of the
+     * variables declared.
+     */
+    private JEP parse()
+    {
+        JEP parser = MathUtils.getJep( true );
+
+        for ( int i = 0; i < aggregates.size(); i++ )
+        {
+            parser.addVariable( VAR_AGGREGATE + i, NULL_VALUE );
+        }
+
+        for ( int i = 0; i < isNullItems.size(); i++ )
+        {
+            parser.addVariable( VAR_ISNULL + i, NULL_VALUE );
+        }
+
+        for ( int i = 0; i < items.size(); i++ )
+        {
+            parser.addVariable( VAR_ITEM + i, NULL_VALUE );
+        }
+
+        parser.addVariable( VAR_DAYS, NULL_VALUE );
+
+        parser.parseExpression( jepExpression );
+
+        return parser;
+    }
+
+    /**
+     * Gets the values of the dimensional items in the expression by their
+     * dimension item ids.
+     */
+    private Map<String, Double> getItemValueMap( Map<? extends DimensionalItemObject, Double> valueMap )
+    {
+        Map<String, Double> itemValueMap = new HashMap<>();
+
+        for ( Map.Entry<? extends DimensionalItemObject, Double> entry : valueMap.entrySet() )
+        {
+            if ( entry.getValue() != null )
+            {
+                itemValueMap.put( entry.getKey().getDimensionItem(), entry.getValue() );
+            }
+        }
+
+        return itemValueMap;
+    }
+
+    /**
+     * Processes the expression string as generateExpression does, replacing
+     * the values which change between evaluations with variables.
+     */
+    private String prepare( String expression, Map<String, Double> constantMap,
+        Map<String, Integer> orgUnitCountMap, boolean withAggregates )
+    {
+        if ( expression == null || expression.isEmpty() )
+        {
+            return null;
+        }
+
+        expression = ExpressionUtils.normalizeExpression( expression );
+
+        // ---------------------------------------------------------------------
+        // Aggregates
+        // ---------------------------------------------------------------------
+
+        StringBuilder sb = new StringBuilder();
+
+        Matcher matcher = CustomFunctions.AGGREGATE_PATTERN_PREFIX.matcher( expression );
+
+        int scan = 0, len = expression.length(), tail = 0;
+
+        while ( scan < len && matcher.find( scan ) )
+        {
+            int start = matcher.end();
+            int end = Expression.matchExpression( expression, start );
+
+            sb.append( expression, scan, matcher.start() );
+            sb.append( expression.substring( matcher.start(), start ).toUpperCase() );
+
+            if ( end < 0 )
+            {
+                scan = start + 1;
+                tail = start;
+            }
+            else if ( !withAggregates || expression.charAt( start ) == '<' )
+            {
+                sb.append( expression, start, end );
+                scan = end + 1;
+                tail = end;
+            }
+            else
+            {
+                if ( expression.charAt( end ) == ',' ) // Second arg is aggregate (e.g., percentile)
+                {
+                    sb.append( expression, start, end + 1 ); // Arg 1: non-aggregate
+                    start = end + 1;
+                    end = Expression.matchExpression( expression, start ); // Arg 2: aggregate
+                    if ( end < 0 )
+                    {
+                        scan = start + 1;
+                        tail = start;
+                        continue;
+                    }
+                }
+
+                sb.append( VAR_AGGREGATE ).append( aggregates.size() );
+                aggregates.add( expression.substring( start, end ) );
+
+                scan = end;
+                tail = end;
+            }
+        }
+
+        sb.append( expression.substring( tail ) );
+        expression = sb.toString();
+
+        // ---------------------------------------------------------------------
+        // IsNull function
+        // ---------------------------------------------------------------------
+
+        sb = new StringBuilder();
+        matcher = ISNULL_PATTERN.matcher( expression );
+
+        scan = 0;
+        len = expression.length();
+        Map<String, String> isNullArgItems = new HashMap<>();
+
+        while ( scan < len && matcher.find( scan ) )
+        {
+            int start = matcher.end();
+            int end = Expression.matchExpression( expression, start );
+
+            sb.append( expression, scan, matcher.start() );
+
+            scan = start + 1;
+
+            if ( end > 0 )
+            {
+                String arg = expression.substring( start, end );
+                Matcher argMatcher = VARIABLE_PATTERN.matcher( arg );
+
+                if ( argMatcher.find() )
+                {
+                    sb.append( VAR_ISNULL ).append( isNullItems.size() );
+                    isNullItems.add( argMatcher.group( GROUP_ID ) );
+                    isNullArgItems.putIfAbsent( arg.trim(), argMatcher.group( GROUP_ID ) );
+
+                    scan = end + 1;
+                }
+            }
+        }
+
+        sb.append( expression.substring( scan ) );
+        expression = sb.toString();
+
+        // Other instances of the isNull() args are zero when their item has
+        // no value, to avoid the expression being disqualified by them.
+
+        Map<Integer, Integer> guardedRanges = new HashMap<>();
+        Map<Integer, String> guardedRangeItems = new HashMap<>();
+
+        for ( Map.Entry<String, String> isNullArg : isNullArgItems.entrySet() )
+        {
+            String arg = isNullArg.getKey();
+
+            for ( int i = expression.indexOf( arg ); i >= 0 && !arg.isEmpty(); i = expression.indexOf( arg, i + arg.length() ) )
+            {
+                guardedRanges.put( i, i + arg.length() );
+                guardedRangeItems.put( i, isNullArg.getValue() );
+            }
+        }
+
+        // ---------------------------------------------------------------------
+        // Other scalar custom functions (make them case-insensitive)
+        // ---------------------------------------------------------------------
+
+        StringBuffer buffer = new StringBuffer();
+        matcher = CustomFunctions.SCALAR_PATTERN_PREFIX.matcher( expression );
+
+        while ( matcher.find() )
+        {
+            matcher.appendReplacement( buffer,
+                expression.substring( matcher.start(), matcher.end() ).toUpperCase() );
+        }
+
+        expression = TextUtils.appendTail( matcher, buffer );
+
+        // ---------------------------------------------------------------------
+        // DimensionalItemObjects
+        // ---------------------------------------------------------------------
+
+        buffer = new StringBuffer();
+        matcher = VARIABLE_PATTERN.matcher( expression );
+
+        while ( matcher.find() )
+        {
+            String guard = null;
+
+            for ( Map.Entry<Integer, Integer> range : guardedRanges.entrySet() )
+            {
+                if ( range.getKey() <= matcher.start() && matcher.end() <= range.getValue() )
+                {
+                    guard = guardedRangeItems.get( range.getKey() );
+                }
+            }
+
+            matcher.appendReplacement( buffer, VAR_ITEM + items.size() );
+            items.add( matcher.group( GROUP_ID ) );
+            itemGuards.add( guard );
+        }
+
+        expression = TextUtils.appendTail( matcher, buffer );
+
+        // ---------------------------------------------------------------------
+        // Constants, org unit groups and days
+        // ---------------------------------------------------------------------
+
+        expression = replace( expression, CONSTANT_PATTERN, id -> constantMap != null ? constantMap.get( id ) : null );
+
+        expression = replace( expression, OU_GROUP_PATTERN, id -> orgUnitCountMap != null ? orgUnitCountMap.get( id ) : null );
+
+        return DAYS_PATTERN.matcher( expression ).replaceAll( VAR_DAYS );
+    }
+
+    /**
+     * Replaces the matches of a pattern by the value for their id, or by
+     * the null replacement if there is no value.
+     */
+    private static String replace( String expression, Pattern pattern, Function<String, Object> values )
+    {
+        StringBuffer sb = new StringBuffer();
+        Matcher matcher = pattern.matcher( expression );
+
+        while ( matcher.find() )
+        {
+            Object value = values.apply( matcher.group( GROUP_ID ) );
+
+            matcher.appendReplacement( sb, value != null ? String.valueOf( value ) : NULL_REPLACEMENT );
+        }
+
+        return TextUtils.appendTail( matcher, sb );
+    }
+}
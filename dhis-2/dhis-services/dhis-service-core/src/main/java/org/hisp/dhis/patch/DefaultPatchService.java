@@ -194,8 +194,8 @@ public class DefaultPatchService implements PatchService
     @SuppressWarnings( "unchecked" )
     private List<Mutation> calculateMutation( String path, Property property, Object source, Object target )
     {
-        Object sourceValue = ReflectionUtils.invokeMethod( source, property.getGetterMethod() );
-        Object targetValue = ReflectionUtils.invokeMethod( target, property.getGetterMethod() );
+        Object sourceValue = property.getValue( source );
+        Object targetValue = property.getValue( target );
         List<Mutation> mutations = new ArrayList<>();
 
         if ( sourceValue == null && targetValue == null )
@@ -391,7 +391,7 @@ public class DefaultPatchService implements PatchService
 
             if ( i < (paths.length - 1) )
             {
-                currentTarget = ReflectionUtils.invokeMethod( currentTarget, currentProperty.getGetterMethod() );
+                currentTarget = currentProperty.getValue( currentTarget );
             }
         }
 
@@ -408,7 +408,7 @@ public class DefaultPatchService implements PatchService
 
         if ( property.isCollection() )
         {
-            Collection<Object> collection = ReflectionUtils.invokeMethod( target, property.getGetterMethod() );
+            Collection<Object> collection = property.getValue( target );
             Collection<Object> sourceCollection = Collection.class.isInstance( value ) ? (Collection<Object>) value : Lists.newArrayList( value );
 
             if ( collection == null )
@@ -464,7 +464,7 @@ public class DefaultPatchService implements PatchService
                 }
             }
 
-            ReflectionUtils.invokeMethod( target, property.getSetterMethod(), collection );
+            property.setValue( target, collection );
         }
         else if ( property.isIdentifiableObject() && !property.isEmbeddedObject() )
         {
@@ -493,7 +493,7 @@ public class DefaultPatchService implements PatchService
                 return;
             }
 
-            ReflectionUtils.invokeMethod( target, property.getSetterMethod(), value );
+            property.setValue( target, value );
         }
         else
         {
@@ -505,7 +505,7 @@ public class DefaultPatchService implements PatchService
                 return;
             }
 
-            ReflectionUtils.invokeMethod( target, property.getSetterMethod(), value );
+            property.setValue( target, value );
         }
     }
 
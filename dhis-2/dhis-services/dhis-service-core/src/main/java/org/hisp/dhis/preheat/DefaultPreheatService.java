@@ -69,8 +69,10 @@ import org.hisp.dhis.user.CurrentUserService;
 import org.hisp.dhis.user.User;
 import org.hisp.dhis.user.UserCredentials;
 import org.hisp.dhis.user.UserGroup;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Scope;
 import org.springframework.context.annotation.ScopedProxyMode;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -80,7 +82,10 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -95,6 +100,12 @@ public class DefaultPreheatService implements PreheatService
 {
     private static final Log log = LogFactory.getLog( DefaultPreheatService.class );
 
+    /**
+     * Minimum number of objects for the classes of a payload to be scanned for
+     * references concurrently.
+     */
+    private static final int PARALLEL_SCAN_THRESHOLD = 1000;
+
     private final SchemaService schemaService;
 
     private final QueryService queryService;
@@ -111,9 +122,12 @@ public class DefaultPreheatService implements PreheatService
 
     private final MergeService mergeService;
 
+    private final AsyncTaskExecutor taskExecutor;
+
     public DefaultPreheatService( SchemaService schemaService, QueryService queryService,
         IdentifiableObjectManager manager, CurrentUserService currentUserService, PeriodStore periodStore,
-        PeriodService periodService, AttributeService attributeService, MergeService mergeService )
+        PeriodService periodService, AttributeService attributeService, MergeService mergeService,
+        @Qualifier( "preheatTaskExecutor" ) AsyncTaskExecutor taskExecutor )
     {
         checkNotNull( schemaService );
         checkNotNull( queryService );
@@ -123,6 +137,7 @@ public class DefaultPreheatService implements PreheatService
         checkNotNull( periodService );
         checkNotNull( attributeService );
         checkNotNull( mergeService );
+        checkNotNull( taskExecutor );
 
         this.schemaService = schemaService;
         this.queryService = queryService;
@@ -132,6 +147,7 @@ public class DefaultPreheatService implements PreheatService
         this.periodService = periodService;
         this.attributeService = attributeService;
         this.mergeService = mergeService;
+        this.taskExecutor = taskExecutor;
     }
 
     @Override
@@ -191,6 +207,23 @@ public class DefaultPreheatService implements PreheatService
                     uniqueCollectionMap.put( klass, new ArrayList<>( objects ) );
                 }
             }
+
+            if ( uniqueCollectionMap.containsKey( User.class ) )
+            {
+                List<IdentifiableObject> userCredentials = new ArrayList<>();
+
+                for ( IdentifiableObject identifiableObject : uniqueCollectionMap.get( User.class ) )
+                {
+                    User user = (User) identifiableObject;
+
+                    if ( user.getUserCredentials() != null )
+                    {
+                        userCredentials.add( user.getUserCredentials() );
+                    }
+                }
+
+                uniqueCollectionMap.put( UserCredentials.class, userCredentials );
+            }
         }
         else if ( PreheatMode.REFERENCE == params.getPreheatMode() )
         {
@@ -239,34 +272,32 @@ public class DefaultPreheatService implements PreheatService
                 }
             }
 
+            // only load persisted objects which share a unique property value with the imported objects
+
             for ( Class<? extends IdentifiableObject> klass : klasses )
             {
-                Query query = Query.from( schemaService.getDynamicSchema( klass ) );
-                query.setUser( preheat.getUser() );
-                List<? extends IdentifiableObject> objects = queryService.query( query );
+                List<IdentifiableObject> objects = queryUniqueObjects( klass, params.getObjects().get( klass ), preheat.getUser() );
 
                 if ( !objects.isEmpty() )
                 {
-                    uniqueCollectionMap.put( klass, new ArrayList<>( objects ) );
+                    uniqueCollectionMap.put( klass, objects );
                 }
             }
-        }
 
-        if ( uniqueCollectionMap.containsKey( User.class ) )
-        {
-            List<IdentifiableObject> userCredentials = new ArrayList<>();
-
-            for ( IdentifiableObject identifiableObject : uniqueCollectionMap.get( User.class ) )
+            if ( klasses.contains( User.class ) )
             {
-                User user = (User) identifiableObject;
+                List<UserCredentials> userCredentials = params.getObjects().get( User.class ).stream()
+                    .map( object -> ((User) object).getUserCredentials() )
+                    .filter( Objects::nonNull )
+                    .collect( Collectors.toList() );
 
-                if ( user.getUserCredentials() != null )
+                List<IdentifiableObject> objects = queryUniqueObjects( UserCredentials.class, userCredentials, preheat.getUser() );
+
+                if ( !objects.isEmpty() )
                 {
-                    userCredentials.add( user.getUserCredentials() );
+                    uniqueCollectionMap.put( UserCredentials.class, objects );
                 }
             }
-
-            uniqueCollectionMap.put( UserCredentials.class, userCredentials );
         }
 
         preheat.setUniquenessMap( collectUniqueness( uniqueCollectionMap ) );
@@ -369,7 +400,7 @@ public class DefaultPreheatService implements PreheatService
 
             uniqueAttributes.forEach( attribute -> preheat.getUniqueAttributes().get( klass ).add( attribute.getUid() ) );
 
-            List<? extends IdentifiableObject> uniqueAttributeValues = manager.getAllByAttributes( klass, uniqueAttributes );
+            List<? extends IdentifiableObject> uniqueAttributeValues = queryUniqueAttributeObjects( klass, uniqueAttributes, objects.get( klass ) );
             handleUniqueAttributeValues( klass, uniqueAttributeValues, preheat );
         }
 
@@ -402,6 +433,33 @@ public class DefaultPreheatService implements PreheatService
         }
     }
 
+    /**
+     * Queries the persisted objects of the given class which have one of the
+     * given unique attributes set to a value used by one of the given objects.
+     */
+    private List<IdentifiableObject> queryUniqueAttributeObjects( Class<? extends IdentifiableObject> klass,
+        List<Attribute> uniqueAttributes, List<IdentifiableObject> objects )
+    {
+        Set<String> values = new HashSet<>();
+
+        objects.forEach( object -> object.getAttributeValues().stream()
+            .filter( attributeValue -> !StringUtils.isEmpty( attributeValue.getValue() ) )
+            .forEach( attributeValue -> values.add( attributeValue.getValue() ) ) );
+
+        Map<String, IdentifiableObject> uniqueObjects = new HashMap<>();
+
+        for ( Attribute attribute : uniqueAttributes )
+        {
+            for ( List<String> partition : Lists.partition( new ArrayList<>( values ), 20000 ) )
+            {
+                manager.getByAttributeAndValues( klass, attribute, partition )
+                    .forEach( object -> uniqueObjects.put( object.getUid(), object ) );
+            }
+        }
+
+        return new ArrayList<>( uniqueObjects.values() );
+    }
+
     private void handleUniqueAttributeValues( Class<? extends IdentifiableObject> klass, List<? extends IdentifiableObject> objects, Preheat preheat )
     {
         if ( objects.isEmpty() )
@@ -486,7 +544,6 @@ public class DefaultPreheatService implements PreheatService
         return collectReferences( map );
     }
 
-    @SuppressWarnings( "unchecked" )
     private Map<PreheatIdentifier, Map<Class<? extends IdentifiableObject>, Set<String>>> collectReferences( Map<Class<?>, List<?>> objects )
     {
         Map<PreheatIdentifier, Map<Class<? extends IdentifiableObject>, Set<String>>> map = new HashMap<>();
@@ -506,70 +563,146 @@ public class DefaultPreheatService implements PreheatService
         targets.putAll( objects ); // Clone objects list, we don't want to modify it
         collectScanTargets( targets );
 
-        for ( Class<?> klass : targets.keySet() )
+        int size = targets.values().stream().mapToInt( List::size ).sum();
+
+        if ( targets.size() > 1 && size >= PARALLEL_SCAN_THRESHOLD )
         {
-            Schema schema = schemaService.getDynamicSchema( klass );
+            List<Future<Map<PreheatIdentifier, Map<Class<? extends IdentifiableObject>, Set<String>>>>> futures = new ArrayList<>();
 
-            List<Property> referenceProperties = schema.getProperties().stream()
-                .filter( p -> p.isPersisted() && p.isOwner() && (PropertyType.REFERENCE == p.getPropertyType() || PropertyType.REFERENCE == p.getItemPropertyType()) )
-                .collect( Collectors.toList() );
+            // Schemas are resolved on the calling thread, as the schema service caches them in unsynchronized maps
+            targets.forEach( ( klass, list ) ->
+            {
+                Schema schema = schemaService.getDynamicSchema( klass );
+                futures.add( taskExecutor.submit( () -> collectReferences( schema, list ) ) );
+            } );
 
-            for ( Object object : targets.get( klass ) )
+            for ( Future<Map<PreheatIdentifier, Map<Class<? extends IdentifiableObject>, Set<String>>>> future : futures )
             {
-                if ( schema.isIdentifiableObject() )
-                {
-                    IdentifiableObject identifiableObject = (IdentifiableObject) object;
-                    identifiableObject.getAttributeValues().forEach( av -> addIdentifiers( map, av.getAttribute() ) );
-                    identifiableObject.getUserGroupAccesses().forEach( uga -> addIdentifiers( map, uga.getUserGroup() ) );
-                    identifiableObject.getUserAccesses().forEach( ua -> addIdentifiers( map, ua.getUser() ) );
+                mergeReferences( map, getReferences( future, futures ) );
+            }
+        }
+        else
+        {
+            targets.forEach( ( klass, list ) -> mergeReferences( map, collectReferences( schemaService.getDynamicSchema( klass ), list ) ) );
+        }
 
-                    addIdentifiers( map, identifiableObject );
-                }
+        cleanEmptyEntries( uidMap );
+        cleanEmptyEntries( codeMap );
+
+        return map;
+    }
+
+    /**
+     * Collects the identifiers of the objects referenced by the given objects
+     * of a single class. Only reads the given schema and objects, so that the
+     * classes of a payload can be scanned concurrently.
+     *
+     * @param schema the schema of the class of the objects.
+     * @param objects the objects.
+     * @return the mapping between {@link PreheatIdentifier} and object identifiers.
+     */
+    @SuppressWarnings( "unchecked" )
+    private Map<PreheatIdentifier, Map<Class<? extends IdentifiableObject>, Set<String>>> collectReferences( Schema schema, List<?> objects )
+    {
+        Map<PreheatIdentifier, Map<Class<? extends IdentifiableObject>, Set<String>>> map = new HashMap<>();
+
+        map.put( PreheatIdentifier.UID, new HashMap<>() );
+        map.put( PreheatIdentifier.CODE, new HashMap<>() );
+
+        Map<Class<? extends IdentifiableObject>, Set<String>> uidMap = map.get( PreheatIdentifier.UID );
+        Map<Class<? extends IdentifiableObject>, Set<String>> codeMap = map.get( PreheatIdentifier.CODE );
+
+        List<Property> referenceProperties = schema.getProperties().stream()
+            .filter( p -> p.isPersisted() && p.isOwner() && (PropertyType.REFERENCE == p.getPropertyType() || PropertyType.REFERENCE == p.getItemPropertyType()) )
+            .collect( Collectors.toList() );
+
+        for ( Object object : objects )
+        {
+            if ( schema.isIdentifiableObject() )
+            {
+                IdentifiableObject identifiableObject = (IdentifiableObject) object;
+                identifiableObject.getAttributeValues().forEach( av -> addIdentifiers( map, av.getAttribute() ) );
+                identifiableObject.getUserGroupAccesses().forEach( uga -> addIdentifiers( map, uga.getUserGroup() ) );
+                identifiableObject.getUserAccesses().forEach( ua -> addIdentifiers( map, ua.getUser() ) );
+
+                addIdentifiers( map, identifiableObject );
+            }
 
-                referenceProperties.forEach( p ->
+            referenceProperties.forEach( p ->
+            {
+                if ( !p.isCollection() )
                 {
-                    if ( !p.isCollection() )
-                    {
-                        Class<? extends IdentifiableObject> itemKlass = (Class<? extends IdentifiableObject>) p.getKlass();
+                    Class<? extends IdentifiableObject> itemKlass = (Class<? extends IdentifiableObject>) p.getKlass();
 
-                        if ( !uidMap.containsKey( itemKlass ) ) uidMap.put( itemKlass, new HashSet<>() );
-                        if ( !codeMap.containsKey( itemKlass ) ) codeMap.put( itemKlass, new HashSet<>() );
+                    if ( !uidMap.containsKey( itemKlass ) ) uidMap.put( itemKlass, new HashSet<>() );
+                    if ( !codeMap.containsKey( itemKlass ) ) codeMap.put( itemKlass, new HashSet<>() );
 
-                        Object reference = ReflectionUtils.invokeMethod( object, p.getGetterMethod() );
+                    Object reference = p.getValue( object );
 
-                        if ( reference != null )
-                        {
-                            IdentifiableObject identifiableObject = (IdentifiableObject) reference;
-                            addIdentifiers( map, identifiableObject );
-                        }
-                    }
-                    else
+                    if ( reference != null )
                     {
-                        Collection<IdentifiableObject> reference = ReflectionUtils.invokeMethod( object, p.getGetterMethod() );
-                        reference.forEach( identifiableObject -> addIdentifiers( map, identifiableObject ) );
+                        IdentifiableObject identifiableObject = (IdentifiableObject) reference;
+                        addIdentifiers( map, identifiableObject );
+                    }
+                }
+                else
+                {
+                    Collection<IdentifiableObject> reference = p.getValue( object );
+                    reference.forEach( identifiableObject -> addIdentifiers( map, identifiableObject ) );
 
-                        if ( DataElementOperand.class.isAssignableFrom( p.getItemKlass() ) )
+                    if ( DataElementOperand.class.isAssignableFrom( p.getItemKlass() ) )
+                    {
+                        CollectionUtils.nullSafeForEach( reference, identifiableObject ->
                         {
-                            CollectionUtils.nullSafeForEach( reference, identifiableObject ->
-                            {
-                                DataElementOperand dataElementOperand = (DataElementOperand) identifiableObject;
-                                addIdentifiers( map, dataElementOperand.getDataElement() );
-                                addIdentifiers( map, dataElementOperand.getCategoryOptionCombo() );
-                            } );
-                        }
+                            DataElementOperand dataElementOperand = (DataElementOperand) identifiableObject;
+                            addIdentifiers( map, dataElementOperand.getDataElement() );
+                            addIdentifiers( map, dataElementOperand.getCategoryOptionCombo() );
+                        } );
                     }
-                } );
+                }
+            } );
 
-                collectAnalyticalObjectReferences( map, object );
-            }
+            collectAnalyticalObjectReferences( map, object );
         }
 
-        cleanEmptyEntries( uidMap );
-        cleanEmptyEntries( codeMap );
-
         return map;
     }
 
+    private void mergeReferences( Map<PreheatIdentifier, Map<Class<? extends IdentifiableObject>, Set<String>>> map,
+        Map<PreheatIdentifier, Map<Class<? extends IdentifiableObject>, Set<String>>> references )
+    {
+        references.forEach( ( identifier, identifiers ) -> identifiers.forEach( ( klass, ids ) ->
+            map.get( identifier ).computeIfAbsent( klass, k -> new HashSet<>() ).addAll( ids ) ) );
+    }
+
+    private Map<PreheatIdentifier, Map<Class<? extends IdentifiableObject>, Set<String>>> getReferences(
+        Future<Map<PreheatIdentifier, Map<Class<? extends IdentifiableObject>, Set<String>>>> future, List<? extends Future<?>> futures )
+    {
+        try
+        {
+            return future.get();
+        }
+        catch ( InterruptedException ex )
+        {
+            futures.forEach( f -> f.cancel( true ) );
+
+            Thread.currentThread().interrupt();
+
+            throw new IllegalStateException( "Interrupted while collecting references", ex );
+        }
+        catch ( ExecutionException ex )
+        {
+            futures.forEach( f -> f.cancel( true ) );
+
+            if ( ex.getCause() instanceof RuntimeException )
+            {
+                throw (RuntimeException) ex.getCause();
+            }
+
+            throw new IllegalStateException( "Failed to collect references", ex.getCause() );
+        }
+    }
+
     /**
      * Collect references for {@link AnalyticalObject}.
      *
@@ -718,7 +851,7 @@ public class DefaultPreheatService implements PreheatService
                 {
                     if ( !p.isCollection() )
                     {
-                        IdentifiableObject reference = ReflectionUtils.invokeMethod( object, p.getGetterMethod() );
+                        IdentifiableObject reference = p.getValue( object );
 
                         if ( reference != null )
                         {
@@ -736,7 +869,7 @@ public class DefaultPreheatService implements PreheatService
                     else
                     {
                         Collection<IdentifiableObject> refObjects = ReflectionUtils.newCollectionInstance( p.getKlass() );
-                        Collection<IdentifiableObject> references = ReflectionUtils.invokeMethod( object, p.getGetterMethod() );
+                        Collection<IdentifiableObject> references = p.getValue( object );
 
                         if ( references != null )
                         {
@@ -806,7 +939,7 @@ public class DefaultPreheatService implements PreheatService
                         list.addAll( targets.get( property.getItemKlass() ) );
                     }
 
-                    objects.forEach( o -> list.addAll( ReflectionUtils.invokeMethod( o, property.getGetterMethod() ) ) );
+                    objects.forEach( o -> list.addAll( property.getValue( o ) ) );
                     targets.put( property.getItemKlass(), list );
                 }
                 else
@@ -818,7 +951,7 @@ public class DefaultPreheatService implements PreheatService
                         list.addAll( targets.get( property.getKlass() ) );
                     }
 
-                    objects.forEach( o -> list.add( ReflectionUtils.invokeMethod( o, property.getGetterMethod() ) ) );
+                    objects.forEach( o -> list.add( property.getValue( o ) ) );
                     targets.put( property.getKlass(), list );
                 }
             }
@@ -868,24 +1001,24 @@ public class DefaultPreheatService implements PreheatService
 
             if ( !property.isCollection() )
             {
-                IdentifiableObject refObject = ReflectionUtils.invokeMethod( object, property.getGetterMethod() );
+                IdentifiableObject refObject = property.getValue( object );
                 IdentifiableObject ref = getPersistedObject( preheat, identifier, refObject );
 
                 ref = connectDefaults( preheat, property, object, refObject, ref );
 
                 if ( ref != null && ref.getId() == 0 )
                 {
-                    ReflectionUtils.invokeMethod( object, property.getSetterMethod(), (Object) null );
+                    property.setValue( object, null );
                 }
                 else
                 {
-                    ReflectionUtils.invokeMethod( object, property.getSetterMethod(), ref );
+                    property.setValue( object, ref );
                 }
             }
             else
             {
                 Collection<IdentifiableObject> objects = ReflectionUtils.newCollectionInstance( property.getKlass() );
-                Collection<IdentifiableObject> refObjects = ReflectionUtils.invokeMethod( object, property.getGetterMethod() );
+                Collection<IdentifiableObject> refObjects = property.getValue( object );
 
                 for ( IdentifiableObject refObject : refObjects )
                 {
@@ -893,7 +1026,7 @@ public class DefaultPreheatService implements PreheatService
                     if ( ref != null && ref.getId() != 0 ) objects.add( ref );
                 }
 
-                ReflectionUtils.invokeMethod( object, property.getSetterMethod(), objects );
+                property.setValue( object, objects );
             }
         }
     }
@@ -959,11 +1092,48 @@ public class DefaultPreheatService implements PreheatService
         if ( !StringUtils.isEmpty( identifiableObject.getCode() ) ) codeMap.get( klass ).add( identifiableObject.getCode() );
     }
 
-    private Map<String, Map<Object, String>> handleUniqueProperties( Schema schema, List<IdentifiableObject> objects )
+    /**
+     * Queries the persisted objects of the given class which have the same value
+     * for one of the unique properties of the class as one of the given objects.
+     */
+    private List<IdentifiableObject> queryUniqueObjects( Class<? extends IdentifiableObject> klass,
+        List<? extends IdentifiableObject> objects, User user )
     {
-        List<Property> uniqueProperties = schema.getProperties().stream()
+        Schema schema = schemaService.getDynamicSchema( klass );
+        Map<String, IdentifiableObject> uniqueObjects = new HashMap<>();
+
+        for ( Property property : getUniqueProperties( schema ) )
+        {
+            Set<Object> values = new HashSet<>();
+
+            for ( IdentifiableObject object : objects )
+            {
+                Object value = property.getValue( object );
+                if ( value != null ) values.add( value );
+            }
+
+            for ( List<Object> partition : Lists.partition( new ArrayList<>( values ), 20000 ) )
+            {
+                Query query = Query.from( schema );
+                query.setUser( user );
+                query.add( Restrictions.in( property.getName(), partition ) );
+                queryService.query( query ).forEach( object -> uniqueObjects.put( object.getUid(), object ) );
+            }
+        }
+
+        return new ArrayList<>( uniqueObjects.values() );
+    }
+
+    private List<Property> getUniqueProperties( Schema schema )
+    {
+        return schema.getProperties().stream()
             .filter( p -> p.isPersisted() && p.isOwner() && p.isUnique() && p.isSimple() )
             .collect( Collectors.toList() );
+    }
+
+    private Map<String, Map<Object, String>> handleUniqueProperties( Schema schema, List<IdentifiableObject> objects )
+    {
+        List<Property> uniqueProperties = getUniqueProperties( schema );
 
         Map<String, Map<Object, String>> map = new HashMap<>();
 
@@ -972,7 +1142,7 @@ public class DefaultPreheatService implements PreheatService
             uniqueProperties.forEach( property ->
             {
                 if ( !map.containsKey( property.getName() ) ) map.put( property.getName(), new HashMap<>() );
-                Object value = ReflectionUtils.invokeMethod( object, property.getGetterMethod() );
+                Object value = property.getValue( object );
                 if ( value != null ) map.get( property.getName() ).put( value, object.getUid() );
             } );
         }
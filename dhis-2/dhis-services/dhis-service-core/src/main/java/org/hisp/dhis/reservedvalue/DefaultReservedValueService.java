@@ -39,14 +39,20 @@ import org.hisp.dhis.textpattern.TextPatternMethodUtils;
 import org.hisp.dhis.textpattern.TextPatternSegment;
 import org.hisp.dhis.textpattern.TextPatternService;
 import org.hisp.dhis.textpattern.TextPatternValidationUtils;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.stereotype.Service;
 
+import javax.persistence.PersistenceException;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.Set;
 import java.util.concurrent.TimeoutException;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -62,22 +68,34 @@ public class DefaultReservedValueService
 {
     private static final long GENERATION_TIMEOUT = (1000 * 30); // 30 seconds
 
+    /**
+     * Lower bound of the estimated share of free values, which limits the
+     * number of random candidates generated per attempt to 100 per value.
+     */
+    private static final double MIN_FREE_SHARE = 0.01;
+
     private TextPatternService textPatternService;
 
     private ReservedValueStore reservedValueStore;
 
     private SequentialNumberCounterStore sequentialNumberCounterStore;
 
+    private TransactionTemplate newTransactionTemplate;
+
     public DefaultReservedValueService( TextPatternService textPatternService, ReservedValueStore reservedValueStore,
-        SequentialNumberCounterStore sequentialNumberCounterStore )
+        SequentialNumberCounterStore sequentialNumberCounterStore, TransactionTemplate transactionTemplate )
     {
         checkNotNull( textPatternService );
         checkNotNull( reservedValueStore );
         checkNotNull( sequentialNumberCounterStore );
+        checkNotNull( transactionTemplate );
 
         this.textPatternService = textPatternService;
         this.reservedValueStore = reservedValueStore;
         this.sequentialNumberCounterStore = sequentialNumberCounterStore;
+
+        this.newTransactionTemplate = new TransactionTemplate( transactionTemplate.getTransactionManager() );
+        this.newTransactionTemplate.setPropagationBehavior( TransactionDefinition.PROPAGATION_REQUIRES_NEW );
     }
 
     private final Log log = LogFactory.getLog( DefaultReservedValueService.class );
@@ -106,9 +124,11 @@ public class DefaultReservedValueService
             valueKey,
             expires );
 
-        if ( !hasEnoughValuesLeft( reservedValue,
-            TextPatternValidationUtils.getTotalValuesPotential( generatedSegment ),
-            numberOfReservations ) )
+        long totalValues = TextPatternValidationUtils.getTotalValuesPotential( generatedSegment );
+
+        long valuesLeft = getNumberOfValuesLeft( reservedValue, totalValues );
+
+        if ( valuesLeft < numberOfReservations )
         {
             throw new ReserveValueException( "Not enough values left to reserve " + numberOfReservations + " values." );
         }
@@ -119,10 +139,13 @@ public class DefaultReservedValueService
             return reservedValueStore.reserveValues( reservedValue, Lists.newArrayList( key ) );
         }
 
-        List<String> usedGeneratedValues = new ArrayList<>();
+        Set<String> usedGeneratedValues = new HashSet<>();
 
         int numberOfValuesLeftToGenerate = numberOfReservations;
 
+        // Share of candidate values expected to be free, updated from the outcome of each attempt
+        double freeShare = totalValues > 0 ? (double) valuesLeft / totalValues : 1d;
+
         try
         {
             while ( attemptsLeft-- > 0 && numberOfValuesLeftToGenerate > 0 )
@@ -132,40 +155,66 @@ public class DefaultReservedValueService
                     throw new TimeoutException( "Generation and reservation of values took too long" );
                 }
 
-                List<String> resolvedPatterns = new ArrayList<>();
+                int numberOfCandidates = getNumberOfCandidates( generatedSegment, numberOfValuesLeftToGenerate,
+                    freeShare, totalValues - usedGeneratedValues.size() );
 
-                List<String> generatedValues = new ArrayList<>();
+                Set<String> generatedValues = new LinkedHashSet<>();
 
                 int maxGenerateAttempts = 10;
 
-                while ( generatedValues.size() < numberOfValuesLeftToGenerate && maxGenerateAttempts-- > 0 )
+                while ( generatedValues.size() < numberOfCandidates && maxGenerateAttempts-- > 0 )
                 {
-                    generatedValues.addAll( generateValues( textPattern, key, numberOfReservations - resultList.size() ) );
-                    generatedValues.removeAll( usedGeneratedValues );
+                    for ( String generatedValue : generateValues( textPattern, key, numberOfCandidates - generatedValues.size() ) )
+                    {
+                        if ( usedGeneratedValues.add( generatedValue ) )
+                        {
+                            generatedValues.add( generatedValue );
+                        }
+                    }
                 }
 
-                usedGeneratedValues.addAll( generatedValues );
+                if ( generatedValues.isEmpty() )
+                {
+                    break;
+                }
 
                 // Get a list of resolved patterns
-                for ( int i = 0; i < numberOfReservations - resultList.size(); i++ )
+                List<String> resolvedPatterns = new ArrayList<>( generatedValues.size() );
+
+                for ( String generatedValue : generatedValues )
                 {
                     resolvedPatterns.add( textPatternService.resolvePattern( textPattern,
                         ImmutableMap.<String, String>builder()
                             .putAll( values )
-                            .put( generatedSegment.getMethod().name(), generatedValues.get( i ) )
+                            .put( generatedSegment.getMethod().name(), generatedValue )
                             .build() ) );
                 }
 
-                resultList.addAll( reservedValueStore.reserveValues( reservedValue, resolvedPatterns ) );
+                List<ReservedValue> reservedValues = reservedValueStore
+                    .reserveValues( reservedValue, resolvedPatterns, numberOfValuesLeftToGenerate );
+
+                resultList.addAll( reservedValues );
+
+                if ( reservedValues.size() < numberOfValuesLeftToGenerate )
+                {
+                    // All candidates were checked, so the outcome tells the share of free values
+                    freeShare = Math.max( (double) reservedValues.size() / resolvedPatterns.size(), MIN_FREE_SHARE );
+                }
 
                 numberOfValuesLeftToGenerate = numberOfReservations - resultList.size();
             }
         }
         catch ( TimeoutException ex )
         {
-            log.warn( String.format(
-                "Generation and reservation of values for %s wih uid %s timed out. %s values was reserved. You might be running low on available values",
-                textPattern.getOwnerObject().name(), textPattern.getOwnerUid(), resultList.size() ) );
+            log.warn( String.format( "Generation and reservation of values for %s with uid %s timed out",
+                textPattern.getOwnerObject().name(), textPattern.getOwnerUid() ) );
+        }
+
+        if ( resultList.size() < numberOfReservations )
+        {
+            log.warn( String.format( "Reserved %d of %d values for %s with uid %s, about %d of %d values are left. You might be running low on available values",
+                resultList.size(), numberOfReservations, textPattern.getOwnerObject().name(), textPattern.getOwnerUid(),
+                valuesLeft - resultList.size(), totalValues ) );
         }
 
         return resultList;
@@ -219,27 +268,80 @@ public class DefaultReservedValueService
 
         if ( segment.getMethod().equals( TextPatternMethod.SEQUENTIAL ) )
         {
-            generatedValues.addAll( sequentialNumberCounterStore
-                .getNextValues( textPattern.getOwnerUid(), key, numberOfValues )
+            generatedValues.addAll( getNextSequentialValues( textPattern.getOwnerUid(), key, numberOfValues )
                 .stream()
                 .map( ( n ) -> String.format( "%0" + segment.getParameter().length() + "d", n ) )
                 .collect( Collectors.toList() ) );
         }
         else if ( segment.getMethod().equals( TextPatternMethod.RANDOM ) )
         {
+            Random random = new Random();
+
             for ( int i = 0; i < numberOfValues; i++ )
             {
-                generatedValues.add( TextPatternMethodUtils.generateRandom( new Random(), segment.getParameter() ) );
+                generatedValues.add( TextPatternMethodUtils.generateRandom( random, segment.getParameter() ) );
             }
         }
 
         return generatedValues;
     }
 
-    private boolean hasEnoughValuesLeft( ReservedValue reservedValue, long totalValues, int valuesRequired )
+    /**
+     * Reserves a block of sequential numbers in a separate transaction, so
+     * that the counter row is only locked for the duration of the increment
+     * and not while the reserved values are generated and stored. Numbers of
+     * a block are not returned to the counter if the reservation fails.
+     * <p>
+     * Concurrent first reservations for a key may both try to create the
+     * counter. The one failing on the unique constraint is retried once, and
+     * then increments the counter created by the other.
+     */
+    private List<Integer> getNextSequentialValues( String ownerUid, String key, int numberOfValues )
+    {
+        try
+        {
+            return newTransactionTemplate.execute(
+                status -> sequentialNumberCounterStore.getNextValues( ownerUid, key, numberOfValues ) );
+        }
+        catch ( PersistenceException ex )
+        {
+            log.debug( String.format( "Retrying reservation of sequential values for key: '%s'", key ), ex );
+
+            return newTransactionTemplate.execute(
+                status -> sequentialNumberCounterStore.getNextValues( ownerUid, key, numberOfValues ) );
+        }
+    }
+
+    private long getNumberOfValuesLeft( ReservedValue reservedValue, long totalValues )
     {
         int used = reservedValueStore.getNumberOfUsedValues( reservedValue );
 
-        return totalValues >= valuesRequired + used;
+        return totalValues - used;
+    }
+
+    /**
+     * Returns the number of candidate values to generate for one reservation
+     * attempt. Sequential values are never generated twice, so exactly the
+     * missing number of values is generated. Random values are generated in
+     * proportion to the inverse of the expected share of free values, so that
+     * a single batch usually holds enough free values even when most of the
+     * pattern is taken.
+     *
+     * @param segment the generated segment.
+     * @param numberOfValues the number of values still to reserve.
+     * @param freeShare the expected share of free values.
+     * @param untriedValues the number of values which were not tried yet.
+     * @return the number of candidate values.
+     */
+    private int getNumberOfCandidates( TextPatternSegment segment, int numberOfValues, double freeShare, long untriedValues )
+    {
+        if ( !segment.getMethod().equals( TextPatternMethod.RANDOM ) )
+        {
+            return numberOfValues;
+        }
+
+        double candidates = Math.ceil( numberOfValues / Math.max( freeShare, MIN_FREE_SHARE ) );
+
+        return (int) Math.max( numberOfValues, Math.min( candidates, Math.min( untriedValues, Integer.MAX_VALUE ) ) );
     }
 }
@@ -28,6 +28,7 @@ package org.hisp.dhis.reservedvalue.hibernate;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import com.google.common.collect.Lists;
 import org.hibernate.SessionFactory;
 import org.hibernate.query.Query;
 import org.hisp.dhis.common.Objects;
@@ -43,7 +44,9 @@ import org.springframework.stereotype.Repository;
 
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -57,6 +60,11 @@ public class HibernateReservedValueStore
     extends HibernateGenericStore<ReservedValue>
     implements ReservedValueStore
 {
+    /**
+     * Maximum number of values checked for availability in a single query.
+     */
+    private static final int AVAILABILITY_BATCH_SIZE = 10000;
+
     private final BatchHandlerFactory batchHandlerFactory;
 
     public HibernateReservedValueStore( SessionFactory sessionFactory, JdbcTemplate jdbcTemplate,
@@ -73,7 +81,13 @@ public class HibernateReservedValueStore
     public List<ReservedValue> reserveValues( ReservedValue reservedValue,
         List<String> values )
     {
-        List<ReservedValue> toAdd = getGeneratedValues( reservedValue, values );
+        return reserveValues( reservedValue, values, values.size() );
+    }
+
+    @Override
+    public List<ReservedValue> reserveValues( ReservedValue reservedValue, List<String> values, int numberOfValues )
+    {
+        List<ReservedValue> toAdd = getGeneratedValues( reservedValue, values, numberOfValues );
 
         BatchHandler<ReservedValue> batchHandler = batchHandlerFactory
             .createBatchHandler( ReservedValueBatchHandler.class ).init();
@@ -87,7 +101,7 @@ public class HibernateReservedValueStore
     @Override
     public List<ReservedValue> reserveValuesJpa( ReservedValue reservedValue, List<String> values )
     {
-        List<ReservedValue> toAdd = getGeneratedValues( reservedValue, values );
+        List<ReservedValue> toAdd = getGeneratedValues( reservedValue, values, values.size() );
         toAdd.forEach( rv -> save( rv ) );
         return toAdd;
     }
@@ -97,12 +111,18 @@ public class HibernateReservedValueStore
      *
      * @param reservedValue the reserved value.
      * @param values the values to reserve.
+     * @param numberOfValues the maximum number of values to reserve.
      * @return a list of {@link ReservedValue}.
      */
-    private List<ReservedValue> getGeneratedValues( ReservedValue reservedValue, List<String> values )
+    private List<ReservedValue> getGeneratedValues( ReservedValue reservedValue, List<String> values, int numberOfValues )
     {
         List<String> availableValues = getIfAvailable( reservedValue, values );
 
+        if ( availableValues.size() > numberOfValues )
+        {
+            availableValues = availableValues.subList( 0, numberOfValues );
+        }
+
         List<ReservedValue> generatedValues = new ArrayList<>();
 
         availableValues.forEach( ( value ) -> {
@@ -212,28 +232,28 @@ public class HibernateReservedValueStore
 
     private List<String> getIfAvailable( ReservedValue reservedValue, List<String> values )
     {
-        List<String> reservedValues = getIfReservedValues( reservedValue, values ).stream()
-            .map( ReservedValue::getValue )
-            .collect( Collectors.toList() );
+        boolean attributeOwner = Objects.valueOf( reservedValue.getOwnerObject() ).equals( TRACKEDENTITYATTRIBUTE );
 
-        values.removeAll( reservedValues );
-
-        // All values supplied is unavailable
-        if ( values.isEmpty() )
-        {
-            return values;
-        }
+        Set<String> unavailableValues = new HashSet<>();
 
-        if ( Objects.valueOf( reservedValue.getOwnerObject() ).equals( TRACKEDENTITYATTRIBUTE ) )
+        for ( List<String> batch : Lists.partition( values, AVAILABILITY_BATCH_SIZE ) )
         {
-            values.removeAll( getUntypedSqlQuery(
-                "SELECT value FROM trackedentityattributevalue WHERE trackedentityattributeid = (SELECT trackedentityattributeid FROM trackedentityattribute WHERE uid = ?1) AND value IN ?2" )
-                .setParameter( 1, reservedValue.getOwnerUid() )
-                .setParameter( 2, values )
-                .list() );
+            getIfReservedValues( reservedValue, batch ).forEach( rv -> unavailableValues.add( rv.getValue() ) );
+
+            if ( attributeOwner )
+            {
+                List<?> usedValues = getUntypedSqlQuery(
+                    "SELECT value FROM trackedentityattributevalue WHERE trackedentityattributeid = (SELECT trackedentityattributeid FROM trackedentityattribute WHERE uid = ?1) AND value IN ?2" )
+                    .setParameter( 1, reservedValue.getOwnerUid() )
+                    .setParameter( 2, batch )
+                    .list();
+
+                usedValues.forEach( value -> unavailableValues.add( (String) value ) );
+            }
         }
 
-        return values;
-
+        return values.stream()
+            .filter( value -> !unavailableValues.contains( value ) )
+            .collect( Collectors.toList() );
     }
 }
@@ -56,25 +56,51 @@ public class HibernateSequentialNumberCounterStore
     @Override
     public List<Integer> getNextValues( String uid, String key, int length )
     {
-        Session session = sessionFactory.getCurrentSession();
+        int count = reserveBlock( uid, key, length );
 
-        int count;
+        return IntStream.range( count, count + length ).boxed().collect( Collectors.toList() );
+    }
 
-        SequentialNumberCounter counter = (SequentialNumberCounter) session
-            .createQuery( "FROM SequentialNumberCounter WHERE owneruid = ? AND key = ?" ).setParameter( 0, uid )
-            .setParameter( 1, key ).uniqueResult();
+    /**
+     * Reserves a block of numbers by incrementing the counter in a single
+     * update statement. The update locks the counter row, so concurrent
+     * reservations for the same owner and key get separate blocks instead of
+     * reading the same counter value. Creates the counter if it does not exist.
+     * If a concurrent reservation creates the counter first, the insert fails
+     * on the unique constraint on owner and key, and the reservation must be
+     * retried in a new transaction.
+     *
+     * @param uid    the owner uid.
+     * @param key    the counter key.
+     * @param length the number of values to reserve.
+     * @return the first number of the reserved block.
+     */
+    private int reserveBlock( String uid, String key, int length )
+    {
+        Session session = sessionFactory.getCurrentSession();
 
-        if ( counter == null )
+        int updated = session
+            .createQuery( "UPDATE SequentialNumberCounter SET counter = counter + :length WHERE ownerUid = :uid AND key = :key" )
+            .setParameter( "length", length )
+            .setParameter( "uid", uid )
+            .setParameter( "key", key )
+            .executeUpdate();
+
+        if ( updated == 0 )
         {
-            counter = new SequentialNumberCounter( uid, key, 1 );
-        }
+            session.save( new SequentialNumberCounter( uid, key, 1 + length ) );
+            session.flush();
 
-        count = counter.getCounter();
-        counter.setCounter( count + length );
-        session.saveOrUpdate( counter );
+            return 1;
+        }
 
-        return IntStream.range( count, count + length ).boxed().collect( Collectors.toList() );
+        Integer counter = (Integer) session
+            .createQuery( "SELECT counter FROM SequentialNumberCounter WHERE ownerUid = :uid AND key = :key" )
+            .setParameter( "uid", uid )
+            .setParameter( "key", key )
+            .uniqueResult();
 
+        return counter - length;
     }
 
     @Override
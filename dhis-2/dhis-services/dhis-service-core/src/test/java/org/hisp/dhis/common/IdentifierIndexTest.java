@@ -0,0 +1,131 @@
+package org.hisp.dhis.common;
+
+/*
+ * Copyright (c) 2004-2019, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.hisp.dhis.DhisSpringTest;
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.dataelement.DataElementService;
+import org.hisp.dhis.period.Period;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+public class IdentifierIndexTest
+    extends DhisSpringTest
+{
+    @Autowired
+    private IdentifierIndex identifierIndex;
+
+    @Autowired
+    private DataElementService dataElementService;
+
+    private DataElement deA;
+
+    private DataElement deB;
+
+    @Override
+    protected void setUpTest()
+    {
+        identifierIndex.invalidateAll();
+
+        deA = createDataElement( 'A' );
+        deB = createDataElement( 'B' );
+
+        dataElementService.addDataElement( deA );
+        dataElementService.addDataElement( deB );
+    }
+
+    @Test
+    public void testIsIndexed()
+    {
+        assertTrue( identifierIndex.isIndexed( IdScheme.UID ) );
+        assertTrue( identifierIndex.isIndexed( IdScheme.CODE ) );
+        assertFalse( identifierIndex.isIndexed( IdScheme.NAME ) );
+        assertFalse( identifierIndex.isIndexed( IdScheme.ID ) );
+    }
+
+    @Test
+    public void testGetObject()
+    {
+        assertEquals( deA, identifierIndex.getObject( DataElement.class, IdScheme.UID, deA.getUid() ) );
+        assertEquals( deB, identifierIndex.getObject( DataElement.class, IdScheme.UID, deB.getUid() ) );
+        assertEquals( deA, identifierIndex.getObject( DataElement.class, IdScheme.CODE, deA.getCode() ) );
+        assertEquals( deB, identifierIndex.getObject( DataElement.class, IdScheme.NAME, deB.getName() ) );
+        assertNull( identifierIndex.getObject( DataElement.class, IdScheme.UID, "unknownUid1" ) );
+        assertNull( identifierIndex.getObject( DataElement.class, IdScheme.UID, null ) );
+    }
+
+    @Test
+    public void testGetObjectCreatedAfterLoad()
+    {
+        assertEquals( deA, identifierIndex.getObject( DataElement.class, IdScheme.UID, deA.getUid() ) );
+
+        DataElement deC = createDataElement( 'C' );
+        dataElementService.addDataElement( deC );
+
+        assertEquals( deC, identifierIndex.getObject( DataElement.class, IdScheme.UID, deC.getUid() ) );
+        assertEquals( deC, identifierIndex.getObject( DataElement.class, IdScheme.CODE, deC.getCode() ) );
+    }
+
+    @Test
+    public void testGetObjectUpdatedCode()
+    {
+        String code = deA.getCode();
+
+        assertEquals( deA, identifierIndex.getObject( DataElement.class, IdScheme.CODE, code ) );
+
+        deA.setCode( "DataElementCodeX" );
+        dataElementService.updateDataElement( deA );
+
+        assertNull( identifierIndex.getObject( DataElement.class, IdScheme.CODE, code ) );
+        assertEquals( deA, identifierIndex.getObject( DataElement.class, IdScheme.CODE, "DataElementCodeX" ) );
+    }
+
+    @Test
+    public void testGetObjectDeleted()
+    {
+        String uid = deB.getUid();
+
+        assertEquals( deB, identifierIndex.getObject( DataElement.class, IdScheme.UID, uid ) );
+
+        dataElementService.deleteDataElement( deB );
+
+        assertNull( identifierIndex.getObject( DataElement.class, IdScheme.UID, uid ) );
+    }
+
+    @Test
+    public void testGetObjectWithoutPersistedUid()
+    {
+        assertNull( identifierIndex.getObject( Period.class, IdScheme.UID, "unknownUid1" ) );
+    }
+}
@@ -0,0 +1,160 @@
+package org.hisp.dhis.datavalue.hibernate;
+
+/*
+ * Copyright (c) 2004-2019, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import com.google.common.collect.Sets;
+import org.hisp.dhis.DhisSpringTest;
+import org.hisp.dhis.category.CategoryOptionCombo;
+import org.hisp.dhis.category.CategoryService;
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.dataelement.DataElementService;
+import org.hisp.dhis.datavalue.DataExportParams;
+import org.hisp.dhis.datavalue.DataValue;
+import org.hisp.dhis.datavalue.DataValueStore;
+import org.hisp.dhis.datavalue.DeflatedDataValue;
+import org.hisp.dhis.dbms.DbmsManager;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.organisationunit.OrganisationUnitService;
+import org.hisp.dhis.period.MonthlyPeriodType;
+import org.hisp.dhis.period.PeriodService;
+import org.hisp.dhis.period.PeriodType;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+
+public class HibernateDataValueStoreTest
+    extends DhisSpringTest
+{
+    @Autowired
+    private DataValueStore dataValueStore;
+
+    @Autowired
+    private DataElementService dataElementService;
+
+    @Autowired
+    private OrganisationUnitService organisationUnitService;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private PeriodService periodService;
+
+    @Autowired
+    private DbmsManager dbmsManager;
+
+    private DataElement dataElementA;
+
+    private OrganisationUnit sourceA;
+
+    private CategoryOptionCombo optionCombo;
+
+    private PeriodType monthly;
+
+    @Override
+    public void setUpTest()
+    {
+        dataElementA = createDataElement( 'A' );
+        dataElementService.addDataElement( dataElementA );
+
+        sourceA = createOrganisationUnit( 'A' );
+        organisationUnitService.addOrganisationUnit( sourceA );
+
+        optionCombo = categoryService.getDefaultCategoryOptionCombo();
+
+        monthly = periodService.reloadPeriodType( new MonthlyPeriodType() );
+
+        addDataValue( "201801", "1" );
+        addDataValue( "201802", "2" );
+        addDataValue( "201803", "3" );
+        addDataValue( "201804", "4" );
+        addDataValue( "2018Q1", "5" );
+
+        dbmsManager.flushSession();
+    }
+
+    @Test
+    public void testGetDeflatedDataValuesIncludedDates()
+    {
+        assertEquals( Sets.newHashSet( "1", "3" ),
+            getValues( getDate( 2018, 1, 1 ), getDate( 2018, 3, 15 ) ) );
+        assertEquals( Sets.newHashSet( "2" ),
+            getValues( getDate( 2018, 2, 28 ) ) );
+        assertEquals( Sets.newHashSet( "4" ),
+            getValues( getDate( 2018, 4, 1 ), getDate( 2018, 4, 30 ) ) );
+        assertEquals( Sets.newHashSet(),
+            getValues( getDate( 2018, 5, 1 ) ) );
+    }
+
+    @Test
+    public void testGetDeflatedDataValuesIncludedDatesSameAsPerDate()
+    {
+        Set<Date> dates = Sets.newHashSet( getDate( 2018, 1, 1 ), getDate( 2018, 2, 1 ),
+            getDate( 2018, 3, 1 ), getDate( 2018, 4, 1 ), getDate( 2018, 5, 1 ) );
+
+        Set<String> perDateValues = new HashSet<>();
+
+        for ( Date date : dates )
+        {
+            perDateValues.addAll( getValues( date ) );
+        }
+
+        assertEquals( Sets.newHashSet( "1", "2", "3", "4" ), perDateValues );
+        assertEquals( perDateValues, getValues( dates.toArray( new Date[0] ) ) );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private void addDataValue( String isoPeriod, String value )
+    {
+        dataValueStore.addDataValue( new DataValue( dataElementA, createPeriod( isoPeriod ),
+            sourceA, optionCombo, optionCombo, value ) );
+    }
+
+    private Set<String> getValues( Date... includedDates )
+    {
+        DataExportParams params = new DataExportParams()
+            .setDataElements( Sets.newHashSet( dataElementA ) )
+            .setOrganisationUnits( Sets.newHashSet( sourceA ) )
+            .setPeriodTypes( Sets.newHashSet( monthly ) )
+            .setIncludedDates( Sets.newHashSet( includedDates ) );
+
+        return dataValueStore.getDeflatedDataValues( params ).stream()
+            .map( DeflatedDataValue::getValue )
+            .collect( Collectors.toSet() );
+    }
+}
@@ -0,0 +1,255 @@
+package org.hisp.dhis.expression;
+
+/*
+ * Copyright (c) 2004-2019, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+import static org.hisp.dhis.DhisConvenienceTest.createCategoryOptionCombo;
+import static org.hisp.dhis.DhisConvenienceTest.createDataElement;
+import static org.hisp.dhis.parser.expression.ParserUtils.*;
+import static org.hisp.dhis.parser.expression.antlr.ExpressionParser.*;
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.google.common.collect.ImmutableMap;
+import org.hisp.dhis.category.CategoryOptionCombo;
+import org.hisp.dhis.common.DimensionService;
+import org.hisp.dhis.common.DimensionalItemObject;
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.dataelement.DataElementOperand;
+import org.hisp.dhis.expression.item.*;
+import org.hisp.dhis.organisationunit.OrganisationUnitGroupService;
+import org.hisp.dhis.parser.expression.CommonExpressionVisitor;
+import org.hisp.dhis.parser.expression.ExprItem;
+import org.hisp.dhis.parser.expression.Parser;
+import org.hisp.dhis.parser.expression.ParserException;
+import org.hisp.dhis.parser.expression.item.ItemConstant;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+/**
+ * Tests that compiled expressions evaluate to the same values, and count the
+ * same items for the missing value strategy, as visiting the parse tree.
+ */
+public class ExpressionCompilerTest
+{
+    private static final Map<Integer, ExprItem> ITEMS = ImmutableMap.<Integer, ExprItem>builder()
+        .put( HASH_BRACE, new DimItemDataElementAndOperand() )
+        .put( C_BRACE, new ItemConstant() )
+        .put( OUG_BRACE, new ItemOrgUnitGroup() )
+        .put( DAYS, new ItemDays() )
+        .build();
+
+    private static final Map<String, Double> CONSTANT_MAP = ImmutableMap.of( "xxxxxxxxx05", 0.5 );
+
+    private static final Map<String, Integer> ORG_UNIT_COUNT_MAP = ImmutableMap.of( "orgUnitGrpA", 1000 );
+
+    private static final Integer DAYS_VALUE = 30;
+
+    @Mock
+    private DimensionService dimensionService;
+
+    @Mock
+    private OrganisationUnitGroupService organisationUnitGroupService;
+
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    private DataElement deA;
+    private DataElement deB;
+    private DataElementOperand opA;
+
+    private Map<DimensionalItemObject, Double> allValues;
+    private Map<DimensionalItemObject, Double> someValues;
+    private Map<DimensionalItemObject, Double> noValues;
+
+    @Before
+    public void setUp()
+    {
+        deA = createDataElement( 'A' );
+        deB = createDataElement( 'B' );
+
+        CategoryOptionCombo cocA = createCategoryOptionCombo( 'A' );
+
+        opA = new DataElementOperand( deA, cocA );
+
+        allValues = new HashMap<>();
+        allValues.put( deA, 4d );
+        allValues.put( deB, 5d );
+        allValues.put( opA, 3d );
+
+        someValues = new HashMap<>();
+        someValues.put( deA, 4d );
+
+        noValues = new HashMap<>();
+    }
+
+    // -------------------------------------------------------------------------
+    // Tests
+    // -------------------------------------------------------------------------
+
+    @Test
+    public void testMath()
+    {
+        assertSameAsVisitor( "#{deabcdefghA} + #{deabcdefghB}" );
+        assertSameAsVisitor( "#{deabcdefghA} - #{deabcdefghB} * 2" );
+        assertSameAsVisitor( "#{deabcdefghA} / #{deabcdefghB}" );
+        assertSameAsVisitor( "#{deabcdefghA} % 3" );
+        assertSameAsVisitor( "#{deabcdefghA} ^ 2 ^ 0.5" );
+        assertSameAsVisitor( "-#{deabcdefghA}" );
+        assertSameAsVisitor( "+#{deabcdefghA}" );
+        assertSameAsVisitor( " ( #{deabcdefghA} + 1 ) * ( 2 + 3 ) " );
+        assertSameAsVisitor( "#{deabcdefghA.cuabcdefghA} * #{deabcdefghA}" );
+        assertSameAsVisitor( "#{deabcdefghA} + #{deabcdefghA}" );
+        assertSameAsVisitor( "1 / 0" );
+    }
+
+    @Test
+    public void testItems()
+    {
+        assertSameAsVisitor( "#{deabcdefghA} * C{xxxxxxxxx05}" );
+        assertSameAsVisitor( "OUG{orgUnitGrpA} / [days]" );
+        assertSameAsVisitor( "C{xxxxxxxxx99} + #{deabcdefghA}" );
+        assertSameAsVisitor( "#{deabcdefghA} + OUG{orgUnitGrpZ}" );
+    }
+
+    @Test
+    public void testLogicAndComparison()
+    {
+        assertSameAsVisitor( "if( #{deabcdefghA} > #{deabcdefghB}, 1, 2 )" );
+        assertSameAsVisitor( "if( #{deabcdefghA} >= 4 && #{deabcdefghB} < 6, #{deabcdefghA}, #{deabcdefghB} )" );
+        assertSameAsVisitor( "if( #{deabcdefghA} == 4 || #{deabcdefghB} != 5, 1, 0 )" );
+        assertSameAsVisitor( "if( ! ( #{deabcdefghA} <= 4 ), 1, 0 )" );
+        assertSameAsVisitor( "if( not true and #{deabcdefghA} > 0 or false, 1, 0 )" );
+        assertSameAsVisitor( "if( 'abc' < 'abd', 1, 0 )" );
+        assertSameAsVisitor( "if( #{deabcdefghA} == '4', 1, 0 )" );
+        assertSameAsVisitor( "if( true, 1, 'abc' )" );
+    }
+
+    @Test
+    public void testFunctions()
+    {
+        assertSameAsVisitor( "greatest( #{deabcdefghA}, #{deabcdefghB}, 4.5 )" );
+        assertSameAsVisitor( "least( #{deabcdefghA}, #{deabcdefghB}, 4.5 )" );
+        assertSameAsVisitor( "if( isNull( #{deabcdefghB} ), 1, 2 )" );
+        assertSameAsVisitor( "if( isNotNull( #{deabcdefghB} ), 1, 2 )" );
+        assertSameAsVisitor( "firstNonNull( #{deabcdefghB}, #{deabcdefghA}, 7 )" );
+        assertSameAsVisitor( "firstNonNull( #{deabcdefghB}, '8' ) + 1" );
+    }
+
+    @Test
+    public void testErrors()
+    {
+        assertSameAsVisitor( "true" );
+        assertSameAsVisitor( "'abc'" );
+        assertSameAsVisitor( "#{deabcdefghA} + 'abc'" );
+        assertSameAsVisitor( "if( #{deabcdefghA}, 1, 2 )" );
+    }
+
+    @Test
+    public void testNotCompiled()
+    {
+        assertFalse( ExpressionCompiler.compile( "#{deabcdefghA} +", ITEMS ).isCompiled() );
+        assertFalse( ExpressionCompiler.compile( "N{indicatorA1}", ITEMS ).isCompiled() );
+        assertFalse( ExpressionCompiler.compile( "d2:zing( #{deabcdefghA} )", ITEMS ).isCompiled() );
+        assertFalse( ExpressionCompiler.compile( "V{event_count}", ITEMS ).isCompiled() );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private void assertSameAsVisitor( String expression )
+    {
+        assertSameAsVisitor( expression, allValues );
+        assertSameAsVisitor( expression, someValues );
+        assertSameAsVisitor( expression, noValues );
+    }
+
+    private void assertSameAsVisitor( String expression, Map<DimensionalItemObject, Double> valueMap )
+    {
+        CompiledExpression compiledExpression = ExpressionCompiler.compile( expression, ITEMS );
+
+        assertTrue( expression, compiledExpression.isCompiled() );
+
+        CompiledExpression.Evaluation evaluation = compiledExpression.newEvaluation(
+            valueMap, CONSTANT_MAP, ORG_UNIT_COUNT_MAP, DAYS_VALUE );
+
+        Object compiledValue;
+
+        try
+        {
+            compiledValue = evaluation.evaluate();
+        }
+        catch ( ParserException ex )
+        {
+            compiledValue = ex.getMessage();
+        }
+
+        CommonExpressionVisitor visitor = CommonExpressionVisitor.newBuilder()
+            .withFunctionMap( COMMON_EXPRESSION_FUNCTIONS )
+            .withItemMap( ITEMS )
+            .withFunctionMethod( FUNCTION_EVALUATE )
+            .withItemMethod( ITEM_EVALUATE )
+            .withDimensionService( dimensionService )
+            .withOrganisationUnitGroupService( organisationUnitGroupService )
+            .buildForExpressions();
+
+        Map<String, Double> keyValueMap = new HashMap<>();
+
+        valueMap.forEach( ( item, value ) -> keyValueMap.put( item.getDimensionItem(), value ) );
+
+        visitor.setKeyValueMap( keyValueMap );
+        visitor.setConstantMap( CONSTANT_MAP );
+        visitor.setOrgUnitCountMap( ORG_UNIT_COUNT_MAP );
+        visitor.setDays( Double.valueOf( DAYS_VALUE ) );
+
+        Object visitorValue;
+
+        try
+        {
+            visitorValue = castDouble( Parser.visit( expression, visitor ) );
+        }
+        catch ( ParserException ex )
+        {
+            visitorValue = ex.getMessage();
+        }
+
+        String message = expression + " with values " + valueMap;
+
+        assertEquals( message, visitorValue, compiledValue );
+        assertEquals( message, visitor.getItemsFound(), evaluation.getItemsFound() );
+        assertEquals( message, visitor.getItemValuesFound(), evaluation.getItemValuesFound() );
+    }
+}
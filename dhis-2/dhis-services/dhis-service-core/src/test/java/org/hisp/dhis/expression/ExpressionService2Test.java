@@ -673,6 +673,57 @@ public class ExpressionService2Test
         assertEquals( 54d, target.getExpressionValueRegEx( expR, valueMap, constantMap, orgUnitCountMap, null ), DELTA );
     }
 
+    @Test
+    public void testPrepareExpressionRegEx()
+    {
+        String deCcoc = "#{" + deC.getUid() + SEPARATOR + coc.getUid() + "}";
+
+        Expression expA = new Expression( expressionA, null );
+        Expression expD = new Expression( expressionD, null );
+        Expression expE = new Expression( expressionE, null );
+        Expression expH = new Expression( expressionH, null );
+        Expression expK = new Expression( expressionK, null );
+        Expression expG = new Expression( expressionG, null, MissingValueStrategy.SKIP_IF_ANY_VALUE_MISSING );
+        Expression expIsNull = new Expression( "if(isNull(" + deCcoc + "),1," + deCcoc + ")+" + expressionF,
+            null, MissingValueStrategy.SKIP_IF_ANY_VALUE_MISSING );
+
+        Map<DimensionalItemObject, Double> valueMap = new HashMap<>();
+        valueMap.put( new DataElementOperand( deA, coc ), 12d );
+        valueMap.put( new DataElementOperand( deB, coc ), 34d );
+
+        Map<String, Double> constantMap = new HashMap<>();
+        constantMap.put( constantA.getUid(), 2.0 );
+
+        Map<String, Integer> orgUnitCountMap = new HashMap<>();
+        orgUnitCountMap.put( groupA.getUid(), groupA.getMembers().size() );
+
+        ListMap<String, Double> aggregateMap = new ListMap<>();
+        aggregateMap.putValues( expressionJ, Lists.newArrayList( 1d, 3d ) );
+
+        assertEquals( 46d, target.prepareExpressionRegEx( expA, constantMap, orgUnitCountMap, false ).getValue( valueMap, null, null ), DELTA );
+        assertEquals( 17d, target.prepareExpressionRegEx( expD, constantMap, orgUnitCountMap, false ).getValue( valueMap, 5, null ), DELTA );
+        assertEquals( 24d, target.prepareExpressionRegEx( expE, constantMap, orgUnitCountMap, false ).getValue( valueMap, null, null ), DELTA );
+        assertEquals( 36d, target.prepareExpressionRegEx( expH, constantMap, orgUnitCountMap, false ).getValue( valueMap, null, null ), DELTA );
+        assertEquals( 3d, target.prepareExpressionRegEx( expK, constantMap, orgUnitCountMap, true ).getValue( valueMap, null, aggregateMap ), DELTA );
+        assertNull( target.prepareExpressionRegEx( expG, constantMap, orgUnitCountMap, false ).getValue( valueMap, null, null ) );
+        assertEquals( 13d, target.prepareExpressionRegEx( expIsNull, constantMap, orgUnitCountMap, false ).getValue( valueMap, null, null ), DELTA );
+
+        // Evaluations of one prepared expression are independent of each other
+
+        PreparedExpression preparedD = target.prepareExpressionRegEx( expD, constantMap, orgUnitCountMap, false );
+
+        for ( int days = 0; days < 3; days++ )
+        {
+            assertEquals( target.getExpressionValueRegEx( expD, valueMap, constantMap, orgUnitCountMap, days ),
+                preparedD.getValue( valueMap, days, null ), DELTA );
+        }
+
+        assertEquals( target.getExpressionValueRegEx( expK, valueMap, constantMap, orgUnitCountMap, null, aggregateMap ),
+            target.prepareExpressionRegEx( expK, constantMap, orgUnitCountMap, true ).getValue( valueMap, null, aggregateMap ), DELTA );
+        assertEquals( target.getExpressionValueRegEx( expIsNull, valueMap, constantMap, orgUnitCountMap, null ),
+            target.prepareExpressionRegEx( expIsNull, constantMap, orgUnitCountMap, false ).getValue( valueMap, null, null ), DELTA );
+    }
+
     @Test
     public void testGetIndicatorValueObject()
     {
@@ -34,6 +34,7 @@ import org.hisp.dhis.DhisSpringTest;
 import org.hisp.dhis.attribute.Attribute;
 import org.hisp.dhis.attribute.AttributeService;
 import org.hisp.dhis.attribute.AttributeValue;
+import org.hisp.dhis.common.CodeGenerator;
 import org.hisp.dhis.common.IdentifiableObject;
 import org.hisp.dhis.common.IdentifiableObjectManager;
 import org.hisp.dhis.common.ValueType;
@@ -126,6 +127,36 @@ public class PreheatServiceTest
         assertFalse( references.containsKey( User.class ) );
     }
 
+    @Test
+    public void testCollectReferencesLargePayload()
+    {
+        CategoryCombo categoryCombo = createCategoryCombo( 'A' );
+        DataElementGroup dataElementGroup = createDataElementGroup( 'A' );
+
+        List<DataElement> dataElements = new ArrayList<>();
+
+        for ( int i = 0; i < 1000; i++ )
+        {
+            DataElement dataElement = createDataElement( 'A' );
+            dataElement.setUid( CodeGenerator.generateUid() );
+            dataElement.setCategoryCombo( categoryCombo );
+            dataElements.add( dataElement );
+        }
+
+        dataElementGroup.addDataElement( dataElements.get( 0 ) );
+
+        Map<Class<?>, List<?>> objects = new HashMap<>();
+        objects.put( DataElement.class, dataElements );
+        objects.put( DataElementGroup.class, Lists.newArrayList( dataElementGroup ) );
+
+        Map<Class<? extends IdentifiableObject>, Set<String>> references = preheatService.collectReferences( objects )
+            .get( PreheatIdentifier.UID );
+
+        assertEquals( 1000, references.get( DataElement.class ).size() );
+        assertEquals( Sets.newHashSet( categoryCombo.getUid() ), references.get( CategoryCombo.class ) );
+        assertEquals( Sets.newHashSet( dataElementGroup.getUid() ), references.get( DataElementGroup.class ) );
+    }
+
     @Test
     public void testCollectReferenceUidDEG1()
     {
@@ -376,6 +407,34 @@ public class PreheatServiceTest
         assertTrue( preheat.containsKey( PreheatIdentifier.UID, User.class, user.getUid() ) );
     }
 
+    @Test
+    public void testPreheatReferenceUniqueness()
+    {
+        DataElement de1 = createDataElement( 'A' );
+        DataElement de2 = createDataElement( 'B' );
+
+        manager.save( de1 );
+        manager.save( de2 );
+
+        DataElement de3 = createDataElement( 'A' );
+        de3.setUid( CodeGenerator.generateUid() );
+
+        PreheatParams params = new PreheatParams();
+        params.setPreheatMode( PreheatMode.REFERENCE );
+
+        params.getObjects().put( DataElement.class, Lists.newArrayList( de3 ) );
+
+        preheatService.validate( params );
+        Preheat preheat = preheatService.preheat( params );
+
+        Map<String, Map<Object, String>> uniquenessMap = preheat.getUniquenessMap().get( DataElement.class );
+
+        assertNotNull( uniquenessMap );
+        assertEquals( de1.getUid(), uniquenessMap.get( "code" ).get( de1.getCode() ) );
+        assertEquals( de1.getUid(), uniquenessMap.get( "name" ).get( de1.getName() ) );
+        assertFalse( uniquenessMap.get( "code" ).containsKey( de2.getCode() ) );
+    }
+
     @Test
     public void testPreheatReferenceCODE()
     {
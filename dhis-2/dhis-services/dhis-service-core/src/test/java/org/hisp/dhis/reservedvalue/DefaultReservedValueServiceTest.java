@@ -44,11 +44,19 @@ import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static java.util.Calendar.DATE;
 import static org.junit.Assert.assertEquals;
@@ -184,6 +192,21 @@ public class DefaultReservedValueServiceTest
         assertEquals( 3, all.size() );
     }
 
+    @Test
+    public void testReserveReserveRandomValuesWhenMostAreUsed()
+        throws Exception
+    {
+        TextPattern textPattern = createTextPattern( createTrackedEntityAttribute( 'B' ), "\"TEST-\"+RANDOM(##)" );
+
+        assertEquals( 80, reservedValueService.reserve( textPattern, 80, new HashMap<>(), future ).size() );
+
+        List<ReservedValue> res = reservedValueService.reserve( textPattern, 20, new HashMap<>(), future );
+
+        assertEquals( 20, res.size() );
+        assertEquals( 20, res.stream().map( ReservedValue::getValue ).distinct().count() );
+        assertEquals( 100, reservedValueStore.getCount() );
+    }
+
     @Test
     public void testReserveReserveASequentialValueWhenNotUsed()
         throws Exception
@@ -226,6 +249,44 @@ public class DefaultReservedValueServiceTest
 
     }
 
+    @Test
+    public void testReserveSequentialValuesConcurrently()
+        throws Exception
+    {
+        int threads = 8;
+
+        ExecutorService executor = Executors.newFixedThreadPool( threads );
+        CountDownLatch start = new CountDownLatch( 1 );
+        List<Future<List<ReservedValue>>> futures = new ArrayList<>();
+
+        try
+        {
+            for ( int i = 0; i < threads; i++ )
+            {
+                futures.add( executor.submit( () -> {
+                    start.await();
+                    return reservedValueService.reserve( simpleSequentialTextPattern, 5, new HashMap<>(), future );
+                } ) );
+            }
+
+            start.countDown();
+
+            Set<String> values = new HashSet<>();
+
+            for ( Future<List<ReservedValue>> result : futures )
+            {
+                result.get( 30, TimeUnit.SECONDS ).forEach( rv -> values.add( rv.getValue() ) );
+            }
+
+            assertEquals( threads * 5, values.size() );
+            assertEquals( threads * 5, reservedValueStore.getCount() );
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
     @Test
     public void testReserveReserveTooManySequentialValuesWhenNoneExists()
         throws Exception
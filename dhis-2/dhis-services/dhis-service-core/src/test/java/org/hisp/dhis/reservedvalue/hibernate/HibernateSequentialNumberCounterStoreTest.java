@@ -65,6 +65,20 @@ public class HibernateSequentialNumberCounterStoreTest
 
     }
 
+    @Test
+    public void getNextValuesForSeparateCounters()
+    {
+        assertEquals( 1, store.getNextValues( "ABC", "ABC-#", 10 ).get( 0 ).intValue() );
+        assertEquals( 1, store.getNextValues( "DEF", "ABC-#", 5 ).get( 0 ).intValue() );
+        assertEquals( 1, store.getNextValues( "ABC", "ABC-##", 5 ).get( 0 ).intValue() );
+
+        List<Integer> result = store.getNextValues( "ABC", "ABC-#", 2 );
+
+        assertEquals( 2, result.size() );
+        assertEquals( 11, result.get( 0 ).intValue() );
+        assertEquals( 12, result.get( 1 ).intValue() );
+    }
+
     @Test
     public void deleteCounter()
     {
@@ -72,6 +72,8 @@ public class ImportOptions
 
     private boolean skipAudit;
 
+    private boolean pipelined;
+
     private boolean datasetAllowsPeriods;
 
     private boolean strictPeriods;
@@ -126,6 +128,7 @@ public class ImportOptions
         options.importStrategy = this.importStrategy;
         options.mergeMode = this.mergeMode;
         options.skipExistingCheck = this.skipExistingCheck;
+        options.pipelined = this.pipelined;
         options.sharing = this.sharing;
         options.skipNotifications = this.skipNotifications;
         options.datasetAllowsPeriods = this.datasetAllowsPeriods;
@@ -289,6 +292,17 @@ public class ImportOptions
         return skipAudit;
     }
 
+    /**
+     * Indicates whether data values are parsed, validated and written on
+     * separate threads, so that the stages of the import overlap.
+     */
+    @JsonProperty
+    @JacksonXmlProperty( namespace = DxfNamespaces.DXF_2_0 )
+    public boolean isPipelined()
+    {
+        return pipelined;
+    }
+
     @JsonProperty
     @JacksonXmlProperty( namespace = DxfNamespaces.DXF_2_0 )
     public boolean isStrictPeriods()
@@ -516,6 +530,12 @@ public class ImportOptions
         this.skipAudit = skipAudit;
     }
 
+    public ImportOptions setPipelined( boolean pipelined )
+    {
+        this.pipelined = pipelined;
+        return this;
+    }
+
     public ImportOptions setStrictPeriods( boolean strictPeriods )
     {
         this.strictPeriods = strictPeriods;
@@ -611,6 +631,7 @@ public class ImportOptions
             .add( "importStrategy", importStrategy )
             .add( "mergeMode", mergeMode )
             .add( "skipExistingCheck", skipExistingCheck )
+            .add( "pipelined", pipelined )
             .add( "ignoreEmptyCollection", ignoreEmptyCollection )
             .add( "sharing", sharing )
             .add( "skipNotifications", skipNotifications )
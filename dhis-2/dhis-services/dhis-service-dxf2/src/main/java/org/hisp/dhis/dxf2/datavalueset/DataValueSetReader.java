@@ -0,0 +1,285 @@
+package org.hisp.dhis.dxf2.datavalueset;
+
+/*
+ * Copyright (c) 2004-2019, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hisp.dhis.dxf2.datavalue.DataValue;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Reads the data values of a {@link DataValueSet} one by one. The sequential
+ * reader parses data values on the calling thread as they are requested. The
+ * pipelined reader parses data values on a separate thread into a bounded queue
+ * of batches, so that parsing overlaps with the processing of the data values.
+ * Data values returned by the pipelined reader are detached copies, as streaming
+ * data values read lazily from the underlying stream.
+ */
+abstract class DataValueSetReader
+    implements Iterator<DataValue>, AutoCloseable
+{
+    private static final Log log = LogFactory.getLog( DataValueSetReader.class );
+
+    /**
+     * Returns a reader which parses data values on the calling thread.
+     *
+     * @param dataValueSet the {@link DataValueSet}.
+     */
+    static DataValueSetReader sequential( DataValueSet dataValueSet )
+    {
+        return new SequentialReader( dataValueSet );
+    }
+
+    /**
+     * Returns a reader which parses data values on a separate thread.
+     *
+     * @param dataValueSet the {@link DataValueSet}.
+     * @param batchSize the number of data values per batch.
+     * @param capacity the max number of parsed batches waiting to be read.
+     */
+    static DataValueSetReader pipelined( DataValueSet dataValueSet, int batchSize, int capacity )
+    {
+        return new PipelinedReader( dataValueSet, batchSize, capacity );
+    }
+
+    /**
+     * Stops parsing. Does not close the underlying data value set.
+     */
+    @Override
+    public void close()
+    {
+    }
+
+    // -------------------------------------------------------------------------
+    // Sequential reader
+    // -------------------------------------------------------------------------
+
+    private static class SequentialReader
+        extends DataValueSetReader
+    {
+        private final DataValueSet dataValueSet;
+
+        /**
+         * Result of the last look-ahead, null if the next data value has not
+         * been looked for. Streaming data value sets advance the stream on every
+         * look-ahead, so it must happen exactly once per data value.
+         */
+        private Boolean hasNext;
+
+        SequentialReader( DataValueSet dataValueSet )
+        {
+            this.dataValueSet = dataValueSet;
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            if ( hasNext == null )
+            {
+                hasNext = dataValueSet.hasNextDataValue();
+            }
+
+            return hasNext;
+        }
+
+        @Override
+        public DataValue next()
+        {
+            if ( !hasNext() )
+            {
+                throw new NoSuchElementException();
+            }
+
+            hasNext = null;
+
+            return dataValueSet.getNextDataValue();
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Pipelined reader
+    // -------------------------------------------------------------------------
+
+    private static class PipelinedReader
+        extends DataValueSetReader
+    {
+        private static final List<DataValue> END_OF_STREAM = Collections.emptyList();
+
+        private final BlockingQueue<List<DataValue>> queue;
+
+        private final ExecutorService executor;
+
+        private volatile RuntimeException failure;
+
+        private Iterator<DataValue> batch = Collections.emptyIterator();
+
+        private boolean ended;
+
+        PipelinedReader( DataValueSet dataValueSet, int batchSize, int capacity )
+        {
+            this.queue = new ArrayBlockingQueue<>( capacity );
+            this.executor = Executors.newSingleThreadExecutor(
+                new ThreadFactoryBuilder().setNameFormat( "data-value-set-parser-%d" ).setDaemon( true ).build() );
+
+            this.executor.execute( () -> parse( dataValueSet, batchSize ) );
+        }
+
+        private void parse( DataValueSet dataValueSet, int batchSize )
+        {
+            try
+            {
+                List<DataValue> values = new ArrayList<>( batchSize );
+
+                while ( dataValueSet.hasNextDataValue() )
+                {
+                    values.add( copyOf( dataValueSet.getNextDataValue() ) );
+
+                    if ( values.size() >= batchSize )
+                    {
+                        queue.put( values );
+                        values = new ArrayList<>( batchSize );
+                    }
+                }
+
+                if ( !values.isEmpty() )
+                {
+                    queue.put( values );
+                }
+            }
+            catch ( InterruptedException ex )
+            {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            catch ( RuntimeException ex )
+            {
+                log.warn( "Failed to parse data value set", ex );
+
+                failure = ex;
+            }
+
+            try
+            {
+                queue.put( END_OF_STREAM );
+            }
+            catch ( InterruptedException ex )
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            while ( !batch.hasNext() && !ended )
+            {
+                List<DataValue> values = take();
+
+                if ( values == END_OF_STREAM )
+                {
+                    ended = true;
+                }
+                else
+                {
+                    batch = values.iterator();
+                }
+            }
+
+            if ( ended && failure != null )
+            {
+                throw failure;
+            }
+
+            return batch.hasNext();
+        }
+
+        @Override
+        public DataValue next()
+        {
+            if ( !hasNext() )
+            {
+                throw new NoSuchElementException();
+            }
+
+            return batch.next();
+        }
+
+        @Override
+        public void close()
+        {
+            executor.shutdownNow();
+        }
+
+        private List<DataValue> take()
+        {
+            try
+            {
+                return queue.take();
+            }
+            catch ( InterruptedException ex )
+            {
+                Thread.currentThread().interrupt();
+
+                throw new IllegalStateException( "Interrupted while reading data value set", ex );
+            }
+        }
+
+        /**
+         * Returns a detached copy of the given data value.
+         */
+        private static DataValue copyOf( DataValue value )
+        {
+            DataValue copy = new DataValue();
+            copy.setDataElement( value.getDataElement() );
+            copy.setPeriod( value.getPeriod() );
+            copy.setOrgUnit( value.getOrgUnit() );
+            copy.setCategoryOptionCombo( value.getCategoryOptionCombo() );
+            copy.setAttributeOptionCombo( value.getAttributeOptionCombo() );
+            copy.setValue( value.getValue() );
+            copy.setStoredBy( value.getStoredBy() );
+            copy.setCreated( value.getCreated() );
+            copy.setLastUpdated( value.getLastUpdated() );
+            copy.setComment( value.getComment() );
+            copy.setFollowup( value.getFollowup() );
+            copy.setDeleted( value.getDeleted() );
+            return copy;
+        }
+    }
+}
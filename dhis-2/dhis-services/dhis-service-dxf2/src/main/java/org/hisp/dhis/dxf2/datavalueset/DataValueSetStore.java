@@ -30,10 +30,13 @@ package org.hisp.dhis.dxf2.datavalueset;
 
 import org.hisp.dhis.common.IdSchemes;
 import org.hisp.dhis.datavalue.DataExportParams;
+import org.hisp.dhis.datavalue.DataValue;
 
 import java.io.OutputStream;
 import java.io.Writer;
+import java.util.Collection;
 import java.util.Date;
+import java.util.Map;
 
 /**
  * @author Lars Helge Overland
@@ -66,4 +69,17 @@ public interface DataValueSetStore
      */
     void writeDataValueSetJson( Date lastUpdated, OutputStream outputStream, IdSchemes idSchemes, int pageSize,
         int page );
+
+    /**
+     * Returns the persisted data values which match the given data values on
+     * data element, period, organisation unit, category option combo and
+     * attribute option combo. Only the exact keys of the given data values are
+     * queried, in partitions of bounded size. The persisted data values
+     * have the value, stored by, comment, follow-up and deleted properties set.
+     *
+     * @param dataValues the data values to look up.
+     * @return a mapping from the given data values to their persisted counterparts,
+     *         with no entry for data values which are not persisted.
+     */
+    Map<DataValue, DataValue> getPersistedDataValues( Collection<DataValue> dataValues );
 }
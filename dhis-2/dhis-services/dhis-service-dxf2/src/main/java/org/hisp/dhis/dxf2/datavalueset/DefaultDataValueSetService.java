@@ -39,11 +39,17 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Writer;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.BooleanUtils;
@@ -59,6 +65,7 @@ import org.hisp.dhis.common.IdScheme;
 import org.hisp.dhis.common.IdSchemes;
 import org.hisp.dhis.common.IdentifiableObjectManager;
 import org.hisp.dhis.common.IdentifiableProperty;
+import org.hisp.dhis.common.IdentifierIndex;
 import org.hisp.dhis.common.IllegalQueryException;
 import org.hisp.dhis.commons.collection.CachingMap;
 import org.hisp.dhis.commons.util.DebugUtils;
@@ -109,6 +116,7 @@ import org.hisp.dhis.setting.SettingKey;
 import org.hisp.dhis.setting.SystemSettingManager;
 import org.hisp.dhis.system.callable.CategoryOptionComboAclCallable;
 import org.hisp.dhis.system.callable.IdentifiableObjectCallable;
+import org.hisp.dhis.system.callable.IdentifierIndexCallable;
 import org.hisp.dhis.system.callable.PeriodCallable;
 import org.hisp.dhis.system.notification.NotificationLevel;
 import org.hisp.dhis.system.notification.Notifier;
@@ -124,6 +132,7 @@ import org.hisp.quick.BatchHandlerFactory;
 import org.hisp.staxwax.factory.XMLFactory;
 
 import com.csvreader.CsvReader;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -140,9 +149,14 @@ public class DefaultDataValueSetService
 
     private static final String ERROR_OBJECT_NEEDED_TO_COMPLETE = "Must be provided to complete data set";
     private static final int CACHE_MISS_THRESHOLD = 250;
+    private static final int DATA_VALUE_CHUNK_SIZE = 5000;
+    private static final int PIPELINE_BATCH_SIZE = 1000;
+    private static final int PIPELINE_CAPACITY = 10;
 
     private final IdentifiableObjectManager identifiableObjectManager;
 
+    private final IdentifierIndex identifierIndex;
+
     private final CategoryService categoryService;
 
     private final OrganisationUnitService organisationUnitService;
@@ -180,7 +194,7 @@ public class DefaultDataValueSetService
     private AggregateAccessManager accessManager;
 
     public DefaultDataValueSetService( IdentifiableObjectManager identifiableObjectManager,
-        CategoryService categoryService, OrganisationUnitService organisationUnitService, PeriodService periodService,
+        IdentifierIndex identifierIndex, CategoryService categoryService, OrganisationUnitService organisationUnitService, PeriodService periodService,
         DataApprovalService approvalService, BatchHandlerFactory batchHandlerFactory,
         CompleteDataSetRegistrationService registrationService, CurrentUserService currentUserService,
         DataValueSetStore dataValueSetStore, SystemSettingManager systemSettingManager,
@@ -189,6 +203,7 @@ public class DefaultDataValueSetService
         AclService aclService, AggregateAccessManager accessManager )
     {
         checkNotNull( identifiableObjectManager );
+        checkNotNull( identifierIndex );
         checkNotNull( categoryService );
         checkNotNull( organisationUnitService );
         checkNotNull( periodService );
@@ -209,6 +224,7 @@ public class DefaultDataValueSetService
         checkNotNull( accessManager );
 
         this.identifiableObjectManager = identifiableObjectManager;
+        this.identifierIndex = identifierIndex;
         this.categoryService = categoryService;
         this.organisationUnitService = organisationUnitService;
         this.periodService = periodService;
@@ -786,16 +802,19 @@ public class DefaultDataValueSetService
         // Get meta-data maps
         // ---------------------------------------------------------------------
 
-        IdentifiableObjectCallable<DataElement> dataElementCallable = new IdentifiableObjectCallable<>(
-            identifiableObjectManager, DataElement.class, dataElementIdScheme, null );
-        IdentifiableObjectCallable<OrganisationUnit> orgUnitCallable = new IdentifiableObjectCallable<>(
-            identifiableObjectManager, OrganisationUnit.class, orgUnitIdScheme, trimToNull( dataValueSet.getOrgUnit() ) );
+        IdentifiableObjectCallable<DataElement> dataElementCallable = new IdentifierIndexCallable<>(
+            identifierIndex, DataElement.class, dataElementIdScheme, null );
+        IdentifiableObjectCallable<OrganisationUnit> orgUnitCallable = new IdentifierIndexCallable<>(
+            identifierIndex, OrganisationUnit.class, orgUnitIdScheme, trimToNull( dataValueSet.getOrgUnit() ) );
         IdentifiableObjectCallable<CategoryOptionCombo> categoryOptionComboCallable = new CategoryOptionComboAclCallable(
             categoryService, categoryOptComboIdScheme, null );
         IdentifiableObjectCallable<CategoryOptionCombo> attributeOptionComboCallable = new CategoryOptionComboAclCallable(
             categoryService, categoryOptComboIdScheme, null );
         IdentifiableObjectCallable<Period> periodCallable = new PeriodCallable( periodService, null, trimToNull( dataValueSet.getPeriod() ) );
 
+        boolean dataElementIndexed = identifierIndex.isIndexed( dataElementIdScheme );
+        boolean orgUnitIndexed = identifierIndex.isIndexed( orgUnitIdScheme );
+
         // ---------------------------------------------------------------------
         // Heat caches
         // ---------------------------------------------------------------------
@@ -892,9 +911,6 @@ public class DefaultDataValueSetService
         BatchHandler<DataValue> dataValueBatchHandler = batchHandlerFactory.createBatchHandler( DataValueBatchHandler.class ).init();
         BatchHandler<DataValueAudit> auditBatchHandler = batchHandlerFactory.createBatchHandler( DataValueAuditBatchHandler.class ).init();
 
-        int importCount = 0;
-        int updateCount = 0;
-        int deleteCount = 0;
         int totalCount = 0;
 
         // ---------------------------------------------------------------------
@@ -906,477 +922,404 @@ public class DefaultDataValueSetService
         clock.logTime( "Validated outer meta-data" );
         notifier.notify( id, notificationLevel, "Importing data values" );
 
-        while ( dataValueSet.hasNextDataValue() )
-        {
-            org.hisp.dhis.dxf2.datavalue.DataValue dataValue = dataValueSet.getNextDataValue();
-
-            totalCount++;
-
-            final DataElement dataElement =
-                dataElementMap.get( trimToNull( dataValue.getDataElement() ), dataElementCallable.setId( trimToNull( dataValue.getDataElement() ) ) );
-            final Period period = outerPeriod != null ? outerPeriod :
-                periodMap.get( trimToNull( dataValue.getPeriod() ), periodCallable.setId( trimToNull( dataValue.getPeriod() ) ) );
-            final OrganisationUnit orgUnit = outerOrgUnit != null ? outerOrgUnit :
-                orgUnitMap.get( trimToNull( dataValue.getOrgUnit() ), orgUnitCallable.setId( trimToNull( dataValue.getOrgUnit() ) ) );
-            CategoryOptionCombo categoryOptionCombo =
-                optionComboMap.get( trimToNull( dataValue.getCategoryOptionCombo() ), categoryOptionComboCallable.setId( trimToNull( dataValue.getCategoryOptionCombo() ) ) );
-            CategoryOptionCombo attrOptionCombo = outerAttrOptionCombo != null ? outerAttrOptionCombo :
-                optionComboMap.get( trimToNull( dataValue.getAttributeOptionCombo() ), attributeOptionComboCallable.setId( trimToNull( dataValue.getAttributeOptionCombo() ) ) );
-
-            // -----------------------------------------------------------------
-            // Potentially heat caches
-            // -----------------------------------------------------------------
-
-            if ( !dataElementMap.isCacheLoaded() && dataElementMap.getCacheMissCount() > CACHE_MISS_THRESHOLD )
-            {
-                dataElementMap.load( identifiableObjectManager.getAll( DataElement.class ), o -> o.getPropertyValue( dataElementIdScheme ) );
-
-                log.info( "Data element cache heated after cache miss threshold reached" );
-            }
-
-            if ( !orgUnitMap.isCacheLoaded() && orgUnitMap.getCacheMissCount() > CACHE_MISS_THRESHOLD )
-            {
-                orgUnitMap.load( identifiableObjectManager.getAll( OrganisationUnit.class ), o -> o.getPropertyValue( orgUnitIdScheme ) );
-
-                log.info( "Org unit cache heated after cache miss threshold reached" );
-            }
-
-            if ( !optionComboMap.isCacheLoaded() && optionComboMap.getCacheMissCount() > CACHE_MISS_THRESHOLD )
-            {
-                optionComboMap.load( identifiableObjectManager.getAll( CategoryOptionCombo.class ), o -> o.getPropertyValue(
-                    categoryOptComboIdScheme ) );
+        DataValueChunkWriter chunkWriter = new DataValueChunkWriter( dataValueSetStore, dataValueBatchHandler,
+            auditBatchHandler, strategy, dryRun, skipExistingCheck, skipAudit );
 
-                log.info( "Category Option Combo cache heated after cache miss threshold reached" );
-            }
-
-            // -----------------------------------------------------------------
-            // Validation
-            // -----------------------------------------------------------------
+        DataValueSetReader reader = importOptions.isPipelined() ?
+            DataValueSetReader.pipelined( dataValueSet, PIPELINE_BATCH_SIZE, PIPELINE_CAPACITY ) :
+            DataValueSetReader.sequential( dataValueSet );
 
-            if ( dataElement == null )
-            {
-                summary.getConflicts().add( new ImportConflict( dataValue.getDataElement(), "Data element not found or not accessible" ) );
-                continue;
-            }
+        ExecutorService writeExecutor = importOptions.isPipelined() ? Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setNameFormat( "data-value-set-writer-%d" ).setDaemon( true ).build() ) : null;
 
-            if ( period == null )
-            {
-                summary.getConflicts().add( new ImportConflict( dataValue.getPeriod(), "Period not valid" ) );
-                continue;
-            }
+        Future<?> pendingWrite = null;
 
-            if ( orgUnit == null )
-            {
-                summary.getConflicts().add( new ImportConflict( dataValue.getOrgUnit(), "Organisation unit not found or not accessible" ) );
-                continue;
-            }
-
-            if ( categoryOptionCombo == null && trimToNull( dataValue.getCategoryOptionCombo() ) != null )
-            {
-                summary.getConflicts().add( new ImportConflict( dataValue.getCategoryOptionCombo(), "Category option combo not found or not accessible for writing data" ) );
-                continue;
-            }
-
-            if ( categoryOptionCombo != null )
-            {
-                List<String> errors = accessManager.canWrite( currentUser, categoryOptionCombo );
-
-                if ( !errors.isEmpty() )
-                {
-                    summary.getConflicts().addAll( errors.stream().map( s -> new ImportConflict( "dataValueSet", s ) ).collect( Collectors.toList() ) );
-                    continue;
-                }
-            }
-
-            if ( attrOptionCombo == null && trimToNull( dataValue.getAttributeOptionCombo() ) != null )
-            {
-                summary.getConflicts().add( new ImportConflict( dataValue.getAttributeOptionCombo(), "Attribute option combo not found or not accessible for writing data" ) );
-                continue;
-            }
-
-            if ( attrOptionCombo != null )
+        try
+        {
+            while ( reader.hasNext() )
             {
-                List<String> errors = accessManager.canWrite( currentUser, attrOptionCombo );
+                List<ImportableDataValue> chunk = new ArrayList<>();
 
-                if ( !errors.isEmpty() )
+                while ( chunk.size() < DATA_VALUE_CHUNK_SIZE && reader.hasNext() )
                 {
-                    summary.getConflicts().addAll( errors.stream().map( s -> new ImportConflict( "dataValueSet", s ) ).collect( Collectors.toList() ) );
-                    continue;
-                }
-            }
-
-            boolean inUserHierarchy = orgUnitInHierarchyMap.get( orgUnit.getUid(), () -> orgUnit.isDescendant( currentOrgUnits ) );
-
-            if ( !inUserHierarchy )
-            {
-                summary.getConflicts().add( new ImportConflict( orgUnit.getUid(), "Organisation unit not in hierarchy of current user: " + currentUserName ) );
-                continue;
-            }
+                    org.hisp.dhis.dxf2.datavalue.DataValue dataValue = reader.next();
+
+                    totalCount++;
+
+                    final DataElement dataElement =
+                        dataElementMap.get( trimToNull( dataValue.getDataElement() ), dataElementCallable.setId( trimToNull( dataValue.getDataElement() ) ) );
+                    final Period period = outerPeriod != null ? outerPeriod :
+                        periodMap.get( trimToNull( dataValue.getPeriod() ), periodCallable.setId( trimToNull( dataValue.getPeriod() ) ) );
+                    final OrganisationUnit orgUnit = outerOrgUnit != null ? outerOrgUnit :
+                        orgUnitMap.get( trimToNull( dataValue.getOrgUnit() ), orgUnitCallable.setId( trimToNull( dataValue.getOrgUnit() ) ) );
+                    CategoryOptionCombo categoryOptionCombo =
+                        optionComboMap.get( trimToNull( dataValue.getCategoryOptionCombo() ), categoryOptionComboCallable.setId( trimToNull( dataValue.getCategoryOptionCombo() ) ) );
+                    CategoryOptionCombo attrOptionCombo = outerAttrOptionCombo != null ? outerAttrOptionCombo :
+                        optionComboMap.get( trimToNull( dataValue.getAttributeOptionCombo() ), attributeOptionComboCallable.setId( trimToNull( dataValue.getAttributeOptionCombo() ) ) );
+
+                    // ---------------------------------------------------------
+                    // Potentially heat caches, not needed for objects resolved
+                    // through the identifier index
+                    // ---------------------------------------------------------
+
+                    if ( !dataElementIndexed && !dataElementMap.isCacheLoaded() && dataElementMap.getCacheMissCount() > CACHE_MISS_THRESHOLD )
+                    {
+                        dataElementMap.load( identifiableObjectManager.getAll( DataElement.class ), o -> o.getPropertyValue( dataElementIdScheme ) );
 
-            if ( dataValue.isNullValue() && !dataValue.isDeletedValue() )
-            {
-                summary.getConflicts().add( new ImportConflict( "Value", "Data value or comment not specified for data element: " + dataElement.getUid() ) );
-                continue;
-            }
+                        log.info( "Data element cache heated after cache miss threshold reached" );
+                    }
 
-            dataValue.setValueForced(
-                ValidationUtils.normalizeBoolean( dataValue.getValue(), dataElement.getValueType() ) );
+                    if ( !orgUnitIndexed && !orgUnitMap.isCacheLoaded() && orgUnitMap.getCacheMissCount() > CACHE_MISS_THRESHOLD )
+                    {
+                        orgUnitMap.load( identifiableObjectManager.getAll( OrganisationUnit.class ), o -> o.getPropertyValue( orgUnitIdScheme ) );
 
-            String valueValid = ValidationUtils.dataValueIsValid( dataValue.getValue(), dataElement );
+                        log.info( "Org unit cache heated after cache miss threshold reached" );
+                    }
 
-            if ( valueValid != null )
-            {
-                summary.getConflicts().add( new ImportConflict( dataValue.getValue(), i18n.getString( valueValid ) + ", must match data element type: " + dataElement.getUid() ) );
-                continue;
-            }
+                    if ( !optionComboMap.isCacheLoaded() && optionComboMap.getCacheMissCount() > CACHE_MISS_THRESHOLD )
+                    {
+                        optionComboMap.load( identifiableObjectManager.getAll( CategoryOptionCombo.class ), o -> o.getPropertyValue(
+                            categoryOptComboIdScheme ) );
 
-            String commentValid = ValidationUtils.commentIsValid( dataValue.getComment() );
+                        log.info( "Category Option Combo cache heated after cache miss threshold reached" );
+                    }
 
-            if ( commentValid != null )
-            {
-                summary.getConflicts().add( new ImportConflict( "Comment", i18n.getString( commentValid ) ) );
-                continue;
-            }
+                    // ---------------------------------------------------------
+                    // Validation
+                    // ---------------------------------------------------------
 
-            Optional<Set<String>> optionCodes = dataElementOptionsMap.get( dataElement.getUid(), () -> dataElement.hasOptionSet() ?
-                Optional.of( dataElement.getOptionSet().getOptionCodesAsSet() ) : Optional.empty() );
+                    if ( dataElement == null )
+                    {
+                        summary.getConflicts().add( new ImportConflict( dataValue.getDataElement(), "Data element not found or not accessible" ) );
+                        continue;
+                    }
 
-            if ( optionCodes.isPresent() && !optionCodes.get().contains( dataValue.getValue() ) )
-            {
-                summary.getConflicts().add( new ImportConflict( dataValue.getValue(), "Data value is not a valid option of the data element option set: " + dataElement.getUid() ) );
-                continue;
-            }
+                    if ( period == null )
+                    {
+                        summary.getConflicts().add( new ImportConflict( dataValue.getPeriod(), "Period not valid" ) );
+                        continue;
+                    }
 
-            // -----------------------------------------------------------------
-            // Constraints
-            // -----------------------------------------------------------------
+                    if ( orgUnit == null )
+                    {
+                        summary.getConflicts().add( new ImportConflict( dataValue.getOrgUnit(), "Organisation unit not found or not accessible" ) );
+                        continue;
+                    }
 
-            if ( categoryOptionCombo == null )
-            {
-                if ( requireCategoryOptionCombo )
-                {
-                    summary.getConflicts().add( new ImportConflict( dataValue.getValue(), "Category option combo is required but is not specified" ) );
-                    continue;
-                }
-                else
-                {
-                    categoryOptionCombo = fallbackCategoryOptionCombo;
-                }
-            }
+                    if ( categoryOptionCombo == null && trimToNull( dataValue.getCategoryOptionCombo() ) != null )
+                    {
+                        summary.getConflicts().add( new ImportConflict( dataValue.getCategoryOptionCombo(), "Category option combo not found or not accessible for writing data" ) );
+                        continue;
+                    }
 
-            if ( attrOptionCombo == null )
-            {
-                if ( requireAttrOptionCombo )
-                {
-                    summary.getConflicts().add( new ImportConflict( dataValue.getValue(), "Attribute option combo is required but is not specified" ) );
-                    continue;
-                }
-                else
-                {
-                    attrOptionCombo = fallbackCategoryOptionCombo;
-                }
-            }
+                    if ( categoryOptionCombo != null )
+                    {
+                        List<String> errors = accessManager.canWrite( currentUser, categoryOptionCombo );
 
-            if ( strictPeriods && !dataElementPeriodTypesMap.get( dataElement.getUid(),
-                    dataElement::getPeriodTypes).contains( period.getPeriodType() ) )
-            {
-                summary.getConflicts().add( new ImportConflict( dataValue.getPeriod(),
-                    "Period type of period: " + period.getIsoDate() + " not valid for data element: " + dataElement.getUid() ) );
-                continue;
-            }
+                        if ( !errors.isEmpty() )
+                        {
+                            summary.getConflicts().addAll( errors.stream().map( s -> new ImportConflict( "dataValueSet", s ) ).collect( Collectors.toList() ) );
+                            continue;
+                        }
+                    }
 
-            if ( strictDataElements && !dataSetDataElements.contains( dataElement ) )
-            {
-                summary.getConflicts().add( new ImportConflict( "DATA_IMPORT_STRICT_DATA_ELEMENTS",
-                    "Data element: " + dataValue.getDataElement() + " is not part of dataset: " + dataSet.getUid() ) );
-                continue;
-            }
+                    if ( attrOptionCombo == null && trimToNull( dataValue.getAttributeOptionCombo() ) != null )
+                    {
+                        summary.getConflicts().add( new ImportConflict( dataValue.getAttributeOptionCombo(), "Attribute option combo not found or not accessible for writing data" ) );
+                        continue;
+                    }
 
-            if ( strictCategoryOptionCombos && !dataElementCategoryOptionComboMap.get( dataElement.getUid(),
-                    dataElement::getCategoryOptionCombos).contains( categoryOptionCombo ) )
-            {
-                summary.getConflicts().add( new ImportConflict( categoryOptionCombo.getUid(),
-                    "Category option combo: " + categoryOptionCombo.getUid() + " must be part of category combo of data element: " + dataElement.getUid() ) );
-                continue;
-            }
+                    if ( attrOptionCombo != null )
+                    {
+                        List<String> errors = accessManager.canWrite( currentUser, attrOptionCombo );
 
-            if ( strictAttrOptionCombos && !dataElementAttrOptionComboMap.get( dataElement.getUid(),
-                    dataElement::getDataSetCategoryOptionCombos).contains( attrOptionCombo ) )
-            {
-                summary.getConflicts().add( new ImportConflict( attrOptionCombo.getUid(),
-                    "Attribute option combo: " + attrOptionCombo.getUid() + " must be part of category combo of data sets of data element: " + dataElement.getUid() ) );
-                continue;
-            }
+                        if ( !errors.isEmpty() )
+                        {
+                            summary.getConflicts().addAll( errors.stream().map( s -> new ImportConflict( "dataValueSet", s ) ).collect( Collectors.toList() ) );
+                            continue;
+                        }
+                    }
 
-            if ( strictOrgUnits && BooleanUtils.isFalse( dataElementOrgUnitMap.get( dataElement.getUid() + orgUnit.getUid(),
-                () -> orgUnit.hasDataElement( dataElement ) ) ) )
-            {
-                summary.getConflicts().add( new ImportConflict( orgUnit.getUid(),
-                    "Data element: " + dataElement.getUid() + " must be assigned through data sets to organisation unit: " + orgUnit.getUid() ) );
-                continue;
-            }
+                    boolean inUserHierarchy = orgUnitInHierarchyMap.get( orgUnit.getUid(), () -> orgUnit.isDescendant( currentOrgUnits ) );
 
-            boolean zeroAndInsignificant = ValidationUtils.dataValueIsZeroAndInsignificant( dataValue.getValue(), dataElement );
+                    if ( !inUserHierarchy )
+                    {
+                        summary.getConflicts().add( new ImportConflict( orgUnit.getUid(), "Organisation unit not in hierarchy of current user: " + currentUserName ) );
+                        continue;
+                    }
 
-            if ( zeroAndInsignificant )
-            {
-                continue; // Ignore value
-            }
+                    if ( dataValue.isNullValue() && !dataValue.isDeletedValue() )
+                    {
+                        summary.getConflicts().add( new ImportConflict( "Value", "Data value or comment not specified for data element: " + dataElement.getUid() ) );
+                        continue;
+                    }
 
-            String storedByValid = ValidationUtils.storedByIsValid( dataValue.getStoredBy() );
+                    dataValue.setValueForced(
+                        ValidationUtils.normalizeBoolean( dataValue.getValue(), dataElement.getValueType() ) );
 
-            if ( storedByValid != null )
-            {
-                summary.getConflicts().add( new ImportConflict( dataValue.getStoredBy(), i18n.getString( storedByValid ) ) );
-                continue;
-            }
+                    String valueValid = ValidationUtils.dataValueIsValid( dataValue.getValue(), dataElement );
 
-            String storedBy = dataValue.getStoredBy() == null || dataValue.getStoredBy().trim().isEmpty() ? currentUserName : dataValue.getStoredBy();
+                    if ( valueValid != null )
+                    {
+                        summary.getConflicts().add( new ImportConflict( dataValue.getValue(), i18n.getString( valueValid ) + ", must match data element type: " + dataElement.getUid() ) );
+                        continue;
+                    }
 
-            final CategoryOptionCombo aoc = attrOptionCombo;
+                    String commentValid = ValidationUtils.commentIsValid( dataValue.getComment() );
 
-            DateRange aocDateRange = attrOptionComboDateRangeMap.get( attrOptionCombo.getUid(), aoc::getDateRange);
+                    if ( commentValid != null )
+                    {
+                        summary.getConflicts().add( new ImportConflict( "Comment", i18n.getString( commentValid ) ) );
+                        continue;
+                    }
 
-            if ( ( aocDateRange.getStartDate() != null && aocDateRange.getStartDate().compareTo( period.getStartDate() ) > 0 )
-                || ( aocDateRange.getEndDate() != null && aocDateRange.getEndDate().compareTo( period.getEndDate() ) < 0 ) )
-            {
-                summary.getConflicts().add( new ImportConflict( orgUnit.getUid(),
-                    "Period: " + period.getIsoDate() + " is not within date range of attribute option combo: " + attrOptionCombo.getUid() ) );
-                continue;
-            }
+                    Optional<Set<String>> optionCodes = dataElementOptionsMap.get( dataElement.getUid(), () -> dataElement.hasOptionSet() ?
+                        Optional.of( dataElement.getOptionSet().getOptionCodesAsSet() ) : Optional.empty() );
 
-            if ( !attrOptionComboOrgUnitMap.get( attrOptionCombo.getUid() + orgUnit.getUid(), () ->
-            {
-                Set<OrganisationUnit> aocOrgUnits = aoc.getOrganisationUnits();
-                return aocOrgUnits == null || orgUnit.isDescendant( aocOrgUnits );
-            } ) )
-            {
-                summary.getConflicts().add( new ImportConflict( orgUnit.getUid(),
-                    "Organisation unit: " + orgUnit.getUid() + " is not valid for attribute option combo: " + attrOptionCombo.getUid() ) );
-                continue;
-            }
+                    if ( optionCodes.isPresent() && !optionCodes.get().contains( dataValue.getValue() ) )
+                    {
+                        summary.getConflicts().add( new ImportConflict( dataValue.getValue(), "Data value is not a valid option of the data element option set: " + dataElement.getUid() ) );
+                        continue;
+                    }
 
-            final DataSet approvalDataSet = dataSet != null ? dataSet : dataElementDataSetMap.get( dataElement.getUid(),
-                    dataElement::getApprovalDataSet);
+                    // ---------------------------------------------------------
+                    // Constraints
+                    // ---------------------------------------------------------
 
-            if ( approvalDataSet != null && !forceDataInput ) // Data element is assigned to at least one data set
-            {
-                if ( dataSetLockedMap.get( approvalDataSet.getUid() + period.getUid() + orgUnit.getUid(),
-                    () -> isLocked( currentUser, approvalDataSet, period, orgUnit, skipLockExceptionCheck ) ) )
-                {
-                    summary.getConflicts().add( new ImportConflict( period.getIsoDate(), "Current date is past expiry days for period " +
-                        period.getIsoDate() + " and data set: " + approvalDataSet.getUid() ) );
-                    continue;
-                }
+                    if ( categoryOptionCombo == null )
+                    {
+                        if ( requireCategoryOptionCombo )
+                        {
+                            summary.getConflicts().add( new ImportConflict( dataValue.getValue(), "Category option combo is required but is not specified" ) );
+                            continue;
+                        }
+                        else
+                        {
+                            categoryOptionCombo = fallbackCategoryOptionCombo;
+                        }
+                    }
 
-                Period latestFuturePeriod = dataElementLatestFuturePeriodMap.get( dataElement.getUid(), dataElement::getLatestOpenFuturePeriod);
+                    if ( attrOptionCombo == null )
+                    {
+                        if ( requireAttrOptionCombo )
+                        {
+                            summary.getConflicts().add( new ImportConflict( dataValue.getValue(), "Attribute option combo is required but is not specified" ) );
+                            continue;
+                        }
+                        else
+                        {
+                            attrOptionCombo = fallbackCategoryOptionCombo;
+                        }
+                    }
 
-                if ( period.isAfter( latestFuturePeriod ) && isIso8601 )
-                {
-                    summary.getConflicts().add( new ImportConflict( period.getIsoDate(), "Period: " +
-                        period.getIsoDate() + " is after latest open future period: " + latestFuturePeriod.getIsoDate() + " for data element: " + dataElement.getUid() ) );
-                    continue;
-                }
+                    if ( strictPeriods && !dataElementPeriodTypesMap.get( dataElement.getUid(),
+                            dataElement::getPeriodTypes).contains( period.getPeriodType() ) )
+                    {
+                        summary.getConflicts().add( new ImportConflict( dataValue.getPeriod(),
+                            "Period type of period: " + period.getIsoDate() + " not valid for data element: " + dataElement.getUid() ) );
+                        continue;
+                    }
 
-                DataApprovalWorkflow workflow = approvalDataSet.getWorkflow();
+                    if ( strictDataElements && !dataSetDataElements.contains( dataElement ) )
+                    {
+                        summary.getConflicts().add( new ImportConflict( "DATA_IMPORT_STRICT_DATA_ELEMENTS",
+                            "Data element: " + dataValue.getDataElement() + " is not part of dataset: " + dataSet.getUid() ) );
+                        continue;
+                    }
 
-                if ( workflow != null )
-                {
-                    final String workflowPeriodAoc = workflow.getUid() + period.getUid() + attrOptionCombo.getUid();
+                    if ( strictCategoryOptionCombos && !dataElementCategoryOptionComboMap.get( dataElement.getUid(),
+                            dataElement::getCategoryOptionCombos).contains( categoryOptionCombo ) )
+                    {
+                        summary.getConflicts().add( new ImportConflict( categoryOptionCombo.getUid(),
+                            "Category option combo: " + categoryOptionCombo.getUid() + " must be part of category combo of data element: " + dataElement.getUid() ) );
+                        continue;
+                    }
 
-                    if ( approvalMap.get( orgUnit.getUid() + workflowPeriodAoc, () ->
+                    if ( strictAttrOptionCombos && !dataElementAttrOptionComboMap.get( dataElement.getUid(),
+                            dataElement::getDataSetCategoryOptionCombos).contains( attrOptionCombo ) )
                     {
-                        DataApproval lowestApproval = DataApproval.getLowestApproval( new DataApproval( null, workflow, period, orgUnit, aoc ) );
+                        summary.getConflicts().add( new ImportConflict( attrOptionCombo.getUid(),
+                            "Attribute option combo: " + attrOptionCombo.getUid() + " must be part of category combo of data sets of data element: " + dataElement.getUid() ) );
+                        continue;
+                    }
 
-                        return lowestApproval != null && lowestApprovalLevelMap.get(
-                            lowestApproval.getDataApprovalLevel().getUid()
-                                + lowestApproval.getOrganisationUnit().getUid() + workflowPeriodAoc,
-                            () -> approvalService.getDataApproval( lowestApproval ) != null );
-                    } ) )
+                    if ( strictOrgUnits && BooleanUtils.isFalse( dataElementOrgUnitMap.get( dataElement.getUid() + orgUnit.getUid(),
+                        () -> orgUnit.hasDataElement( dataElement ) ) ) )
                     {
                         summary.getConflicts().add( new ImportConflict( orgUnit.getUid(),
-                            "Data is already approved for data set: " + approvalDataSet.getUid() + " period: " + period.getIsoDate()
-                                + " organisation unit: " + orgUnit.getUid() + " attribute option combo: " + attrOptionCombo.getUid() ) );
+                            "Data element: " + dataElement.getUid() + " must be assigned through data sets to organisation unit: " + orgUnit.getUid() ) );
                         continue;
                     }
-                }
-            }
 
-            if ( approvalDataSet != null && !forceDataInput && !approvalDataSet.isDataInputPeriodAndDateAllowed( period, new Date() ) )
-            {
-                summary.getConflicts().add( new ImportConflict( orgUnit.getUid(),
-                    "Period: " + period.getIsoDate() + " is not open for this data set at this time: " + approvalDataSet.getUid() ) );
-                continue;
-            }
+                    boolean zeroAndInsignificant = ValidationUtils.dataValueIsZeroAndInsignificant( dataValue.getValue(), dataElement );
 
-            if ( !forceDataInput && !periodOpenForDataElement.get( dataElement.getUid() + period.getIsoDate(), () -> dataElement.isDataInputAllowedForPeriodAndDate( period, new Date() ) ) )
-            {
-                summary.getConflicts().add( new ImportConflict( orgUnit.getUid(), "Period " + period.getName() + " does not conform to the open periods of associated data sets" ) );
-                continue;
-            }
-
-            DataValue actualDataValue = null;
-            if ( strategy.isDelete() && dataElement.isFileType() )
-            {
-                actualDataValue = dataValueService.getDataValue( dataElement, period, orgUnit, categoryOptionCombo, attrOptionCombo );
-                if ( actualDataValue == null )
-                {
-                    summary.getConflicts().add( new ImportConflict( dataElement.getUid(), "No data value for file resource exist for the given combination" ) );
-                    continue;
-                }
-            }
-
-            // -----------------------------------------------------------------
-            // Create data value
-            // -----------------------------------------------------------------
+                    if ( zeroAndInsignificant )
+                    {
+                        continue; // Ignore value
+                    }
 
-            DataValue internalValue = new DataValue();
-
-            internalValue.setDataElement( dataElement );
-            internalValue.setPeriod( period );
-            internalValue.setSource( orgUnit );
-            internalValue.setCategoryOptionCombo( categoryOptionCombo );
-            internalValue.setAttributeOptionCombo( attrOptionCombo );
-            internalValue.setValue( trimToNull( dataValue.getValue() ) );
-            internalValue.setStoredBy( storedBy );
-            internalValue.setCreated( dataValue.hasCreated() ? parseDate( dataValue.getCreated() ) : now );
-            internalValue.setLastUpdated( dataValue.hasLastUpdated() ? parseDate( dataValue.getLastUpdated() ) : now );
-            internalValue.setComment( trimToNull( dataValue.getComment() ) );
-            internalValue.setFollowup( dataValue.getFollowup() );
-            internalValue.setDeleted( BooleanUtils.isTrue( dataValue.getDeleted() ) );
+                    String storedByValid = ValidationUtils.storedByIsValid( dataValue.getStoredBy() );
 
-            // -----------------------------------------------------------------
-            // Save, update or delete data value
-            // -----------------------------------------------------------------
+                    if ( storedByValid != null )
+                    {
+                        summary.getConflicts().add( new ImportConflict( dataValue.getStoredBy(), i18n.getString( storedByValid ) ) );
+                        continue;
+                    }
 
-            DataValue existingValue = !skipExistingCheck ? dataValueBatchHandler.findObject( internalValue ) : null;
+                    String storedBy = dataValue.getStoredBy() == null || dataValue.getStoredBy().trim().isEmpty() ? currentUserName : dataValue.getStoredBy();
 
-            // -----------------------------------------------------------------
-            // Check soft deleted data values on update and import
-            // -----------------------------------------------------------------
+                    final CategoryOptionCombo aoc = attrOptionCombo;
 
-            if ( !skipExistingCheck && existingValue != null && !existingValue.isDeleted() )
-            {
-                if ( strategy.isCreateAndUpdate() || strategy.isUpdate() )
-                {
-                    AuditType auditType = AuditType.UPDATE;
+                    DateRange aocDateRange = attrOptionComboDateRangeMap.get( attrOptionCombo.getUid(), aoc::getDateRange);
 
-                    if ( internalValue.isNullValue() || internalValue.isDeleted() )
+                    if ( ( aocDateRange.getStartDate() != null && aocDateRange.getStartDate().compareTo( period.getStartDate() ) > 0 )
+                        || ( aocDateRange.getEndDate() != null && aocDateRange.getEndDate().compareTo( period.getEndDate() ) < 0 ) )
                     {
-                        internalValue.setDeleted( true );
-
-                        auditType = AuditType.DELETE;
-
-                        deleteCount++;
+                        summary.getConflicts().add( new ImportConflict( orgUnit.getUid(),
+                            "Period: " + period.getIsoDate() + " is not within date range of attribute option combo: " + attrOptionCombo.getUid() ) );
+                        continue;
                     }
-                    else
+
+                    if ( !attrOptionComboOrgUnitMap.get( attrOptionCombo.getUid() + orgUnit.getUid(), () ->
+                    {
+                        Set<OrganisationUnit> aocOrgUnits = aoc.getOrganisationUnits();
+                        return aocOrgUnits == null || orgUnit.isDescendant( aocOrgUnits );
+                    } ) )
                     {
-                        updateCount++;
+                        summary.getConflicts().add( new ImportConflict( orgUnit.getUid(),
+                            "Organisation unit: " + orgUnit.getUid() + " is not valid for attribute option combo: " + attrOptionCombo.getUid() ) );
+                        continue;
                     }
 
-                    if ( !dryRun )
-                    {
-                        dataValueBatchHandler.updateObject( internalValue );
+                    final DataSet approvalDataSet = dataSet != null ? dataSet : dataElementDataSetMap.get( dataElement.getUid(),
+                            dataElement::getApprovalDataSet);
 
-                        if ( !skipAudit )
+                    if ( approvalDataSet != null && !forceDataInput ) // Data element is assigned to at least one data set
+                    {
+                        if ( dataSetLockedMap.get( approvalDataSet.getUid() + period.getUid() + orgUnit.getUid(),
+                            () -> isLocked( currentUser, approvalDataSet, period, orgUnit, skipLockExceptionCheck ) ) )
                         {
-                            DataValueAudit auditValue = new DataValueAudit( internalValue, existingValue.getValue(), storedBy, auditType );
+                            summary.getConflicts().add( new ImportConflict( period.getIsoDate(), "Current date is past expiry days for period " +
+                                period.getIsoDate() + " and data set: " + approvalDataSet.getUid() ) );
+                            continue;
+                        }
+
+                        Period latestFuturePeriod = dataElementLatestFuturePeriodMap.get( dataElement.getUid(), dataElement::getLatestOpenFuturePeriod);
 
-                            auditBatchHandler.addObject( auditValue );
+                        if ( period.isAfter( latestFuturePeriod ) && isIso8601 )
+                        {
+                            summary.getConflicts().add( new ImportConflict( period.getIsoDate(), "Period: " +
+                                period.getIsoDate() + " is after latest open future period: " + latestFuturePeriod.getIsoDate() + " for data element: " + dataElement.getUid() ) );
+                            continue;
                         }
 
-                        if ( dataElement.isFileType() )
+                        DataApprovalWorkflow workflow = approvalDataSet.getWorkflow();
+
+                        if ( workflow != null )
                         {
-                            FileResource fr = fileResourceService.getFileResource( internalValue.getValue() );
+                            final String workflowPeriodAoc = workflow.getUid() + period.getUid() + attrOptionCombo.getUid();
 
-                            fr.setAssigned( true );
+                            if ( approvalMap.get( orgUnit.getUid() + workflowPeriodAoc, () ->
+                            {
+                                DataApproval lowestApproval = DataApproval.getLowestApproval( new DataApproval( null, workflow, period, orgUnit, aoc ) );
 
-                            fileResourceService.updateFileResource( fr );
+                                return lowestApproval != null && lowestApprovalLevelMap.get(
+                                    lowestApproval.getDataApprovalLevel().getUid()
+                                        + lowestApproval.getOrganisationUnit().getUid() + workflowPeriodAoc,
+                                    () -> approvalService.getDataApproval( lowestApproval ) != null );
+                            } ) )
+                            {
+                                summary.getConflicts().add( new ImportConflict( orgUnit.getUid(),
+                                    "Data is already approved for data set: " + approvalDataSet.getUid() + " period: " + period.getIsoDate()
+                                        + " organisation unit: " + orgUnit.getUid() + " attribute option combo: " + attrOptionCombo.getUid() ) );
+                                continue;
+                            }
                         }
-
                     }
-                }
-                else if ( strategy.isDelete() )
-                {
-                    internalValue.setDeleted( true );
 
-                    deleteCount++;
-
-                    if ( !dryRun )
+                    if ( approvalDataSet != null && !forceDataInput && !approvalDataSet.isDataInputPeriodAndDateAllowed( period, new Date() ) )
                     {
-                        if ( dataElement.isFileType() && actualDataValue != null )
-                        {
-                            FileResource fr = fileResourceService.getFileResource( actualDataValue.getValue() );
-
-                            fileResourceService.updateFileResource( fr );
-                        }
+                        summary.getConflicts().add( new ImportConflict( orgUnit.getUid(),
+                            "Period: " + period.getIsoDate() + " is not open for this data set at this time: " + approvalDataSet.getUid() ) );
+                        continue;
+                    }
 
-                        dataValueBatchHandler.updateObject( internalValue );
+                    if ( !forceDataInput && !periodOpenForDataElement.get( dataElement.getUid() + period.getIsoDate(), () -> dataElement.isDataInputAllowedForPeriodAndDate( period, new Date() ) ) )
+                    {
+                        summary.getConflicts().add( new ImportConflict( orgUnit.getUid(), "Period " + period.getName() + " does not conform to the open periods of associated data sets" ) );
+                        continue;
+                    }
 
-                        if ( !skipAudit )
+                    DataValue actualDataValue = null;
+                    if ( strategy.isDelete() && dataElement.isFileType() )
+                    {
+                        actualDataValue = dataValueService.getDataValue( dataElement, period, orgUnit, categoryOptionCombo, attrOptionCombo );
+                        if ( actualDataValue == null )
                         {
-                            DataValueAudit auditValue = new DataValueAudit( internalValue, existingValue.getValue(), storedBy, AuditType.DELETE );
-
-                            auditBatchHandler.addObject( auditValue );
+                            summary.getConflicts().add( new ImportConflict( dataElement.getUid(), "No data value for file resource exist for the given combination" ) );
+                            continue;
                         }
                     }
-                }
-            }
-            else
-            {
-                if ( strategy.isCreateAndUpdate() || strategy.isCreate() )
-                {
-                    if ( !internalValue.isNullValue() ) // Ignore null values
-                    {
-                        if ( existingValue != null && existingValue.isDeleted() )
-                        {
-                            importCount++;
-
-                            if ( !dryRun )
-                            {
-                                dataValueBatchHandler.updateObject( internalValue );
 
-                                if ( dataElement.isFileType() )
-                                {
-                                    FileResource fr = fileResourceService.getFileResource( internalValue.getValue() );
+                    // ---------------------------------------------------------
+                    // Create data value
+                    // ---------------------------------------------------------
+
+                    DataValue internalValue = new DataValue();
+
+                    internalValue.setDataElement( dataElement );
+                    internalValue.setPeriod( period );
+                    internalValue.setSource( orgUnit );
+                    internalValue.setCategoryOptionCombo( categoryOptionCombo );
+                    internalValue.setAttributeOptionCombo( attrOptionCombo );
+                    internalValue.setValue( trimToNull( dataValue.getValue() ) );
+                    internalValue.setStoredBy( storedBy );
+                    internalValue.setCreated( dataValue.hasCreated() ? parseDate( dataValue.getCreated() ) : now );
+                    internalValue.setLastUpdated( dataValue.hasLastUpdated() ? parseDate( dataValue.getLastUpdated() ) : now );
+                    internalValue.setComment( trimToNull( dataValue.getComment() ) );
+                    internalValue.setFollowup( dataValue.getFollowup() );
+                    internalValue.setDeleted( BooleanUtils.isTrue( dataValue.getDeleted() ) );
+
+                    chunk.add( new ImportableDataValue( internalValue, actualDataValue ) );
+                }
 
-                                    fr.setAssigned( true );
+                // -------------------------------------------------------------
+                // Write chunk, overlapping with the next chunk if pipelined
+                // -------------------------------------------------------------
 
-                                    fileResourceService.updateFileResource( fr );
-                                }
-                            }
-                        }
-                        else
-                        {
-                            boolean added = false;
-
-                            if ( !dryRun )
-                            {
-                                added = dataValueBatchHandler.addObject( internalValue );
+                if ( writeExecutor != null )
+                {
+                    awaitWrite( pendingWrite, chunkWriter );
 
-                                if ( added && dataElement.isFileType() )
-                                {
-                                    FileResource fr = fileResourceService.getFileResource( internalValue.getValue() );
+                    pendingWrite = writeExecutor.submit( () -> chunkWriter.write( chunk ) );
+                }
+                else
+                {
+                    chunkWriter.write( chunk );
 
-                                    fr.setAssigned( true );
+                    updateFileResources( chunkWriter );
+                }
+            }
 
-                                    fileResourceService.updateFileResource( fr );
-                                }
-                            }
+            awaitWrite( pendingWrite, chunkWriter );
+        }
+        finally
+        {
+            reader.close();
 
-                            if ( dryRun || added )
-                            {
-                                importCount++;
-                            }
-                        }
-                    }
-                }
+            if ( writeExecutor != null )
+            {
+                writeExecutor.shutdownNow();
             }
         }
 
         dataValueBatchHandler.flush();
         auditBatchHandler.flush();
 
+        int importCount = chunkWriter.getImportCount();
+        int updateCount = chunkWriter.getUpdateCount();
+        int deleteCount = chunkWriter.getDeleteCount();
+
         int ignores = totalCount - importCount - updateCount - deleteCount;
 
         summary.setImportCount( new ImportCount( importCount, updateCount, ignores, deleteCount ) );
@@ -1449,4 +1392,313 @@ public class DefaultDataValueSetService
     {
         return dataSet.isLocked( user, period, null ) && (skipLockExceptionCheck || lockExceptionStore.getCount( dataSet, period, organisationUnit ) == 0L);
     }
+
+    /**
+     * Waits for the given write of a chunk to complete and applies the file
+     * resource updates collected by the writer.
+     *
+     * @param write       the pending write, may be null.
+     * @param chunkWriter the {@link DataValueChunkWriter}.
+     */
+    private void awaitWrite( Future<?> write, DataValueChunkWriter chunkWriter )
+    {
+        if ( write == null )
+        {
+            return;
+        }
+
+        try
+        {
+            write.get();
+        }
+        catch ( InterruptedException ex )
+        {
+            Thread.currentThread().interrupt();
+
+            throw new IllegalStateException( "Interrupted while writing data values", ex );
+        }
+        catch ( ExecutionException ex )
+        {
+            if ( ex.getCause() instanceof RuntimeException )
+            {
+                throw (RuntimeException) ex.getCause();
+            }
+
+            throw new IllegalStateException( "Failed to write data values", ex.getCause() );
+        }
+
+        updateFileResources( chunkWriter );
+    }
+
+    /**
+     * Applies the file resource updates collected by the given writer.
+     *
+     * @param chunkWriter the {@link DataValueChunkWriter}.
+     */
+    private void updateFileResources( DataValueChunkWriter chunkWriter )
+    {
+        for ( String uid : chunkWriter.drainAssignedFileResources() )
+        {
+            FileResource fr = fileResourceService.getFileResource( uid );
+
+            fr.setAssigned( true );
+
+            fileResourceService.updateFileResource( fr );
+        }
+
+        for ( String uid : chunkWriter.drainUpdatedFileResources() )
+        {
+            FileResource fr = fileResourceService.getFileResource( uid );
+
+            fileResourceService.updateFileResource( fr );
+        }
+    }
+
+    /**
+     * Looks up the existing data values of chunks of validated data values and
+     * saves, updates or deletes them through the batch handlers. Does not touch
+     * the Hibernate session, so chunks can be written on a separate thread while
+     * the next chunk is resolved on the calling thread. File resources to update
+     * are collected and must be applied on the calling thread.
+     */
+    private static class DataValueChunkWriter
+    {
+        private final DataValueSetStore dataValueSetStore;
+
+        private final BatchHandler<DataValue> dataValueBatchHandler;
+
+        private final BatchHandler<DataValueAudit> auditBatchHandler;
+
+        private final ImportStrategy strategy;
+
+        private final boolean dryRun;
+
+        private final boolean skipExistingCheck;
+
+        private final boolean skipAudit;
+
+        private final List<String> assignedFileResources = new ArrayList<>();
+
+        private final List<String> updatedFileResources = new ArrayList<>();
+
+        private int importCount = 0;
+
+        private int updateCount = 0;
+
+        private int deleteCount = 0;
+
+        DataValueChunkWriter( DataValueSetStore dataValueSetStore, BatchHandler<DataValue> dataValueBatchHandler,
+            BatchHandler<DataValueAudit> auditBatchHandler, ImportStrategy strategy, boolean dryRun,
+            boolean skipExistingCheck, boolean skipAudit )
+        {
+            this.dataValueSetStore = dataValueSetStore;
+            this.dataValueBatchHandler = dataValueBatchHandler;
+            this.auditBatchHandler = auditBatchHandler;
+            this.strategy = strategy;
+            this.dryRun = dryRun;
+            this.skipExistingCheck = skipExistingCheck;
+            this.skipAudit = skipAudit;
+        }
+
+        void write( List<ImportableDataValue> chunk )
+        {
+            // -----------------------------------------------------------------
+            // Look up existing data values of chunk with a single query
+            // -----------------------------------------------------------------
+
+            Map<DataValue, DataValue> existingValues = Collections.emptyMap();
+
+            if ( !skipExistingCheck )
+            {
+                dataValueBatchHandler.flush();
+
+                existingValues = dataValueSetStore.getPersistedDataValues( chunk.stream()
+                    .map( ImportableDataValue::getDataValue ).collect( Collectors.toList() ) );
+            }
+
+            // -----------------------------------------------------------------
+            // Save, update or delete data values of chunk
+            // -----------------------------------------------------------------
+
+            for ( ImportableDataValue importableValue : chunk )
+            {
+                final DataValue internalValue = importableValue.getDataValue();
+                final DataValue actualDataValue = importableValue.getActualDataValue();
+                final DataElement dataElement = internalValue.getDataElement();
+                final String storedBy = internalValue.getStoredBy();
+
+                DataValue existingValue = existingValues.get( internalValue );
+
+                // -------------------------------------------------------------
+                // Check soft deleted data values on update and import
+                // -------------------------------------------------------------
+
+                if ( !skipExistingCheck && existingValue != null && !existingValue.isDeleted() )
+                {
+                    if ( strategy.isCreateAndUpdate() || strategy.isUpdate() )
+                    {
+                        AuditType auditType = AuditType.UPDATE;
+
+                        if ( internalValue.isNullValue() || internalValue.isDeleted() )
+                        {
+                            internalValue.setDeleted( true );
+
+                            auditType = AuditType.DELETE;
+
+                            deleteCount++;
+                        }
+                        else
+                        {
+                            updateCount++;
+                        }
+
+                        if ( !dryRun )
+                        {
+                            dataValueBatchHandler.updateObject( internalValue );
+
+                            if ( !skipAudit )
+                            {
+                                DataValueAudit auditValue = new DataValueAudit( internalValue, existingValue.getValue(), storedBy, auditType );
+
+                                auditBatchHandler.addObject( auditValue );
+                            }
+
+                            if ( dataElement.isFileType() )
+                            {
+                                assignedFileResources.add( internalValue.getValue() );
+                            }
+
+                        }
+                    }
+                    else if ( strategy.isDelete() )
+                    {
+                        internalValue.setDeleted( true );
+
+                        deleteCount++;
+
+                        if ( !dryRun )
+                        {
+                            if ( dataElement.isFileType() && actualDataValue != null )
+                            {
+                                updatedFileResources.add( actualDataValue.getValue() );
+                            }
+
+                            dataValueBatchHandler.updateObject( internalValue );
+
+                            if ( !skipAudit )
+                            {
+                                DataValueAudit auditValue = new DataValueAudit( internalValue, existingValue.getValue(), storedBy, AuditType.DELETE );
+
+                                auditBatchHandler.addObject( auditValue );
+                            }
+                        }
+                    }
+                }
+                else
+                {
+                    if ( strategy.isCreateAndUpdate() || strategy.isCreate() )
+                    {
+                        if ( !internalValue.isNullValue() ) // Ignore null values
+                        {
+                            if ( existingValue != null && existingValue.isDeleted() )
+                            {
+                                importCount++;
+
+                                if ( !dryRun )
+                                {
+                                    dataValueBatchHandler.updateObject( internalValue );
+
+                                    if ( dataElement.isFileType() )
+                                    {
+                                        assignedFileResources.add( internalValue.getValue() );
+                                    }
+                                }
+                            }
+                            else
+                            {
+                                boolean added = false;
+
+                                if ( !dryRun )
+                                {
+                                    added = dataValueBatchHandler.addObject( internalValue );
+
+                                    if ( added && dataElement.isFileType() )
+                                    {
+                                        assignedFileResources.add( internalValue.getValue() );
+                                    }
+                                }
+
+                                if ( dryRun || added )
+                                {
+                                    importCount++;
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * Returns and clears the UIDs of file resources to mark as assigned.
+         */
+        List<String> drainAssignedFileResources()
+        {
+            List<String> uids = new ArrayList<>( assignedFileResources );
+            assignedFileResources.clear();
+            return uids;
+        }
+
+        /**
+         * Returns and clears the UIDs of file resources to update.
+         */
+        List<String> drainUpdatedFileResources()
+        {
+            List<String> uids = new ArrayList<>( updatedFileResources );
+            updatedFileResources.clear();
+            return uids;
+        }
+
+        int getImportCount()
+        {
+            return importCount;
+        }
+
+        int getUpdateCount()
+        {
+            return updateCount;
+        }
+
+        int getDeleteCount()
+        {
+            return deleteCount;
+        }
+    }
+
+    /**
+     * Data value which passed validation and is awaiting the existence check
+     * and write of its chunk.
+     */
+    private static class ImportableDataValue
+    {
+        private final DataValue dataValue;
+
+        private final DataValue actualDataValue;
+
+        ImportableDataValue( DataValue dataValue, DataValue actualDataValue )
+        {
+            this.dataValue = dataValue;
+            this.actualDataValue = actualDataValue;
+        }
+
+        DataValue getDataValue()
+        {
+            return dataValue;
+        }
+
+        DataValue getActualDataValue()
+        {
+            return actualDataValue;
+        }
+    }
 }
@@ -46,11 +46,19 @@ import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Repository;
 
+import com.google.common.collect.Lists;
+
 import java.io.OutputStream;
 import java.io.Writer;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 import static org.hisp.dhis.common.IdentifiableObjectUtils.getIdentifiers;
 import static org.hisp.dhis.commons.util.TextUtils.getCommaDelimitedString;
@@ -66,6 +74,8 @@ public class SpringDataValueSetStore
 {
     private static final Log log = LogFactory.getLog( SpringDataValueSetStore.class );
 
+    private static final int PERSISTED_DATA_VALUE_PARTITION_SIZE = 1000;
+
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
@@ -197,6 +207,66 @@ public class SpringDataValueSetStore
         dataValueSet.close();
     }
 
+    @Override
+    public Map<org.hisp.dhis.datavalue.DataValue, org.hisp.dhis.datavalue.DataValue> getPersistedDataValues(
+        Collection<org.hisp.dhis.datavalue.DataValue> dataValues )
+    {
+        final Map<org.hisp.dhis.datavalue.DataValue, org.hisp.dhis.datavalue.DataValue> persistedValues = new HashMap<>();
+
+        if ( dataValues.isEmpty() )
+        {
+            return persistedValues;
+        }
+
+        final Map<String, org.hisp.dhis.datavalue.DataValue> keyValueMap = new HashMap<>();
+
+        for ( org.hisp.dhis.datavalue.DataValue dataValue : dataValues )
+        {
+            keyValueMap.put( getDataValueKey( dataValue.getDataElement().getId(), dataValue.getPeriod().getId(),
+                dataValue.getSource().getId(), dataValue.getCategoryOptionCombo().getId(),
+                dataValue.getAttributeOptionCombo().getId() ), dataValue );
+        }
+
+        // Match the exact keys of the data values, as the cross product of
+        // the identifiers would over-fetch for sparse chunks. Keys are matched
+        // through a disjunction, as row value lists are not portable to H2
+
+        List<List<org.hisp.dhis.datavalue.DataValue>> partitions = Lists.partition(
+            new ArrayList<>( keyValueMap.values() ), PERSISTED_DATA_VALUE_PARTITION_SIZE );
+
+        for ( List<org.hisp.dhis.datavalue.DataValue> partition : partitions )
+        {
+            final String sql =
+                "select dv.dataelementid, dv.periodid, dv.sourceid, dv.categoryoptioncomboid, dv.attributeoptioncomboid, " +
+                "dv.value, dv.storedby, dv.comment, dv.followup, dv.deleted " +
+                "from datavalue dv " +
+                "where " + partition.stream().map( SpringDataValueSetStore::getDataValueKeyCondition ).collect( Collectors.joining( " or " ) );
+
+            jdbcTemplate.query( sql, (RowCallbackHandler) rs -> {
+                org.hisp.dhis.datavalue.DataValue dataValue = keyValueMap.get( getDataValueKey( rs.getLong( "dataelementid" ),
+                    rs.getLong( "periodid" ), rs.getLong( "sourceid" ), rs.getLong( "categoryoptioncomboid" ),
+                    rs.getLong( "attributeoptioncomboid" ) ) );
+
+                if ( dataValue != null )
+                {
+                    org.hisp.dhis.datavalue.DataValue persistedValue = new org.hisp.dhis.datavalue.DataValue();
+
+                    persistedValue.setValue( rs.getString( "value" ) );
+                    persistedValue.setStoredBy( rs.getString( "storedby" ) );
+                    persistedValue.setComment( rs.getString( "comment" ) );
+                    persistedValue.setFollowup( rs.getBoolean( "followup" ) );
+                    persistedValue.setDeleted( rs.getBoolean( "deleted" ) );
+
+                    persistedValues.put( dataValue, persistedValue );
+                }
+            } );
+        }
+
+        log.debug( "Found " + persistedValues.size() + " persisted data values for " + dataValues.size() + " data values" );
+
+        return persistedValues;
+    }
+
     //--------------------------------------------------------------------------
     // Supportive methods
     //--------------------------------------------------------------------------
@@ -329,4 +399,19 @@ public class SpringDataValueSetStore
 
         return sql;
     }
+
+    private static String getDataValueKeyCondition( org.hisp.dhis.datavalue.DataValue dataValue )
+    {
+        return "(dv.dataelementid = " + dataValue.getDataElement().getId() +
+            " and dv.periodid = " + dataValue.getPeriod().getId() +
+            " and dv.sourceid = " + dataValue.getSource().getId() +
+            " and dv.categoryoptioncomboid = " + dataValue.getCategoryOptionCombo().getId() +
+            " and dv.attributeoptioncomboid = " + dataValue.getAttributeOptionCombo().getId() + ")";
+    }
+
+    private static String getDataValueKey( long dataElement, long period, long orgUnit, long categoryOptionCombo,
+        long attributeOptionCombo )
+    {
+        return dataElement + "-" + period + "-" + orgUnit + "-" + categoryOptionCombo + "-" + attributeOptionCombo;
+    }
 }
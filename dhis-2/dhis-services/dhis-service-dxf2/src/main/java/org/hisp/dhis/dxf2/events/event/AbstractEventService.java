@@ -139,6 +139,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import static org.hisp.dhis.dxf2.events.event.EventSearchParams.*;
@@ -633,6 +634,27 @@ public abstract class AbstractEventService
         return events;
     }
 
+    @Override
+    public void streamEvents( EventSearchParams params, Consumer<Event> consumer )
+    {
+        validate( params );
+
+        List<OrganisationUnit> organisationUnits = getOrganisationUnits( params );
+
+        User user = currentUserService.getCurrentUser();
+
+        params.handleCurrentUserSelectionMode( user );
+
+        eventStore.streamEvents( params, organisationUnits, Collections.emptyMap(), event -> {
+            if ( trackerOwnershipAccessManager.hasAccess( user,
+                entityInstanceService.getTrackedEntityInstance( event.getTrackedEntityInstance() ),
+                programService.getProgram( event.getProgram() ) ) )
+            {
+                consumer.accept( event );
+            }
+        } );
+    }
+
     @Override
     public Grid getEventsGrid( EventSearchParams params )
     {
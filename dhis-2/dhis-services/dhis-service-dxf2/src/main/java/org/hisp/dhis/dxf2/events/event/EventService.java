@@ -49,6 +49,7 @@ import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * @author Morten Olav Hansen <mortenoh@gmail.com>
@@ -61,6 +62,16 @@ public interface EventService
 
     Events getEvents( EventSearchParams params );
 
+    /**
+     * Streams the events matching the given parameters to the given consumer
+     * without holding the full result in memory. Paging is applied only if
+     * explicitly requested through the parameters.
+     *
+     * @param params the event search parameters.
+     * @param consumer the consumer of events.
+     */
+    void streamEvents( EventSearchParams params, Consumer<Event> consumer );
+
     EventRows getEventRows( EventSearchParams params );
 
     EventSearchParams getFromUrl( String program, String programStage, ProgramStatus programStatus, Boolean followUp,
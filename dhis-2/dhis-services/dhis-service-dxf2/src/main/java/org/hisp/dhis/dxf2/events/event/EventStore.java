@@ -31,6 +31,7 @@ package org.hisp.dhis.dxf2.events.event;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 
 import org.hisp.dhis.dxf2.events.report.EventRow;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
@@ -42,6 +43,20 @@ public interface EventStore
 {
     List<Event> getEvents( EventSearchParams params, List<OrganisationUnit> organisationUnits, Map<String, Set<String>> psdesWithSkipSyncTrue );
 
+    /**
+     * Streams the events matching the given parameters to the given consumer,
+     * one event at a time, without materializing the full result. The events
+     * are read through a database cursor and are not retained after being
+     * handed to the consumer.
+     *
+     * @param params the event search parameters.
+     * @param organisationUnits the organisation units to search in.
+     * @param psdesWithSkipSyncTrue program stage data elements to skip for synchronization.
+     * @param consumer the consumer of events.
+     */
+    void streamEvents( EventSearchParams params, List<OrganisationUnit> organisationUnits,
+        Map<String, Set<String>> psdesWithSkipSyncTrue, Consumer<Event> consumer );
+
     List<Map<String, String>> getEventsGrid( EventSearchParams params, List<OrganisationUnit> organisationUnits );
 
     List<EventRow> getEventRows( EventSearchParams params, List<OrganisationUnit> organisationUnits );
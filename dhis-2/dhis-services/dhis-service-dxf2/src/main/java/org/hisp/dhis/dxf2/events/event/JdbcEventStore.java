@@ -66,11 +66,17 @@ import org.hisp.dhis.user.User;
 import org.hisp.dhis.util.DateUtils;
 import org.hisp.dhis.util.ObjectUtils;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.support.rowset.ResultSetWrappingSqlRowSet;
 import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Repository;
 
 import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
@@ -79,6 +85,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -97,6 +104,8 @@ public class JdbcEventStore
 {
     private static final Log log = LogFactory.getLog( JdbcEventStore.class );
 
+    private static final int STREAMING_FETCH_SIZE = 1000;
+
     private static final Map<String, String> QUERY_PARAM_COL_MAP = ImmutableMap.<String, String>builder()
         .put( "event", "psi_uid" ).put( "program", "p_uid" ).put( "programStage", "ps_uid" )
         .put( "enrollment", "pi_uid" ).put( "enrollmentStatus", "pi_status" ).put( "orgUnit", "ou_uid" )
@@ -148,14 +157,7 @@ public class JdbcEventStore
 
         boolean isSuperUser = isSuper( user );
 
-        if ( !isSuperUser )
-        {
-            params.setAccessiblePrograms( manager.getDataReadAll( Program.class )
-                .stream().map( Program::getUid ).collect( Collectors.toSet() ) );
-
-            params.setAccessibleProgramStages( manager.getDataReadAll( ProgramStage.class )
-                .stream().map( ProgramStage::getUid ).collect( Collectors.toSet() ) );
-        }
+        setAccessiblePrograms( params, isSuperUser );
 
         Map<String, Event> eventUidToEventMap = new HashMap<>( params.getPageSizeWithDefault() );
         List<Event> events = new ArrayList<>();
@@ -183,139 +185,83 @@ public class JdbcEventStore
 
             if ( !eventUidToEventMap.containsKey( psiUid ) )
             {
-                event = new Event();
+                event = mapEvent( rowSet, params, idSchemes, isSuperUser );
                 eventUidToEventMap.put( psiUid, event );
 
-                if ( !params.isSkipEventId() )
-                {
-                    event.setUid( psiUid );
-                    event.setEvent( IdSchemes.getValue( rowSet.getString( "psi_uid" ), rowSet.getString( "psi_code" ),
-                        idSchemes.getProgramStageInstanceIdScheme() ) );
-                }
+                events.add( event );
+            }
+            else
+            {
+                event = eventUidToEventMap.get( psiUid );
 
-                event.setTrackedEntityInstance( rowSet.getString( "tei_uid" ) );
-                event.setStatus( EventStatus.valueOf( rowSet.getString( "psi_status" ) ) );
+                addAttributeCategoryOption( event, rowSet );
+            }
 
-                event.setProgram( IdSchemes.getValue( rowSet.getString( "p_uid" ), rowSet.getString( "p_code" ),
-                    idSchemes.getProgramIdScheme() ) );
-                event.setProgramStage( IdSchemes.getValue( rowSet.getString( "ps_uid" ), rowSet.getString( "ps_code" ),
-                    idSchemes.getProgramStageIdScheme() ) );
-                event.setOrgUnit( IdSchemes.getValue( rowSet.getString( "ou_uid" ), rowSet.getString( "ou_code" ),
-                    idSchemes.getOrgUnitIdScheme() ) );
-                event.setDeleted( rowSet.getBoolean( "psi_deleted" ) );
+            addDataValuesAndNotes( event, rowSet, params, idSchemes, psdesWithSkipSyncTrue, notes );
+        }
 
-                ProgramType programType = ProgramType.fromValue( rowSet.getString( "p_type" ) );
+        if ( params.getCategoryOptionCombo() == null && !isSuperUser )
+        {
+            return events.stream().filter( this::hasAllAttributeCategoryOptions ).collect( Collectors.toList() );
+        }
 
-                if ( programType != ProgramType.WITHOUT_REGISTRATION )
-                {
-                    event.setEnrollment( rowSet.getString( "pi_uid" ) );
-                    event.setEnrollmentStatus( EnrollmentStatus
-                            .fromProgramStatus( ProgramStatus.valueOf( rowSet.getString( "pi_status" ) ) ) );
-                    event.setFollowup( rowSet.getBoolean( "pi_followup" ) );
-                }
+        return events;
+    }
 
-                if ( params.getCategoryOptionCombo() == null && !isSuper( user ) )
-                {
-                    event.setOptionSize( rowSet.getInt( "option_size" ) );
-                }
+    @Override
+    public void streamEvents( EventSearchParams params, List<OrganisationUnit> organisationUnits,
+        Map<String, Set<String>> psdesWithSkipSyncTrue, Consumer<Event> consumer )
+    {
+        User user = currentUserService.getCurrentUser();
 
-                event.setAttributeOptionCombo( rowSet.getString( "coc_categoryoptioncombouid" ) );
-                event.setAttributeCategoryOptions( rowSet.getString( "deco_uid" ) );
-                event.setTrackedEntityInstance( rowSet.getString( "tei_uid" ) );
+        boolean isSuperUser = isSuper( user );
 
-                event.setStoredBy( rowSet.getString( "psi_storedby" ) );
-                event.setOrgUnitName( rowSet.getString( "ou_name" ) );
-                event.setDueDate( DateUtils.getIso8601NoTz( rowSet.getDate( "psi_duedate" ) ) );
-                event.setEventDate( DateUtils.getIso8601NoTz( rowSet.getDate( "psi_executiondate" ) ) );
-                event.setCreated( DateUtils.getIso8601NoTz( rowSet.getDate( "psi_created" ) ) );
-                event.setLastUpdated( DateUtils.getIso8601NoTz( rowSet.getDate( "psi_lastupdated" ) ) );
+        setAccessiblePrograms( params, isSuperUser );
 
-                event.setCompletedBy( rowSet.getString( "psi_completedby" ) );
-                event.setCompletedDate( DateUtils.getIso8601NoTz( rowSet.getDate( "psi_completeddate" ) ) );
+        String sql = buildStreamingSql( params, organisationUnits, user );
 
-                if ( rowSet.getObject( "psi_geometry" ) != null )
-                {
-                    try
-                    {
-                        Geometry geom = new WKTReader().read( rowSet.getString( "psi_geometry" ) );
+        log.debug( "Event streaming query SQL: " + sql );
 
-                        event.setGeometry( geom );
-                        event.setCoordinate( new Coordinate( geom.getCoordinate().x, geom.getCoordinate().y ) );
-                    }
-                    catch ( ParseException e )
-                    {
-                        log.error( "Unable to read geometry for event '" + event.getUid() + "': ", e );
-                    }
-                }
+        IdSchemes idSchemes = ObjectUtils.firstNonNull( params.getIdSchemes(), new IdSchemes() );
 
-                if ( rowSet.getObject( "user_assigned" ) != null )
-                {
-                    event.setAssignedUser( rowSet.getString( "user_assigned" ) );
-                    event.setAssignedUserUsername( rowSet.getString( "user_assigned_username" ) );
-                }
+        StreamingEventRowHandler rowHandler = new StreamingEventRowHandler( params, idSchemes, isSuperUser,
+            psdesWithSkipSyncTrue, consumer );
 
-                events.add( event );
-            }
-            else
-            {
-                event = eventUidToEventMap.get( psiUid );
-                String attributeCategoryCombination = event.getAttributeCategoryOptions();
-                String currentAttributeCategoryCombination = rowSet.getString( "deco_uid" );
+        // PostgreSQL only honours the fetch size, and hence uses a server-side
+        // cursor, when auto-commit is disabled on the connection
 
-                if ( !attributeCategoryCombination.contains( currentAttributeCategoryCombination ) )
-                {
-                    event.setAttributeCategoryOptions(
-                        attributeCategoryCombination + ";" + currentAttributeCategoryCombination );
-                }
+        jdbcTemplate.execute( (ConnectionCallback<Void>) connection -> {
+            boolean autoCommit = connection.getAutoCommit();
+
+            if ( autoCommit )
+            {
+                connection.setAutoCommit( false );
             }
 
-            if ( !org.springframework.util.StringUtils.isEmpty( rowSet.getString( "psi_eventdatavalues" ) ) )
+            try ( Statement statement = connection.createStatement( ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY ) )
             {
-                Set<EventDataValue> eventDataValues = convertEventDataValueJsonIntoSet( rowSet.getString( "psi_eventdatavalues" ) );
-                Map<String, String> dataElementsUidToCode =
-                    getDataElementsUidToCode( eventDataValues, idSchemes.getDataElementIdScheme() );
+                statement.setFetchSize( STREAMING_FETCH_SIZE );
 
-                for( EventDataValue dv : eventDataValues )
+                try ( ResultSet resultSet = statement.executeQuery( sql ) )
                 {
-                    DataValue dataValue = convertEventDataValueIntoDtoDataValue( dv, dataElementsUidToCode,
-                        idSchemes.getDataElementIdScheme() );
-
-                    if ( params.isSynchronizationQuery() )
+                    while ( resultSet.next() )
                     {
-                        if ( psdesWithSkipSyncTrue.containsKey( rowSet.getString( "ps_uid" ) ) &&
-                                psdesWithSkipSyncTrue.get( rowSet.getString( "ps_uid" ) ).contains( dv.getDataElement() ) )
-                        {
-                            dataValue.setSkipSynchronization( true );
-                        }
-                        else
-                        {
-                            dataValue.setSkipSynchronization( false );
-                        }
+                        rowHandler.processRow( resultSet );
                     }
-
-                    event.getDataValues().add( dataValue );
                 }
             }
-
-            if ( rowSet.getString( "psinote_value" ) != null && !notes.contains( rowSet.getString( "psinote_id" ) ) )
+            finally
             {
-                Note note = new Note();
-                note.setNote( rowSet.getString( "psinote_uid" ) );
-                note.setValue( rowSet.getString( "psinote_value" ) );
-                note.setStoredDate( DateUtils.getIso8601NoTz( rowSet.getDate( "psinote_storeddate" ) ) );
-                note.setStoredBy( rowSet.getString( "psinote_storedby" ) );
-
-                event.getNotes().add( note );
-                notes.add( rowSet.getString( "psinote_id" ) );
+                if ( autoCommit )
+                {
+                    connection.setAutoCommit( true );
+                }
             }
-        }
 
-        if ( params.getCategoryOptionCombo() == null && !isSuper( user ) )
-        {
-            return events.stream().filter( ev -> ev.getAttributeCategoryOptions() != null && splitToArray( ev.getAttributeCategoryOptions(), TextUtils.SEMICOLON ).size() == ev.getOptionSize() ).collect( Collectors.toList() );
-        }
+            return null;
+        } );
 
-        return events;
+        rowHandler.flush();
     }
 
     @Override
@@ -356,14 +302,7 @@ public class JdbcEventStore
 
         boolean isSuperUser = isSuper( user );
 
-        if ( !isSuperUser )
-        {
-            params.setAccessiblePrograms( manager.getDataReadAll( Program.class )
-                .stream().map( Program::getUid ).collect( Collectors.toSet() ) );
-
-            params.setAccessibleProgramStages( manager.getDataReadAll( ProgramStage.class )
-                .stream().map( ProgramStage::getUid ).collect( Collectors.toSet() ) );
-        }
+        setAccessiblePrograms( params, isSuperUser );
 
         List<EventRow> eventRows = new ArrayList<>();
 
@@ -474,6 +413,155 @@ public class JdbcEventStore
         return eventRows;
     }
 
+    private void setAccessiblePrograms( EventSearchParams params, boolean isSuperUser )
+    {
+        if ( !isSuperUser )
+        {
+            params.setAccessiblePrograms( manager.getDataReadAll( Program.class )
+                .stream().map( Program::getUid ).collect( Collectors.toSet() ) );
+
+            params.setAccessibleProgramStages( manager.getDataReadAll( ProgramStage.class )
+                .stream().map( ProgramStage::getUid ).collect( Collectors.toSet() ) );
+        }
+    }
+
+    private Event mapEvent( SqlRowSet rowSet, EventSearchParams params, IdSchemes idSchemes, boolean isSuperUser )
+    {
+        Event event = new Event();
+
+        if ( !params.isSkipEventId() )
+        {
+            event.setUid( rowSet.getString( "psi_uid" ) );
+            event.setEvent( IdSchemes.getValue( rowSet.getString( "psi_uid" ), rowSet.getString( "psi_code" ),
+                idSchemes.getProgramStageInstanceIdScheme() ) );
+        }
+
+        event.setTrackedEntityInstance( rowSet.getString( "tei_uid" ) );
+        event.setStatus( EventStatus.valueOf( rowSet.getString( "psi_status" ) ) );
+
+        event.setProgram( IdSchemes.getValue( rowSet.getString( "p_uid" ), rowSet.getString( "p_code" ),
+            idSchemes.getProgramIdScheme() ) );
+        event.setProgramStage( IdSchemes.getValue( rowSet.getString( "ps_uid" ), rowSet.getString( "ps_code" ),
+            idSchemes.getProgramStageIdScheme() ) );
+        event.setOrgUnit( IdSchemes.getValue( rowSet.getString( "ou_uid" ), rowSet.getString( "ou_code" ),
+            idSchemes.getOrgUnitIdScheme() ) );
+        event.setDeleted( rowSet.getBoolean( "psi_deleted" ) );
+
+        ProgramType programType = ProgramType.fromValue( rowSet.getString( "p_type" ) );
+
+        if ( programType != ProgramType.WITHOUT_REGISTRATION )
+        {
+            event.setEnrollment( rowSet.getString( "pi_uid" ) );
+            event.setEnrollmentStatus( EnrollmentStatus
+                    .fromProgramStatus( ProgramStatus.valueOf( rowSet.getString( "pi_status" ) ) ) );
+            event.setFollowup( rowSet.getBoolean( "pi_followup" ) );
+        }
+
+        if ( params.getCategoryOptionCombo() == null && !isSuperUser )
+        {
+            event.setOptionSize( rowSet.getInt( "option_size" ) );
+        }
+
+        event.setAttributeOptionCombo( rowSet.getString( "coc_categoryoptioncombouid" ) );
+        event.setAttributeCategoryOptions( rowSet.getString( "deco_uid" ) );
+        event.setTrackedEntityInstance( rowSet.getString( "tei_uid" ) );
+
+        event.setStoredBy( rowSet.getString( "psi_storedby" ) );
+        event.setOrgUnitName( rowSet.getString( "ou_name" ) );
+        event.setDueDate( DateUtils.getIso8601NoTz( rowSet.getDate( "psi_duedate" ) ) );
+        event.setEventDate( DateUtils.getIso8601NoTz( rowSet.getDate( "psi_executiondate" ) ) );
+        event.setCreated( DateUtils.getIso8601NoTz( rowSet.getDate( "psi_created" ) ) );
+        event.setLastUpdated( DateUtils.getIso8601NoTz( rowSet.getDate( "psi_lastupdated" ) ) );
+
+        event.setCompletedBy( rowSet.getString( "psi_completedby" ) );
+        event.setCompletedDate( DateUtils.getIso8601NoTz( rowSet.getDate( "psi_completeddate" ) ) );
+
+        if ( rowSet.getObject( "psi_geometry" ) != null )
+        {
+            try
+            {
+                Geometry geom = new WKTReader().read( rowSet.getString( "psi_geometry" ) );
+
+                event.setGeometry( geom );
+                event.setCoordinate( new Coordinate( geom.getCoordinate().x, geom.getCoordinate().y ) );
+            }
+            catch ( ParseException e )
+            {
+                log.error( "Unable to read geometry for event '" + event.getUid() + "': ", e );
+            }
+        }
+
+        if ( rowSet.getObject( "user_assigned" ) != null )
+        {
+            event.setAssignedUser( rowSet.getString( "user_assigned" ) );
+            event.setAssignedUserUsername( rowSet.getString( "user_assigned_username" ) );
+        }
+
+        return event;
+    }
+
+    private void addAttributeCategoryOption( Event event, SqlRowSet rowSet )
+    {
+        String attributeCategoryCombination = event.getAttributeCategoryOptions();
+        String currentAttributeCategoryCombination = rowSet.getString( "deco_uid" );
+
+        if ( !attributeCategoryCombination.contains( currentAttributeCategoryCombination ) )
+        {
+            event.setAttributeCategoryOptions(
+                attributeCategoryCombination + ";" + currentAttributeCategoryCombination );
+        }
+    }
+
+    private void addDataValuesAndNotes( Event event, SqlRowSet rowSet, EventSearchParams params, IdSchemes idSchemes,
+        Map<String, Set<String>> psdesWithSkipSyncTrue, Set<String> notes )
+    {
+        if ( !org.springframework.util.StringUtils.isEmpty( rowSet.getString( "psi_eventdatavalues" ) ) )
+        {
+            Set<EventDataValue> eventDataValues = convertEventDataValueJsonIntoSet( rowSet.getString( "psi_eventdatavalues" ) );
+            Map<String, String> dataElementsUidToCode =
+                getDataElementsUidToCode( eventDataValues, idSchemes.getDataElementIdScheme() );
+
+            for( EventDataValue dv : eventDataValues )
+            {
+                DataValue dataValue = convertEventDataValueIntoDtoDataValue( dv, dataElementsUidToCode,
+                    idSchemes.getDataElementIdScheme() );
+
+                if ( params.isSynchronizationQuery() )
+                {
+                    if ( psdesWithSkipSyncTrue.containsKey( rowSet.getString( "ps_uid" ) ) &&
+                            psdesWithSkipSyncTrue.get( rowSet.getString( "ps_uid" ) ).contains( dv.getDataElement() ) )
+                    {
+                        dataValue.setSkipSynchronization( true );
+                    }
+                    else
+                    {
+                        dataValue.setSkipSynchronization( false );
+                    }
+                }
+
+                event.getDataValues().add( dataValue );
+            }
+        }
+
+        if ( rowSet.getString( "psinote_value" ) != null && !notes.contains( rowSet.getString( "psinote_id" ) ) )
+        {
+            Note note = new Note();
+            note.setNote( rowSet.getString( "psinote_uid" ) );
+            note.setValue( rowSet.getString( "psinote_value" ) );
+            note.setStoredDate( DateUtils.getIso8601NoTz( rowSet.getDate( "psinote_storeddate" ) ) );
+            note.setStoredBy( rowSet.getString( "psinote_storedby" ) );
+
+            event.getNotes().add( note );
+            notes.add( rowSet.getString( "psinote_id" ) );
+        }
+    }
+
+    private boolean hasAllAttributeCategoryOptions( Event event )
+    {
+        return event.getAttributeCategoryOptions() != null &&
+            splitToArray( event.getAttributeCategoryOptions(), TextUtils.SEMICOLON ).size() == event.getOptionSize();
+    }
+
     private Map<String, String> getDataElementsUidToCode( Set<EventDataValue> eventDataValues, IdScheme idScheme )
     {
         //Get mapping only when needed
@@ -637,6 +725,16 @@ public class JdbcEventStore
         return sql;
     }
 
+    /**
+     * Query is the same as for {@link #buildSql}, with the event id appended
+     * to the order so that all rows of an event are adjacent. This allows the
+     * rows to be consumed event by event without keeping earlier events.
+     */
+    private String buildStreamingSql( EventSearchParams params, List<OrganisationUnit> organisationUnits, User user )
+    {
+        return buildSql( params, organisationUnits, user ) + ", psi_id ";
+    }
+
     private String getEventSelectQuery( EventSearchParams params, List<OrganisationUnit> organisationUnits, User user )
     {
         List<Long> orgUnitIds = getIdentifiers( organisationUnits );
@@ -1270,4 +1368,86 @@ public class JdbcEventStore
             throw new IllegalArgumentException( e );
         }
     }
+
+    /**
+     * Row callback handler which maps the rows of the event query to events
+     * and hands each event over to a consumer as soon as all of its rows have
+     * been read. Relies on the rows being ordered by event.
+     */
+    private class StreamingEventRowHandler
+        implements RowCallbackHandler
+    {
+        private final EventSearchParams params;
+
+        private final IdSchemes idSchemes;
+
+        private final boolean isSuperUser;
+
+        private final Map<String, Set<String>> psdesWithSkipSyncTrue;
+
+        private final Consumer<Event> consumer;
+
+        private final Set<String> notes = new HashSet<>();
+
+        private SqlRowSet rowSet;
+
+        private String eventUid;
+
+        private Event event;
+
+        StreamingEventRowHandler( EventSearchParams params, IdSchemes idSchemes, boolean isSuperUser,
+            Map<String, Set<String>> psdesWithSkipSyncTrue, Consumer<Event> consumer )
+        {
+            this.params = params;
+            this.idSchemes = idSchemes;
+            this.isSuperUser = isSuperUser;
+            this.psdesWithSkipSyncTrue = psdesWithSkipSyncTrue;
+            this.consumer = consumer;
+        }
+
+        @Override
+        public void processRow( ResultSet resultSet )
+            throws SQLException
+        {
+            if ( rowSet == null )
+            {
+                rowSet = new ResultSetWrappingSqlRowSet( resultSet );
+            }
+
+            if ( rowSet.getString( "psi_uid" ) == null || (params.getCategoryOptionCombo() == null && !isSuperUser && !userHasAccess( rowSet )) )
+            {
+                return;
+            }
+
+            String psiUid = rowSet.getString( "psi_uid" );
+
+            if ( event == null || !psiUid.equals( eventUid ) )
+            {
+                flush();
+
+                event = mapEvent( rowSet, params, idSchemes, isSuperUser );
+                eventUid = psiUid;
+            }
+            else
+            {
+                addAttributeCategoryOption( event, rowSet );
+            }
+
+            addDataValuesAndNotes( event, rowSet, params, idSchemes, psdesWithSkipSyncTrue, notes );
+        }
+
+        /**
+         * Hands over the event currently being read, if any.
+         */
+        void flush()
+        {
+            if ( event != null && (params.getCategoryOptionCombo() != null || isSuperUser || hasAllAttributeCategoryOptions( event )) )
+            {
+                consumer.accept( event );
+            }
+
+            event = null;
+            notes.clear();
+        }
+    }
 }
@@ -29,11 +29,13 @@ package org.hisp.dhis.dxf2.events.event.csv;
  */
 
 import com.vividsolutions.jts.io.ParseException;
+import org.hisp.dhis.dxf2.events.event.Event;
 import org.hisp.dhis.dxf2.events.event.Events;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.function.Consumer;
 
 /**
  * @author Morten Olav Hansen <mortenoh@gmail.com>
@@ -42,6 +44,17 @@ public interface CsvEventService
 {
     void writeEvents( OutputStream outputStream, Events events, boolean withHeader ) throws IOException;
 
+    /**
+     * Writes events to the given output stream as they are produced by the
+     * given event source, without collecting the events in memory first.
+     *
+     * @param outputStream the output stream to write to.
+     * @param eventSource the source which passes each event to the given consumer.
+     * @param withHeader whether to write a header row.
+     */
+    void writeEvents( OutputStream outputStream, Consumer<Consumer<Event>> eventSource, boolean withHeader )
+        throws IOException;
+
     Events readEvents( InputStream inputStream, boolean skipFirst )
         throws IOException, ParseException;
 }
@@ -583,7 +583,7 @@ public class DefaultObjectBundleValidationService implements ObjectBundleValidat
 
                 if ( !p.isCollection() )
                 {
-                    IdentifiableObject refObject = ReflectionUtils.invokeMethod( object, p.getGetterMethod() );
+                    IdentifiableObject refObject = p.getValue( object );
                     IdentifiableObject ref = preheat.get( identifier, refObject );
 
                     if ( ref == null && refObject != null && !preheat.isDefault( refObject ) )
@@ -598,7 +598,7 @@ public class DefaultObjectBundleValidationService implements ObjectBundleValidat
                 else
                 {
                     Collection<IdentifiableObject> objects = ReflectionUtils.newCollectionInstance( p.getKlass() );
-                    Collection<IdentifiableObject> refObjects = ReflectionUtils.invokeMethod( object, p.getGetterMethod() );
+                    Collection<IdentifiableObject> refObjects = p.getValue( object );
 
                     for ( IdentifiableObject refObject : refObjects )
                     {
@@ -617,7 +617,7 @@ public class DefaultObjectBundleValidationService implements ObjectBundleValidat
                         }
                     }
 
-                    ReflectionUtils.invokeMethod( object, p.getSetterMethod(), objects );
+                    p.setValue( object, objects );
                 }
             } );
 
@@ -781,7 +781,7 @@ public class DefaultObjectBundleValidationService implements ObjectBundleValidat
                 uniquenessMap.put( property.getName(), new HashMap<>() );
             }
 
-            Object value = ReflectionUtils.invokeMethod( object, property.getGetterMethod() );
+            Object value = property.getValue( object );
 
             if ( value != null )
             {
@@ -95,11 +95,11 @@ public class EmbeddedObjectObjectBundleHook
                     continue;
                 }
 
-                ( ( Collection<?> ) ReflectionUtils.invokeMethod( object, property.getGetterMethod() ) ).clear();
+                ( ( Collection<?> ) property.getValue( object ) ).clear();
             }
             else
             {
-                ReflectionUtils.invokeMethod( object, property.getSetterMethod(), ( Object ) null );
+                property.setValue( object, null );
             }
         }
     }
@@ -108,7 +108,7 @@ public class EmbeddedObjectObjectBundleHook
     {
         for ( Property property : properties )
         {
-            Object propertyObject =  ReflectionUtils.invokeMethod( object, property.getGetterMethod() );
+            Object propertyObject =  property.getValue( object );
 
             if ( property.isCollection() )
             {
@@ -139,12 +139,12 @@ public class EmbeddedObjectObjectBundleHook
         {
             if ( PeriodType.class.isAssignableFrom( embeddedProperty.getKlass() ) )
             {
-                PeriodType periodType = ReflectionUtils.invokeMethod( o, embeddedProperty.getGetterMethod() );
+                PeriodType periodType = embeddedProperty.getValue( o );
     
                 if ( periodType != null )
                 {
                     periodType = bundle.getPreheat().getPeriodTypeMap().get( periodType.getName() );
-                    ReflectionUtils.invokeMethod( o, embeddedProperty.getSetterMethod(), periodType );
+                    embeddedProperty.setValue( o, periodType );
                 }
             }
         }
@@ -54,6 +54,7 @@ import org.hisp.dhis.dataset.DataSet;
 import org.hisp.dhis.dataset.DataSetService;
 import org.hisp.dhis.datavalue.DataValue;
 import org.hisp.dhis.datavalue.DataValueAudit;
+import org.hisp.dhis.datavalue.DataValueService;
 import org.hisp.dhis.dxf2.common.ImportOptions;
 import org.hisp.dhis.dxf2.importsummary.ImportStatus;
 import org.hisp.dhis.dxf2.importsummary.ImportSummary;
@@ -119,6 +120,9 @@ public class DataValueSetServiceTest
     @Autowired
     private DataValueSetService dataValueSetService;
 
+    @Autowired
+    private DataValueService dataValueService;
+
     @Autowired
     private CompleteDataSetRegistrationService registrationService;
 
@@ -450,6 +454,63 @@ public class DataValueSetServiceTest
         assertImportDataValues( summary );
     }
 
+    @Test
+    public void testImportDataValuesXmlPipelined()
+        throws Exception
+    {
+        in = new ClassPathResource( "datavalueset/dataValueSetB.xml" ).getInputStream();
+
+        ImportOptions importOptions = new ImportOptions().setPipelined( true );
+
+        ImportSummary summary = dataValueSetService.saveDataValueSet( in, importOptions );
+
+        assertEquals( summary.getConflicts().toString(), 0, summary.getConflicts().size() );
+        assertEquals( 12, summary.getImportCount().getImported() );
+        assertEquals( 0, summary.getImportCount().getUpdated() );
+        assertEquals( 0, summary.getImportCount().getDeleted() );
+        assertEquals( 0, summary.getImportCount().getIgnored() );
+        assertEquals( ImportStatus.SUCCESS, summary.getStatus() );
+
+        assertImportDataValues( summary );
+    }
+
+    @Test
+    public void testImportDataValuesXmlMultipleChunks()
+        throws Exception
+    {
+        StringBuilder xml = new StringBuilder( "<dataValueSet xmlns=\"http://dhis2.org/schema/dxf/2.0\">" );
+
+        int count = 0;
+
+        for ( int year = 1950; year <= 2011; year++ )
+        {
+            for ( int month = 1; month <= 12; month++ )
+            {
+                for ( DataElement dataElement : Lists.newArrayList( deA, deB, deC, deD ) )
+                {
+                    for ( OrganisationUnit orgUnit : Lists.newArrayList( ouA, ouB ) )
+                    {
+                        xml.append( String.format( "<dataValue dataElement=\"%s\" period=\"%d%02d\" orgUnit=\"%s\" value=\"%d\"/>",
+                            dataElement.getUid(), year, month, orgUnit.getUid(), ++count ) );
+                    }
+                }
+            }
+        }
+
+        xml.append( "</dataValueSet>" );
+
+        in = new ByteArrayInputStream( xml.toString().getBytes( StandardCharsets.UTF_8 ) );
+
+        ImportSummary summary = dataValueSetService.saveDataValueSet( in );
+
+        assertTrue( count > 5000 );
+        assertEquals( summary.getConflicts().toString(), 0, summary.getConflicts().size() );
+        assertEquals( count, summary.getImportCount().getImported() );
+        assertEquals( 0, summary.getImportCount().getIgnored() );
+        assertEquals( ImportStatus.SUCCESS, summary.getStatus() );
+        assertEquals( count, mockDataValueBatchHandler.getInserts().size() );
+    }
+
     @Test
     public void testImportDataValuesXmlWithCodeB()
         throws Exception
@@ -964,7 +1025,7 @@ public class DataValueSetServiceTest
     public void testImportDataValuesUpdatedAudit()
         throws Exception
     {
-        mockDataValueBatchHandler.withFindSelf( true );
+        addDataValuesOfDataValueSetA();
 
         in = new ClassPathResource( "datavalueset/dataValueSetA.xml" ).getInputStream();
 
@@ -991,7 +1052,7 @@ public class DataValueSetServiceTest
     public void testImportDataValuesUpdatedSkipAudit()
         throws Exception
     {
-        mockDataValueBatchHandler.withFindSelf( true );
+        addDataValuesOfDataValueSetA();
 
         in = new ClassPathResource( "datavalueset/dataValueSetA.xml" ).getInputStream();
 
@@ -1247,4 +1308,17 @@ public class DataValueSetServiceTest
 
         return createPeriod( PeriodType.getByNameIgnoreCase( MonthlyPeriodType.NAME ), monthStart, monthEnd );
     }
+
+    /**
+     * Persists data values with the keys of dataValueSetA.xml, so that importing
+     * the data value set results in updates.
+     */
+    private void addDataValuesOfDataValueSetA()
+    {
+        dataValueService.addDataValue( new DataValue( deA, peA, ouA, ocDef, ocDef, "1" ) );
+        dataValueService.addDataValue( new DataValue( deA, peA, ouB, ocDef, ocDef, "2" ) );
+        dataValueService.addDataValue( new DataValue( deA, peB, ouA, ocDef, ocDef, "3" ) );
+
+        sessionFactory.getCurrentSession().flush();
+    }
 }
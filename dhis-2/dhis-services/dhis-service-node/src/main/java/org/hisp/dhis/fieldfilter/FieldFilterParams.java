@@ -58,6 +58,12 @@ public final class FieldFilterParams
 
     private Defaults defaults = Defaults.INCLUDE;
 
+    /**
+     * Builds the object nodes while the collection node is serialized
+     * instead of up front, so they are not all kept in memory.
+     */
+    private boolean streaming;
+
     public FieldFilterParams( List<?> objects, List<String> fields )
     {
         this.objects = objects;
@@ -132,4 +138,15 @@ public final class FieldFilterParams
     {
         this.skipSharing = skipSharing;
     }
+
+    public boolean isStreaming()
+    {
+        return streaming;
+    }
+
+    public FieldFilterParams setStreaming( boolean streaming )
+    {
+        this.streaming = streaming;
+        return this;
+    }
 }
@@ -125,7 +125,7 @@ public abstract class AbstractNode implements Node
         return parent;
     }
 
-    protected void setParent( Node parent )
+    public void setParent( Node parent )
     {
         this.parent = parent;
     }
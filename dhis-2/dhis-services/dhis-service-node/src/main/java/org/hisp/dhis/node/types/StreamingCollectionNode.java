@@ -0,0 +1,205 @@
+package org.hisp.dhis.node.types;
+
+/*
+ * Copyright (c) 2004-2019, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import org.hisp.dhis.node.AbstractNode;
+import org.hisp.dhis.node.Node;
+
+import java.util.AbstractList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+
+/**
+ * Collection node which builds its children from a list of objects while they
+ * are being iterated, instead of holding all of them in memory. Serializers only
+ * iterate the children, so very large collections can be written one child at
+ * a time. Any other access to the children builds and keeps all of them, after
+ * which this node behaves like a regular collection node.
+ * <p>
+ * Children are returned in the order of the objects, which is the same order
+ * as a regular collection node as long as all children are of the same type.
+ */
+public class StreamingCollectionNode extends CollectionNode
+{
+    private final List<?> objects;
+
+    private final Function<Object, ? extends Node> nodeBuilder;
+
+    private boolean materialized = false;
+
+    /**
+     * @param name        the name of the collection node.
+     * @param objects     the objects to build the children from.
+     * @param nodeBuilder builds the child node for an object, or returns null
+     *                    if the object should be skipped.
+     */
+    public StreamingCollectionNode( String name, List<?> objects, Function<Object, ? extends Node> nodeBuilder )
+    {
+        super( name );
+        this.objects = objects;
+        this.nodeBuilder = nodeBuilder;
+    }
+
+    @Override
+    public List<Node> getChildren()
+    {
+        return materialized ? super.getChildren() : new StreamingChildren();
+    }
+
+    @Override
+    public List<Node> getUnorderedChildren()
+    {
+        materialize();
+
+        return super.getUnorderedChildren();
+    }
+
+    @Override
+    public <T extends Node> T addChild( T child )
+    {
+        materialize();
+
+        return super.addChild( child );
+    }
+
+    @Override
+    public <T extends Node> void removeChild( T child )
+    {
+        materialize();
+
+        super.removeChild( child );
+    }
+
+    @Override
+    public void setChildren( List<Node> children )
+    {
+        materialized = true;
+
+        super.setChildren( children );
+    }
+
+    public boolean isMaterialized()
+    {
+        return materialized;
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private void materialize()
+    {
+        if ( materialized )
+        {
+            return;
+        }
+
+        materialized = true;
+
+        for ( Object object : objects )
+        {
+            super.addChild( nodeBuilder.apply( object ) );
+        }
+    }
+
+    /**
+     * Children view which builds the child nodes while iterating. Access by
+     * index or size needs all children and materializes the node.
+     */
+    private class StreamingChildren extends AbstractList<Node>
+    {
+        @Override
+        public Iterator<Node> iterator()
+        {
+            return materialized ? StreamingCollectionNode.super.getChildren().iterator() : new StreamingIterator();
+        }
+
+        @Override
+        public boolean isEmpty()
+        {
+            return !iterator().hasNext();
+        }
+
+        @Override
+        public Node get( int index )
+        {
+            materialize();
+
+            return StreamingCollectionNode.super.getChildren().get( index );
+        }
+
+        @Override
+        public int size()
+        {
+            materialize();
+
+            return StreamingCollectionNode.super.getChildren().size();
+        }
+    }
+
+    private class StreamingIterator implements Iterator<Node>
+    {
+        private final Iterator<?> objectIterator = objects.iterator();
+
+        private Node next;
+
+        @Override
+        public boolean hasNext()
+        {
+            while ( next == null && objectIterator.hasNext() )
+            {
+                Node node = nodeBuilder.apply( objectIterator.next() );
+
+                if ( node != null && node.getName() != null )
+                {
+                    ((AbstractNode) node).setParent( StreamingCollectionNode.this );
+                    next = node;
+                }
+            }
+
+            return next != null;
+        }
+
+        @Override
+        public Node next()
+        {
+            if ( !hasNext() )
+            {
+                throw new NoSuchElementException();
+            }
+
+            Node node = next;
+            next = null;
+
+            return node;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package org.hisp.dhis.node.types;
+
+/*
+ * Copyright (c) 2004-2019, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+import com.google.common.collect.Lists;
+import org.hisp.dhis.node.Node;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Unit tests for {@link StreamingCollectionNode}.
+ */
+public class StreamingCollectionNodeTest
+{
+    @Test
+    public void iterateChildren()
+    {
+        final AtomicInteger built = new AtomicInteger();
+        final StreamingCollectionNode collectionNode = new StreamingCollectionNode( "tests",
+            Lists.newArrayList( "A", "B", "C" ), object -> {
+                built.incrementAndGet();
+                return new SimpleNode( "id", object );
+            } );
+
+        final List<Object> values = Lists.newArrayList();
+
+        for ( Node node : collectionNode.getChildren() )
+        {
+            Assert.assertSame( collectionNode, node.getParent() );
+            values.add( ((SimpleNode) node).getValue() );
+        }
+
+        Assert.assertEquals( Lists.newArrayList( "A", "B", "C" ), values );
+        Assert.assertEquals( 3, built.get() );
+        Assert.assertFalse( collectionNode.isMaterialized() );
+    }
+
+    @Test
+    public void skipNullChildren()
+    {
+        final StreamingCollectionNode collectionNode = new StreamingCollectionNode( "tests",
+            Lists.newArrayList( "A", "B" ), object -> null );
+
+        Assert.assertTrue( collectionNode.getChildren().isEmpty() );
+        Assert.assertFalse( collectionNode.getChildren().iterator().hasNext() );
+        Assert.assertEquals( 0, collectionNode.getChildren().size() );
+    }
+
+    @Test
+    public void materializeChildren()
+    {
+        final AtomicInteger built = new AtomicInteger();
+        final StreamingCollectionNode collectionNode = new StreamingCollectionNode( "tests",
+            Lists.newArrayList( "A", "B" ), object -> {
+                built.incrementAndGet();
+                return new SimpleNode( "id", object );
+            } );
+
+        Assert.assertEquals( 2, collectionNode.getChildren().size() );
+        Assert.assertTrue( collectionNode.isMaterialized() );
+        Assert.assertEquals( "B", ((SimpleNode) collectionNode.getChildren().get( 1 )).getValue() );
+
+        collectionNode.addChild( new SimpleNode( "id", "C" ) );
+
+        Assert.assertEquals( 3, collectionNode.getUnorderedChildren().size() );
+        Assert.assertEquals( 2, built.get() );
+    }
+}
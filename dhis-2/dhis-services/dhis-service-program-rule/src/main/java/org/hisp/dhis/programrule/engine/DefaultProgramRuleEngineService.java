@@ -36,7 +36,11 @@ import org.hisp.dhis.program.ProgramInstanceService;
 import org.hisp.dhis.program.ProgramStageInstance;
 import org.hisp.dhis.program.ProgramStageInstanceService;
 import org.hisp.dhis.rules.models.RuleEffect;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.UnexpectedRollbackException;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
@@ -65,32 +69,134 @@ public class DefaultProgramRuleEngineService
     private final ProgramInstanceService programInstanceService;
 
     private final ProgramStageInstanceService programStageInstanceService;
-    
+
+    private final TransactionTemplate readOnlyTransactionTemplate;
+
+    private final TransactionTemplate newTransactionTemplate;
+
     public DefaultProgramRuleEngineService( ProgramRuleEngine programRuleEngine,
         List<RuleActionImplementer> ruleActionImplementers, ProgramInstanceService programInstanceService,
-        ProgramStageInstanceService programStageInstanceService )
+        ProgramStageInstanceService programStageInstanceService, TransactionTemplate transactionTemplate )
     {
         checkNotNull( programRuleEngine );
         checkNotNull( ruleActionImplementers );
         checkNotNull( programInstanceService );
         checkNotNull( programStageInstanceService );
+        checkNotNull( transactionTemplate );
 
         this.programRuleEngine = programRuleEngine;
         this.ruleActionImplementers = ruleActionImplementers;
         this.programInstanceService = programInstanceService;
         this.programStageInstanceService = programStageInstanceService;
+
+        this.readOnlyTransactionTemplate = new TransactionTemplate( transactionTemplate.getTransactionManager() );
+        this.readOnlyTransactionTemplate.setReadOnly( true );
+
+        this.newTransactionTemplate = new TransactionTemplate( transactionTemplate.getTransactionManager() );
+        this.newTransactionTemplate.setPropagationBehavior( TransactionDefinition.PROPAGATION_REQUIRES_NEW );
     }
 
     @Override
     public List<RuleEffect> evaluateEnrollment( long programInstance )
     {
-        List<RuleEffect> ruleEffects = new ArrayList<>();
-
         ProgramInstance pi = programInstanceService.getProgramInstance( programInstance );
 
+        List<RuleEffect> ruleEffects = getEnrollmentRuleEffects( pi );
+
+        implementEnrollmentRuleEffects( ruleEffects, pi );
+
+        return ruleEffects;
+    }
+
+    @Override
+    public List<RuleEffect> evaluateEvent( long programStageInstance )
+    {
+        ProgramStageInstance psi = programStageInstanceService.getProgramStageInstance( programStageInstance );
+
+        List<RuleEffect> ruleEffects = getEventRuleEffects( psi );
+
+        implementEventRuleEffects( ruleEffects, psi );
+
+        return ruleEffects;
+    }
+
+    @Override
+    @Transactional( propagation = Propagation.NOT_SUPPORTED )
+    public void evaluateEnrollments( Collection<Long> programInstances )
+    {
+        Map<Long, List<RuleEffect>> ruleEffects = new HashMap<>();
+
+        executeReadOnly( () -> {
+            for ( Long programInstance : programInstances )
+            {
+                List<RuleEffect> effects = getEnrollmentRuleEffects(
+                    programInstanceService.getProgramInstance( programInstance ) );
+
+                if ( isImplementable( effects ) )
+                {
+                    ruleEffects.put( programInstance, effects );
+                }
+            }
+        } );
+
+        ruleEffects.forEach( ( programInstance, effects ) -> {
+            try
+            {
+                newTransactionTemplate.execute( status -> {
+                    implementEnrollmentRuleEffects( effects, programInstanceService.getProgramInstance( programInstance ) );
+                    return null;
+                } );
+            }
+            catch ( Exception ex )
+            {
+                log.error( String.format( "Implementation of rule effects for enrollment %d failed", programInstance ), ex );
+            }
+        } );
+    }
+
+    @Override
+    @Transactional( propagation = Propagation.NOT_SUPPORTED )
+    public void evaluateEvents( Collection<Long> programStageInstances )
+    {
+        Map<Long, List<RuleEffect>> ruleEffects = new HashMap<>();
+
+        executeReadOnly( () -> {
+            for ( Long programStageInstance : programStageInstances )
+            {
+                List<RuleEffect> effects = getEventRuleEffects(
+                    programStageInstanceService.getProgramStageInstance( programStageInstance ) );
+
+                if ( isImplementable( effects ) )
+                {
+                    ruleEffects.put( programStageInstance, effects );
+                }
+            }
+        } );
+
+        ruleEffects.forEach( ( programStageInstance, effects ) -> {
+            try
+            {
+                newTransactionTemplate.execute( status -> {
+                    implementEventRuleEffects( effects, programStageInstanceService.getProgramStageInstance( programStageInstance ) );
+                    return null;
+                } );
+            }
+            catch ( Exception ex )
+            {
+                log.error( String.format( "Implementation of rule effects for event %d failed", programStageInstance ), ex );
+            }
+        } );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private List<RuleEffect> getEnrollmentRuleEffects( ProgramInstance pi )
+    {
         try
         {
-            ruleEffects = programRuleEngine.evaluateEnrollment( pi );
+            return programRuleEngine.evaluateEnrollment( pi );
         }
         catch( Exception ex )
         {
@@ -98,29 +204,14 @@ public class DefaultProgramRuleEngineService
             log.error( DebugUtils.getStackTrace( ex.getCause() ) );
         }
 
-        for ( RuleEffect effect : ruleEffects )
-        {
-            ruleActionImplementers.stream().filter( i -> i.accept( effect.ruleAction() ) ).forEach( i ->
-            {
-                log.debug( String.format( "Invoking action implementer: %s", i.getClass().getSimpleName() ) );
-
-                i.implement( effect, pi );
-            } );
-        }
-
-        return ruleEffects;
+        return new ArrayList<>();
     }
 
-    @Override
-    public List<RuleEffect> evaluateEvent( long programStageInstance )
+    private List<RuleEffect> getEventRuleEffects( ProgramStageInstance psi )
     {
-        List<RuleEffect> ruleEffects = new ArrayList<>();
-
-        ProgramStageInstance psi = programStageInstanceService.getProgramStageInstance( programStageInstance );
-
         try
         {
-            ruleEffects = programRuleEngine.evaluateEvent( psi );
+            return programRuleEngine.evaluateEvent( psi );
         }
         catch( Exception ex )
         {
@@ -128,6 +219,24 @@ public class DefaultProgramRuleEngineService
             log.error( DebugUtils.getStackTrace( ex.getCause() ) );
         }
 
+        return new ArrayList<>();
+    }
+
+    private void implementEnrollmentRuleEffects( List<RuleEffect> ruleEffects, ProgramInstance pi )
+    {
+        for ( RuleEffect effect : ruleEffects )
+        {
+            ruleActionImplementers.stream().filter( i -> i.accept( effect.ruleAction() ) ).forEach( i ->
+            {
+                log.debug( String.format( "Invoking action implementer: %s", i.getClass().getSimpleName() ) );
+
+                i.implement( effect, pi );
+            } );
+        }
+    }
+
+    private void implementEventRuleEffects( List<RuleEffect> ruleEffects, ProgramStageInstance psi )
+    {
         for ( RuleEffect effect : ruleEffects )
         {
             ruleActionImplementers.stream().filter( i -> i.accept( effect.ruleAction() ) ).forEach( i ->
@@ -137,7 +246,32 @@ public class DefaultProgramRuleEngineService
                 i.implement( effect, psi );
             } );
         }
+    }
 
-        return ruleEffects;
+    private boolean isImplementable( List<RuleEffect> ruleEffects )
+    {
+        return ruleEffects.stream().anyMatch( effect ->
+            ruleActionImplementers.stream().anyMatch( i -> i.accept( effect.ruleAction() ) ) );
+    }
+
+    /**
+     * Runs the given evaluation of a batch in one read-only transaction and
+     * session. The evaluation catches failures of single items, but a failure
+     * inside a transactional service still marks the transaction for rollback.
+     * Nothing is written in it, so the rollback is only logged.
+     */
+    private void executeReadOnly( Runnable evaluation )
+    {
+        try
+        {
+            readOnlyTransactionTemplate.execute( status -> {
+                evaluation.run();
+                return null;
+            } );
+        }
+        catch ( UnexpectedRollbackException ex )
+        {
+            log.debug( "Read-only program rule evaluation was rolled back", ex );
+        }
     }
 }
@@ -31,6 +31,8 @@ package org.hisp.dhis.programrule.engine;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.hisp.dhis.cache.Cache;
+import org.hisp.dhis.cache.CacheProvider;
 import org.hisp.dhis.commons.util.DebugUtils;
 import org.hisp.dhis.constant.ConstantService;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
@@ -47,7 +49,10 @@ import org.hisp.dhis.user.UserAuthorityGroup;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -70,6 +75,20 @@ public class ProgramRuleEngine
 
     private static final Pattern PATTERN = Pattern.compile( REGEX );
 
+    /**
+     * Rules, rule variables and constants mapped per program, keyed by program
+     * UID. Invalidated through {@link ProgramRuleMetadataEventListener} when
+     * the underlying metadata changes. Entries also expire so that changes made
+     * on other nodes of a cluster are picked up.
+     */
+    private Cache<CompiledRules> compiledRulesCache;
+
+    /**
+     * Incremented on every invalidation, so that rules compiled from metadata
+     * read before an invalidation are not cached after it.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
     private final ProgramRuleEntityMapperService programRuleEntityMapperService;
 
     private final ProgramRuleExpressionEvaluator programRuleExpressionEvaluator;
@@ -86,11 +105,13 @@ public class ProgramRuleEngine
 
     private final ConstantService constantService;
 
+    private final CacheProvider cacheProvider;
+
     public ProgramRuleEngine( ProgramRuleEntityMapperService programRuleEntityMapperService,
         ProgramRuleExpressionEvaluator programRuleExpressionEvaluator, ProgramRuleService programRuleService,
         ProgramRuleVariableService programRuleVariableService,
         OrganisationUnitGroupService organisationUnitGroupService, RuleVariableInMemoryMap inMemoryMap,
-        CurrentUserService currentUserService, ConstantService constantService )
+        CurrentUserService currentUserService, ConstantService constantService, CacheProvider cacheProvider )
     {
 
         checkNotNull( programRuleEntityMapperService );
@@ -101,6 +122,7 @@ public class ProgramRuleEngine
         checkNotNull( currentUserService );
         checkNotNull( inMemoryMap );
         checkNotNull( constantService );
+        checkNotNull( cacheProvider );
 
         this.programRuleEntityMapperService = programRuleEntityMapperService;
         this.programRuleExpressionEvaluator = programRuleExpressionEvaluator;
@@ -110,6 +132,29 @@ public class ProgramRuleEngine
         this.inMemoryMap = inMemoryMap;
         this.currentUserService = currentUserService;
         this.constantService = constantService;
+        this.cacheProvider = cacheProvider;
+    }
+
+    @PostConstruct
+    public void init()
+    {
+        compiledRulesCache = cacheProvider.newCacheBuilder( CompiledRules.class )
+            .forRegion( "programRuleEngineRules" )
+            .expireAfterWrite( 10, TimeUnit.MINUTES )
+            .withMaximumSize( 1000 )
+            .forceInMemory()
+            .build();
+    }
+
+    /**
+     * Discards the mapped rules of all programs. Invoked when program rules,
+     * program rule actions, program rule variables or constants change.
+     */
+    public void invalidateCache()
+    {
+        generation.incrementAndGet();
+
+        compiledRulesCache.invalidateAll();
     }
 
     public List<RuleEffect> evaluateEnrollment(ProgramInstance enrollment )
@@ -121,15 +166,13 @@ public class ProgramRuleEngine
 
         List<RuleEffect> ruleEffects = new ArrayList<>();
 
-        List<ProgramRule> implementableProgramRules = getImplementableRules( enrollment.getProgram() );
+        CompiledRules compiledRules = getCompiledRules( enrollment.getProgram() );
 
-        if ( implementableProgramRules.isEmpty() ) // if implementation does not exist on back end side
+        if ( compiledRules.rules.isEmpty() ) // if implementation does not exist on back end side
         {
             return ruleEffects;
         }
 
-        List<ProgramRuleVariable> programRuleVariables = programRuleVariableService.getProgramRuleVariable( enrollment.getProgram() );
-
         RuleEnrollment ruleEnrollment = programRuleEntityMapperService.toMappedRuleEnrollment( enrollment );
 
         List<RuleEvent> ruleEvents = programRuleEntityMapperService.toMappedRuleEvents( enrollment.getProgramStageInstances() );
@@ -138,7 +181,7 @@ public class ProgramRuleEngine
 
         try
         {
-            ruleEngine = ruleEngineBuilder( implementableProgramRules, programRuleVariables ).events( ruleEvents ).build();
+            ruleEngine = ruleEngineBuilder( compiledRules ).events( ruleEvents ).build();
 
             ruleEffects = ruleEngine.evaluate( ruleEnrollment  ).call();
 
@@ -164,15 +207,13 @@ public class ProgramRuleEngine
 
         ProgramInstance enrollment = programStageInstance.getProgramInstance();
 
-        List<ProgramRule> implementableProgramRules = getImplementableRules( enrollment.getProgram() );
+        CompiledRules compiledRules = getCompiledRules( enrollment.getProgram() );
 
-        if ( implementableProgramRules.isEmpty() )
+        if ( compiledRules.rules.isEmpty() )
         {
             return ruleEffects;
         }
 
-        List<ProgramRuleVariable> programRuleVariables = programRuleVariableService.getProgramRuleVariable( enrollment.getProgram() );
-
         RuleEnrollment ruleEnrollment = programRuleEntityMapperService.toMappedRuleEnrollment( enrollment );
 
         List<RuleEvent> ruleEvents = programRuleEntityMapperService.toMappedRuleEvents( enrollment.getProgramStageInstances(), programStageInstance );
@@ -182,7 +223,7 @@ public class ProgramRuleEngine
         try
         {
 
-            ruleEngine = ruleEngineBuilder( implementableProgramRules, programRuleVariables ).enrollment( ruleEnrollment ).events( ruleEvents ).build();
+            ruleEngine = ruleEngineBuilder( compiledRules ).enrollment( ruleEnrollment ).events( ruleEvents ).build();
 
             ruleEffects = ruleEngine.evaluate( programRuleEntityMapperService.toMappedRuleEvent( programStageInstance )  ).call();
 
@@ -197,10 +238,75 @@ public class ProgramRuleEngine
         return ruleEffects;
     }
 
-    private RuleEngine.Builder ruleEngineBuilder( List<ProgramRule> programRules, List<ProgramRuleVariable> programRuleVariables )
+    private RuleEngine.Builder ruleEngineBuilder( CompiledRules compiledRules )
     {
         Map<String, List<String>> supplementaryData = new HashMap<>();
 
+        if ( !compiledRules.orgUnitGroups.isEmpty() )
+        {
+            supplementaryData = compiledRules.orgUnitGroups.stream().collect( Collectors.toMap( g -> g,  g -> organisationUnitGroupService.getOrganisationUnitGroup( g ).getMembers()
+                .stream().map( OrganisationUnit::getUid ).collect( Collectors.toList() ) ) );
+        }
+
+        if ( currentUserService.getCurrentUser() != null )
+        {
+            supplementaryData.put( USER, currentUserService.getCurrentUser().getUserCredentials().getUserAuthorityGroups().stream().map( UserAuthorityGroup::getUid ).collect( Collectors.toList() ) );
+        }
+
+        return RuleEngineContext
+            .builder( programRuleExpressionEvaluator )
+            .supplementaryData( supplementaryData )
+            .calculatedValueMap( inMemoryMap.getVariablesMap() )
+            .rules( compiledRules.rules )
+            .ruleVariables( compiledRules.ruleVariables )
+            .constantsValue( compiledRules.constants )
+            .build().toEngineBuilder().triggerEnvironment( TriggerEnvironment.SERVER );
+    }
+
+    private CompiledRules getCompiledRules( Program program )
+    {
+        Optional<CompiledRules> cached = compiledRulesCache.getIfPresent( program.getUid() );
+
+        if ( cached.isPresent() )
+        {
+            return cached.get();
+        }
+
+        // Not computed within the cache as loading rules may flush changes which invalidate the cache
+
+        long compileGeneration = generation.get();
+
+        CompiledRules compiledRules = compileRules( program );
+
+        if ( generation.get() == compileGeneration )
+        {
+            compiledRulesCache.put( program.getUid(), compiledRules );
+
+            // The cache may have been invalidated between the check and the put
+
+            if ( generation.get() != compileGeneration )
+            {
+                compiledRulesCache.invalidate( program.getUid() );
+            }
+        }
+
+        return compiledRules;
+    }
+
+    /**
+     * Loads and maps the implementable rules, the rule variables and the
+     * constants of the given program, and collects the organisation unit
+     * groups referenced by rule conditions.
+     */
+    private CompiledRules compileRules( Program program )
+    {
+        List<ProgramRule> programRules = getImplementableRules( program );
+
+        if ( programRules.isEmpty() )
+        {
+            return new CompiledRules( new ArrayList<>(), new ArrayList<>(), new HashMap<>(), new ArrayList<>() );
+        }
+
         Map<String, String> constantMap = constantService.getConstantMap().entrySet().stream().collect( Collectors.toMap( Map.Entry::getKey, v -> v.getValue().toString() ) );
 
         List<String> orgUnitGroups = new ArrayList<>();
@@ -224,25 +330,10 @@ public class ProgramRuleEngine
             }
         }
 
-        if ( !orgUnitGroups.isEmpty() )
-        {
-            supplementaryData = orgUnitGroups.stream().collect( Collectors.toMap( g -> g,  g -> organisationUnitGroupService.getOrganisationUnitGroup( g ).getMembers()
-                .stream().map( OrganisationUnit::getUid ).collect( Collectors.toList() ) ) );
-        }
-
-        if ( currentUserService.getCurrentUser() != null )
-        {
-            supplementaryData.put( USER, currentUserService.getCurrentUser().getUserCredentials().getUserAuthorityGroups().stream().map( UserAuthorityGroup::getUid ).collect( Collectors.toList() ) );
-        }
+        List<ProgramRuleVariable> programRuleVariables = programRuleVariableService.getProgramRuleVariable( program );
 
-        return RuleEngineContext
-            .builder( programRuleExpressionEvaluator )
-            .supplementaryData( supplementaryData )
-            .calculatedValueMap( inMemoryMap.getVariablesMap() )
-            .rules( rules )
-            .ruleVariables( programRuleEntityMapperService.toMappedProgramRuleVariables( programRuleVariables ) )
-            .constantsValue( constantMap )
-            .build().toEngineBuilder().triggerEnvironment( TriggerEnvironment.SERVER );
+        return new CompiledRules( rules, programRuleEntityMapperService.toMappedProgramRuleVariables( programRuleVariables ),
+            constantMap, orgUnitGroups );
     }
 
     private List<ProgramRule> getImplementableRules( Program program )
@@ -258,4 +349,27 @@ public class ProgramRuleEngine
 
         return programRuleService.getImplementableProgramRules( program, ProgramRuleActionType.getImplementedActions() );
     }
+
+    /**
+     * Rules, rule variables and constants of a program mapped for the rule engine.
+     */
+    private static final class CompiledRules
+    {
+        private final List<Rule> rules;
+
+        private final List<RuleVariable> ruleVariables;
+
+        private final Map<String, String> constants;
+
+        private final List<String> orgUnitGroups;
+
+        private CompiledRules( List<Rule> rules, List<RuleVariable> ruleVariables, Map<String, String> constants,
+            List<String> orgUnitGroups )
+        {
+            this.rules = rules;
+            this.ruleVariables = ruleVariables;
+            this.constants = constants;
+            this.orgUnitGroups = orgUnitGroups;
+        }
+    }
 }
@@ -28,49 +28,50 @@ package org.hisp.dhis.programrule.engine;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.transaction.event.TransactionalEventListener;
 import org.springframework.stereotype.Component;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
+ * Queues enrollments and events for program rule evaluation once the
+ * transaction that changed them has committed. The evaluation itself is done
+ * in batches by {@link ProgramRuleEvaluationQueue}.
+ *
  * @author Zubair Asghar.
  */
-
-@Async
 @Component( "org.hisp.dhis.programrule.engine.ProgramRuleEngineListener" )
 public class ProgramRuleEngineListener
 {
-    private final ProgramRuleEngineService programRuleEngineService;
+    private final ProgramRuleEvaluationQueue evaluationQueue;
 
-    public ProgramRuleEngineListener( ProgramRuleEngineService programRuleEngineService )
+    public ProgramRuleEngineListener( ProgramRuleEvaluationQueue evaluationQueue )
     {
-        checkNotNull( programRuleEngineService );
-        this.programRuleEngineService = programRuleEngineService;
+        checkNotNull( evaluationQueue );
+        this.evaluationQueue = evaluationQueue;
     }
 
     @TransactionalEventListener
     public void onEnrollment( EnrollmentEvaluationEvent event )
     {
-        programRuleEngineService.evaluateEnrollment( event.getProgramInstance() );
+        evaluationQueue.addEnrollment( event.getProgramInstance() );
     }
 
     @TransactionalEventListener
     public void onDataValueChange( DataValueUpdatedEvent event )
     {
-        programRuleEngineService.evaluateEvent( event.getProgramStageInstance() );
+        evaluationQueue.addEvent( event.getProgramStageInstance() );
     }
 
     @TransactionalEventListener
     public void onEventCompletion( StageCompletionEvaluationEvent event )
     {
-        programRuleEngineService.evaluateEvent( event.getProgramStageInstance() );
+        evaluationQueue.addEvent( event.getProgramStageInstance() );
     }
 
     @TransactionalEventListener
     public void onScheduledEvent( StageScheduledEvaluationEvent event )
     {
-        programRuleEngineService.evaluateEvent( event.getProgramStageInstance() );
+        evaluationQueue.addEvent( event.getProgramStageInstance() );
     }
 }
@@ -0,0 +1,246 @@
+package org.hisp.dhis.programrule.engine;
+
+/*
+ * Copyright (c) 2004-2019, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.AsyncListenableTaskExecutor;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Collects enrollments and events awaiting program rule evaluation and
+ * evaluates them in batches on the task scheduler. An enrollment or event
+ * queued several times before it is evaluated is evaluated once. Each run of
+ * the scheduler takes up to {@value #MAX_BATCHES} batches of enrollments and
+ * of events and evaluates them concurrently on the threads of the scheduler,
+ * so that a large backlog neither runs one item at a time nor holds the
+ * scheduler indefinitely. Enrollments and events still queued on shutdown are
+ * evaluated before the queue is destroyed.
+ *
+ * The number of queued enrollments and events is exposed in the
+ * {@value #METRIC_QUEUE_SIZE} metric, and the time the oldest of them has
+ * been waiting in the {@value #METRIC_QUEUE_LAG} metric.
+ */
+@Component( "org.hisp.dhis.programrule.engine.ProgramRuleEvaluationQueue" )
+public class ProgramRuleEvaluationQueue
+{
+    private static final Log log = LogFactory.getLog( ProgramRuleEvaluationQueue.class );
+
+    static final String METRIC_QUEUE_SIZE = "programrule.evaluation.queue.size";
+
+    static final String METRIC_QUEUE_LAG = "programrule.evaluation.queue.lag";
+
+    private static final long FLUSH_DELAY_MILLIS = 1000;
+
+    private static final int BATCH_SIZE = 500;
+
+    private static final int MAX_BATCHES = 4;
+
+    /**
+     * Queued enrollment identifiers mapped to the time they were first queued.
+     */
+    private final Map<Long, Long> enrollments = new ConcurrentHashMap<>();
+
+    /**
+     * Queued event identifiers mapped to the time they were first queued.
+     */
+    private final Map<Long, Long> events = new ConcurrentHashMap<>();
+
+    private final ProgramRuleEngineService programRuleEngineService;
+
+    private final TaskScheduler taskScheduler;
+
+    private final AsyncListenableTaskExecutor taskExecutor;
+
+    private final MeterRegistry meterRegistry;
+
+    private ScheduledFuture<?> future;
+
+    public ProgramRuleEvaluationQueue( ProgramRuleEngineService programRuleEngineService,
+        @Qualifier( "taskScheduler" ) TaskScheduler taskScheduler,
+        @Qualifier( "taskScheduler" ) AsyncListenableTaskExecutor taskExecutor, MeterRegistry meterRegistry )
+    {
+        checkNotNull( programRuleEngineService );
+        checkNotNull( taskScheduler );
+        checkNotNull( taskExecutor );
+        checkNotNull( meterRegistry );
+
+        this.programRuleEngineService = programRuleEngineService;
+        this.taskScheduler = taskScheduler;
+        this.taskExecutor = taskExecutor;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init()
+    {
+        Gauge.builder( METRIC_QUEUE_SIZE, enrollments, Map::size ).tag( "type", "enrollment" ).register( meterRegistry );
+        Gauge.builder( METRIC_QUEUE_SIZE, events, Map::size ).tag( "type", "event" ).register( meterRegistry );
+
+        TimeGauge.builder( METRIC_QUEUE_LAG, this, TimeUnit.MILLISECONDS, ProgramRuleEvaluationQueue::getLag )
+            .register( meterRegistry );
+
+        future = taskScheduler.scheduleWithFixedDelay( this::flush, FLUSH_DELAY_MILLIS );
+    }
+
+    @PreDestroy
+    public void stop()
+    {
+        if ( future != null )
+        {
+            future.cancel( false );
+        }
+
+        while ( !enrollments.isEmpty() || !events.isEmpty() )
+        {
+            flush();
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Queue
+    // -------------------------------------------------------------------------
+
+    public void addEnrollment( long programInstance )
+    {
+        enrollments.putIfAbsent( programInstance, System.currentTimeMillis() );
+    }
+
+    public void addEvent( long programStageInstance )
+    {
+        events.putIfAbsent( programStageInstance, System.currentTimeMillis() );
+    }
+
+    /**
+     * Evaluates up to {@value #MAX_BATCHES} batches of {@value #BATCH_SIZE}
+     * queued enrollments and as many batches of queued events concurrently,
+     * and waits for them to finish. The rest is left for the next run.
+     */
+    void flush()
+    {
+        List<Future<?>> futures = new ArrayList<>();
+
+        try
+        {
+            for ( int i = 0; i < MAX_BATCHES; i++ )
+            {
+                List<Long> enrollmentBatch = poll( enrollments );
+                List<Long> eventBatch = poll( events );
+
+                if ( !enrollmentBatch.isEmpty() )
+                {
+                    futures.add( taskExecutor.submit( () -> programRuleEngineService.evaluateEnrollments( enrollmentBatch ) ) );
+                }
+
+                if ( !eventBatch.isEmpty() )
+                {
+                    futures.add( taskExecutor.submit( () -> programRuleEngineService.evaluateEvents( eventBatch ) ) );
+                }
+            }
+        }
+        catch ( Exception ex )
+        {
+            // Do not let the exception cancel the scheduled flushes
+
+            log.error( "Program rule evaluation could not be started", ex );
+        }
+
+        for ( Future<?> future : futures )
+        {
+            try
+            {
+                future.get();
+            }
+            catch ( InterruptedException ex )
+            {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            catch ( ExecutionException ex )
+            {
+                log.error( "Program rule evaluation failed", ex.getCause() );
+            }
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private List<Long> poll( Map<Long, Long> queue )
+    {
+        List<Long> batch = new ArrayList<>();
+
+        Iterator<Long> iterator = queue.keySet().iterator();
+
+        while ( iterator.hasNext() && batch.size() < BATCH_SIZE )
+        {
+            batch.add( iterator.next() );
+            iterator.remove();
+        }
+
+        return batch;
+    }
+
+    private double getLag()
+    {
+        long oldest = System.currentTimeMillis();
+
+        for ( long queued : enrollments.values() )
+        {
+            oldest = Math.min( oldest, queued );
+        }
+
+        for ( long queued : events.values() )
+        {
+            oldest = Math.min( oldest, queued );
+        }
+
+        return System.currentTimeMillis() - oldest;
+    }
+}
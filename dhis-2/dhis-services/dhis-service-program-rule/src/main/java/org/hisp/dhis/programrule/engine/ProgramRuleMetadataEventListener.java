@@ -0,0 +1,154 @@
+package org.hisp.dhis.programrule.engine;
+
+/*
+ * Copyright (c) 2004-2019, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import com.google.common.collect.ImmutableSet;
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hisp.dhis.constant.Constant;
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.programrule.ProgramRule;
+import org.hisp.dhis.programrule.ProgramRuleAction;
+import org.hisp.dhis.programrule.ProgramRuleVariable;
+import org.hisp.dhis.trackedentity.TrackedEntityAttribute;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Invalidates the rules cached by {@link ProgramRuleEngine} when metadata the
+ * mapped rules depend on is inserted, updated or deleted. The cache is cleared
+ * when the change is flushed and again when the transaction completes, so that
+ * rules loaded in between from uncommitted or rolled back state are not kept.
+ */
+@Component( "org.hisp.dhis.programrule.engine.ProgramRuleMetadataEventListener" )
+public class ProgramRuleMetadataEventListener
+    implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener
+{
+    private static final Set<Class<?>> RULE_METADATA_CLASSES = ImmutableSet.of( ProgramRule.class,
+        ProgramRuleAction.class, ProgramRuleVariable.class, Constant.class, DataElement.class,
+        TrackedEntityAttribute.class );
+
+    private final SessionFactory sessionFactory;
+
+    private final ProgramRuleEngine programRuleEngine;
+
+    public ProgramRuleMetadataEventListener( SessionFactory sessionFactory, ProgramRuleEngine programRuleEngine )
+    {
+        checkNotNull( sessionFactory );
+        checkNotNull( programRuleEngine );
+
+        this.sessionFactory = sessionFactory;
+        this.programRuleEngine = programRuleEngine;
+    }
+
+    @PostConstruct
+    public void init()
+    {
+        EventListenerRegistry registry = sessionFactory.unwrap( SessionFactoryImplementor.class )
+            .getServiceRegistry().getService( EventListenerRegistry.class );
+
+        registry.appendListeners( EventType.POST_INSERT, this );
+        registry.appendListeners( EventType.POST_UPDATE, this );
+        registry.appendListeners( EventType.POST_DELETE, this );
+    }
+
+    // -------------------------------------------------------------------------
+    // Event handlers
+    // -------------------------------------------------------------------------
+
+    @Override
+    public void onPostInsert( PostInsertEvent event )
+    {
+        onChange( event.getEntity() );
+    }
+
+    @Override
+    public void onPostUpdate( PostUpdateEvent event )
+    {
+        onChange( event.getEntity() );
+    }
+
+    @Override
+    public void onPostDelete( PostDeleteEvent event )
+    {
+        onChange( event.getEntity() );
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding( EntityPersister persister )
+    {
+        return false;
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private void onChange( Object entity )
+    {
+        if ( RULE_METADATA_CLASSES.stream().noneMatch( klass -> klass.isInstance( entity ) ) )
+        {
+            return;
+        }
+
+        programRuleEngine.invalidateCache();
+
+        if ( TransactionSynchronizationManager.isSynchronizationActive() &&
+            !TransactionSynchronizationManager.hasResource( this ) )
+        {
+            TransactionSynchronizationManager.bindResource( this, Boolean.TRUE );
+
+            TransactionSynchronizationManager.registerSynchronization( new TransactionSynchronizationAdapter()
+            {
+                @Override
+                public void afterCompletion( int status )
+                {
+                    TransactionSynchronizationManager.unbindResourceIfPossible( ProgramRuleMetadataEventListener.this );
+
+                    programRuleEngine.invalidateCache();
+                }
+            } );
+        }
+    }
+}
@@ -49,11 +49,17 @@ import org.junit.Test;
 import org.mockito.*;
 import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 
+import com.google.common.collect.Lists;
+
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 
@@ -87,6 +93,15 @@ public class ProgramRuleEngineServiceTest extends DhisConvenienceTest
     @Mock
     private ProgramRuleService programRuleService;
 
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private TransactionStatus transactionStatus;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
     @Spy
     private ArrayList<RuleActionImplementer> ruleActionImplementers;
 
@@ -202,10 +217,72 @@ public class ProgramRuleEngineServiceTest extends DhisConvenienceTest
         assertTrue( this.ruleEffects.get( 0 ).ruleAction() instanceof RuleActionSendMessage );
     }
 
+    @Test
+    public void testEvaluateEnrollmentsInOneSession()
+    {
+        setProgramRuleActionType_SendMessage();
+
+        doThrow( new IllegalStateException() ).doNothing()
+            .when( ruleActionSendMessage ).implement( any(), any( ProgramInstance.class ) );
+
+        createTransactionalService().evaluateEnrollments( Lists.newArrayList( 1L, 2L ) );
+
+        ArgumentCaptor<TransactionDefinition> definitions = ArgumentCaptor.forClass( TransactionDefinition.class );
+
+        verify( transactionManager, times( 3 ) ).getTransaction( definitions.capture() );
+        verify( transactionManager, times( 1 ) ).rollback( transactionStatus );
+        verify( transactionManager, times( 2 ) ).commit( transactionStatus );
+        verify( programRuleEngine, times( 2 ) ).evaluateEnrollment( programInstance );
+        verify( ruleActionSendMessage, times( 2 ) ).implement( any(), any( ProgramInstance.class ) );
+
+        assertTrue( definitions.getAllValues().get( 0 ).isReadOnly() );
+
+        definitions.getAllValues().subList( 1, 3 ).forEach( definition ->
+            assertEquals( TransactionDefinition.PROPAGATION_REQUIRES_NEW, definition.getPropagationBehavior() ) );
+    }
+
+    @Test
+    public void testEvaluateEventsInOneSession()
+    {
+        setProgramRuleActionType_SendMessage();
+
+        doThrow( new IllegalStateException() ).doNothing()
+            .when( ruleActionSendMessage ).implement( any(), any( ProgramStageInstance.class ) );
+
+        createTransactionalService().evaluateEvents( Lists.newArrayList( 1L, 2L ) );
+
+        verify( transactionManager, times( 3 ) ).getTransaction( any() );
+        verify( transactionManager, times( 1 ) ).rollback( transactionStatus );
+        verify( transactionManager, times( 2 ) ).commit( transactionStatus );
+        verify( programRuleEngine, times( 2 ) ).evaluateEvent( programStageInstance );
+        verify( ruleActionSendMessage, times( 2 ) ).implement( any(), any( ProgramStageInstance.class ) );
+    }
+
+    @Test
+    public void testEvaluateEventsWithoutImplementableEffects()
+    {
+        when( ruleActionSendMessage.accept( any() ) ).thenReturn( false );
+
+        createTransactionalService().evaluateEvents( Lists.newArrayList( 1L, 2L ) );
+
+        verify( transactionManager, times( 1 ) ).getTransaction( any() );
+        verify( transactionManager, times( 1 ) ).commit( transactionStatus );
+        verify( programRuleEngine, times( 2 ) ).evaluateEvent( programStageInstance );
+        verify( ruleActionSendMessage, never() ).implement( any(), any( ProgramStageInstance.class ) );
+    }
+
     // -------------------------------------------------------------------------
     // Supportive methods
     // -------------------------------------------------------------------------
 
+    private DefaultProgramRuleEngineService createTransactionalService()
+    {
+        when( transactionManager.getTransaction( any() ) ).thenReturn( transactionStatus );
+
+        return new DefaultProgramRuleEngineService( programRuleEngine, ruleActionImplementers,
+            programInstanceService, programStageInstanceService, new TransactionTemplate( transactionManager ) );
+    }
+
     private void setUpInstances()
     {
         OrganisationUnit organisationUnitA = createOrganisationUnit( 'A' );
@@ -45,9 +45,12 @@ import org.hisp.dhis.DhisSpringTest;
 import org.hisp.dhis.analytics.AggregationType;
 import org.hisp.dhis.common.DeliveryChannel;
 import org.hisp.dhis.common.ValueType;
+import org.hisp.dhis.constant.Constant;
+import org.hisp.dhis.constant.ConstantService;
 import org.hisp.dhis.dataelement.DataElement;
 import org.hisp.dhis.dataelement.DataElementDomain;
 import org.hisp.dhis.dataelement.DataElementService;
+import org.hisp.dhis.dbms.DbmsManager;
 import org.hisp.dhis.eventdatavalue.EventDataValue;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.organisationunit.OrganisationUnitService;
@@ -199,6 +202,12 @@ public class ProgramRuleEngineTest extends DhisSpringTest
     @Autowired
     private ProgramNotificationTemplateStore programNotificationTemplateStore;
 
+    @Autowired
+    private ConstantService constantService;
+
+    @Autowired
+    private DbmsManager dbmsManager;
+
     @Override
     public void setUpTest() throws ParseException
     {
@@ -276,6 +285,78 @@ public class ProgramRuleEngineTest extends DhisSpringTest
         assertEquals( "PNT-1", ruleActionSendMessage.notification() );
     }
 
+    @Test
+    public void testSendMessageForEventWithCachedRules()
+    {
+        setUpSendMessageForEnrollment();
+
+        ProgramStageInstance programStageInstance = programStageInstanceService.getProgramStageInstance( "UID-PS1" );
+
+        List<RuleEffect> ruleEffects = programRuleEngine.evaluateEvent( programStageInstance );
+        List<RuleEffect> cachedRuleEffects = programRuleEngine.evaluateEvent( programStageInstance );
+
+        assertEquals( 1, ruleEffects.size() );
+        assertEquals( ruleEffects, cachedRuleEffects );
+    }
+
+    @Test
+    public void testCachedRulesInvalidatedOnProgramRuleChange()
+    {
+        setUpSendMessageForEnrollment();
+
+        ProgramStageInstance programStageInstance = programStageInstanceService.getProgramStageInstance( "UID-PS1" );
+
+        assertEquals( 1, programRuleEngine.evaluateEvent( programStageInstance ).size() );
+
+        programRuleC.setCondition( "A{ProgramRuleVariableC}=='other'" );
+        programRuleService.updateProgramRule( programRuleC );
+        dbmsManager.flushSession();
+
+        assertEquals( 0, programRuleEngine.evaluateEvent( programStageInstance ).size() );
+    }
+
+    @Test
+    public void testCachedRulesInvalidatedOnProgramRuleVariableChange()
+    {
+        setUpSendMessageForEnrollment();
+
+        ProgramStageInstance programStageInstance = programStageInstanceService.getProgramStageInstance( "UID-PS1" );
+
+        assertEquals( 1, programRuleEngine.evaluateEvent( programStageInstance ).size() );
+
+        ProgramRuleVariable programRuleVariableC = programRuleVariableService.getProgramRuleVariable( programA ).stream()
+            .filter( v -> "ProgramRuleVariableC".equals( v.getName() ) ).findFirst().get();
+
+        programRuleVariableC.setAttribute( attributeB );
+        programRuleVariableService.updateProgramRuleVariable( programRuleVariableC );
+        dbmsManager.flushSession();
+
+        assertEquals( 0, programRuleEngine.evaluateEvent( programStageInstance ).size() );
+    }
+
+    @Test
+    public void testCachedRulesInvalidatedOnConstantChange()
+    {
+        setUpSendMessageForEnrollment();
+
+        Constant constant = createConstant( 'A', 5.0 );
+        constantService.saveConstant( constant );
+
+        programRuleC.setCondition( "C{" + constant.getUid() + "} > 1" );
+        programRuleService.updateProgramRule( programRuleC );
+        dbmsManager.flushSession();
+
+        ProgramStageInstance programStageInstance = programStageInstanceService.getProgramStageInstance( "UID-PS1" );
+
+        assertEquals( 1, programRuleEngine.evaluateEvent( programStageInstance ).size() );
+
+        constant.setValue( 0.0 );
+        constantService.updateConstant( constant );
+        dbmsManager.flushSession();
+
+        assertEquals( 0, programRuleEngine.evaluateEvent( programStageInstance ).size() );
+    }
+
     @Test
     public void testSchedulingByProgramRule()
     {
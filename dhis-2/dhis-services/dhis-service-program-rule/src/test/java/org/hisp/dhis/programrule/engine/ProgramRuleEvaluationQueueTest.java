@@ -0,0 +1,164 @@
+package org.hisp.dhis.programrule.engine;
+
+/*
+ * Copyright (c) 2004-2019, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import com.google.common.collect.Sets;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.scheduling.TaskScheduler;
+
+import java.util.Collection;
+import java.util.HashSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.*;
+
+public class ProgramRuleEvaluationQueueTest
+{
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    @Mock
+    private ProgramRuleEngineService programRuleEngineService;
+
+    @Mock
+    private TaskScheduler taskScheduler;
+
+    private MeterRegistry meterRegistry;
+
+    private ProgramRuleEvaluationQueue queue;
+
+    @Before
+    public void setUp()
+    {
+        meterRegistry = new SimpleMeterRegistry();
+
+        queue = new ProgramRuleEvaluationQueue( programRuleEngineService, taskScheduler,
+            new TaskExecutorAdapter( Runnable::run ), meterRegistry );
+        queue.init();
+    }
+
+    @Test
+    @SuppressWarnings( "unchecked" )
+    public void testFlushEvaluatesQueuedOnce()
+    {
+        queue.addEnrollment( 1L );
+        queue.addEnrollment( 2L );
+        queue.addEnrollment( 1L );
+        queue.addEvent( 5L );
+        queue.addEvent( 5L );
+
+        assertEquals( 2, getQueueSize( "enrollment" ) );
+        assertEquals( 1, getQueueSize( "event" ) );
+
+        queue.flush();
+
+        ArgumentCaptor<Collection<Long>> enrollments = ArgumentCaptor.forClass( Collection.class );
+        ArgumentCaptor<Collection<Long>> events = ArgumentCaptor.forClass( Collection.class );
+
+        verify( programRuleEngineService ).evaluateEnrollments( enrollments.capture() );
+        verify( programRuleEngineService ).evaluateEvents( events.capture() );
+
+        assertEquals( Sets.newHashSet( 1L, 2L ), new HashSet<>( enrollments.getValue() ) );
+        assertEquals( Sets.newHashSet( 5L ), new HashSet<>( events.getValue() ) );
+
+        assertEquals( 0, getQueueSize( "enrollment" ) );
+        assertEquals( 0, getQueueSize( "event" ) );
+
+        queue.flush();
+
+        verifyNoMoreInteractions( programRuleEngineService );
+    }
+
+    @Test
+    public void testFlushContinuesAfterFailure()
+    {
+        doThrow( new IllegalStateException() ).when( programRuleEngineService ).evaluateEnrollments( any() );
+
+        queue.addEnrollment( 1L );
+        queue.flush();
+
+        queue.addEnrollment( 2L );
+        queue.flush();
+
+        verify( programRuleEngineService, times( 2 ) ).evaluateEnrollments( any() );
+    }
+
+    @Test
+    @SuppressWarnings( "unchecked" )
+    public void testFlushEvaluatesBatches()
+    {
+        for ( long i = 1; i <= 2001; i++ )
+        {
+            queue.addEnrollment( i );
+        }
+
+        queue.flush();
+
+        ArgumentCaptor<Collection<Long>> enrollments = ArgumentCaptor.forClass( Collection.class );
+
+        verify( programRuleEngineService, times( 4 ) ).evaluateEnrollments( enrollments.capture() );
+        verify( programRuleEngineService, never() ).evaluateEvents( any() );
+
+        enrollments.getAllValues().forEach( batch -> assertEquals( 500, batch.size() ) );
+        assertEquals( 1, getQueueSize( "enrollment" ) );
+    }
+
+    @Test
+    public void testStopEvaluatesQueued()
+    {
+        for ( long i = 1; i <= 501; i++ )
+        {
+            queue.addEnrollment( i );
+        }
+
+        queue.addEvent( 5L );
+
+        queue.stop();
+
+        verify( programRuleEngineService, times( 2 ) ).evaluateEnrollments( any() );
+        verify( programRuleEngineService ).evaluateEvents( any() );
+
+        assertEquals( 0, getQueueSize( "enrollment" ) );
+        assertEquals( 0, getQueueSize( "event" ) );
+    }
+
+    private int getQueueSize( String type )
+    {
+        return (int) meterRegistry.get( ProgramRuleEvaluationQueue.METRIC_QUEUE_SIZE ).tag( "type", type ).gauge().value();
+    }
+}
@@ -34,13 +34,17 @@ import static org.hisp.dhis.system.notification.NotificationLevel.ERROR;
 import static org.hisp.dhis.system.util.ValidationUtils.dataValueIsZeroAndInsignificant;
 
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import org.apache.commons.collections.CollectionUtils;
@@ -52,6 +56,7 @@ import org.hisp.dhis.category.CategoryOptionCombo;
 import org.hisp.dhis.category.CategoryService;
 import org.hisp.dhis.common.*;
 import org.hisp.dhis.commons.util.DebugUtils;
+import org.hisp.dhis.commons.util.SystemUtils;
 import org.hisp.dhis.constant.ConstantService;
 import org.hisp.dhis.dataelement.DataElement;
 import org.hisp.dhis.dataelement.DataElementOperand;
@@ -62,6 +67,7 @@ import org.hisp.dhis.datavalue.DeflatedDataValue;
 import org.hisp.dhis.expression.Expression;
 import org.hisp.dhis.expression.ExpressionService;
 import org.hisp.dhis.expression.MissingValueStrategy;
+import org.hisp.dhis.expression.PreparedExpression;
 import org.hisp.dhis.jdbc.batchhandler.DataValueBatchHandler;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.organisationunit.OrganisationUnitLevel;
@@ -81,11 +87,15 @@ import org.hisp.dhis.user.User;
 import org.hisp.dhis.util.DateUtils;
 import org.hisp.quick.BatchHandler;
 import org.hisp.quick.BatchHandlerFactory;
+import org.springframework.security.concurrent.DelegatingSecurityContextExecutorService;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 /**
  * @author Jim Grace
@@ -121,11 +131,16 @@ public class DefaultPredictionService
 
     private CurrentUserService currentUserService;
 
+    private final TransactionTemplate transactionTemplate;
+
+    private final TransactionTemplate newTransactionTemplate;
+
     public DefaultPredictionService( PredictorService predictorService, ConstantService constantService,
         ExpressionService expressionService, DataValueService dataValueService, CategoryService categoryService,
         OrganisationUnitService organisationUnitService, PeriodService periodService,
         IdentifiableObjectManager idObjectManager, AnalyticsService analyticsService, Notifier notifier,
-        BatchHandlerFactory batchHandlerFactory, CurrentUserService currentUserService )
+        BatchHandlerFactory batchHandlerFactory, CurrentUserService currentUserService,
+        TransactionTemplate transactionTemplate )
     {
         checkNotNull( predictorService );
         checkNotNull( constantService );
@@ -138,6 +153,7 @@ public class DefaultPredictionService
         checkNotNull( notifier );
         checkNotNull( batchHandlerFactory );
         checkNotNull( currentUserService );
+        checkNotNull( transactionTemplate );
 
         this.predictorService = predictorService;
         this.constantService = constantService;
@@ -151,6 +167,10 @@ public class DefaultPredictionService
         this.notifier = notifier;
         this.batchHandlerFactory = batchHandlerFactory;
         this.currentUserService = currentUserService;
+        this.transactionTemplate = transactionTemplate;
+
+        this.newTransactionTemplate = new TransactionTemplate( transactionTemplate.getTransactionManager() );
+        this.newTransactionTemplate.setPropagationBehavior( TransactionDefinition.PROPAGATION_REQUIRES_NEW );
     }
 
     /**
@@ -176,6 +196,8 @@ public class DefaultPredictionService
 
     private final static String NON_AOC = ""; // String that is not an Attribute Option Combo
 
+    private final static int ORG_UNITS_PER_TASK = 500;
+
     @Override
     public PredictionSummary predictJob( PredictorJobParameters params, JobConfiguration jobId )
     {
@@ -242,10 +264,7 @@ public class DefaultPredictionService
 
         log.info( "Running " + predictorList.size() + " predictors from " + startDate.toString() + " to " + endDate.toString() );
 
-        for ( Predictor predictor : predictorList )
-        {
-            predict( predictor, startDate, endDate, predictionSummary );
-        }
+        predict( predictorList, startDate, endDate, predictionSummary );
 
         log.info( "Finished predictors from " + startDate.toString() + " to " + endDate.toString() + ": " + predictionSummary.toString() );
 
@@ -254,130 +273,369 @@ public class DefaultPredictionService
 
     @Override
     public void predict( Predictor predictor, Date startDate, Date endDate, PredictionSummary predictionSummary )
+    {
+        predict( Lists.newArrayList( predictor ), startDate, endDate, predictionSummary );
+    }
+
+    /**
+     * Runs predictors on a bounded thread pool. Predictors are run in
+     * stages (see {@link #getPredictorStages}), and within a stage the
+     * organisation unit partitions of all predictors run concurrently, each
+     * in its own transaction with the security context of the caller.
+     *
+     * @param predictors the predictors, in the order they are requested.
+     * @param startDate the start date of the output periods.
+     * @param endDate the end date of the output periods.
+     * @param predictionSummary the prediction summary to update.
+     */
+    private void predict( List<Predictor> predictors, Date startDate, Date endDate, PredictionSummary predictionSummary )
+    {
+        // Tasks run with the security context of the calling user, as
+        // analytics queries for event data apply the user's restrictions
+
+        ExecutorService executor = new DelegatingSecurityContextExecutorService( Executors.newFixedThreadPool(
+            getThreadPoolSize(), new ThreadFactoryBuilder().setNameFormat( "predictor-%d" ).setDaemon( true ).build() ) );
+
+        try
+        {
+            for ( List<Predictor> stage : getPredictorStages( predictors ) )
+            {
+                List<Future<?>> tasks = new ArrayList<>();
+
+                for ( Predictor predictor : stage )
+                {
+                    tasks.addAll( submitPredictor( predictor, startDate, endDate, predictionSummary, executor ) );
+                }
+
+                awaitTasks( tasks );
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Prepares a predictor and submits its organisation unit partitions
+     * for prediction.
+     *
+     * @return the submitted tasks.
+     */
+    private List<Future<?>> submitPredictor( Predictor predictor, Date startDate, Date endDate,
+        PredictionSummary predictionSummary, ExecutorService executor )
     {
         Expression generator = predictor.getGenerator();
         Expression skipTest = predictor.getSampleSkipTest();
-        DataElement outputDataElement = predictor.getOutput();
+        MissingValueStrategy missingValueStrategy = generator.getMissingValueStrategy();
+        long outputDataElementId = predictor.getOutput().getId();
+        long outputOptionComboId = predictor.getOutputCombo() == null ?
+            categoryService.getDefaultCategoryOptionCombo().getId() : predictor.getOutputCombo().getId();
+
+        User currentUser = currentUserService.getCurrentUser();
+        Set<OrganisationUnit> currentUserOrgUnits = currentUser != null ? currentUser.getOrganisationUnits() : new HashSet<>();
+        String storedBy = currentUser != null ? currentUser.getUsername() : "system-process";
+
+        predictionSummary.incrementPredictors();
+
+        List<List<Long>> orgUnitIdLists = new ArrayList<>();
+
+        for ( OrganisationUnitLevel orgUnitLevel : predictor.getOrganisationUnitLevels() )
+        {
+            List<Long> orgUnitIdsAtLevel = organisationUnitService.getOrganisationUnitsAtOrgUnitLevels(
+                Lists.newArrayList( orgUnitLevel ), currentUserOrgUnits ).stream()
+                .map( OrganisationUnit::getId ).collect( Collectors.toList() );
+
+            orgUnitIdLists.addAll( Lists.partition( orgUnitIdsAtLevel, ORG_UNITS_PER_TASK ) );
+        }
+
+        if ( orgUnitIdLists.isEmpty() )
+        {
+            return new ArrayList<>();
+        }
 
         Set<String> aggregates = new HashSet<>();
         Set<String> nonAggregates = new HashSet<>();
         expressionService.getAggregatesAndNonAggregatesInExpression( generator.getExpression(), aggregates, nonAggregates );
         Map<String, Double> constantMap = constantService.getConstantMap();
-        Set<Period> outputPeriods = getPeriodsBetweenDates( predictor.getPeriodType(), startDate, endDate );
-        Set<Period> existingOutputPeriods = getExistingPeriods( outputPeriods );
+        Set<Period> outputPeriods = addPeriods( getPeriodsBetweenDates( predictor.getPeriodType(), startDate, endDate ) );
         ListMap<Period, Period> samplePeriodsMap = getSamplePeriodsMap( outputPeriods, predictor );
         Set<Period> allSamplePeriods = samplePeriodsMap.uniqueValues();
-        Set<Period> existingSamplePeriods = getExistingPeriods( allSamplePeriods );
-        Set<DimensionalItemObject> aggregateDimensionItems = getDimensionItems( aggregates, skipTest );
-        Set<DimensionalItemObject> nonAggregateDimensionItems = getDimensionItems( nonAggregates, null );
-        User currentUser = currentUserService.getCurrentUser();
         Set<String> defaultOptionComboAsSet = Sets.newHashSet( categoryService.getDefaultCategoryOptionCombo().getUid() );
         Map4<OrganisationUnit, Period, String, DimensionalItemObject, Double> emptyMap4 = new Map4<>();
         MapMapMap<Period, String, DimensionalItemObject, Double> emptyMapMapMap = new MapMapMap<>();
-        boolean usingAttributeOptions = hasAttributeOptions( aggregateDimensionItems ) || hasAttributeOptions( nonAggregateDimensionItems );
 
-        CategoryOptionCombo outputOptionCombo = predictor.getOutputCombo() == null ?
-            categoryService.getDefaultCategoryOptionCombo() : predictor.getOutputCombo();
+        PreparedExpression preparedGenerator = expressionService.prepareExpressionRegEx( generator, constantMap, null, true );
+        PreparedExpression preparedSkipTest = skipTest == null ? null :
+            expressionService.prepareExpressionRegEx( skipTest, constantMap, null, false );
+        Map<String, PreparedExpression> preparedAggregates = new HashMap<>();
 
-        Date now = new Date();
-        Set<OrganisationUnit> currentUserOrgUnits = new HashSet<>();
-        String storedBy = "system-process";
-
-        if ( currentUser != null )
+        for ( String aggregate : aggregates )
         {
-            currentUserOrgUnits = currentUser.getOrganisationUnits();
-            storedBy = currentUser.getUsername();
+            preparedAggregates.put( aggregate, expressionService.prepareExpressionRegEx(
+                new Expression( aggregate, "Aggregated", missingValueStrategy ), constantMap, null, false ) );
         }
 
-        predictionSummary.incrementPredictors();
-
-        for ( OrganisationUnitLevel orgUnitLevel : predictor.getOrganisationUnitLevels() )
-        {
-            List<OrganisationUnit> orgUnitsAtLevel = organisationUnitService.getOrganisationUnitsAtOrgUnitLevels(
-                Lists.newArrayList( orgUnitLevel ), currentUserOrgUnits );
-
-            if ( orgUnitsAtLevel.size() == 0 )
-            {
-                continue;
-            }
+        Date now = new Date();
 
-            List<List<OrganisationUnit>> orgUnitLists = Lists.partition(orgUnitsAtLevel, 500);
+        // Tasks run in their own sessions, so the entities they use are
+        // reloaded by identifier instead of shared with the calling session
 
-            for ( List<OrganisationUnit> orgUnits : orgUnitLists )
+        Consumer<List<Long>> predictOrgUnits = orgUnitIds ->
+        {
+            DataElement outputDataElement = idObjectManager.get( DataElement.class, outputDataElementId );
+            CategoryOptionCombo outputOptionCombo = categoryService.getCategoryOptionCombo( outputOptionComboId );
+            List<OrganisationUnit> orgUnits = organisationUnitService.getOrganisationUnits( orgUnitIds );
+            Set<Period> existingOutputPeriods = getExistingPeriods( outputPeriods );
+            Set<Period> existingSamplePeriods = getExistingPeriods( allSamplePeriods );
+            Set<DimensionalItemObject> aggregateDimensionItems = getDimensionItems( aggregates, skipTest );
+            Set<DimensionalItemObject> nonAggregateDimensionItems = getDimensionItems( nonAggregates, null );
+            boolean usingAttributeOptions = hasAttributeOptions( aggregateDimensionItems ) || hasAttributeOptions( nonAggregateDimensionItems );
+
+            Map4<OrganisationUnit, Period, String, DimensionalItemObject, Double> aggregateDataMap4 =
+                aggregateDimensionItems.isEmpty() ? emptyMap4 :
+                    getDataValues( aggregateDimensionItems, allSamplePeriods, existingSamplePeriods, orgUnits );
+
+            Map4<OrganisationUnit, Period, String, DimensionalItemObject, Double> nonAggregateDataMap4 =
+                nonAggregateDimensionItems.isEmpty() ? emptyMap4 :
+                    getDataValues( nonAggregateDimensionItems, outputPeriods, existingOutputPeriods, orgUnits );
+
+            List<DataValue> predictions = new ArrayList<>();
+
+            for ( OrganisationUnit orgUnit : orgUnits )
             {
-                Map4<OrganisationUnit, Period, String, DimensionalItemObject, Double> aggregateDataMap4 =
-                    aggregateDimensionItems.isEmpty() ? emptyMap4 :
-                        getDataValues( aggregateDimensionItems, allSamplePeriods, existingSamplePeriods, orgUnits );
+                MapMapMap<Period, String, DimensionalItemObject, Double> aggregateDataMap = aggregateDataMap4.get( orgUnit );
 
-                Map4<OrganisationUnit, Period, String, DimensionalItemObject, Double> nonAggregateDataMap4 =
-                    nonAggregateDimensionItems.isEmpty() ? emptyMap4 :
-                        getDataValues( nonAggregateDimensionItems, outputPeriods, existingOutputPeriods, orgUnits );
+                MapMapMap<Period, String, DimensionalItemObject, Double> nonAggregateDataMap =
+                    firstNonNull( nonAggregateDataMap4.get( orgUnit ), emptyMapMapMap );
 
-                List<DataValue> predictions = new ArrayList<>();
+                applySkipTest( aggregateDataMap, preparedSkipTest );
 
-                for ( OrganisationUnit orgUnit : orgUnits )
+                for ( Period period : outputPeriods )
                 {
-                    MapMapMap<Period, String, DimensionalItemObject, Double> aggregateDataMap = aggregateDataMap4.get( orgUnit );
+                    ListMapMap<String, String, Double> aggregateSampleMap = getAggregateSamples( aggregateDataMap,
+                        preparedAggregates, samplePeriodsMap.get( period ) );
 
-                    MapMapMap<Period, String, DimensionalItemObject, Double> nonAggregateDataMap =
-                        firstNonNull( nonAggregateDataMap4.get( orgUnit ), emptyMapMapMap );
+                    MapMap<String, DimensionalItemObject, Double> nonAggregateSampleMap = firstNonNull(
+                        nonAggregateDataMap.get( period ), new MapMap<>() );
 
-                    applySkipTest( aggregateDataMap, skipTest, constantMap );
+                    Set<String> attributeOptionCombos = usingAttributeOptions ?
+                        Sets.union( aggregateSampleMap.keySet(), nonAggregateSampleMap.keySet() ) : defaultOptionComboAsSet;
 
-                    for ( Period period : outputPeriods )
+                    if ( attributeOptionCombos.isEmpty() && missingValueStrategy == MissingValueStrategy.NEVER_SKIP )
                     {
-                        ListMapMap<String, String, Double> aggregateSampleMap = getAggregateSamples( aggregateDataMap,
-                            aggregates, samplePeriodsMap.get( period ), constantMap, generator.getMissingValueStrategy() );
+                        attributeOptionCombos = defaultOptionComboAsSet;
+                    }
 
-                        MapMap<String, DimensionalItemObject, Double> nonAggregateSampleMap = firstNonNull(
-                            nonAggregateDataMap.get( period ), new MapMap<>() );
+                    ListMap<String, Double> aggregateSampleMapNonAoc = aggregateSampleMap.get( NON_AOC );
 
-                        Set<String> attributeOptionCombos = usingAttributeOptions ?
-                            Sets.union( aggregateSampleMap.keySet(), nonAggregateSampleMap.keySet() ) : defaultOptionComboAsSet;
+                    Map<DimensionalItemObject, Double> nonAggregateSampleMapNonAoc = nonAggregateSampleMap.get( NON_AOC );
 
-                        if ( attributeOptionCombos.isEmpty() && generator.getMissingValueStrategy() == MissingValueStrategy.NEVER_SKIP )
+                    for ( String aoc : attributeOptionCombos )
+                    {
+                        if ( NON_AOC.compareTo( aoc ) == 0 )
                         {
-                            attributeOptionCombos = defaultOptionComboAsSet;
+                            continue;
                         }
 
-                        ListMap<String, Double> aggregateSampleMapNonAoc = aggregateSampleMap.get( NON_AOC );
+                        ListMap<String, Double> aggregateValueMap = ListMap.union( aggregateSampleMap.get( aoc ), aggregateSampleMapNonAoc );
+
+                        Map<DimensionalItemObject, Double> nonAggregateValueMap = combine( nonAggregateSampleMap.get( aoc ), nonAggregateSampleMapNonAoc );
 
-                        Map<DimensionalItemObject, Double> nonAggregateSampleMapNonAoc = nonAggregateSampleMap.get( NON_AOC );
+                        Double value = preparedGenerator.getValue( nonAggregateValueMap,
+                            period.getDaysInPeriod(), aggregateValueMap );
 
-                        for ( String aoc : attributeOptionCombos )
+                        if ( value != null && !value.isNaN() && !value.isInfinite() &&
+                            !dataValueIsZeroAndInsignificant( Double.toString( value ), outputDataElement ) )
                         {
-                            if ( NON_AOC.compareTo( aoc ) == 0 )
-                            {
-                                continue;
-                            }
-
-                            ListMap<String, Double> aggregateValueMap = ListMap.union( aggregateSampleMap.get( aoc ), aggregateSampleMapNonAoc );
-
-                            Map<DimensionalItemObject, Double> nonAggregateValueMap = combine( nonAggregateSampleMap.get( aoc ), nonAggregateSampleMapNonAoc );
-
-                            Double value = expressionService.getExpressionValueRegEx( generator, nonAggregateValueMap,
-                                constantMap, null, period.getDaysInPeriod(), aggregateValueMap );
-
-                            if ( value != null && !value.isNaN() && !value.isInfinite() &&
-                                !dataValueIsZeroAndInsignificant( Double.toString( value ), outputDataElement ) )
-                            {
-                                String valueString = outputDataElement.getValueType().isInteger() ?
-                                    Long.toString( Math.round( value ) ) :
-                                    Double.toString( MathUtils.roundFraction( value, 4 ) );
-
-                                predictions.add( new DataValue( outputDataElement,
-                                    periodService.reloadPeriod( period ), orgUnit,
-                                    outputOptionCombo, categoryService.getCategoryOptionCombo( aoc ),
-                                    valueString, storedBy, now, null ) );
-                            }
+                            String valueString = outputDataElement.getValueType().isInteger() ?
+                                Long.toString( Math.round( value ) ) :
+                                Double.toString( MathUtils.roundFraction( value, 4 ) );
+
+                            predictions.add( new DataValue( outputDataElement,
+                                periodService.reloadPeriod( period ), orgUnit,
+                                outputOptionCombo, categoryService.getCategoryOptionCombo( aoc ),
+                                valueString, storedBy, now, null ) );
                         }
                     }
                 }
+            }
+
+            writePredictions( predictions, outputDataElement, outputOptionCombo,
+                outputPeriods, orgUnits, storedBy, predictionSummary );
+        };
 
-                writePredictions( predictions, outputDataElement, outputOptionCombo,
-                    outputPeriods, orgUnits, storedBy, predictionSummary );
+        List<Future<?>> tasks = new ArrayList<>();
+
+        if ( getInputDataElementUids( predictor ).contains( predictor.getOutput().getUid() ) )
+        {
+            // The predictor reads its own output, so predict for its organisation
+            // units in order, as later partitions may aggregate earlier predictions.
+
+            tasks.add( submitInTransaction( executor, () -> orgUnitIdLists.forEach( predictOrgUnits ) ) );
+        }
+        else
+        {
+            for ( List<Long> orgUnitIds : orgUnitIdLists )
+            {
+                tasks.add( submitInTransaction( executor, () -> predictOrgUnits.accept( orgUnitIds ) ) );
             }
         }
+
+        return tasks;
+    }
+
+    /**
+     * Submits a task to run in its own transaction.
+     *
+     * @param executor the executor.
+     * @param task the task.
+     * @return the future of the task.
+     */
+    private Future<?> submitInTransaction( ExecutorService executor, Runnable task )
+    {
+        return executor.submit( () -> transactionTemplate.execute( status ->
+        {
+            task.run();
+
+            return null;
+        } ) );
+    }
+
+    /**
+     * Waits for prediction tasks to complete. If a task fails, the remaining
+     * tasks are cancelled and the failure is rethrown.
+     *
+     * @param tasks the tasks.
+     */
+    private void awaitTasks( List<Future<?>> tasks )
+    {
+        try
+        {
+            for ( Future<?> task : tasks )
+            {
+                task.get();
+            }
+        }
+        catch ( InterruptedException ex )
+        {
+            tasks.forEach( t -> t.cancel( true ) );
+
+            Thread.currentThread().interrupt();
+
+            throw new IllegalStateException( "Interrupted while making predictions", ex );
+        }
+        catch ( ExecutionException ex )
+        {
+            tasks.forEach( t -> t.cancel( true ) );
+
+            if ( ex.getCause() instanceof RuntimeException )
+            {
+                throw (RuntimeException) ex.getCause();
+            }
+
+            throw new IllegalStateException( "Failed to make predictions", ex.getCause() );
+        }
+    }
+
+    /**
+     * Groups predictors into stages which are run one after the other.
+     * <p/>
+     * A predictor goes into a later stage than any predictor before it in the
+     * list which writes a data element it reads, which reads the data element
+     * it writes, or which writes the same data element. This gives the same
+     * results as running the predictors one by one in list order, while
+     * independent predictors run together.
+     *
+     * @param predictors the predictors, in the order they are requested.
+     * @return the predictors grouped by stage.
+     */
+    private List<List<Predictor>> getPredictorStages( List<Predictor> predictors )
+    {
+        List<List<Predictor>> stages = new ArrayList<>();
+        List<Set<String>> inputs = new ArrayList<>();
+        int[] stageIndex = new int[predictors.size()];
+
+        for ( int i = 0; i < predictors.size(); i++ )
+        {
+            Predictor predictor = predictors.get( i );
+            String output = predictor.getOutput().getUid();
+            Set<String> input = getInputDataElementUids( predictor );
+
+            int stage = 0;
+
+            for ( int j = 0; j < i; j++ )
+            {
+                String earlierOutput = predictors.get( j ).getOutput().getUid();
+
+                if ( input.contains( earlierOutput ) || inputs.get( j ).contains( output ) || output.equals( earlierOutput ) )
+                {
+                    stage = Math.max( stage, stageIndex[j] + 1 );
+                }
+            }
+
+            inputs.add( input );
+            stageIndex[i] = stage;
+
+            if ( stages.size() == stage )
+            {
+                stages.add( new ArrayList<>() );
+            }
+
+            stages.get( stage ).add( predictor );
+        }
+
+        return stages;
+    }
+
+    /**
+     * Gets the uids of the aggregate data elements read by a predictor.
+     *
+     * @param predictor the predictor.
+     * @return the data element uids.
+     */
+    private Set<String> getInputDataElementUids( Predictor predictor )
+    {
+        Set<DataElement> dataElements = new HashSet<>( expressionService.getDataElementsInExpression(
+            predictor.getGenerator().getExpression() ) );
+
+        if ( predictor.getSampleSkipTest() != null )
+        {
+            dataElements.addAll( expressionService.getDataElementsInExpression(
+                predictor.getSampleSkipTest().getExpression() ) );
+        }
+
+        return dataElements.stream().map( DataElement::getUid ).collect( Collectors.toSet() );
+    }
+
+    /**
+     * Adds any periods that don't exist yet, in a separate transaction, so
+     * they are committed before prediction tasks use them.
+     *
+     * @param periods the periods.
+     * @return the stored periods.
+     */
+    private Set<Period> addPeriods( Set<Period> periods )
+    {
+        return new HashSet<>( newTransactionTemplate.execute(
+            status -> periodService.reloadPeriods( new ArrayList<>( periods ) ) ) );
+    }
+
+    /**
+     * Determines how many threads to use for making predictions.
+     *
+     * @return the number of threads.
+     */
+    private int getThreadPoolSize()
+    {
+        int threadPoolSize = SystemUtils.getCpuCores();
+
+        if ( threadPoolSize > 2 )
+        {
+            threadPoolSize--;
+        }
+
+        return threadPoolSize;
     }
 
     private Map<DimensionalItemObject, Double> combine ( Map<DimensionalItemObject, Double> a, Map<DimensionalItemObject, Double> b )
@@ -470,25 +728,20 @@ public class DefaultPredictionService
      * the various sample periods.
      *
      * @param dataMap data to be used in evaluating expressions.
-     * @param aggregates the aggregate expressions.
+     * @param aggregates the prepared aggregate expressions, by expression.
      * @param samplePeriods the periods to sample from.
-     * @param constantMap any constants used in evaluating expressions.
-     * @param missingValueStrategy strategy for sampled period missing values.
      * @return lists of sample values by attributeOptionCombo and expression
      */
     private ListMapMap<String, String, Double> getAggregateSamples (
         MapMapMap<Period, String, DimensionalItemObject, Double> dataMap,
-        Collection<String> aggregates, List<Period> samplePeriods,
-        Map<String, Double> constantMap, MissingValueStrategy missingValueStrategy )
+        Map<String, PreparedExpression> aggregates, List<Period> samplePeriods )
     {
         ListMapMap<String, String, Double> result = new ListMapMap<>();
 
         if ( dataMap != null )
         {
-            for ( String aggregate : aggregates )
+            for ( Map.Entry<String, PreparedExpression> aggregate : aggregates.entrySet() )
             {
-                Expression expression = new Expression( aggregate, "Aggregated", missingValueStrategy );
-
                 for ( Period period : samplePeriods )
                 {
                     MapMap<String, DimensionalItemObject, Double> periodValues = dataMap.get( period );
@@ -497,10 +750,10 @@ public class DefaultPredictionService
                     {
                         for ( String aoc : periodValues.keySet() )
                         {
-                            Double value = expressionService.getExpressionValueRegEx( expression,
-                                periodValues.get( aoc ), constantMap, null, period.getDaysInPeriod() );
+                            Double value = aggregate.getValue().getValue( periodValues.get( aoc ),
+                                period.getDaysInPeriod(), null );
 
-                            result.putValue( aoc, aggregate, value );
+                            result.putValue( aoc, aggregate.getKey(), value );
                         }
                     }
                 }
@@ -517,11 +770,10 @@ public class DefaultPredictionService
      * that combination of period and attribute option combo.
      *
      * @param dataMap all data values (both skip and aggregate).
-     * @param skipTest the skip test expression.
-     * @param constantMap constants to use in skip expression if needed.
+     * @param skipTest the prepared skip test expression.
      */
     private void applySkipTest( MapMapMap<Period, String, DimensionalItemObject, Double> dataMap,
-        Expression skipTest, Map<String, Double> constantMap )
+        PreparedExpression skipTest )
     {
         if ( skipTest != null && dataMap != null )
         {
@@ -531,8 +783,8 @@ public class DefaultPredictionService
 
                 for ( String aoc : periodData.keySet() )
                 {
-                    Double testValue = expressionService.getExpressionValueRegEx( skipTest, periodData.get( aoc ),
-                        constantMap, null, period.getDaysInPeriod() );
+                    Double testValue = skipTest.getValue( periodData.get( aoc ),
+                        period.getDaysInPeriod(), null );
 
                     if ( testValue != null && !MathUtils.isZero( testValue ) )
                     {
@@ -637,6 +889,9 @@ public class DefaultPredictionService
      * (b) If the period does not exist in the database, then
      *     there is no data in the database to look for.
      *
+     * Periods are looked up in the current session, also when they have
+     * ids, as prediction tasks do not share the session of the caller.
+     *
      * @param periods the periods to look for
      * @return the set of periods that exist, with ids.
      */
@@ -646,8 +901,7 @@ public class DefaultPredictionService
 
         for ( Period period : periods )
         {
-            Period existingPeriod = period.getId() != 0 ? period :
-                periodService.getPeriod( period.getStartDate(), period.getEndDate(), period.getPeriodType() );
+            Period existingPeriod = periodService.getPeriod( period.getStartDate(), period.getEndDate(), period.getPeriodType() );
 
             if ( existingPeriod != null )
             {
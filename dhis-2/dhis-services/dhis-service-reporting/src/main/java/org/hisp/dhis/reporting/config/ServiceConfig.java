@@ -0,0 +1,81 @@
+package org.hisp.dhis.reporting.config;
+
+/*
+ * Copyright (c) 2004-2019, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hisp.dhis.commons.util.SystemUtils;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Services and executors of the reporting module.
+ */
+@Configuration( "reportingServiceConfig" )
+public class ServiceConfig
+{
+    /**
+     * Thread pool shared by all validation rule analyses, so that concurrent
+     * analyses together use at most one thread per available core. The
+     * active threads, pool size, queued and completed tasks of the pool are
+     * published as executor metrics tagged with the name of the executor.
+     */
+    @Bean( "validationTaskExecutor" )
+    public ThreadPoolTaskExecutor validationTaskExecutor( MeterRegistry meterRegistry )
+    {
+        int poolSize = SystemUtils.getCpuCores();
+
+        if ( poolSize > 2 )
+        {
+            poolSize--;
+        }
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize( poolSize );
+        executor.setMaxPoolSize( poolSize );
+        executor.setThreadNamePrefix( "validation-" );
+
+        // The thread pool is only created when the bean is initialized, so
+        // the metrics read it through the executor
+
+        Gauge.builder( "executor.active", executor, ThreadPoolTaskExecutor::getActiveCount )
+            .tag( "name", "validationTaskExecutor" ).register( meterRegistry );
+        Gauge.builder( "executor.pool.size", executor, ThreadPoolTaskExecutor::getPoolSize )
+            .tag( "name", "validationTaskExecutor" ).register( meterRegistry );
+        Gauge.builder( "executor.queued", executor, e -> e.getThreadPoolExecutor().getQueue().size() )
+            .tag( "name", "validationTaskExecutor" ).register( meterRegistry );
+        FunctionCounter.builder( "executor.completed", executor, e -> e.getThreadPoolExecutor().getCompletedTaskCount() )
+            .tag( "name", "validationTaskExecutor" ).register( meterRegistry );
+
+        return executor;
+    }
+}
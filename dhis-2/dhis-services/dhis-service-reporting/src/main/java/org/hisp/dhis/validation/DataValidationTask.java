@@ -47,15 +47,19 @@ import org.hisp.dhis.datavalue.DeflatedDataValue;
 import org.hisp.dhis.expression.Expression;
 import org.hisp.dhis.expression.ExpressionService;
 import org.hisp.dhis.expression.Operator;
+import org.hisp.dhis.jdbc.batchhandler.ValidationResultBatchHandler;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.period.Period;
 import org.hisp.dhis.period.PeriodService;
 import org.hisp.dhis.system.util.MathUtils;
+import org.hisp.quick.BatchHandler;
+import org.hisp.quick.BatchHandlerFactory;
 import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.PersistenceException;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.HashMap;
@@ -95,18 +99,22 @@ public class DataValidationTask
 
     private final PeriodService periodService;
 
+    private final BatchHandlerFactory batchHandlerFactory;
+
     public DataValidationTask( ExpressionService expressionService, DataValueService dataValueService,
-        CategoryService categoryService, PeriodService periodService )
+        CategoryService categoryService, PeriodService periodService, BatchHandlerFactory batchHandlerFactory )
     {
         checkNotNull( expressionService );
         checkNotNull( dataValueService );
         checkNotNull( categoryService );
         checkNotNull( periodService );
+        checkNotNull( batchHandlerFactory );
 
         this.expressionService = expressionService;
         this.dataValueService = dataValueService;
         this.categoryService = categoryService;
         this.periodService = periodService;
+        this.batchHandlerFactory = batchHandlerFactory;
     }
 
     // (wired through constructor)
@@ -118,6 +126,8 @@ public class DataValidationTask
 
     private Set<ValidationResult> validationResults;
 
+    private List<ValidationResult> resultsToPersist = new ArrayList<>();
+
     private PeriodTypeExtended periodTypeX; // Current period type extended.
 
     private Period period;                  // Current period.
@@ -128,6 +138,11 @@ public class DataValidationTask
 
     private ValidationRuleExtended ruleX;   // Current rule extended.
 
+    // Data for all periods of the current period type, fetched in bulk:
+    private Map<Period, MapMapMap<Long, String, DimensionalItemObject, Double>> periodDataMaps;
+
+    private Map<Period, MapMapMap<Long, String, DimensionalItemObject, Double>> periodEventMaps;
+
     // Data for current period and all rules being evaluated:
     private MapMapMap<Long, String, DimensionalItemObject, Double> dataMap;
 
@@ -162,7 +177,8 @@ public class DataValidationTask
 
     /**
      * Get the data needed for this task, then evaluate each combination
-     * of organisation unit / period / validation rule.
+     * of organisation unit / period / validation rule. Persists the results
+     * found, if requested, when done.
      */
     private void runInternal()
     {
@@ -171,11 +187,25 @@ public class DataValidationTask
             return;
         }
 
+        validateOrgUnits();
+
+        persistValidationResults();
+    }
+
+    /**
+     * Evaluates each combination of organisation unit / period / validation
+     * rule, stopping early if the analysis is complete or the task is
+     * cancelled.
+     */
+    private void validateOrgUnits()
+    {
         loop:
         for ( PeriodTypeExtended ptx : context.getPeriodTypeXs() )
         {
             periodTypeX = ptx;
 
+            getPeriodTypeData();
+
             for ( Period p : periodTypeX.getPeriods() )
             {
                 period = p;
@@ -191,7 +221,7 @@ public class DataValidationTask
                     {
                         ruleX = r;
 
-                        if ( context.isAnalysisComplete() )
+                        if ( context.isAnalysisComplete() || Thread.currentThread().isInterrupted() )
                         {
                             break loop;
                         }
@@ -323,6 +353,29 @@ public class DataValidationTask
         return !expressionIsTrue( leftSide, ruleX.getRule().getOperator(), rightSide );
     }
 
+    /**
+     * Gets the data for all periods of this period type at once, so that
+     * each data value and analytics query covers every period and rule of
+     * the period type:
+     * <p/>
+     * periodDataMaps contains data values and indicators by period.
+     * periodEventMaps contains non-sliding window event data by period.
+     */
+    private void getPeriodTypeData()
+    {
+        periodDataMaps = getDataValueMaps();
+
+        putAnalyticsMaps( periodDataMaps, true, periodTypeX.getIndicators() );
+
+        periodEventMaps = new HashMap<>();
+
+        if ( periodTypeX.areNonSlidingWindowsNeeded() )
+        {
+            putAnalyticsMaps( periodEventMaps, true, periodTypeX.getEventItems() );
+            putAnalyticsMaps( periodEventMaps, false, periodTypeX.getEventItemsWithoutAttributeOptions() );
+        }
+    }
+
     /**
      * Gets the data for this period:
      * <p/>
@@ -331,11 +384,9 @@ public class DataValidationTask
      */
     private void getData()
     {
-        getDataValueMap();
+        dataMap = removePeriodMap( periodDataMaps );
 
-        dataMap.putMap( getAnalyticsMap( true, periodTypeX.getIndicators() ) );
-
-        slidingWindowDataMap = new MapMapMap();
+        slidingWindowDataMap = new MapMapMap<>();
 
         if ( periodTypeX.areSlidingWindowsNeeded() )
         {
@@ -347,11 +398,25 @@ public class DataValidationTask
 
         if ( periodTypeX.areNonSlidingWindowsNeeded() )
         {
-            dataMap.putMap( getAnalyticsMap( true, periodTypeX.getEventItems() ) );
-            dataMap.putMap( getAnalyticsMap( false, periodTypeX.getEventItemsWithoutAttributeOptions() ) );
+            dataMap.putMap( removePeriodMap( periodEventMaps ) );
         }
     }
 
+    /**
+     * Removes the data for the current period from a map of data by period,
+     * as it is needed only once.
+     *
+     * @param periodMaps the data by period.
+     * @return the data for the current period, or an empty map if none.
+     */
+    private MapMapMap<Long, String, DimensionalItemObject, Double> removePeriodMap(
+        Map<Period, MapMapMap<Long, String, DimensionalItemObject, Double>> periodMaps )
+    {
+        MapMapMap<Long, String, DimensionalItemObject, Double> map = periodMaps.remove( period );
+
+        return map != null ? map : new MapMapMap<>();
+    }
+
     /**
      * For an expression (left side or right side), finds the values
      * (grouped by attribute option combo).
@@ -377,16 +442,50 @@ public class DataValidationTask
     }
 
     /**
-     * Adds any validation results we found to the validation context.
+     * Adds any validation results we found to the validation context, and
+     * to the results to persist if requested.
      */
     private void addValidationResultsToContext()
     {
         if ( validationResults.size() > 0 )
         {
-            context.getValidationResults().addAll( validationResults );
+            context.addValidationResults( validationResults );
+
+            if ( context.isPersistResults() )
+            {
+                resultsToPersist.addAll( validationResults );
+            }
         }
     }
 
+    /**
+     * Writes the validation results found by this task to the database
+     * in a batch, so they need not be kept until the analysis is complete.
+     */
+    private void persistValidationResults()
+    {
+        if ( resultsToPersist.isEmpty() )
+        {
+            return;
+        }
+
+        BatchHandler<ValidationResult> batchHandler = batchHandlerFactory
+            .createBatchHandler( ValidationResultBatchHandler.class ).init();
+
+        Date now = new Date();
+
+        for ( ValidationResult validationResult : resultsToPersist )
+        {
+            validationResult.setCreated( now );
+
+            batchHandler.addObject( validationResult );
+        }
+
+        batchHandler.flush();
+
+        resultsToPersist = new ArrayList<>();
+    }
+
     private Period getPeriod( long id )
     {
         Period p = context.getPeriodIdMap().get( id );
@@ -501,14 +600,20 @@ public class DataValidationTask
     }
 
     /**
-     * Gets data elements and data element operands from the datavalue table.
+     * Gets data elements and data element operands from the datavalue table
+     * for all periods of the period type in one query. A value is used for
+     * each validation period whose start date falls within the period of
+     * the value.
+     *
+     * @return the data by validation period.
      */
-    private void getDataValueMap()
+    private Map<Period, MapMapMap<Long, String, DimensionalItemObject, Double>> getDataValueMaps()
     {
         DataExportParams params = new DataExportParams();
         params.setDataElements( periodTypeX.getDataElements() );
         params.setDataElementOperands( periodTypeX.getDataElementOperands() );
-        params.setIncludedDate( period.getStartDate() );
+        params.setIncludedDates( periodTypeX.getPeriods().stream()
+            .map( Period::getStartDate ).collect( Collectors.toSet() ) );
         params.setOrganisationUnits( new HashSet<>( orgUnits ) );
         params.setPeriodTypes( periodTypeX.getAllowedPeriodTypes() );
         params.setCoDimensionConstraints( context.getCoDimensionConstraints() );
@@ -521,9 +626,11 @@ public class DataValidationTask
 
         List<DeflatedDataValue> dataValues = dataValueService.getDeflatedDataValues( params );
 
-        dataMap = new MapMapMap<>();
+        Map<Period, MapMapMap<Long, String, DimensionalItemObject, Double>> dataMaps = new HashMap<>();
+
+        Map<Period, MapMapMap<Long, String, DimensionalItemObject, Long>> checkForDuplicates = new HashMap<>();
 
-        MapMapMap<Long, String, DimensionalItemObject, Long> checkForDuplicates = new MapMapMap<>();
+        Map<Long, List<Period>> validationPeriodMap = new HashMap<>();
 
         for ( DeflatedDataValue dv : dataValues )
         {
@@ -545,21 +652,51 @@ public class DataValidationTask
                 continue;
             }
 
-            if ( dataElement != null )
-            {
-                addValueToDataMap( orgUnitId, attributeOptionComboUid, dataElement, value, p, checkForDuplicates );
-            }
+            List<Period> validationPeriods = validationPeriodMap.computeIfAbsent( p.getId(),
+                k -> getValidationPeriods( p ) );
 
-            if ( dataElementOperand != null )
+            for ( Period validationPeriod : validationPeriods )
             {
-                addValueToDataMap( orgUnitId, attributeOptionComboUid, dataElementOperand, value, p,
-                    checkForDuplicates );
+                MapMapMap<Long, String, DimensionalItemObject, Double> periodDataMap = dataMaps
+                    .computeIfAbsent( validationPeriod, k -> new MapMapMap<>() );
+                MapMapMap<Long, String, DimensionalItemObject, Long> periodDuplicates = checkForDuplicates
+                    .computeIfAbsent( validationPeriod, k -> new MapMapMap<>() );
+
+                if ( dataElement != null )
+                {
+                    addValueToDataMap( periodDataMap, orgUnitId, attributeOptionComboUid, dataElement, value, p,
+                        periodDuplicates );
+                }
+
+                if ( dataElementOperand != null )
+                {
+                    addValueToDataMap( periodDataMap, orgUnitId, attributeOptionComboUid, dataElementOperand, value, p,
+                        periodDuplicates );
+                }
             }
         }
+
+        return dataMaps;
     }
 
-    private void addValueToDataMap( long orgUnitId, String aocUid, DimensionalItemObject dimItemObject,
-        Double value, Period p, MapMapMap<Long, String, DimensionalItemObject, Long> checkForDuplicates )
+    /**
+     * Gets the validation periods of the period type whose start date falls
+     * within a data value period.
+     *
+     * @param dataPeriod the period of a data value.
+     * @return the validation periods for the data value.
+     */
+    private List<Period> getValidationPeriods( Period dataPeriod )
+    {
+        return periodTypeX.getPeriods().stream()
+            .filter( vp -> !vp.getStartDate().before( dataPeriod.getStartDate() )
+                && !vp.getStartDate().after( dataPeriod.getEndDate() ) )
+            .collect( Collectors.toList() );
+    }
+
+    private void addValueToDataMap( MapMapMap<Long, String, DimensionalItemObject, Double> dataMap,
+        long orgUnitId, String aocUid, DimensionalItemObject dimItemObject, Double value, Period p,
+        MapMapMap<Long, String, DimensionalItemObject, Long> checkForDuplicates )
     {
         double existingValue = ObjectUtils.firstNonNull( dataMap.getValue( orgUnitId, aocUid, dimItemObject ), 0.0 );
 
@@ -585,22 +722,25 @@ public class DataValidationTask
     }
 
     /**
-     * Gets analytics data for the given parameters.
+     * Gets analytics data for the given parameters for all periods of the
+     * period type in one query, and adds it to a map of data by period.
      *
+     * @param periodMaps          the data by period to add to.
      * @param hasAttributeOptions whether the event data has attribute options.
+     * @param analyticsItems      the analytics items to get.
      */
-    private MapMapMap<Long, String, DimensionalItemObject, Double> getAnalyticsMap(
+    private void putAnalyticsMaps( Map<Period, MapMapMap<Long, String, DimensionalItemObject, Double>> periodMaps,
         boolean hasAttributeOptions, Set<DimensionalItemObject> analyticsItems )
     {
         if ( analyticsItems.isEmpty() )
         {
-            return new MapMapMap<>();
+            return;
         }
 
         DataQueryParams.Builder paramsBuilder = DataQueryParams.newBuilder()
             .withDataDimensionItems( Lists.newArrayList( analyticsItems ) )
             .withAttributeOptionCombos( Lists.newArrayList() )
-            .withFilterPeriods( Lists.newArrayList( period ) )
+            .withPeriods( Lists.newArrayList( periodTypeX.getPeriods() ) )
             .withOrganisationUnits( orgUnits );
 
         if ( hasAttributeOptions )
@@ -608,7 +748,11 @@ public class DataValidationTask
             paramsBuilder.withAttributeOptionCombos( Lists.newArrayList() );
         }
 
-        return getAnalyticsData( paramsBuilder.build(), hasAttributeOptions );
+        for ( Map.Entry<Period, MapMapMap<Long, String, DimensionalItemObject, Double>> entry :
+            getAnalyticsData( paramsBuilder.build(), hasAttributeOptions ).entrySet() )
+        {
+            periodMaps.computeIfAbsent( entry.getKey(), k -> new MapMapMap<>() ).putMap( entry.getValue() );
+        }
     }
 
     /**
@@ -656,20 +800,21 @@ public class DataValidationTask
             paramsBuilder.withAttributeOptionCombos( Lists.newArrayList() );
         }
 
-        return getAnalyticsData( paramsBuilder.build(), hasAttributeOptions );
+        return removePeriodMap( getAnalyticsData( paramsBuilder.build(), hasAttributeOptions ) );
     }
 
     /**
-     * Gets analytics data.
+     * Gets analytics data, grouped by the period dimension if the query has
+     * one, otherwise by the current period.
      *
      * @param params              event data query parameters.
      * @param hasAttributeOptions whether the event data has attribute options.
-     * @return event data.
+     * @return event data by period.
      */
-    private MapMapMap<Long, String, DimensionalItemObject, Double> getAnalyticsData(
+    private Map<Period, MapMapMap<Long, String, DimensionalItemObject, Double>> getAnalyticsData(
         DataQueryParams params, boolean hasAttributeOptions )
     {
-        MapMapMap<Long, String, DimensionalItemObject, Double> map = new MapMapMap<>();
+        Map<Period, MapMapMap<Long, String, DimensionalItemObject, Double>> map = new HashMap<>();
 
         Grid grid;
 
@@ -685,6 +830,7 @@ public class DataValidationTask
         int dxInx = grid.getIndexOfHeader( DimensionalObject.DATA_X_DIM_ID );
         int ouInx = grid.getIndexOfHeader( DimensionalObject.ORGUNIT_DIM_ID );
         int aoInx = hasAttributeOptions ? grid.getIndexOfHeader( DimensionalObject.ATTRIBUTEOPTIONCOMBO_DIM_ID ) : 0;
+        int peInx = grid.getIndexOfHeader( DimensionalObject.PERIOD_DIM_ID );
         int vlInx = grid.getWidth() - 1;
 
         Map<String, OrganisationUnit> ouLookup = orgUnits.stream()
@@ -693,6 +839,8 @@ public class DataValidationTask
             .collect( Collectors.toMap(DimensionalItemObject::getDimensionItem, d -> d ) );
         dxLookup.putAll( periodTypeX.getIndicators().stream()
             .collect( Collectors.toMap(DimensionalItemObject::getDimensionItem, d -> d ) ) );
+        Map<String, Period> peLookup = periodTypeX.getPeriods().stream()
+            .collect( Collectors.toMap( Period::getIsoDate, p -> p ) );
 
         for ( List<Object> row : grid.getRows() )
         {
@@ -703,8 +851,9 @@ public class DataValidationTask
 
             OrganisationUnit orgUnit = ouLookup.get( ou );
             DimensionalItemObject analyticsItem = dxLookup.get( dx );
+            Period pe = peInx >= 0 ? peLookup.get( (String) row.get( peInx ) ) : period;
 
-            map.putEntry( orgUnit.getId(), ao, analyticsItem, vl );
+            map.computeIfAbsent( pe, k -> new MapMapMap<>() ).putEntry( orgUnit.getId(), ao, analyticsItem, vl );
         }
 
         return map;
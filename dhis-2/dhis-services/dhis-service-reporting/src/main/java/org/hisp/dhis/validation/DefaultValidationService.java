@@ -58,7 +58,9 @@ import org.hisp.dhis.user.User;
 import org.hisp.dhis.validation.notification.ValidationNotificationService;
 import org.springframework.context.ApplicationContext;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.*;
 
@@ -102,12 +104,15 @@ public class DefaultValidationService
     
     private CurrentUserService currentUserService;
 
+    private final TransactionTemplate newTransactionTemplate;
+
     public DefaultValidationService( PeriodService periodService, OrganisationUnitService organisationUnitService,
         ExpressionService expressionService, DimensionService dimensionService, DataValueService dataValueService,
         CategoryService categoryService, ConstantService constantService,
         ValidationNotificationService notificationService, ValidationRuleService validationRuleService,
         ApplicationContext applicationContext, ValidationResultService validationResultService,
-        AnalyticsService analyticsService, CurrentUserService currentUserService )
+        AnalyticsService analyticsService, CurrentUserService currentUserService,
+        TransactionTemplate transactionTemplate )
     {
         checkNotNull( periodService );
         checkNotNull( organisationUnitService );
@@ -122,6 +127,7 @@ public class DefaultValidationService
         checkNotNull( validationResultService );
         checkNotNull( analyticsService );
         checkNotNull( currentUserService );
+        checkNotNull( transactionTemplate );
 
         this.periodService = periodService;
         this.organisationUnitService = organisationUnitService;
@@ -136,6 +142,9 @@ public class DefaultValidationService
         this.validationResultService = validationResultService;
         this.analyticsService = analyticsService;
         this.currentUserService = currentUserService;
+
+        this.newTransactionTemplate = new TransactionTemplate( transactionTemplate.getTransactionManager() );
+        this.newTransactionTemplate.setPropagationBehavior( TransactionDefinition.PROPAGATION_REQUIRES_NEW );
     }
 
     /**
@@ -172,18 +181,18 @@ public class DefaultValidationService
             + ( parameters.isPersistResults() ? ", persisting results" : "" )
             + ( parameters.isSendNotifications() ? ", sending notifications" : "" ) );
 
-        ValidationRunContext context = getValidationContext( parameters );
+        Collection<Period> periods = parameters.isPersistResults() ?
+            addPeriods( parameters.getPeriods() ) : parameters.getPeriods();
+
+        ValidationRunContext context = getValidationContext( parameters, periods );
 
         clock.logTime( "Initialized validation analysis" );
 
-        Collection<ValidationResult> results = Validator.validate( context, applicationContext, analyticsService );
+        // Validation tasks persist their results when they finish, if requested
 
-        if ( context.isPersistResults() )
-        {
-            validationResultService.saveValidationResults( context.getValidationResults() );
-        }
+        Collection<ValidationResult> results = Validator.validate( context, applicationContext, analyticsService );
 
-        clock.logTime( "Finished validation analysis, " +  context.getValidationResults().size() + " results").stop();
+        clock.logTime( "Finished validation analysis, " +  context.getValidationResultCount() + " results").stop();
 
         if ( context.isSendNotifications() )
         {
@@ -261,9 +270,10 @@ public class DefaultValidationService
      * Returns a new Builder with basic configuration based on the input parameters.
      *
      * @param parameters        ValidationRuleParameters for creating ValidationRuleContext
+     * @param periods           the periods to validate.
      * @return Builder with basic configuration based on input.
      */
-    private ValidationRunContext getValidationContext( ValidationAnalysisParams parameters )
+    private ValidationRunContext getValidationContext( ValidationAnalysisParams parameters, Collection<Period> periods )
     {
         User currentUser = currentUserService.getCurrentUser();
 
@@ -284,7 +294,7 @@ public class DefaultValidationService
 
         Map<PeriodType, PeriodTypeExtended> periodTypeXMap = new HashMap<>();
 
-        addPeriodsToContext( periodTypeXMap, parameters.getPeriods() );
+        addPeriodsToContext( periodTypeXMap, periods );
         addRulesToContext( periodTypeXMap, parameters.getRules() );
         removeAnyUnneededPeriodTypes( periodTypeXMap );
 
@@ -294,9 +304,10 @@ public class DefaultValidationService
             .withConstantMap( constantService.getConstantMap() )
             .withInitialResults( validationResultService
                 .getValidationResults( parameterOrgUnit,
-                    parameters.isIncludeOrgUnitDescendants(), parameters.getRules(), parameters.getPeriods()) )
+                    parameters.isIncludeOrgUnitDescendants(), parameters.getRules(), periods ) )
             .withSendNotifications( parameters.isSendNotifications() )
             .withPersistResults( parameters.isPersistResults() )
+            .withReturnResults( parameters.isReturnResults() )
             .withAttributeCombo( parameters.getAttributeOptionCombo() )
             .withDefaultAttributeCombo( categoryService.getDefaultCategoryOptionCombo() )
             .withMaxResults( parameters.getMaxResults() );
@@ -313,6 +324,19 @@ public class DefaultValidationService
         return builder.build();
     }
 
+    /**
+     * Adds any periods that don't exist yet, in a separate transaction, so
+     * they are committed before validation tasks persist results for them.
+     *
+     * @param periods the periods.
+     * @return the stored periods.
+     */
+    private List<Period> addPeriods( Collection<Period> periods )
+    {
+        return newTransactionTemplate.execute(
+            status -> periodService.reloadPeriods( new ArrayList<>( periods ) ) );
+    }
+
     /**
      * Adds Periods to the context, grouped by period type.
      *
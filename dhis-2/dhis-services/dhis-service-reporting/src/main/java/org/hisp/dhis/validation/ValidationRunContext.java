@@ -46,6 +46,7 @@ import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * This class keeps track of a validation analysis. It contains information about the initial params of the analysis,
@@ -61,6 +62,8 @@ public class ValidationRunContext
 
     private Queue<ValidationResult> validationResults;
 
+    private AtomicInteger validationResultCount = new AtomicInteger();
+
     private List<OrganisationUnit> orgUnits;
 
     private List<PeriodTypeExtended> periodTypeXs;
@@ -85,6 +88,8 @@ public class ValidationRunContext
 
     private boolean persistResults = false;
 
+    private boolean returnResults = true;
+
     private MapMapMap<OrganisationUnit, ValidationRule, Period, List<ValidationResult>> initialValidationResults = new MapMapMap<>();
 
     private ValidationRunContext()
@@ -156,11 +161,26 @@ public class ValidationRunContext
         return persistResults;
     }
 
+    public boolean isReturnResults()
+    {
+        return returnResults;
+    }
+
+    /**
+     * Gets the validation results kept in memory. These are all results
+     * if results are to be returned, otherwise only the results needed to
+     * send notifications.
+     */
     public Queue<ValidationResult> getValidationResults()
     {
         return validationResults;
     }
 
+    public int getValidationResultCount()
+    {
+        return validationResultCount.get();
+    }
+
     public Map<Long, Period> getPeriodIdMap()
     {
         return periodIdMap;
@@ -202,6 +222,25 @@ public class ValidationRunContext
 
     }
 
+    /**
+     * Adds validation results found by the analysis. They are counted
+     * towards the max results, and kept in memory if needed.
+     *
+     * @param results the validation results.
+     */
+    public void addValidationResults( Collection<ValidationResult> results )
+    {
+        validationResultCount.addAndGet( results.size() );
+
+        for ( ValidationResult result : results )
+        {
+            if ( returnResults || ( sendNotifications && !result.getValidationRule().getNotificationTemplates().isEmpty() ) )
+            {
+                validationResults.add( result );
+            }
+        }
+    }
+
     public int getNumberOfTasks()
     {
         return ( orgUnits.size() + ORG_UNITS_PER_TASK - 1 ) / ORG_UNITS_PER_TASK;
@@ -209,7 +248,7 @@ public class ValidationRunContext
 
     public boolean isAnalysisComplete()
     {
-        return validationResults.size() >= maxResults;
+        return validationResultCount.get() >= maxResults;
     }
 
     // -------------------------------------------------------------------------
@@ -225,6 +264,8 @@ public class ValidationRunContext
     {
         private final ValidationRunContext context;
 
+        private final List<ValidationResult> initialResults = new ArrayList<>();
+
         public Builder()
         {
             this.context = new ValidationRunContext();
@@ -255,6 +296,8 @@ public class ValidationRunContext
                 }
             }
 
+            context.addValidationResults( initialResults );
+
             return this.context;
         }
 
@@ -341,9 +384,15 @@ public class ValidationRunContext
             return this;
         }
 
+        public Builder withReturnResults( boolean returnResults )
+        {
+            this.context.returnResults = returnResults;
+            return this;
+        }
+
         public Builder withInitialResults( Collection<ValidationResult> results )
         {
-            this.context.validationResults.addAll( results );
+            this.initialResults.addAll( results );
 
             results.forEach( validationResult -> {
                 List<ValidationResult> res = context.initialValidationResults
@@ -29,17 +29,20 @@ package org.hisp.dhis.validation;
  */
 
 import com.google.common.collect.Lists;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.hisp.dhis.analytics.AnalyticsService;
 import org.hisp.dhis.category.CategoryService;
-import org.hisp.dhis.commons.util.SystemUtils;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.springframework.context.ApplicationContext;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /**
  * Evaluates validation rules.
@@ -48,12 +51,21 @@ import java.util.concurrent.TimeUnit;
  */
 public class Validator
 {
+    private static final Log log = LogFactory.getLog( Validator.class );
+
+    public static final String EXECUTOR_NAME = "validationTaskExecutor";
+
     /**
      * Evaluates validation rules for a collection of organisation units. This
      * method breaks the job down by organisation unit. It assigns the
      * evaluation for each organisation unit to a task that can be evaluated
      * independently in a multi-threaded environment.
      * <p/>
+     * The tasks run on the thread pool shared by all validation analyses.
+     * If the calling thread is interrupted, for instance when its job is
+     * stopped, the tasks are cancelled and a {@link CancellationException}
+     * is thrown, so that partial results are neither returned nor notified.
+     * <p/>
      * Return early with no results if there are no organisation units
      * or no validation rules.
      *
@@ -65,35 +77,30 @@ public class Validator
         CategoryService categoryService = (CategoryService)
             applicationContext.getBean( CategoryService.class );
                 
-        int threadPoolSize = getThreadPoolSize( context );
-
-        if ( threadPoolSize == 0 || context.getPeriodTypeXs().isEmpty() )
+        if ( context.getNumberOfTasks() == 0 || context.getPeriodTypeXs().isEmpty() )
         {
             return context.getValidationResults();
         }
 
-        ExecutorService executor = Executors.newFixedThreadPool( threadPoolSize );
+        ThreadPoolTaskExecutor executor = applicationContext.getBean( EXECUTOR_NAME, ThreadPoolTaskExecutor.class );
+
+        log.debug( "Submitting " + context.getNumberOfTasks() + " validation tasks, " + executor.getActiveCount() +
+            " of " + executor.getMaxPoolSize() + " validation threads active, " +
+            executor.getThreadPoolExecutor().getQueue().size() + " tasks queued" );
 
         List<List<OrganisationUnit>> orgUnitLists = Lists.partition( context.getOrgUnits(), ValidationRunContext.ORG_UNITS_PER_TASK );
 
+        List<Future<?>> futures = new ArrayList<>();
+
         for ( List<OrganisationUnit> orgUnits : orgUnitLists )
         {
             ValidationTask task = (ValidationTask) applicationContext.getBean( DataValidationTask.NAME );
             task.init( orgUnits, context, analyticsService );
 
-            executor.execute( task );
+            futures.add( executor.submit( task ) );
         }
 
-        executor.shutdown();
-
-        try
-        {
-            executor.awaitTermination( 6, TimeUnit.HOURS );
-        }
-        catch ( InterruptedException e )
-        {
-            executor.shutdownNow();
-        }
+        awaitTasks( futures );
 
         reloadAttributeOptionCombos( context.getValidationResults(), categoryService );
 
@@ -101,28 +108,35 @@ public class Validator
     }
 
     /**
-     * Determines how many threads we should use for testing validation rules.
-     * 
-     * @param context validation run context
-     * @return number of threads we should use for testing validation rules
+     * Waits for the validation tasks to finish. If the calling thread is
+     * interrupted or a task fails, cancels the remaining tasks.
+     *
+     * @param futures the futures of the submitted tasks.
+     * @throws CancellationException if the calling thread is interrupted.
      */
-    private static int getThreadPoolSize( ValidationRunContext context )
+    private static void awaitTasks( List<Future<?>> futures )
     {
-        int threadPoolSize = SystemUtils.getCpuCores();
-
-        if ( threadPoolSize > 2 )
+        try
         {
-            threadPoolSize--;
+            for ( Future<?> future : futures )
+            {
+                future.get();
+            }
         }
+        catch ( InterruptedException ex )
+        {
+            futures.forEach( f -> f.cancel( true ) );
 
-        int numberOfTasks = context.getNumberOfTasks();
+            Thread.currentThread().interrupt();
 
-        if ( threadPoolSize > numberOfTasks )
-        {
-            threadPoolSize = numberOfTasks;
+            throw new CancellationException( "Validation analysis was interrupted" );
         }
+        catch ( ExecutionException ex )
+        {
+            futures.forEach( f -> f.cancel( true ) );
 
-        return threadPoolSize;
+            throw new RuntimeException( "Validation task failed", ex.getCause() );
+        }
     }
 
     /**
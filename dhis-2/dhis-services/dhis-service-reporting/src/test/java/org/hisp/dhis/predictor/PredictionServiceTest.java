@@ -1010,6 +1010,37 @@ public class PredictionServiceTest
         assertEquals( "Pred 2 Ins 0 Upd 0 Del 0 Unch 2", shortSummary( summary ) );
     }
 
+    @Test
+    public void testPredictTaskDependentPredictors()
+    {
+        useDataValue( dataElementA, makeMonth( 2001, 7 ), sourceA, 10 );
+        useDataValue( dataElementA, makeMonth( 2001, 7 ), sourceB, 20 );
+
+        dataValueBatchHandler.flush();
+
+        Predictor predictorX = createPredictor( dataElementX, defaultCombo, "X",
+            new Expression( "#{" + dataElementA.getUid() + "}", "descriptionX" ), null,
+            periodTypeMonthly, orgUnitLevel1, 1, 0, 0 );
+
+        Predictor predictorY = createPredictor( dataElementY, defaultCombo, "Y",
+            new Expression( "#{" + dataElementX.getUid() + "} + 1", "descriptionY" ), null,
+            periodTypeMonthly, orgUnitLevel1, 1, 0, 0 );
+
+        predictorService.addPredictor( predictorX );
+        predictorService.addPredictor( predictorY );
+
+        List<String> predictors = Lists.newArrayList( predictorX.getUid(), predictorY.getUid() );
+
+        summary = predictionService.predictTask( monthStart( 2001, 7 ), monthStart( 2001, 8 ), predictors, null, null );
+
+        assertEquals( "Pred 2 Ins 4 Upd 0 Del 0 Unch 0", shortSummary( summary ) );
+
+        assertEquals( "10.0", getDataValue( dataElementX, defaultCombo, sourceA, makeMonth( 2001, 7 ) ) );
+        assertEquals( "20.0", getDataValue( dataElementX, defaultCombo, sourceB, makeMonth( 2001, 7 ) ) );
+        assertEquals( "11", getDataValue( dataElementY, defaultCombo, sourceA, makeMonth( 2001, 7 ) ) );
+        assertEquals( "21", getDataValue( dataElementY, defaultCombo, sourceB, makeMonth( 2001, 7 ) ) );
+    }
+
     @Test
     public void testPredictTaskPredictorGroups()
     {
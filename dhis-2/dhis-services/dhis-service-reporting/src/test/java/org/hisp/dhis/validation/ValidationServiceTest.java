@@ -54,9 +54,11 @@ import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import java.util.*;
+import java.util.concurrent.CancellationException;
 
 import static junit.framework.TestCase.assertEquals;
 import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertTrue;
 import static org.hisp.dhis.expression.Expression.SEPARATOR;
 import static org.hisp.dhis.expression.ExpressionService.SYMBOL_DAYS;
 import static org.hisp.dhis.expression.MissingValueStrategy.*;
@@ -74,6 +76,9 @@ public class ValidationServiceTest
     @Autowired
     private ValidationRuleService validationRuleService;
 
+    @Autowired
+    private ValidationResultService validationResultService;
+
     @Autowired
     private DataElementService dataElementService;
 
@@ -676,6 +681,53 @@ public class ValidationServiceTest
         assertResultsEquals( reference, results );
     }
 
+    @Test
+    public void testValidateWithoutReturnResults()
+    {
+        useDataValue( dataElementA, periodA, sourceA, "1" );
+        useDataValue( dataElementB, periodA, sourceA, "2" );
+        useDataValue( dataElementC, periodA, sourceA, "3" );
+        useDataValue( dataElementD, periodA, sourceA, "4" );
+
+        validationRuleService.saveValidationRule( validationRuleA );
+        validationRuleService.saveValidationRule( validationRuleB );
+
+        Collection<ValidationResult> results = validationService.validationAnalysis( validationService.newParamsBuilder( dataSetMonthly, sourceA, periodA )
+            .withPersistResults( true )
+            .withReturnResults( false )
+            .build() );
+
+        assertTrue( results.isEmpty() );
+
+        Collection<ValidationResult> reference = new HashSet<>();
+
+        reference.add( new ValidationResult( validationRuleA, periodA, sourceA, defaultCombo, 3.0, -1.0, dayInPeriodA ) );
+        reference.add( new ValidationResult( validationRuleB, periodA, sourceA, defaultCombo, -1.0, 4.0, dayInPeriodA ) );
+
+        assertResultsEquals( reference, validationResultService.getAllValidationResults() );
+    }
+
+    @Test( expected = CancellationException.class )
+    public void testValidateInterrupted()
+    {
+        useDataValue( dataElementA, periodA, sourceA, "1" );
+        useDataValue( dataElementB, periodA, sourceA, "2" );
+
+        validationRuleService.saveValidationRule( validationRuleA );
+
+        Thread.currentThread().interrupt();
+
+        try
+        {
+            validationService.validationAnalysis( validationService.newParamsBuilder( dataSetMonthly, sourceA, periodA )
+                .build() );
+        }
+        finally
+        {
+            Thread.interrupted();
+        }
+    }
+
     @Test
     public void testValidateForm()
     {
@@ -231,6 +231,8 @@ public class DefaultSchemaService
 
             updateSelf( schema );
 
+            schema.getProperties().forEach( Property::generateAccessors );
+
             schema.getPersistedProperties();
             schema.getNonPersistedProperties();
             schema.getReadableProperties();
@@ -286,6 +288,8 @@ public class DefaultSchemaService
 
         updateSelf( schema );
 
+        schema.getProperties().forEach( Property::generateAccessors );
+
         dynamicClassSchemaMap.put( klass, schema );
 
         return schema;
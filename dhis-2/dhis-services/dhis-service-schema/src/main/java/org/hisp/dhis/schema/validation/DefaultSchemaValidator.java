@@ -36,7 +36,6 @@ import org.hisp.dhis.schema.Property;
 import org.hisp.dhis.schema.PropertyType;
 import org.hisp.dhis.schema.Schema;
 import org.hisp.dhis.schema.SchemaService;
-import org.hisp.dhis.system.util.ReflectionUtils;
 import org.hisp.dhis.system.util.ValidationUtils;
 import org.hisp.dhis.user.User;
 import org.springframework.stereotype.Service;
@@ -97,7 +96,7 @@ public class DefaultSchemaValidator implements SchemaValidator
                 continue;
             }
 
-            Object value = ReflectionUtils.invokeMethod( object, property.getGetterMethod() );
+            Object value = property.getValue( object );
 
             if ( value == null )
             {
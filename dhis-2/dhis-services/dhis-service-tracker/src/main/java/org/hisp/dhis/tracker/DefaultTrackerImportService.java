@@ -34,6 +34,7 @@ import org.apache.commons.logging.LogFactory;
 import org.hisp.dhis.common.IdentifiableObjectManager;
 import org.hisp.dhis.commons.timer.SystemTimer;
 import org.hisp.dhis.commons.timer.Timer;
+import org.hisp.dhis.system.util.MathUtils;
 import org.hisp.dhis.tracker.bundle.TrackerBundle;
 import org.hisp.dhis.tracker.bundle.TrackerBundleMode;
 import org.hisp.dhis.tracker.bundle.TrackerBundleParams;
@@ -46,11 +47,13 @@ import org.hisp.dhis.tracker.validation.TrackerValidationService;
 import org.hisp.dhis.user.CurrentUserService;
 import org.hisp.dhis.user.User;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.StringUtils;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 
 /**
  * @author Morten Olav Hansen <mortenoh@gmail.com>
@@ -64,45 +67,102 @@ public class DefaultTrackerImportService implements TrackerImportService
     private final TrackerValidationService trackerValidationService;
     private final CurrentUserService currentUserService;
     private final IdentifiableObjectManager manager;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransactionTemplate;
 
     public DefaultTrackerImportService(
         TrackerBundleService trackerBundleService,
         TrackerValidationService trackerValidationService,
         CurrentUserService currentUserService,
-        IdentifiableObjectManager manager )
+        IdentifiableObjectManager manager,
+        TransactionTemplate transactionTemplate )
     {
         this.trackerBundleService = trackerBundleService;
         this.trackerValidationService = trackerValidationService;
         this.currentUserService = currentUserService;
         this.manager = manager;
+        this.transactionTemplate = transactionTemplate;
+
+        this.readOnlyTransactionTemplate = new TransactionTemplate( transactionTemplate.getTransactionManager() );
+        this.readOnlyTransactionTemplate.setReadOnly( true );
     }
 
     @Override
-    @Transactional
     public TrackerImportReport importTracker( TrackerImportParams params )
     {
         Timer timer = new SystemTimer().start();
         String message = "(" + params.getUsername() + ") Import:Start";
         log.info( message );
 
+        // Chunks committed in transactions of their own must not run inside a
+        // transaction of the import, which would be suspended for every chunk
+
+        TrackerImportReport importReport = CommitMode.CHUNK == params.getCommitMode() ?
+            importTrackerInChunks( params ) :
+            transactionTemplate.execute( status -> importTrackerInTransaction( params ) );
+
+        message = "(" + params.getUsername() + ") Import:Done took " + timer.toString();
+        log.info( message );
+
+        TrackerBundleReportModeUtils.filter( importReport, params.getReportMode() );
+
+        return importReport;
+    }
+
+    /**
+     * Creates, validates and commits all bundles in the current transaction.
+     */
+    private TrackerImportReport importTrackerInTransaction( TrackerImportParams params )
+    {
         params.setUser( getUser( params.getUser(), params.getUserId() ) );
 
-        TrackerImportReport importReport = new TrackerImportReport();
+        List<TrackerBundle> trackerBundles = trackerBundleService.create( params.toTrackerBundleParams() );
+
+        TrackerValidationReport validationReport = validate( trackerBundles );
+
+        return commit( params, trackerBundles, validationReport, trackerBundleService::commit );
+    }
+
+    /**
+     * Creates and validates all chunks in a read-only transaction, then commits
+     * every chunk in a transaction of its own. A chunk which fails to commit is
+     * rolled back, while the chunks committed before it are kept.
+     */
+    private TrackerImportReport importTrackerInChunks( TrackerImportParams params )
+    {
+        List<TrackerBundle> trackerBundles = new ArrayList<>();
+        TrackerValidationReport validationReport = new TrackerValidationReport();
+
+        readOnlyTransactionTemplate.execute( status -> {
+            params.setUser( getUser( params.getUser(), params.getUserId() ) );
+
+            trackerBundles.addAll( trackerBundleService.create( params.toTrackerBundleParams() ) );
+            validationReport.add( validate( trackerBundles ) );
+
+            return null;
+        } );
 
-        TrackerBundleParams bundleParams = params.toTrackerBundleParams();
-        List<TrackerBundle> trackerBundles = trackerBundleService.create( bundleParams );
+        return commit( params, trackerBundles, validationReport, trackerBundleService::commitChunk );
+    }
 
+    private TrackerValidationReport validate( List<TrackerBundle> trackerBundles )
+    {
         TrackerValidationReport validationReport = new TrackerValidationReport();
         trackerBundles.forEach( tb -> validationReport.add( trackerValidationService.validate( tb ) ) );
 
+        return validationReport;
+    }
+
+    private TrackerImportReport commit( TrackerImportParams params, List<TrackerBundle> trackerBundles,
+        TrackerValidationReport validationReport, Function<TrackerBundle, TrackerBundleReport> commitFunction )
+    {
+        TrackerImportReport importReport = new TrackerImportReport();
+
         if ( !(!validationReport.isEmpty() && AtomicMode.ALL == params.getAtomicMode()) )
         {
             Timer commitTimer = new SystemTimer().start();
 
-            trackerBundles.forEach( tb -> {
-                TrackerBundleReport bundleReport = trackerBundleService.commit( tb );
-                importReport.getBundleReports().add( bundleReport );
-            } );
+            trackerBundles.forEach( tb -> importReport.getBundleReports().add( commitFunction.apply( tb ) ) );
 
             if ( !importReport.isEmpty() )
             {
@@ -116,11 +176,6 @@ public class DefaultTrackerImportService implements TrackerImportService
             importReport.setStatus( TrackerStatus.ERROR );
         }
 
-        message = "(" + params.getUsername() + ") Import:Done took " + timer.toString();
-        log.info( message );
-
-        TrackerBundleReportModeUtils.filter( importReport, params.getReportMode() );
-
         return importReport;
     }
 
@@ -138,6 +193,8 @@ public class DefaultTrackerImportService implements TrackerImportService
             TrackerImportStrategy.CREATE_AND_UPDATE ) );
         params.setAtomicMode( getEnumWithDefault( AtomicMode.class, parameters, "atomicMode", AtomicMode.ALL ) );
         params.setFlushMode( getEnumWithDefault( FlushMode.class, parameters, "flushMode", FlushMode.AUTO ) );
+        params.setCommitMode( getEnumWithDefault( CommitMode.class, parameters, "commitMode", CommitMode.ALL ) );
+        params.setChunkSize( getIntWithDefault( parameters, "chunkSize", 0 ) );
 
         return params;
     }
@@ -158,6 +215,18 @@ public class DefaultTrackerImportService implements TrackerImportService
         return "true".equals( value.toLowerCase() );
     }
 
+    private int getIntWithDefault( Map<String, List<String>> parameters, String key, int defaultValue )
+    {
+        if ( parameters == null || parameters.get( key ) == null || parameters.get( key ).isEmpty() )
+        {
+            return defaultValue;
+        }
+
+        String value = String.valueOf( parameters.get( key ).get( 0 ) );
+
+        return MathUtils.isInteger( value ) ? Integer.parseInt( value ) : defaultValue;
+    }
+
     private <T extends Enum<T>> T getEnumWithDefault( Class<T> enumKlass, Map<String, List<String>> parameters, String key, T defaultValue )
     {
         if ( parameters == null || parameters.get( key ) == null || parameters.get( key ).isEmpty() )
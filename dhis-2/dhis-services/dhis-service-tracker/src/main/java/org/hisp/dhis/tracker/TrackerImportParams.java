@@ -84,6 +84,16 @@ public class TrackerImportParams
      */
     private FlushMode flushMode = FlushMode.AUTO;
 
+    /**
+     * Max number of objects per bundle, 0 means the import is not split.
+     */
+    private int chunkSize;
+
+    /**
+     * Commit all chunks in one transaction or every chunk separately.
+     */
+    private CommitMode commitMode = CommitMode.ALL;
+
     /**
      * Validation mode to use, defaults to fully validated objects.
      */
@@ -214,6 +224,32 @@ public class TrackerImportParams
         return this;
     }
 
+    @JsonProperty
+    @JacksonXmlProperty( namespace = DxfNamespaces.DXF_2_0 )
+    public int getChunkSize()
+    {
+        return chunkSize;
+    }
+
+    public TrackerImportParams setChunkSize( int chunkSize )
+    {
+        this.chunkSize = chunkSize;
+        return this;
+    }
+
+    @JsonProperty
+    @JacksonXmlProperty( namespace = DxfNamespaces.DXF_2_0 )
+    public CommitMode getCommitMode()
+    {
+        return commitMode;
+    }
+
+    public TrackerImportParams setCommitMode( CommitMode commitMode )
+    {
+        this.commitMode = commitMode;
+        return this;
+    }
+
     @JsonProperty
     @JacksonXmlProperty( namespace = DxfNamespaces.DXF_2_0 )
     public ValidationMode getValidationMode()
@@ -294,6 +330,8 @@ public class TrackerImportParams
             .setImportStrategy( importStrategy )
             .setAtomicMode( atomicMode )
             .setFlushMode( flushMode )
+            .setChunkSize( chunkSize )
+            .setCommitMode( commitMode )
             .setValidationMode( validationMode )
             .setReportMode( reportMode )
             .setTrackedEntities( trackedEntities )
@@ -32,7 +32,6 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
-import org.hisp.dhis.cache.HibernateCacheManager;
 import org.hisp.dhis.common.IdentifiableObjectManager;
 import org.hisp.dhis.dbms.DbmsManager;
 import org.hisp.dhis.program.ProgramInstance;
@@ -53,6 +52,7 @@ import org.hisp.dhis.user.CurrentUserService;
 import org.hisp.dhis.user.User;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
@@ -76,7 +76,6 @@ public class DefaultTrackerBundleService implements TrackerBundleService
     private final CurrentUserService currentUserService;
     private final IdentifiableObjectManager manager;
     private final SessionFactory sessionFactory;
-    private final HibernateCacheManager cacheManager;
     private final DbmsManager dbmsManager;
 
     private List<TrackerBundleHook> bundleHooks = new ArrayList<>();
@@ -95,7 +94,6 @@ public class DefaultTrackerBundleService implements TrackerBundleService
         CurrentUserService currentUserService,
         IdentifiableObjectManager manager,
         SessionFactory sessionFactory,
-        HibernateCacheManager cacheManager,
         DbmsManager dbmsManager )
     {
         this.trackerPreheatService = trackerPreheatService;
@@ -105,7 +103,6 @@ public class DefaultTrackerBundleService implements TrackerBundleService
         this.currentUserService = currentUserService;
         this.manager = manager;
         this.sessionFactory = sessionFactory;
-        this.cacheManager = cacheManager;
         this.dbmsManager = dbmsManager;
     }
 
@@ -120,12 +117,42 @@ public class DefaultTrackerBundleService implements TrackerBundleService
         TrackerPreheat preheat = trackerPreheatService.preheat( preheatParams );
         trackerBundle.setPreheat( preheat );
 
-        return Collections.singletonList( trackerBundle ); // for now we don't split the bundles
+        if ( params.getChunkSize() <= 0 || getObjectCount( trackerBundle ) <= params.getChunkSize() )
+        {
+            return Collections.singletonList( trackerBundle );
+        }
+
+        return split( trackerBundle, params.getChunkSize() );
     }
 
     @Override
     @Transactional
     public TrackerBundleReport commit( TrackerBundle bundle )
+    {
+        // The session is cleared after every chunk, which detaches the objects of
+        // the shared preheat, so the references of the chunk are loaded again
+
+        if ( bundle.isChunk() )
+        {
+            preheatChunk( bundle );
+        }
+
+        return doCommit( bundle );
+    }
+
+    @Override
+    @Transactional( propagation = Propagation.REQUIRES_NEW )
+    public TrackerBundleReport commitChunk( TrackerBundle bundle )
+    {
+        // Objects of the shared preheat are detached from the session of this
+        // transaction, so the references of the chunk are loaded again
+
+        preheatChunk( bundle );
+
+        return doCommit( bundle );
+    }
+
+    private TrackerBundleReport doCommit( TrackerBundle bundle )
     {
         TrackerBundleReport bundleReport = new TrackerBundleReport();
 
@@ -149,7 +176,6 @@ public class DefaultTrackerBundleService implements TrackerBundleService
         bundleHooks.forEach( hook -> hook.postCommit( bundle ) );
 
         dbmsManager.clearSession();
-        cacheManager.clearCache();
 
         return bundleReport;
     }
@@ -286,6 +312,97 @@ public class DefaultTrackerBundleService implements TrackerBundleService
     // Utility Methods
     //-----------------------------------------------------------------------------------
 
+    /**
+     * Splits the bundle into chunks of at most chunkSize objects. Tracked entities,
+     * enrollments and events are taken in that order, so that when the chunks are
+     * committed one after the other an object is never committed before the objects
+     * it depends on. All chunks share the preheat of the original bundle for validation,
+     * and are preheated again when committed.
+     */
+    private List<TrackerBundle> split( TrackerBundle bundle, int chunkSize )
+    {
+        List<TrackerBundle> bundles = new ArrayList<>();
+        TrackerBundle chunk = createChunk( bundle );
+
+        for ( TrackedEntity trackedEntity : bundle.getTrackedEntities() )
+        {
+            chunk = getChunk( bundle, chunk, bundles, chunkSize );
+            chunk.addTrackedEntity( trackedEntity );
+        }
+
+        for ( Enrollment enrollment : bundle.getEnrollments() )
+        {
+            chunk = getChunk( bundle, chunk, bundles, chunkSize );
+            chunk.addEnrollment( enrollment );
+        }
+
+        for ( Event event : bundle.getEvents() )
+        {
+            chunk = getChunk( bundle, chunk, bundles, chunkSize );
+            chunk.addEvent( event );
+        }
+
+        bundles.add( chunk );
+
+        log.info( "Split tracker bundle of " + getObjectCount( bundle ) + " objects into " + bundles.size() + " chunks" );
+
+        return bundles;
+    }
+
+    /**
+     * Returns the given chunk if it has room for another object, otherwise adds it to
+     * the list of bundles and returns a new, empty chunk.
+     */
+    private TrackerBundle getChunk( TrackerBundle bundle, TrackerBundle chunk, List<TrackerBundle> bundles, int chunkSize )
+    {
+        if ( getObjectCount( chunk ) < chunkSize )
+        {
+            return chunk;
+        }
+
+        bundles.add( chunk );
+
+        return createChunk( bundle );
+    }
+
+    private TrackerBundle createChunk( TrackerBundle bundle )
+    {
+        return new TrackerBundle()
+            .setUser( bundle.getUser() )
+            .setImportMode( bundle.getImportMode() )
+            .setIdentifier( bundle.getIdentifier() )
+            .setImportStrategy( bundle.getImportStrategy() )
+            .setAtomicMode( bundle.getAtomicMode() )
+            .setFlushMode( bundle.getFlushMode() )
+            .setCommitMode( bundle.getCommitMode() )
+            .setValidationMode( bundle.getValidationMode() )
+            .setReportMode( bundle.getReportMode() )
+            .setPreheat( bundle.getPreheat() )
+            .setChunk( true );
+    }
+
+    /**
+     * Loads the user and the references of the chunk in the current session.
+     */
+    private void preheatChunk( TrackerBundle bundle )
+    {
+        User user = getUser( bundle.getUser(), null );
+
+        TrackerPreheatParams preheatParams = new TrackerPreheatParams()
+            .setUser( user )
+            .setTrackedEntities( bundle.getTrackedEntities() )
+            .setEnrollments( bundle.getEnrollments() )
+            .setEvents( bundle.getEvents() );
+
+        bundle.setUser( user );
+        bundle.setPreheat( trackerPreheatService.preheat( preheatParams ) );
+    }
+
+    private int getObjectCount( TrackerBundle bundle )
+    {
+        return bundle.getTrackedEntities().size() + bundle.getEnrollments().size() + bundle.getEvents().size();
+    }
+
     private User getUser( User user, String userUid )
     {
         if ( user != null ) // ıf user already set, reload the user to make sure its loaded in the current tx
@@ -29,6 +29,7 @@ package org.hisp.dhis.tracker.bundle;
  */
 
 import org.hisp.dhis.tracker.AtomicMode;
+import org.hisp.dhis.tracker.CommitMode;
 import org.hisp.dhis.tracker.FlushMode;
 import org.hisp.dhis.tracker.TrackerBundleReportMode;
 import org.hisp.dhis.tracker.TrackerIdentifier;
@@ -80,6 +81,11 @@ public class TrackerBundle
      */
     private FlushMode flushMode = FlushMode.AUTO;
 
+    /**
+     * Commit all chunks in one transaction or every chunk separately.
+     */
+    private CommitMode commitMode = CommitMode.ALL;
+
     /**
      * Validation mode to use, defaults to fully validated objects.
      */
@@ -95,6 +101,11 @@ public class TrackerBundle
      */
     private TrackerPreheat preheat;
 
+    /**
+     * Whether this bundle is one of several chunks sharing the preheat of a split import.
+     */
+    private boolean chunk;
+
     /**
      * Tracked entities to import.
      */
@@ -187,6 +198,28 @@ public class TrackerBundle
         return this;
     }
 
+    public CommitMode getCommitMode()
+    {
+        return commitMode;
+    }
+
+    public TrackerBundle setCommitMode( CommitMode commitMode )
+    {
+        this.commitMode = commitMode;
+        return this;
+    }
+
+    public boolean isChunk()
+    {
+        return chunk;
+    }
+
+    public TrackerBundle setChunk( boolean chunk )
+    {
+        this.chunk = chunk;
+        return this;
+    }
+
     public ValidationMode getValidationMode()
     {
         return validationMode;
@@ -281,9 +314,11 @@ public class TrackerBundle
             ", importStrategy=" + importStrategy +
             ", atomicMode=" + atomicMode +
             ", flushMode=" + flushMode +
+            ", commitMode=" + commitMode +
             ", validationMode=" + validationMode +
             ", reportMode=" + reportMode +
             ", preheat=" + preheat +
+            ", chunk=" + chunk +
             ", trackedEntities=" + trackedEntities +
             ", enrollments=" + enrollments +
             ", events=" + events +
@@ -0,0 +1,157 @@
+package org.hisp.dhis.tracker.bundle;
+
+/*
+ * Copyright (c) 2004-2019, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hisp.dhis.cache.HibernateCacheManager;
+import org.hisp.dhis.common.IdentifiableObject;
+import org.hisp.dhis.program.ProgramInstance;
+import org.hisp.dhis.program.ProgramStageInstance;
+import org.hisp.dhis.trackedentity.TrackedEntityInstance;
+import org.hisp.dhis.tracker.TrackerIdentifier;
+import org.hisp.dhis.tracker.domain.Enrollment;
+import org.hisp.dhis.tracker.domain.Event;
+import org.hisp.dhis.tracker.domain.TrackedEntity;
+import org.hisp.dhis.tracker.preheat.TrackerPreheat;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Evicts the second-level cache entries touched by a tracker bundle once it has been
+ * committed. Only already existing tracked entities, enrollments and events of the
+ * bundle, and the collections of their parents, are evicted. Objects created by the
+ * bundle are not yet in the cache, and metadata regions are left alone. Entities and
+ * collections without a configured cache region are skipped.
+ *
+ * The number of evicted entries is counted per cache region in the
+ * {@value #METRIC_NAME} metric.
+ */
+@Component
+public class TrackerBundleCacheEvictionHook
+    implements TrackerBundleHook
+{
+    static final String METRIC_NAME = "tracker.cache.evictions";
+
+    static final String ROLE_TEI_PROGRAM_INSTANCES = TrackedEntityInstance.class.getName() + ".programInstances";
+
+    static final String ROLE_PI_PROGRAM_STAGE_INSTANCES = ProgramInstance.class.getName() + ".programStageInstances";
+
+    private final HibernateCacheManager cacheManager;
+
+    private final MeterRegistry meterRegistry;
+
+    public TrackerBundleCacheEvictionHook( HibernateCacheManager cacheManager, MeterRegistry meterRegistry )
+    {
+        checkNotNull( cacheManager );
+        checkNotNull( meterRegistry );
+
+        this.cacheManager = cacheManager;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void postCommit( TrackerBundle bundle )
+    {
+        TrackerPreheat preheat = bundle.getPreheat();
+
+        if ( preheat == null )
+        {
+            return;
+        }
+
+        Set<Long> trackedEntityIds = new HashSet<>();
+        Set<Long> enrollmentIds = new HashSet<>();
+        Set<Long> eventIds = new HashSet<>();
+
+        for ( TrackedEntity trackedEntity : bundle.getTrackedEntities() )
+        {
+            addId( trackedEntityIds, preheat.getTrackedEntity( TrackerIdentifier.UID, trackedEntity.getTrackedEntity() ) );
+        }
+
+        for ( Enrollment enrollment : bundle.getEnrollments() )
+        {
+            addId( enrollmentIds, preheat.getEnrollment( TrackerIdentifier.UID, enrollment.getEnrollment() ) );
+            addId( trackedEntityIds, preheat.getTrackedEntity( TrackerIdentifier.UID, enrollment.getTrackedEntityInstance() ) );
+        }
+
+        for ( Event event : bundle.getEvents() )
+        {
+            addId( eventIds, preheat.getEvent( TrackerIdentifier.UID, event.getEvent() ) );
+            addId( enrollmentIds, preheat.getEnrollment( TrackerIdentifier.UID, event.getEnrollment() ) );
+        }
+
+        evictEntities( TrackedEntityInstance.class, trackedEntityIds );
+        evictEntities( ProgramInstance.class, enrollmentIds );
+        evictEntities( ProgramStageInstance.class, eventIds );
+
+        evictCollections( ROLE_TEI_PROGRAM_INSTANCES, trackedEntityIds );
+        evictCollections( ROLE_PI_PROGRAM_STAGE_INSTANCES, enrollmentIds );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private void addId( Set<Long> ids, IdentifiableObject object )
+    {
+        if ( object != null && object.getId() > 0 )
+        {
+            ids.add( object.getId() );
+        }
+    }
+
+    private void evictEntities( Class<?> entityClass, Collection<Long> ids )
+    {
+        if ( !ids.isEmpty() && cacheManager.isEntityCached( entityClass ) )
+        {
+            count( entityClass.getName(), cacheManager.evictEntities( entityClass, ids ) );
+        }
+    }
+
+    private void evictCollections( String role, Collection<Long> ownerIds )
+    {
+        if ( !ownerIds.isEmpty() && cacheManager.isCollectionCached( role ) )
+        {
+            count( role, cacheManager.evictCollections( role, ownerIds ) );
+        }
+    }
+
+    private void count( String region, int evicted )
+    {
+        if ( evicted > 0 )
+        {
+            meterRegistry.counter( METRIC_NAME, "region", region ).increment( evicted );
+        }
+    }
+}
@@ -33,6 +33,7 @@ import com.fasterxml.jackson.annotation.JsonSetter;
 import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlProperty;
 import org.hisp.dhis.common.DxfNamespaces;
 import org.hisp.dhis.tracker.AtomicMode;
+import org.hisp.dhis.tracker.CommitMode;
 import org.hisp.dhis.tracker.FlushMode;
 import org.hisp.dhis.tracker.TrackerBundleReportMode;
 import org.hisp.dhis.tracker.TrackerIdentifier;
@@ -88,6 +89,16 @@ public class TrackerBundleParams
      */
     private FlushMode flushMode = FlushMode.AUTO;
 
+    /**
+     * Max number of objects per bundle, 0 means the import is not split.
+     */
+    private int chunkSize;
+
+    /**
+     * Commit all chunks in one transaction or every chunk separately.
+     */
+    private CommitMode commitMode = CommitMode.ALL;
+
     /**
      * Validation mode to use, defaults to fully validated objects.
      */
@@ -213,6 +224,32 @@ public class TrackerBundleParams
         return this;
     }
 
+    @JsonProperty
+    @JacksonXmlProperty( namespace = DxfNamespaces.DXF_2_0 )
+    public int getChunkSize()
+    {
+        return chunkSize;
+    }
+
+    public TrackerBundleParams setChunkSize( int chunkSize )
+    {
+        this.chunkSize = chunkSize;
+        return this;
+    }
+
+    @JsonProperty
+    @JacksonXmlProperty( namespace = DxfNamespaces.DXF_2_0 )
+    public CommitMode getCommitMode()
+    {
+        return commitMode;
+    }
+
+    public TrackerBundleParams setCommitMode( CommitMode commitMode )
+    {
+        this.commitMode = commitMode;
+        return this;
+    }
+
     @JsonProperty
     @JacksonXmlProperty( namespace = DxfNamespaces.DXF_2_0 )
     public ValidationMode getValidationMode()
@@ -293,6 +330,7 @@ public class TrackerBundleParams
             .setImportStrategy( importStrategy )
             .setAtomicMode( atomicMode )
             .setFlushMode( flushMode )
+            .setCommitMode( commitMode )
             .setValidationMode( validationMode )
             .setReportMode( reportMode )
             .setTrackedEntities( trackedEntities )
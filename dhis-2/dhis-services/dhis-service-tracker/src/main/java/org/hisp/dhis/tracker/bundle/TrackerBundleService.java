@@ -52,4 +52,14 @@ public interface TrackerBundleService
      * @param bundle TrackerBundle to commit.
      */
     TrackerBundleReport commit( TrackerBundle bundle );
+
+    /**
+     * Commits objects from bundle into persistence store in a new transaction, independent of
+     * any transaction already in progress. Used when every chunk of a split import is committed
+     * on its own. The references of the chunk are preheated again in the new transaction, and
+     * the caller must not hold a transaction of its own, as it would be suspended meanwhile.
+     *
+     * @param bundle TrackerBundle to commit.
+     */
+    TrackerBundleReport commitChunk( TrackerBundle bundle );
 }
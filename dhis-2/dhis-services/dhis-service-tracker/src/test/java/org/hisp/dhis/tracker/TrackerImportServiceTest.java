@@ -0,0 +1,218 @@
+package org.hisp.dhis.tracker;
+
+/*
+ * Copyright (c) 2004-2019, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import org.hisp.dhis.DhisTest;
+import org.hisp.dhis.ProxyUtils;
+import org.hisp.dhis.common.IdentifiableObject;
+import org.hisp.dhis.common.IdentifiableObjectManager;
+import org.hisp.dhis.dxf2.metadata.objectbundle.ObjectBundle;
+import org.hisp.dhis.dxf2.metadata.objectbundle.ObjectBundleMode;
+import org.hisp.dhis.dxf2.metadata.objectbundle.ObjectBundleParams;
+import org.hisp.dhis.dxf2.metadata.objectbundle.ObjectBundleService;
+import org.hisp.dhis.dxf2.metadata.objectbundle.ObjectBundleValidationService;
+import org.hisp.dhis.dxf2.metadata.objectbundle.feedback.ObjectBundleValidationReport;
+import org.hisp.dhis.importexport.ImportStrategy;
+import org.hisp.dhis.render.RenderFormat;
+import org.hisp.dhis.render.RenderService;
+import org.hisp.dhis.trackedentity.TrackedEntityInstance;
+import org.hisp.dhis.tracker.bundle.DefaultTrackerBundleService;
+import org.hisp.dhis.tracker.bundle.TrackerBundle;
+import org.hisp.dhis.tracker.bundle.TrackerBundleHook;
+import org.hisp.dhis.tracker.bundle.TrackerBundleParams;
+import org.hisp.dhis.tracker.bundle.TrackerBundleService;
+import org.hisp.dhis.tracker.domain.TrackedEntity;
+import org.hisp.dhis.tracker.report.TrackerImportReport;
+import org.hisp.dhis.tracker.report.TrackerStatus;
+import org.hisp.dhis.user.UserService;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests tracker imports which are split into chunks, committed either in one
+ * transaction or every chunk in a transaction of its own. The test is not
+ * transactional, so that the commits of the chunks are real.
+ */
+public class TrackerImportServiceTest
+    extends DhisTest
+{
+    @Autowired
+    private ObjectBundleService objectBundleService;
+
+    @Autowired
+    private ObjectBundleValidationService objectBundleValidationService;
+
+    @Autowired
+    private RenderService _renderService;
+
+    @Autowired
+    private UserService _userService;
+
+    @Autowired
+    private TrackerImportService trackerImportService;
+
+    @Autowired
+    private TrackerBundleService trackerBundleService;
+
+    @Autowired
+    private IdentifiableObjectManager manager;
+
+    @Autowired( required = false )
+    private List<TrackerBundleHook> bundleHooks = new ArrayList<>();
+
+    @Override
+    protected void setUpTest() throws IOException
+    {
+        renderService = _renderService;
+        userService = _userService;
+
+        Map<Class<? extends IdentifiableObject>, List<IdentifiableObject>> metadata = renderService.fromMetadata(
+            new ClassPathResource( "tracker/tracker_basic_metadata.json" ).getInputStream(), RenderFormat.JSON );
+
+        ObjectBundleParams params = new ObjectBundleParams();
+        params.setObjectBundleMode( ObjectBundleMode.COMMIT );
+        params.setImportStrategy( ImportStrategy.CREATE );
+        params.setObjects( metadata );
+
+        ObjectBundle bundle = objectBundleService.create( params );
+        ObjectBundleValidationReport validationReport = objectBundleValidationService.validate( bundle );
+        assertTrue( validationReport.getErrorReports().isEmpty() );
+
+        objectBundleService.commit( bundle );
+    }
+
+    @Override
+    protected void tearDownTest()
+    {
+        getBundleServiceTarget().setBundleHooks( bundleHooks );
+    }
+
+    @Override
+    protected boolean emptyDatabaseAfterTest()
+    {
+        return true;
+    }
+
+    @Test
+    public void testImportCommitChunks() throws IOException
+    {
+        TrackerImportReport importReport = trackerImportService.importTracker( getChunkedImportParams() );
+
+        assertEquals( 3, importReport.getBundleReports().size() );
+        assertEquals( 13, manager.getAll( TrackedEntityInstance.class ).size() );
+    }
+
+    @Test
+    public void testImportCommitChunksKeepsChunksBeforeFailure() throws IOException
+    {
+        TrackerImportParams params = getChunkedImportParams();
+
+        String failingUid = params.getTrackedEntities().get( 12 ).getTrackedEntity();
+
+        List<TrackerBundleHook> hooks = new ArrayList<>( bundleHooks );
+        hooks.add( new TrackerBundleHook()
+        {
+            @Override
+            public void postCreate( Class<?> klass, Object object, TrackerBundle bundle )
+            {
+                if ( object instanceof TrackedEntity && failingUid.equals( ((TrackedEntity) object).getTrackedEntity() ) )
+                {
+                    throw new IllegalStateException( "Failed to commit " + failingUid );
+                }
+            }
+        } );
+
+        getBundleServiceTarget().setBundleHooks( hooks );
+
+        try
+        {
+            trackerImportService.importTracker( params );
+
+            fail( "Expected the last chunk to fail" );
+        }
+        catch ( IllegalStateException ex )
+        {
+            assertEquals( "Failed to commit " + failingUid, ex.getMessage() );
+        }
+
+        List<TrackedEntityInstance> trackedEntityInstances = manager.getAll( TrackedEntityInstance.class );
+
+        assertEquals( 10, trackedEntityInstances.size() );
+        assertTrue( trackedEntityInstances.stream().noneMatch( tei -> failingUid.equals( tei.getUid() ) ) );
+    }
+
+    @Test
+    public void testImportUpdateChunksInOneTransaction() throws IOException
+    {
+        trackerImportService.importTracker( getChunkedImportParams().setCommitMode( CommitMode.ALL ) );
+
+        Date updated = new Date();
+
+        TrackerImportReport importReport = trackerImportService.importTracker( getChunkedImportParams()
+            .setCommitMode( CommitMode.ALL )
+            .setImportStrategy( TrackerImportStrategy.UPDATE ) );
+
+        assertNotEquals( TrackerStatus.ERROR, importReport.getStatus() );
+        assertEquals( 3, importReport.getBundleReports().size() );
+
+        List<TrackedEntityInstance> trackedEntityInstances = manager.getAll( TrackedEntityInstance.class );
+
+        assertEquals( 13, trackedEntityInstances.size() );
+        assertTrue( trackedEntityInstances.stream().noneMatch( tei -> tei.getLastUpdated().before( updated ) ) );
+    }
+
+    //-----------------------------------------------------------------------------------
+    // Utility Methods
+    //-----------------------------------------------------------------------------------
+
+    private TrackerImportParams getChunkedImportParams() throws IOException
+    {
+        TrackerBundleParams bundleParams = renderService.fromJson(
+            new ClassPathResource( "tracker/trackedentity_basic_data.json" ).getInputStream(), TrackerBundleParams.class );
+
+        return new TrackerImportParams()
+            .setChunkSize( 5 )
+            .setCommitMode( CommitMode.CHUNK )
+            .setTrackedEntities( bundleParams.getTrackedEntities() );
+    }
+
+    private DefaultTrackerBundleService getBundleServiceTarget()
+    {
+        return ProxyUtils.getProxyTarget( trackerBundleService );
+    }
+}
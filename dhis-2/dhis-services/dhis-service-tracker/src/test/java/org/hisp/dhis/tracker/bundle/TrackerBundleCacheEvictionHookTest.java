@@ -0,0 +1,239 @@
+package org.hisp.dhis.tracker.bundle;
+
+/*
+ * Copyright (c) 2004-2019, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hibernate.stat.Statistics;
+import org.hisp.dhis.cache.HibernateCacheManager;
+import org.hisp.dhis.program.ProgramInstance;
+import org.hisp.dhis.program.ProgramStageInstance;
+import org.hisp.dhis.trackedentity.TrackedEntityInstance;
+import org.hisp.dhis.tracker.TrackerIdentifier;
+import org.hisp.dhis.tracker.domain.Enrollment;
+import org.hisp.dhis.tracker.domain.Event;
+import org.hisp.dhis.tracker.preheat.TrackerPreheat;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.hisp.dhis.tracker.bundle.TrackerBundleCacheEvictionHook.METRIC_NAME;
+import static org.hisp.dhis.tracker.bundle.TrackerBundleCacheEvictionHook.ROLE_PI_PROGRAM_STAGE_INSTANCES;
+import static org.junit.Assert.*;
+
+public class TrackerBundleCacheEvictionHookTest
+{
+    private InMemoryCacheManager cacheManager;
+
+    private MeterRegistry meterRegistry;
+
+    private TrackerBundleCacheEvictionHook hook;
+
+    private ProgramInstance programInstance;
+
+    private ProgramStageInstance programStageInstance;
+
+    private TrackedEntityInstance trackedEntityInstance;
+
+    @Before
+    public void setUp()
+    {
+        cacheManager = new InMemoryCacheManager( ProgramInstance.class );
+        meterRegistry = new SimpleMeterRegistry();
+        hook = new TrackerBundleCacheEvictionHook( cacheManager, meterRegistry );
+
+        trackedEntityInstance = new TrackedEntityInstance();
+        trackedEntityInstance.setAutoFields();
+        trackedEntityInstance.setId( 1 );
+
+        programInstance = new ProgramInstance();
+        programInstance.setAutoFields();
+        programInstance.setId( 2 );
+        programInstance.setEntityInstance( trackedEntityInstance );
+
+        programStageInstance = new ProgramStageInstance();
+        programStageInstance.setAutoFields();
+        programStageInstance.setId( 3 );
+        programStageInstance.setProgramInstance( programInstance );
+    }
+
+    @Test
+    public void testStaleEnrollmentEvictedAfterCommit()
+    {
+        cacheManager.put( ProgramInstance.class, programInstance.getId() );
+
+        hook.postCommit( createBundle() );
+
+        assertFalse( cacheManager.contains( ProgramInstance.class, programInstance.getId() ) );
+        assertEquals( 1d, meterRegistry.counter( METRIC_NAME, "region", ProgramInstance.class.getName() ).count(), 0d );
+    }
+
+    @Test
+    public void testUnconfiguredRegionsNotEvicted()
+    {
+        hook.postCommit( createBundle() );
+
+        assertEquals( 1, cacheManager.getEvictedRegions().size() );
+        assertTrue( cacheManager.getEvictedRegions().contains( ProgramInstance.class.getName() ) );
+        assertFalse( cacheManager.getEvictedRegions().contains( TrackedEntityInstance.class.getName() ) );
+        assertFalse( cacheManager.getEvictedRegions().contains( ProgramStageInstance.class.getName() ) );
+        assertFalse( cacheManager.getEvictedRegions().contains( ROLE_PI_PROGRAM_STAGE_INSTANCES ) );
+    }
+
+    @Test
+    public void testNothingEvictedWithoutPreheat()
+    {
+        cacheManager.put( ProgramInstance.class, programInstance.getId() );
+
+        hook.postCommit( new TrackerBundle().addEnrollment( createEnrollment() ) );
+
+        assertTrue( cacheManager.contains( ProgramInstance.class, programInstance.getId() ) );
+        assertTrue( cacheManager.getEvictedRegions().isEmpty() );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private TrackerBundle createBundle()
+    {
+        TrackerPreheat preheat = new TrackerPreheat();
+        preheat.putTrackedEntities( TrackerIdentifier.UID, Collections.singletonList( trackedEntityInstance ) );
+        preheat.putEnrollment( TrackerIdentifier.UID, programInstance.getUid(), programInstance );
+        preheat.putEvent( TrackerIdentifier.UID, programStageInstance.getUid(), programStageInstance );
+
+        Event event = new Event();
+        event.setEvent( programStageInstance.getUid() );
+        event.setEnrollment( programInstance.getUid() );
+
+        return new TrackerBundle()
+            .setPreheat( preheat )
+            .addEnrollment( createEnrollment() )
+            .addEvent( event );
+    }
+
+    private Enrollment createEnrollment()
+    {
+        Enrollment enrollment = new Enrollment();
+        enrollment.setEnrollment( programInstance.getUid() );
+        enrollment.setTrackedEntityInstance( trackedEntityInstance.getUid() );
+
+        return enrollment;
+    }
+
+    /**
+     * Cache manager keeping entries in memory, with a region for the given
+     * entities only, the way they are configured in the Hibernate mappings.
+     */
+    private static class InMemoryCacheManager
+        implements HibernateCacheManager
+    {
+        private final Set<Class<?>> cachedEntities = new HashSet<>();
+
+        private final Set<String> entries = new HashSet<>();
+
+        private final Set<String> evictedRegions = new HashSet<>();
+
+        InMemoryCacheManager( Class<?>... cachedEntities )
+        {
+            Collections.addAll( this.cachedEntities, cachedEntities );
+        }
+
+        void put( Class<?> entityClass, Serializable id )
+        {
+            entries.add( entityClass.getName() + "#" + id );
+        }
+
+        boolean contains( Class<?> entityClass, Serializable id )
+        {
+            return entries.contains( entityClass.getName() + "#" + id );
+        }
+
+        Set<String> getEvictedRegions()
+        {
+            return evictedRegions;
+        }
+
+        @Override
+        public boolean isEntityCached( Class<?> entityClass )
+        {
+            return cachedEntities.contains( entityClass );
+        }
+
+        @Override
+        public boolean isCollectionCached( String role )
+        {
+            return false;
+        }
+
+        @Override
+        public int evictEntities( Class<?> entityClass, Collection<? extends Serializable> ids )
+        {
+            evictedRegions.add( entityClass.getName() );
+
+            return (int) ids.stream().filter( id -> entries.remove( entityClass.getName() + "#" + id ) ).count();
+        }
+
+        @Override
+        public int evictCollections( String role, Collection<? extends Serializable> ownerIds )
+        {
+            evictedRegions.add( role );
+
+            return 0;
+        }
+
+        @Override
+        public void clearObjectCache()
+        {
+            entries.clear();
+        }
+
+        @Override
+        public void clearQueryCache()
+        {
+        }
+
+        @Override
+        public void clearCache()
+        {
+            entries.clear();
+        }
+
+        @Override
+        public Statistics getStatistics()
+        {
+            return null;
+        }
+    }
+}
@@ -129,4 +129,26 @@ public class TrackerBundleServiceTest
         List<TrackedEntityInstance> trackedEntityInstances = manager.getAll( TrackedEntityInstance.class );
         assertEquals( 13, trackedEntityInstances.size() );
     }
+
+    @Test
+    public void testTrackedEntityInstanceImportInChunks() throws IOException
+    {
+        TrackerBundle trackerBundle = renderService.fromJson( new ClassPathResource( "tracker/trackedentity_basic_data.json" ).getInputStream(),
+            TrackerBundleParams.class ).toTrackerBundle();
+
+        List<TrackerBundle> trackerBundles = trackerBundleService.create( new TrackerBundleParams()
+            .setChunkSize( 5 )
+            .setTrackedEntities( trackerBundle.getTrackedEntities() ) );
+
+        assertEquals( 3, trackerBundles.size() );
+        assertEquals( 5, trackerBundles.get( 0 ).getTrackedEntities().size() );
+        assertEquals( 5, trackerBundles.get( 1 ).getTrackedEntities().size() );
+        assertEquals( 3, trackerBundles.get( 2 ).getTrackedEntities().size() );
+        assertSame( trackerBundles.get( 0 ).getPreheat(), trackerBundles.get( 2 ).getPreheat() );
+
+        trackerBundles.forEach( tb -> trackerBundleService.commit( tb ) );
+
+        List<TrackedEntityInstance> trackedEntityInstances = manager.getAll( TrackedEntityInstance.class );
+        assertEquals( 13, trackedEntityInstances.size() );
+    }
 }
@@ -0,0 +1,267 @@
+package org.hisp.dhis.commons.collection;
+
+/*
+ * Copyright (c) 2004-2019, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.Arrays;
+
+/**
+ * Hash map from primitive long keys to primitive long values. Keys and values
+ * are stored in two arrays using open addressing with linear probing, which
+ * takes a fraction of the memory of a {@link java.util.HashMap} with boxed
+ * keys and values. Not thread-safe.
+ */
+public class LongLongMap
+{
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private static final float LOAD_FACTOR = 0.75f;
+
+    /**
+     * Marks an empty slot. Entries with this key are stored separately.
+     */
+    private static final long EMPTY = 0L;
+
+    private long[] keys;
+
+    private long[] values;
+
+    private int size;
+
+    private boolean hasEmptyKey;
+
+    private long emptyKeyValue;
+
+    public LongLongMap()
+    {
+        this( DEFAULT_CAPACITY );
+    }
+
+    /**
+     * @param expectedSize the expected number of entries.
+     */
+    public LongLongMap( int expectedSize )
+    {
+        int capacity = Integer.highestOneBit( Math.max( DEFAULT_CAPACITY, (int) (expectedSize / LOAD_FACTOR) ) - 1 ) << 1;
+
+        this.keys = new long[capacity];
+        this.values = new long[capacity];
+    }
+
+    // -------------------------------------------------------------------------
+    // Methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns the value of the given key, or the given default value if the
+     * map contains no entry for the key.
+     *
+     * @param key the key.
+     * @param defaultValue the default value.
+     * @return the value or the default value.
+     */
+    public long getOrDefault( long key, long defaultValue )
+    {
+        if ( key == EMPTY )
+        {
+            return hasEmptyKey ? emptyKeyValue : defaultValue;
+        }
+
+        int slot = findSlot( key );
+
+        return keys[slot] == key ? values[slot] : defaultValue;
+    }
+
+    public boolean containsKey( long key )
+    {
+        if ( key == EMPTY )
+        {
+            return hasEmptyKey;
+        }
+
+        return keys[findSlot( key )] == key;
+    }
+
+    /**
+     * Associates the given value with the given key, replacing any previous
+     * value of the key.
+     *
+     * @param key the key.
+     * @param value the value.
+     */
+    public void put( long key, long value )
+    {
+        if ( key == EMPTY )
+        {
+            size += hasEmptyKey ? 0 : 1;
+            hasEmptyKey = true;
+            emptyKeyValue = value;
+            return;
+        }
+
+        int slot = findSlot( key );
+
+        if ( keys[slot] != key )
+        {
+            keys[slot] = key;
+            size++;
+        }
+
+        values[slot] = value;
+
+        if ( size > keys.length * LOAD_FACTOR )
+        {
+            resize( keys.length << 1 );
+        }
+    }
+
+    /**
+     * Removes the entry of the given key, if any.
+     *
+     * @param key the key.
+     * @return true if an entry was removed.
+     */
+    public boolean remove( long key )
+    {
+        if ( key == EMPTY )
+        {
+            boolean removed = hasEmptyKey;
+            size -= removed ? 1 : 0;
+            hasEmptyKey = false;
+            return removed;
+        }
+
+        int slot = findSlot( key );
+
+        if ( keys[slot] != key )
+        {
+            return false;
+        }
+
+        shiftBack( slot );
+        size--;
+        return true;
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    public void clear()
+    {
+        Arrays.fill( keys, EMPTY );
+        hasEmptyKey = false;
+        size = 0;
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns the slot holding the given key, or the empty slot where the key
+     * would be inserted.
+     */
+    private int findSlot( long key )
+    {
+        int mask = keys.length - 1;
+        int slot = hash( key ) & mask;
+
+        while ( keys[slot] != EMPTY && keys[slot] != key )
+        {
+            slot = (slot + 1) & mask;
+        }
+
+        return slot;
+    }
+
+    /**
+     * Empties the given slot and moves subsequent entries of the same probe
+     * sequence back, so that lookups do not stop early at the emptied slot.
+     */
+    private void shiftBack( int slot )
+    {
+        int mask = keys.length - 1;
+        int gap = slot;
+        int next = slot;
+
+        while ( true )
+        {
+            next = (next + 1) & mask;
+
+            if ( keys[next] == EMPTY )
+            {
+                break;
+            }
+
+            int home = hash( keys[next] ) & mask;
+
+            boolean between = gap <= next ? (gap < home && home <= next) : (gap < home || home <= next);
+
+            if ( !between )
+            {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+        }
+
+        keys[gap] = EMPTY;
+    }
+
+    private void resize( int capacity )
+    {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+
+        keys = new long[capacity];
+        values = new long[capacity];
+
+        for ( int i = 0; i < oldKeys.length; i++ )
+        {
+            if ( oldKeys[i] != EMPTY )
+            {
+                int slot = findSlot( oldKeys[i] );
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private static int hash( long key )
+    {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,143 @@
+package org.hisp.dhis.commons.collection;
+
+/*
+ * Copyright (c) 2004-2019, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LongLongMapTest
+{
+    @Test
+    public void testPutGet()
+    {
+        LongLongMap map = new LongLongMap();
+        map.put( 1L, 10L );
+        map.put( -5L, 50L );
+        map.put( Long.MAX_VALUE, 70L );
+
+        assertEquals( 3, map.size() );
+        assertEquals( 10L, map.getOrDefault( 1L, -1L ) );
+        assertEquals( 50L, map.getOrDefault( -5L, -1L ) );
+        assertEquals( 70L, map.getOrDefault( Long.MAX_VALUE, -1L ) );
+        assertEquals( -1L, map.getOrDefault( 2L, -1L ) );
+        assertTrue( map.containsKey( 1L ) );
+        assertFalse( map.containsKey( 2L ) );
+    }
+
+    @Test
+    public void testPutReplace()
+    {
+        LongLongMap map = new LongLongMap();
+        map.put( 1L, 10L );
+        map.put( 1L, 11L );
+
+        assertEquals( 1, map.size() );
+        assertEquals( 11L, map.getOrDefault( 1L, -1L ) );
+    }
+
+    @Test
+    public void testZeroKey()
+    {
+        LongLongMap map = new LongLongMap();
+
+        assertFalse( map.containsKey( 0L ) );
+
+        map.put( 0L, 5L );
+
+        assertEquals( 1, map.size() );
+        assertEquals( 5L, map.getOrDefault( 0L, -1L ) );
+        assertTrue( map.remove( 0L ) );
+        assertFalse( map.remove( 0L ) );
+        assertEquals( 0, map.size() );
+    }
+
+    @Test
+    public void testRemove()
+    {
+        LongLongMap map = new LongLongMap();
+        map.put( 1L, 10L );
+        map.put( 2L, 20L );
+
+        assertTrue( map.remove( 1L ) );
+        assertFalse( map.remove( 1L ) );
+        assertEquals( 1, map.size() );
+        assertFalse( map.containsKey( 1L ) );
+        assertEquals( 20L, map.getOrDefault( 2L, -1L ) );
+    }
+
+    @Test
+    public void testClear()
+    {
+        LongLongMap map = new LongLongMap();
+        map.put( 0L, 1L );
+        map.put( 1L, 10L );
+        map.clear();
+
+        assertTrue( map.isEmpty() );
+        assertFalse( map.containsKey( 0L ) );
+        assertFalse( map.containsKey( 1L ) );
+    }
+
+    @Test
+    public void testManyEntries()
+    {
+        Random random = new Random( 42 );
+        Map<Long, Long> expected = new HashMap<>();
+        LongLongMap map = new LongLongMap( 4 );
+
+        for ( int i = 0; i < 50_000; i++ )
+        {
+            long key = random.nextInt( 20_000 ) * 1024L;
+
+            if ( random.nextInt( 4 ) == 0 )
+            {
+                assertEquals( expected.remove( key ) != null, map.remove( key ) );
+            }
+            else
+            {
+                expected.put( key, (long) i );
+                map.put( key, i );
+            }
+        }
+
+        assertEquals( expected.size(), map.size() );
+
+        for ( int i = 0; i < 20_000; i++ )
+        {
+            long key = i * 1024L;
+
+            assertEquals( expected.getOrDefault( key, -1L ).longValue(), map.getOrDefault( key, -1L ) );
+        }
+    }
+}
@@ -0,0 +1,9 @@
+-- Remove duplicate counters, keeping the one with the highest counter per owner and key
+delete from sequentialnumbercounter snc
+using sequentialnumbercounter other
+where snc.owneruid = other.owneruid
+and snc.key = other.key
+and ( snc.counter < other.counter or ( snc.counter = other.counter and snc.id < other.id ) );
+
+-- Allow only one counter per owner and key
+alter table sequentialnumbercounter add constraint uk_sequentialnumbercounter_owneruid_key unique ( owneruid, key );
@@ -91,22 +91,25 @@ public class Parser
         walker.walk( listener, parseTree );
     }
 
-    // -------------------------------------------------------------------------
-    // Supportive methods
-    // -------------------------------------------------------------------------
-
     /**
      * Gets the ANTLR4 parse tree for the given expression string,
      * from the cache if possible.
+     * <p/>
+     * This is for callers that translate the parse tree once into their
+     * own form, instead of visiting it each time the expression is used.
      *
      * @param expr the expression to parse.
      * @return the ANTLR4 parse tree.
      */
-    private static ParseTree getParseTree( String expr )
+    public static ParseTree getParseTree( String expr )
     {
         return EXPRESSION_PARSE_TREES.get( expr, e -> createParseTree( e ) ).orElse( null );
     }
 
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
     /**
      * Parses an expression into an ANTLR4 ParseTree.
      *
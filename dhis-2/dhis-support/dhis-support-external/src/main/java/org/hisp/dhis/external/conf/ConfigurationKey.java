@@ -77,6 +77,12 @@ public enum ConfigurationKey
     PROGRAM_TEMPORARY_OWNERSHIP_TIMEOUT( "tracker.temporary.ownership.timeout", "3", false ),
     LEADER_TIME_TO_LIVE( "leader.time.to.live.minutes", "2", false ),
     ANALYTICS_CACHE_EXPIRATION( "analytics.cache.expiration", "0" ),
+    ANALYTICS_CACHE_STALE_EXPIRATION( "analytics.cache.stale_expiration", "600" ),
+    ANALYTICS_QUERY_THREADS( "analytics.query.threads", "8" ),
+    ANALYTICS_QUERY_QUEUE_SIZE( "analytics.query.queue_size", "200" ),
+    ANALYTICS_QUERY_TIMEOUT( "analytics.query.timeout", "0" ),
+    ANALYTICS_TABLE_LAYOUT( "analytics.table.layout", "default" ),
+    ANALYTICS_TABLE_COMPRESSION( "analytics.table.compression", "" ),
     AMQP_MODE( "amqp.mode", "EMBEDDED" ),
     AMQP_HOST( "amqp.host", "127.0.0.1" ),
     AMQP_PORT( "amqp.port", "15672" ),
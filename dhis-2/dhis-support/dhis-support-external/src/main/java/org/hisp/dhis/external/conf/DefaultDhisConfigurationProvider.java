@@ -252,6 +252,18 @@ public class DefaultDhisConfigurationProvider
         return getAnalyticsCacheExpiration() > 0;
     }
 
+    @Override
+    public int getAnalyticsQueryThreads()
+    {
+        return Integer.parseInt( getProperty( ConfigurationKey.ANALYTICS_QUERY_THREADS ) );
+    }
+
+    @Override
+    public long getAnalyticsQueryTimeout()
+    {
+        return Long.parseLong( getProperty( ConfigurationKey.ANALYTICS_QUERY_TIMEOUT ) );
+    }
+
     @Override
     public boolean isClusterEnabled()
     {
@@ -130,6 +130,18 @@ public interface DhisConfigurationProvider
      */
     public boolean isAnalyticsCacheEnabled();
 
+    /**
+     * Returns the max number of analytics queries which are executed
+     * concurrently against the database.
+     */
+    int getAnalyticsQueryThreads();
+
+    /**
+     * Returns the time in seconds an analytics request may spend waiting for
+     * its queries, where 0 means no limit.
+     */
+    long getAnalyticsQueryTimeout();
+
     /**
      * Indicates whether clustering is enabled.
      *
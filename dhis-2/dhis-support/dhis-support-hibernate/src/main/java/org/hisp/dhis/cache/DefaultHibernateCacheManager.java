@@ -28,12 +28,18 @@ package org.hisp.dhis.cache;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import org.hibernate.Cache;
 import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.metamodel.spi.MetamodelImplementor;
 import org.hibernate.stat.Statistics;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import java.io.Serializable;
+import java.util.Collection;
+
 /**
  * @author Lars Helge Overland
  */
@@ -80,9 +86,68 @@ public class DefaultHibernateCacheManager
         log.info( "Cleared Hibernate caches" );
     }
     
+    @Override
+    public boolean isEntityCached( Class<?> entityClass )
+    {
+        return getMetamodel().entityPersister( entityClass ).hasCache();
+    }
+
+    @Override
+    public boolean isCollectionCached( String role )
+    {
+        return getMetamodel().collectionPersister( role ).hasCache();
+    }
+
+    @Override
+    public int evictEntities( Class<?> entityClass, Collection<? extends Serializable> ids )
+    {
+        Cache cache = sessionFactory.getCache();
+
+        int evicted = 0;
+
+        for ( Serializable id : ids )
+        {
+            if ( cache.containsEntity( entityClass, id ) )
+            {
+                cache.evictEntity( entityClass, id );
+                evicted++;
+            }
+        }
+
+        return evicted;
+    }
+
+    @Override
+    public int evictCollections( String role, Collection<? extends Serializable> ownerIds )
+    {
+        Cache cache = sessionFactory.getCache();
+
+        int evicted = 0;
+
+        for ( Serializable ownerId : ownerIds )
+        {
+            if ( cache.containsCollection( role, ownerId ) )
+            {
+                cache.evictCollection( role, ownerId );
+                evicted++;
+            }
+        }
+
+        return evicted;
+    }
+
     @Override
     public Statistics getStatistics()
     {
         return sessionFactory.getStatistics();
     }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private MetamodelImplementor getMetamodel()
+    {
+        return sessionFactory.unwrap( SessionFactoryImplementor.class ).getMetamodel();
+    }
 }
@@ -30,6 +30,9 @@ package org.hisp.dhis.cache;
 
 import org.hibernate.stat.Statistics;
 
+import java.io.Serializable;
+import java.util.Collection;
+
 /**
  * @author Lars Helge Overland
  */
@@ -49,6 +52,40 @@ public interface HibernateCacheManager
      * Evicts all entities, collections and queries from the cache.
      */
     void clearCache();
+
+    /**
+     * Indicates whether the given entity has a second-level cache region.
+     *
+     * @param entityClass the entity class.
+     * @return true if instances of the entity are cached.
+     */
+    boolean isEntityCached( Class<?> entityClass );
+
+    /**
+     * Indicates whether the given collection role has a second-level cache region.
+     *
+     * @param role the collection role, e.g. org.hisp.dhis.program.ProgramInstance.programStageInstances.
+     * @return true if collections of the role are cached.
+     */
+    boolean isCollectionCached( String role );
+
+    /**
+     * Evicts the given instances of an entity from the cache.
+     *
+     * @param entityClass the entity class.
+     * @param ids the identifiers of the instances to evict.
+     * @return the number of instances which were present in the cache.
+     */
+    int evictEntities( Class<?> entityClass, Collection<? extends Serializable> ids );
+
+    /**
+     * Evicts the given collections of a collection role from the cache.
+     *
+     * @param role the collection role, e.g. org.hisp.dhis.program.ProgramInstance.programStageInstances.
+     * @param ownerIds the identifiers of the collection owners.
+     * @return the number of collections which were present in the cache.
+     */
+    int evictCollections( String role, Collection<? extends Serializable> ownerIds );
     
     /**
      * Gets the statistics.
@@ -57,6 +57,8 @@ import javax.persistence.criteria.Expression;
 import javax.persistence.criteria.Order;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -536,6 +538,24 @@ public class HibernateGenericStore<T>
         return getSession().createQuery( query ).list();
     }
 
+    @Override
+    public List<T> getByAttributeAndValues( Attribute attribute, Collection<String> values )
+    {
+        if ( values.isEmpty() )
+        {
+            return new ArrayList<>();
+        }
+
+        CriteriaBuilder builder = getCriteriaBuilder();
+
+        CriteriaQuery<T> query = builder.createQuery( getClazz() );
+        Root<T> root = query.from( getClazz() );
+        query.select( root );
+        query.where( builder.function( FUNCTION_JSONB_EXTRACT_PATH_TEXT, String.class, root.get( "attributeValues" ),
+            builder.literal( attribute.getUid() ), builder.literal( "value" ) ).in( values ) );
+        return getSession().createQuery( query ).list();
+    }
+
     @Override
     public List<AttributeValue> getAttributeValueByAttributeAndValue( Attribute attribute, String value )
     {
@@ -0,0 +1,65 @@
+package org.hisp.dhis.system.callable;
+
+/*
+ * Copyright (c) 2004-2019, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import org.hisp.dhis.common.IdScheme;
+import org.hisp.dhis.common.IdentifiableObject;
+import org.hisp.dhis.common.IdentifierIndex;
+
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Retrieves the object with the given identifier and id scheme through the
+ * shared {@link IdentifierIndex}.
+ */
+public class IdentifierIndexCallable<T extends IdentifiableObject>
+    extends IdentifiableObjectCallable<T>
+{
+    private IdentifierIndex identifierIndex;
+
+    public IdentifierIndexCallable( IdentifierIndex identifierIndex, Class<T> clazz, IdScheme idScheme, String id )
+    {
+        super( null, clazz, idScheme, id );
+        this.identifierIndex = identifierIndex;
+    }
+
+    @Override
+    public T call()
+        throws ExecutionException
+    {
+        return identifierIndex.getObject( clazz, idScheme, id );
+    }
+
+    @Override
+    public IdentifierIndexCallable<T> setId( String id )
+    {
+        this.id = id;
+        return this;
+    }
+}
@@ -188,7 +188,7 @@ public class MathUtils
     /**
      * Returns an JEP parser instance.
      */
-    private static JEP getJep( boolean customFunctions )
+    public static JEP getJep( boolean customFunctions )
     {
         final JEP parser = new JEP();
         parser.addStandardFunctions();
@@ -140,6 +140,18 @@ public class H2DhisConfigurationProvider
         return false;
     }
 
+    @Override
+    public int getAnalyticsQueryThreads()
+    {
+        return Integer.parseInt( getProperty( ConfigurationKey.ANALYTICS_QUERY_THREADS ) );
+    }
+
+    @Override
+    public long getAnalyticsQueryTimeout()
+    {
+        return 0;
+    }
+
     @Override
     public boolean isClusterEnabled()
     {
@@ -644,7 +644,12 @@ public class EventController
             eventIds, skipEventId, assignedUserMode, assignedUserIds, filter, dataElementOrders.keySet(), false,
             includeDeleted );
 
-        Events events = eventService.getEvents( params );
+        // Validate before any response headers are set, as the streamed
+        // export only reads events once the response is being written
+
+        eventService.validate( params );
+
+        Events events = params.isSkipPaging() ? null : eventService.getEvents( params );
 
         OutputStream outputStream = response.getOutputStream();
         response.setContentType( "application/csv" );
@@ -661,7 +666,14 @@ public class EventController
             response.addHeader( "Content-Disposition", "attachment; filename=" + attachment );
         }
 
-        csvEventService.writeEvents( outputStream, events, !skipHeader );
+        if ( events == null )
+        {
+            csvEventService.writeEvents( outputStream, consumer -> eventService.streamEvents( params, consumer ), !skipHeader );
+        }
+        else
+        {
+            csvEventService.writeEvents( outputStream, events, !skipHeader );
+        }
     }
 
     // -------------------------------------------------------------------------
@@ -0,0 +1,167 @@
+package org.hisp.dhis.webapi.controller.event;
+
+/*
+ * Copyright (c) 2004-2019, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
+
+import java.util.function.Consumer;
+
+import org.hisp.dhis.common.IdSchemes;
+import org.hisp.dhis.common.IllegalQueryException;
+import org.hisp.dhis.dxf2.events.event.DataValue;
+import org.hisp.dhis.dxf2.events.event.Event;
+import org.hisp.dhis.dxf2.events.event.EventSearchParams;
+import org.hisp.dhis.dxf2.events.event.EventService;
+import org.hisp.dhis.dxf2.events.event.csv.CsvEventService;
+import org.hisp.dhis.dxf2.events.event.csv.DefaultCsvEventService;
+import org.hisp.dhis.webapi.utils.InputUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.Spy;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.google.common.collect.Sets;
+
+public class EventControllerTest
+{
+    @Mock
+    private EventService eventService;
+
+    @Mock
+    private InputUtils inputUtils;
+
+    @Spy
+    private CsvEventService csvEventService = new DefaultCsvEventService();
+
+    @InjectMocks
+    private EventController controller;
+
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    private MockHttpServletRequest request = new MockHttpServletRequest();
+
+    private MockHttpServletResponse response = new MockHttpServletResponse();
+
+    private EventSearchParams params;
+
+    @Before
+    public void setUpTest()
+    {
+        params = new EventSearchParams().setSkipPaging( true );
+
+        Mockito.when( eventService.getFromUrl( any(), any(), any(), any(), any(), any(), any(), any(), any(), any(),
+            any(), any(), any(), any(), any(), any(), any(), any(), any(), anyBoolean(), anyBoolean(), any(), any(),
+            anyBoolean(), any(), any(), any(), any(), any(), any(), anyBoolean(), anyBoolean() ) ).thenReturn( params );
+    }
+
+    @Test
+    @SuppressWarnings( "unchecked" )
+    public void testGetCsvEventsStreamed()
+        throws Exception
+    {
+        Mockito.doAnswer( invocation -> {
+            Consumer<Event> consumer = invocation.getArgument( 1 );
+            consumer.accept( createEvent( "eventUidA", "valueA" ) );
+            consumer.accept( createEvent( "eventUidB", "valueB" ) );
+            return null;
+        } ).when( eventService ).streamEvents( eq( params ), any( Consumer.class ) );
+
+        getCsvEvents( "events.csv" );
+
+        String csv = response.getContentAsString();
+
+        assertEquals( "application/csv", response.getContentType() );
+        assertEquals( "attachment; filename=events.csv", response.getHeader( "Content-Disposition" ) );
+        assertTrue( csv, csv.startsWith( "event," ) );
+        assertTrue( csv, csv.contains( "eventUidA" ) && csv.contains( "valueA" ) );
+        assertTrue( csv, csv.contains( "eventUidB" ) && csv.contains( "valueB" ) );
+        assertEquals( csv, 3, csv.split( "\n" ).length );
+
+        Mockito.verify( eventService, Mockito.never() ).getEvents( any() );
+    }
+
+    @Test
+    public void testGetCsvEventsInvalidParams()
+        throws Exception
+    {
+        Mockito.doThrow( new IllegalQueryException( "Invalid" ) ).when( eventService ).validate( params );
+
+        try
+        {
+            getCsvEvents( "events.csv" );
+
+            fail( "Expected an IllegalQueryException" );
+        }
+        catch ( IllegalQueryException ex )
+        {
+            assertEquals( "Invalid", ex.getMessage() );
+        }
+
+        assertNull( response.getContentType() );
+        assertNull( response.getHeader( "Content-Disposition" ) );
+        assertEquals( 0, response.getContentAsByteArray().length );
+
+        Mockito.verifyZeroInteractions( csvEventService );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private void getCsvEvents( String attachment )
+        throws Exception
+    {
+        controller.getCsvEvents( "programUid", null, null, null, null, null, null, null, null, null, null, null, null,
+            null, null, null, null, null, null, null, null, null, false, true, null, null, null, null, null,
+            attachment, false, false, new IdSchemes(), response, request );
+    }
+
+    private Event createEvent( String uid, String value )
+    {
+        Event event = new Event();
+        event.setEvent( uid );
+        event.setProgram( "programUid" );
+        event.setDataValues( Sets.newHashSet( new DataValue( "dataElementUid", value ) ) );
+        return event;
+    }
+}